@@ -33,6 +33,10 @@ package com.google.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,6 +72,54 @@ public final class CodedInputStream {
     return new CodedInputStream(raf);
   }
 
+  /**
+   * Create a new CodedInputStream reading directly from memory mapped chunks
+   * of a file (see {@link #mapFile(FileChannel)}). Chunks are not copied and
+   * could be shared between several streams, seeks only move the pointer.
+   */
+  public static CodedInputStream newInstance(ByteBuffer[] mappedChunks) {
+    return new CodedInputStream(mappedChunks);
+  }
+
+  /**
+   * Create a new CodedInputStream reading with positional reads
+   * ({@link FileChannel#read(ByteBuffer, long)}) from the channel of source. Reads don't
+   * change position of channel, so one channel could be shared by many streams
+   * used from different threads, each stream keeps own position and buffer.
+   */
+  public static CodedInputStream newInstance(ChannelSource source) throws IOException {
+    return new CodedInputStream(source);
+  }
+
+  /**
+   * osmand change: shared channel for positional reads. Interrupt of a thread reading
+   * the channel closes it for all streams, so streams ask source to reopen it.
+   */
+  public interface ChannelSource {
+
+    FileChannel getChannel() throws IOException;
+
+    /**
+     * Reopens channel if it is still the closed one, otherwise returns channel reopened by another stream.
+     */
+    FileChannel reopen(FileChannel closed) throws IOException;
+  }
+
+  /**
+   * Maps whole file into memory as read only chunks of {@link #MAPPED_CHUNK_SIZE}
+   * bytes (ByteBuffer can't address more than 2 GB).
+   */
+  public static ByteBuffer[] mapFile(FileChannel channel) throws IOException {
+    long length = channel.size();
+    int chunks = (int) ((length + MAPPED_CHUNK_SIZE - 1) / MAPPED_CHUNK_SIZE);
+    ByteBuffer[] res = new ByteBuffer[Math.max(chunks, 1)];
+    for (int i = 0; i < res.length; i++) {
+      long start = (long) i * MAPPED_CHUNK_SIZE;
+      res[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAPPED_CHUNK_SIZE, length - start));
+    }
+    return res;
+  }
+
   /**
    * Create a new CodedInputStream wrapping the given byte array slice.
    */
@@ -222,7 +274,7 @@ public final class CodedInputStream {
   /** Read a {@code string} field value from the stream. */
   public String readString() throws IOException {
     final int size = readRawVarint32();
-    if (size <= (bufferSize - bufferPos) && size > 0) {
+    if (buffer != null && size <= (bufferSize - bufferPos) && size > 0) {
       // Fast path:  We already have the bytes in a contiguous buffer, so
       //   just copy directly from it.
       final String result = new String(buffer, bufferPos, size, "UTF-8");
@@ -324,7 +376,7 @@ public final class CodedInputStream {
     final int size = readRawVarint32();
     if (size == 0) {
       return ByteString.EMPTY;
-    } else if (size <= (bufferSize - bufferPos) && size > 0) {
+    } else if (buffer != null && size <= (bufferSize - bufferPos) && size > 0) {
       // Fast path:  We already have the bytes in a contiguous buffer, so
       //   just copy directly from it.
       final ByteString result = ByteString.copyFrom(buffer, bufferPos, size);
@@ -539,6 +591,16 @@ public final class CodedInputStream {
 
   private final byte[] buffer;
   private RandomAccessFile raf;
+  // osmand change: memory mapped mode, buffer window is [mappedBase, mappedBase + bufferSize) of mappedChunk
+  private final ByteBuffer[] mappedChunks;
+  private ByteBuffer mappedChunk;
+  private int mappedBase;
+  private long mappedPosition;
+  // osmand change: positional reads mode, channelPosition is position of file after current buffer
+  private final ChannelSource channelSource;
+  private FileChannel channel;
+  private final long channelSize;
+  private long channelPosition;
   private int bufferSize;
   private int bufferSizeAfterLimit;
   private int bufferPos;
@@ -570,6 +632,7 @@ public final class CodedInputStream {
   public static final long DEFAULT_SIZE_LIMIT = Integer.MAX_VALUE;// 64 << 20;  // 64MB
   public static final long MAX_DEFAULT_SIZE_LIMIT = 8l << 40; // 8 TB
   private static final int BUFFER_SIZE = 5 * 1024;
+  public static final int MAPPED_CHUNK_SIZE = 1 << 30;
 
   private CodedInputStream(final byte[] buffer, final int off, final int len) {
     this.buffer = buffer;
@@ -577,6 +640,10 @@ public final class CodedInputStream {
     bufferPos = off;
     totalBytesRetired = -off;
     input = null;
+    mappedChunks = null;
+    channelSource = null;
+    channel = null;
+    channelSize = 0;
   }
 
    // osmand change
@@ -587,6 +654,40 @@ public final class CodedInputStream {
 		totalBytesRetired = 0;
 		this.raf = raf;
 		input = null;
+		mappedChunks = null;
+		channelSource = null;
+		channel = null;
+		channelSize = 0;
+	}
+
+   // osmand change
+   private CodedInputStream(final ChannelSource channelSource) throws IOException {
+		buffer = new byte[BUFFER_SIZE];
+		this.bufferSize = 0;
+		bufferPos = 0;
+		totalBytesRetired = 0;
+		input = null;
+		mappedChunks = null;
+		this.channelSource = channelSource;
+		this.channel = channelSource.getChannel();
+		channelSize = channel.size();
+	}
+
+   // osmand change
+   private CodedInputStream(final ByteBuffer[] mappedChunks) {
+		buffer = null;
+		this.bufferSize = 0;
+		bufferPos = 0;
+		totalBytesRetired = 0;
+		input = null;
+		// duplicates share content but keep own position, so chunks could be shared between streams
+		this.mappedChunks = new ByteBuffer[mappedChunks.length];
+		for (int i = 0; i < mappedChunks.length; i++) {
+			this.mappedChunks[i] = mappedChunks[i].duplicate();
+		}
+		channelSource = null;
+		channel = null;
+		channelSize = 0;
 	}
 
   private CodedInputStream(final InputStream input) {
@@ -595,6 +696,10 @@ public final class CodedInputStream {
     bufferPos = 0;
     totalBytesRetired = 0;
     this.input = input;
+    mappedChunks = null;
+    channelSource = null;
+    channel = null;
+    channelSize = 0;
   }
 
   /**
@@ -767,7 +872,32 @@ public final class CodedInputStream {
     totalBytesRetired += bufferSize;
 
     bufferPos = 0;
-    if (raf != null) {
+    if (mappedChunks != null) {
+    	// osmand change
+    	totalBytesRetired = mappedPosition;
+    	int chunk = (int) (mappedPosition / MAPPED_CHUNK_SIZE);
+    	if (chunk < mappedChunks.length) {
+    		mappedChunk = mappedChunks[chunk];
+    		mappedBase = (int) (mappedPosition - (long) chunk * MAPPED_CHUNK_SIZE);
+    		bufferSize = mappedChunk.limit() - mappedBase;
+    	} else {
+    		bufferSize = 0;
+    	}
+    	if (bufferSize > 0) {
+    		mappedPosition += bufferSize;
+    	} else {
+    		bufferSize = -1;
+    	}
+    } else if (channel != null) {
+    	// osmand change
+    	totalBytesRetired = channelPosition;
+    	bufferSize = (int) Math.min(channelSize - channelPosition, buffer.length);
+    	if (bufferSize > 0) {
+    		readChannelFully(buffer, 0, bufferSize);
+    	} else {
+    		bufferSize = -1;
+    	}
+    } else if (raf != null) {
     	// osmand change
     	totalBytesRetired = raf.getFilePointer();
     	long remain = raf.length() - raf.getFilePointer();
@@ -813,9 +943,41 @@ public final class CodedInputStream {
     if (bufferPos == bufferSize) {
       refillBuffer(true);
     }
+    if (mappedChunk != null) {
+      return mappedChunk.get(mappedBase + bufferPos++);
+    }
     return buffer[bufferPos++];
   }
 
+  // osmand change: reads bytes at channelPosition and moves it
+  private void readChannelFully(final byte[] bytes, final int off, final int len) throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(bytes, off, len);
+    while (bb.hasRemaining()) {
+      final int n;
+      try {
+        n = channel.read(bb, channelPosition + bb.position() - off);
+      } catch (ClosedByInterruptException e) {
+        // this thread is interrupted: reopen channel for other streams and stop reading
+        channel = channelSource.reopen(channel);
+        throw e;
+      } catch (ClosedChannelException e) {
+        // closed by interrupt of another thread, read again from reopened channel
+        channel = channelSource.reopen(channel);
+        continue;
+      }
+      if (n < 0) {
+        throw InvalidProtocolBufferException.truncatedMessage();
+      }
+    }
+    channelPosition += len;
+  }
+
+  // osmand change: copies bytes of current mapped window, chunk position is owned by this stream
+  private void readMapped(final int windowPos, final byte[] bytes, final int off, final int len) {
+    mappedChunk.position(mappedBase + windowPos);
+    mappedChunk.get(bytes, off, len);
+  }
+
   /**
    * Read a fixed size of bytes from the input.
    *
@@ -834,7 +996,23 @@ public final class CodedInputStream {
       throw InvalidProtocolBufferException.truncatedMessage();
     }
 
-    if (size <= bufferSize - bufferPos) {
+    if (mappedChunks != null) {
+      // osmand change: mapped window could be only split by chunk boundary
+      final byte[] bytes = new byte[size];
+      int pos = Math.min(size, bufferSize - bufferPos);
+      if (pos > 0) {
+        readMapped(bufferPos, bytes, 0, pos);
+        bufferPos += pos;
+      }
+      while (pos < size) {
+        refillBuffer(true);
+        int n = Math.min(size - pos, bufferSize);
+        readMapped(0, bytes, pos, n);
+        bufferPos = n;
+        pos += n;
+      }
+      return bytes;
+    } else if (size <= bufferSize - bufferPos) {
       // We have all the bytes we need already.
       final byte[] bytes = new byte[size];
       System.arraycopy(buffer, bufferPos, bytes, 0, size);
@@ -895,7 +1073,10 @@ public final class CodedInputStream {
         while (pos < chunk.length) {
         	final int n;
         	// osmand change
-        	if(raf != null) {
+        	if (channel != null) {
+        		readChannelFully(chunk, pos, chunk.length - pos);
+        		n = chunk.length - pos;
+        	} else if(raf != null) {
         		raf.readFully(chunk, pos, chunk.length - pos);
         		n = chunk.length - pos;
         	} else {
@@ -957,7 +1138,18 @@ public final class CodedInputStream {
       long pos = bufferSize - bufferPos;
       bufferPos = bufferSize;
 
-      if(raf != null) {
+      if (mappedChunks != null) {
+         totalBytesRetired += bufferSize;
+         bufferPos = 0;
+         bufferSize = 0;
+         mappedPosition = totalBytesRetired + (size - pos);
+         totalBytesRetired = mappedPosition;
+      } else if (channel != null) {
+         bufferPos = 0;
+         bufferSize = 0;
+         channelPosition += size - pos;
+         totalBytesRetired = channelPosition;
+      } else if(raf != null) {
          bufferPos = 0;
          bufferSize = 0;
          raf.seek(raf.getFilePointer() + (size - pos));
@@ -977,6 +1169,15 @@ public final class CodedInputStream {
     }
   }
   
+  // osmand change: drops limits and buffer left by read stopped with exception,
+  // so stream could be reused (next read should seek)
+  public void resetState() throws IOException {
+    currentLimit = sizeLimit;
+    bufferPos = 0;
+    bufferSize = 0;
+    seek(0);
+  }
+
   public void seek(long pointer) throws IOException {
 	  if (pointer - totalBytesRetired >= 0 && pointer - totalBytesRetired < bufferSize) {
 		  if (pointer > currentLimit) {
@@ -987,7 +1188,13 @@ public final class CodedInputStream {
 	  } else {
 		  totalBytesRetired = pointer;
 		  bufferSizeAfterLimit = 0;
-		  raf.seek(pointer);
+		  if (mappedChunks != null) {
+			  mappedPosition = pointer;
+		  } else if (channel != null) {
+			  channelPosition = pointer;
+		  } else {
+			  raf.seek(pointer);
+		  }
 		  bufferPos = 0;
 		  bufferSize = 0;
 	  }
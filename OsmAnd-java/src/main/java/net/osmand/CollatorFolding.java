@@ -0,0 +1,113 @@
+package net.osmand;
+
+import java.text.CollationElementIterator;
+import java.text.RuleBasedCollator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Char by char folding for primary collator ({@link OsmAndCollator#primaryJavaCollator()}):
+ * chars with the same primary weight are replaced with one representative char, ignorable chars are removed
+ * and chars with several weights (expansions) are replaced with representatives of every weight.
+ * Strings equal for collator have equal folded form.
+ */
+public class CollatorFolding {
+
+	// returned by foldChar for ignorable chars
+	public static final char IGNORABLE = Character.MAX_VALUE;
+	// returned by foldChar for chars which are not folded to one char (expansions, surrogates)
+	public static final char COMPLEX = Character.MAX_VALUE - 1;
+	// chars missing in collation rules have this primary weight followed by weight of char code
+	private static final int UNMAPPED_PRIMARY = 0x7fff;
+
+	private static final char[] FOLD = new char[Character.MAX_VALUE + 1];
+	private static final Map<Character, String> EXPANSIONS = new HashMap<>();
+	public static final int HASH;
+
+	static {
+		createFoldTable();
+		HASH = 31 * Arrays.hashCode(FOLD) + EXPANSIONS.hashCode();
+	}
+
+	/**
+	 * @return representative char of c, {@link #IGNORABLE} or {@link #COMPLEX}
+	 */
+	public static char foldChar(char c) {
+		return FOLD[c];
+	}
+
+	public static String fold(String s) {
+		// as CollatorStringMatcher.simplifyStringAndAlignChars, but folded keys of index file don't depend on locale
+		s = s.toLowerCase(Locale.ROOT).replace("ß", "ss");
+		StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			char f = FOLD[c];
+			if (f == IGNORABLE) {
+				continue;
+			}
+			if (f != COMPLEX) {
+				sb.append(f);
+			} else if (EXPANSIONS.containsKey(c)) {
+				sb.append(EXPANSIONS.get(c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void createFoldTable() {
+		java.text.Collator collator = OsmAndCollator.primaryJavaCollator();
+		Map<Integer, Character> primaryChars = new HashMap<>();
+		Map<Character, TIntArrayList> expansions = new HashMap<>();
+		for (int c = 0; c < FOLD.length; c++) {
+			FOLD[c] = (char) c;
+			if (!(collator instanceof RuleBasedCollator)) {
+				continue;
+			}
+			if (Character.isSurrogate((char) c) || c == COMPLEX || c == IGNORABLE) {
+				FOLD[c] = COMPLEX;
+				continue;
+			}
+			TIntArrayList primaries = new TIntArrayList(2);
+			CollationElementIterator it = ((RuleBasedCollator) collator).getCollationElementIterator(String.valueOf((char) c));
+			int e;
+			while ((e = it.next()) != CollationElementIterator.NULLORDER) {
+				int primary = CollationElementIterator.primaryOrder(e);
+				if (primary != 0) {
+					primaries.add(primary);
+				}
+			}
+			if (primaries.size() == 2 && primaries.get(0) == UNMAPPED_PRIMARY) {
+				// unique weight
+				continue;
+			}
+			if (primaries.size() == 1) {
+				Character r = primaryChars.get(primaries.get(0));
+				if (r == null) {
+					r = (char) c;
+					primaryChars.put(primaries.get(0), r);
+				}
+				FOLD[c] = r;
+			} else if (primaries.isEmpty()) {
+				FOLD[c] = IGNORABLE;
+			} else {
+				FOLD[c] = COMPLEX;
+				expansions.put((char) c, primaries);
+			}
+		}
+		for (Map.Entry<Character, TIntArrayList> e : expansions.entrySet()) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < e.getValue().size(); i++) {
+				Character r = primaryChars.get(e.getValue().get(i));
+				sb.append(r == null ? e.getKey() : r);
+			}
+			EXPANSIONS.put(e.getKey(), sb.toString());
+		}
+	}
+}
@@ -50,6 +50,14 @@ public class CollatorStringMatcher implements StringMatcher {
 	public Collator getCollator() {
 		return collator;
 	}
+
+	public String getPart() {
+		return part;
+	}
+
+	public StringMatcherMode getMode() {
+		return mode;
+	}
 	
 	@Override
 	public boolean matches(String name) {
@@ -181,13 +189,13 @@ public class CollatorStringMatcher implements StringMatcher {
 		return false;
 	}
 	
-	private static String simplifyStringAndAlignChars(String fullText) {
+	static String simplifyStringAndAlignChars(String fullText) {
 		fullText = fullText.toLowerCase(Locale.getDefault());
 		fullText = alignChars(fullText);
 		return fullText;
 	}
 
-	private static String alignChars(String fullText) {
+	static String alignChars(String fullText) {
 		int i;
 		while ((i = fullText.indexOf('ß')) != -1) {
 			fullText = fullText.substring(0, i) + "ss" + fullText.substring(i+1);
@@ -195,7 +203,7 @@ public class CollatorStringMatcher implements StringMatcher {
 		return fullText;
 	}
 
-	private static boolean isSpace(char c){
+	static boolean isSpace(char c){
 		return !Character.isLetter(c) && !Character.isDigit(c);
 	}
 	
@@ -0,0 +1,224 @@
+package net.osmand;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collator matcher with the same semantics as {@link CollatorStringMatcher} which compares folded chars
+ * ({@link CollatorFolding}) instead of collator comparisons of substrings. Query is folded once,
+ * folded names are kept in shared LRU cache (same names are matched by many matchers while search text is typed),
+ * cache is split to stripes by hash of name with own lock and limit, so threads of search rarely wait for each other.
+ * Names or query with chars which could not be folded to one char (expansions) are matched with collator.
+ */
+public class FoldedCollatorStringMatcher extends CollatorStringMatcher {
+
+	static final int NAME_CACHE_SIZE = 16384;
+	private static final int NAME_CACHE_STRIPES = 16;
+	private static final NameCache[] nameCache = new NameCache[NAME_CACHE_STRIPES];
+
+	static {
+		for (int i = 0; i < nameCache.length; i++) {
+			nameCache[i] = new NameCache(NAME_CACHE_SIZE / NAME_CACHE_STRIPES);
+		}
+	}
+
+	// folded chars of query without ignorable chars, null if query can't be folded
+	private final char[] query;
+	// length of query (substrings of the same length are compared by collator)
+	private final int queryLength;
+
+	public FoldedCollatorStringMatcher(String part, StringMatcherMode mode) {
+		super(part, mode);
+		String q = alignChars(getPart());
+		this.queryLength = q.length();
+		char[] chars = foldChars(q);
+		this.query = chars == null ? null : removeIgnorable(chars);
+	}
+
+	@Override
+	public boolean matches(String name) {
+		if (query != null) {
+			FoldedName fn = getFoldedName(name);
+			if (getMode() == StringMatcherMode.CHECK_CONTAINS) {
+				if (fn.nameChars != null) {
+					return fcontains(fn.nameChars);
+				}
+			} else if (fn.chars != null) {
+				return fmatches(fn);
+			}
+		}
+		return cmatches(getCollator(), name, getPart(), getMode());
+	}
+
+	private boolean fmatches(FoldedName name) {
+		switch (getMode()) {
+		case CHECK_EQUALS_FROM_SPACE:
+			return fstartsWith(name, true, true, true);
+		case CHECK_STARTS_FROM_SPACE:
+			return fstartsWith(name, true, true, false);
+		case CHECK_STARTS_FROM_SPACE_NOT_BEGINNING:
+			return fstartsWith(name, false, true, false);
+		case CHECK_ONLY_STARTS_WITH:
+			return fstartsWith(name, true, false, false);
+		case CHECK_EQUALS:
+			return fstartsWith(name, false, false, true);
+		}
+		return false;
+	}
+
+	// same as ccontains: any substring shorter than 2 query lengths is equal to query
+	private boolean fcontains(char[] chars) {
+		if (chars.length <= queryLength) {
+			return regionMatches(chars, 0, chars.length);
+		}
+		for (int pos = 0; pos <= chars.length - queryLength + 1; pos++) {
+			int end = Math.min(pos + queryLength * 2, chars.length);
+			int j = 0;
+			for (int i = pos; i < end && j < query.length; i++) {
+				if (chars[i] == CollatorFolding.IGNORABLE) {
+					continue;
+				}
+				if (chars[i] != query[j]) {
+					break;
+				}
+				j++;
+			}
+			if (j == query.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// same as cstartsWith
+	private boolean fstartsWith(FoldedName searchIn, boolean checkBeginning, boolean checkSpaces, boolean equals) {
+		char[] chars = searchIn.chars;
+		boolean[] spaces = searchIn.spaces;
+		int searchInLength = chars.length;
+		int startLength = queryLength;
+		if (startLength == 0) {
+			return true;
+		}
+		if (startLength > searchInLength) {
+			return false;
+		}
+		if (checkBeginning && regionMatches(chars, 0, startLength)) {
+			if (!equals || startLength == searchInLength || spaces[startLength]) {
+				return true;
+			}
+		}
+		if (checkSpaces) {
+			for (int i = 1; i <= searchInLength - startLength; i++) {
+				if (spaces[i - 1] && !spaces[i] && regionMatches(chars, i, startLength)) {
+					if (!equals || i + startLength == searchInLength || spaces[i + startLength]) {
+						return true;
+					}
+				}
+			}
+		}
+		if (!checkBeginning && !checkSpaces && equals) {
+			return regionMatches(chars, 0, searchInLength);
+		}
+		return false;
+	}
+
+	// collator equals of substring and query: same chars except ignorable
+	private boolean regionMatches(char[] chars, int offset, int length) {
+		int j = 0;
+		for (int i = offset; i < offset + length; i++) {
+			char c = chars[i];
+			if (c == CollatorFolding.IGNORABLE) {
+				continue;
+			}
+			if (j == query.length || query[j] != c) {
+				return false;
+			}
+			j++;
+		}
+		return j == query.length;
+	}
+
+	private static FoldedName getFoldedName(String name) {
+		int h = name.hashCode();
+		NameCache cache = nameCache[(h ^ (h >>> 16)) & (NAME_CACHE_STRIPES - 1)];
+		FoldedName fn;
+		synchronized (cache) {
+			fn = cache.get(name);
+		}
+		if (fn == null) {
+			// folded outside of lock, name folded by 2 threads at once is equal
+			fn = new FoldedName(name);
+			synchronized (cache) {
+				cache.put(name, fn);
+			}
+		}
+		return fn;
+	}
+
+	static int getCachedNamesCount() {
+		int cnt = 0;
+		for (NameCache cache : nameCache) {
+			synchronized (cache) {
+				cnt += cache.size();
+			}
+		}
+		return cnt;
+	}
+
+	private static char[] foldChars(String s) {
+		char[] chars = new char[s.length()];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = CollatorFolding.foldChar(s.charAt(i));
+			if (chars[i] == CollatorFolding.COMPLEX) {
+				return null;
+			}
+		}
+		return chars;
+	}
+
+	private static char[] removeIgnorable(char[] chars) {
+		int len = 0;
+		for (char c : chars) {
+			if (c != CollatorFolding.IGNORABLE) {
+				chars[len++] = c;
+			}
+		}
+		return len == chars.length ? chars : Arrays.copyOf(chars, len);
+	}
+
+	// access ordered, least recently used name is removed when limit is reached
+	private static class NameCache extends LinkedHashMap<String, FoldedName> {
+
+		private static final long serialVersionUID = 1L;
+		private final int limit;
+
+		NameCache(int limit) {
+			super(16, 0.75f, true);
+			this.limit = limit;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, FoldedName> eldest) {
+			return size() > limit;
+		}
+	}
+
+	private static class FoldedName {
+		// folded chars of simplified name, null if name can't be folded
+		final char[] chars;
+		final boolean[] spaces;
+		// folded chars of name itself (ccontains doesn't simplify name)
+		final char[] nameChars;
+
+		FoldedName(String name) {
+			String s = simplifyStringAndAlignChars(name);
+			chars = foldChars(s);
+			spaces = new boolean[s.length()];
+			for (int i = 0; i < spaces.length; i++) {
+				spaces[i] = isSpace(s.charAt(i));
+			}
+			nameChars = s.equals(name) ? chars : foldChars(name);
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package net.osmand.binary;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.LatLon;
+import net.osmand.data.MapObject;
+import net.osmand.data.Street;
+import net.osmand.router.RouteCalculationProgress;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.router.RoutingContext;
+import net.osmand.util.MapUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reverse geocoding of many points with the same steps as {@link GeocodingUtilities#reverseGeocodingSearch}
+ * and {@link GeocodingUtilities#sortGeocodingResults}. Points are sorted by Z-order of their 31 tiles
+ * and split into partitions of near points. Every partition is geocoded by one task of executor with own
+ * readers (taken from pools) and own routing context, so road tiles are loaded once per partition.
+ * Streets found by name and buildings of streets are shared by all points of partition.
+ * Results are returned in order of input points. When one partition fails, other partitions stop
+ * before next point.
+ */
+public class BatchReverseGeocoding {
+
+	public static final int DEFAULT_PARTITION_SIZE = 256;
+
+	private final List<BinaryMapReaderPool> pools;
+	private final RoutingConfiguration.Builder builder;
+	private final String profile;
+	private final RoutingMemoryLimits memoryLimits;
+	private final ExecutorService executor;
+	private int partitionSize = DEFAULT_PARTITION_SIZE;
+	private boolean allowEmptyNames;
+	private final BatchGeocodingStats stats = new BatchGeocodingStats();
+
+	/**
+	 * @param pools readers of obf files with routing and address data
+	 * @param builder routing configuration builder, every partition builds own configuration of profile
+	 */
+	public BatchReverseGeocoding(List<BinaryMapReaderPool> pools, RoutingConfiguration.Builder builder, String profile,
+	                             RoutingMemoryLimits memoryLimits, ExecutorService executor) {
+		this.pools = pools;
+		this.builder = builder;
+		this.profile = profile;
+		this.memoryLimits = memoryLimits;
+		this.executor = executor;
+	}
+
+	public void setPartitionSize(int partitionSize) {
+		if (partitionSize <= 0) {
+			throw new IllegalArgumentException("Partition size should be positive: " + partitionSize);
+		}
+		this.partitionSize = partitionSize;
+	}
+
+	public void setAllowEmptyNames(boolean allowEmptyNames) {
+		this.allowEmptyNames = allowEmptyNames;
+	}
+
+	public BatchGeocodingStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * @return geocoding results (sorted by distance) for every point in order of points
+	 */
+	public List<List<GeocodingResult>> reverseGeocoding(List<LatLon> points) throws IOException {
+		long start = System.nanoTime();
+		final int[] x31 = new int[points.size()];
+		final int[] y31 = new int[points.size()];
+		final long[] zorder = new long[points.size()];
+		Integer[] order = new Integer[points.size()];
+		for (int i = 0; i < order.length; i++) {
+			x31[i] = MapUtils.get31TileNumberX(points.get(i).getLongitude());
+			y31[i] = MapUtils.get31TileNumberY(points.get(i).getLatitude());
+			zorder[i] = interleave(x31[i], y31[i]);
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(zorder[o1], zorder[o2]);
+			}
+		});
+		List<List<GeocodingResult>> results = new ArrayList<>(Collections.<List<GeocodingResult>>nCopies(points.size(), null));
+		List<Future<?>> futures = new ArrayList<>();
+		// shared by partitions of this call
+		final AtomicBoolean stop = new AtomicBoolean();
+		try {
+			for (int from = 0; from < order.length; from += partitionSize) {
+				final Partition p = new Partition(points, results,
+						Arrays.copyOfRange(order, from, Math.min(order.length, from + partitionSize)), x31, y31, stop);
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						try {
+							p.geocode();
+						} catch (Exception | Error e) {
+							stop.set(true);
+							throw e;
+						}
+						return null;
+					}
+				}));
+				stats.partitions.incrementAndGet();
+			}
+			for (Future<?> f : futures) {
+				get(f);
+			}
+		} finally {
+			stop.set(true);
+			for (Future<?> f : futures) {
+				f.cancel(false);
+			}
+		}
+		stats.points.addAndGet(points.size());
+		stats.timeNanos.addAndGet(System.nanoTime() - start);
+		return results;
+	}
+
+	private static void get(Future<?> f) throws IOException {
+		try {
+			f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Geocoding was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Geocoding failed", e.getCause());
+		}
+	}
+
+	// Z-order (Morton code) of 31 tile
+	static long interleave(int x, int y) {
+		long z = 0;
+		for (int i = 0; i < 31; i++) {
+			z |= ((long) ((x >> i) & 1)) << (2 * i + 1);
+			z |= ((long) ((y >> i) & 1)) << (2 * i);
+		}
+		return z;
+	}
+
+	private class Partition extends GeocodingUtilities {
+		private final List<LatLon> points;
+		private final List<List<GeocodingResult>> results;
+		private final Integer[] indexes;
+		// bbox of partition points extended by street search radius
+		private final int left31;
+		private final int top31;
+		private final int right31;
+		private final int bottom31;
+		private final Map<String, List<Street>> streetsByName = new HashMap<>();
+		private final Set<Street> loadedStreets = Collections.newSetFromMap(new IdentityHashMap<Street, Boolean>());
+		private final AtomicBoolean stop;
+
+		Partition(List<LatLon> points, List<List<GeocodingResult>> results, Integer[] indexes, int[] x31, int[] y31,
+				AtomicBoolean stop) {
+			this.points = points;
+			this.results = results;
+			this.indexes = indexes;
+			this.stop = stop;
+			int l = Integer.MAX_VALUE, t = Integer.MAX_VALUE, r = 0, b = 0;
+			for (int i : indexes) {
+				l = Math.min(l, x31[i]);
+				r = Math.max(r, x31[i]);
+				t = Math.min(t, y31[i]);
+				b = Math.max(b, y31[i]);
+			}
+			// radius in 31 tiles is larger closer to poles
+			int ext = 0;
+			for (int y : new int[] { t, b }) {
+				SearchRequest<MapObject> req = new SearchRequest<MapObject>();
+				req.setBBoxRadius(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(l),
+						DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
+				ext = Math.max(ext, req.right - req.x);
+			}
+			left31 = Math.max(0, l - ext);
+			right31 = (int) Math.min(Integer.MAX_VALUE, (long) r + ext);
+			top31 = Math.max(0, t - ext);
+			bottom31 = (int) Math.min(Integer.MAX_VALUE, (long) b + ext);
+		}
+
+		void geocode() throws IOException, InterruptedException {
+			if (stop.get()) {
+				return;
+			}
+			List<BinaryMapIndexReader> readers = new ArrayList<>();
+			try {
+				for (BinaryMapReaderPool pool : pools) {
+					readers.add(pool.acquire());
+				}
+				RoutingConfiguration config = builder.build(profile, memoryLimits);
+				RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null,
+						readers.toArray(new BinaryMapIndexReader[0]), RouteCalculationMode.NORMAL);
+				ctx.calculationProgress = new RouteCalculationProgress();
+				for (int i : indexes) {
+					if (stop.get()) {
+						break;
+					}
+					LatLon p = points.get(i);
+					List<GeocodingResult> res = reverseGeocodingSearch(ctx, p.getLatitude(), p.getLongitude(),
+							allowEmptyNames);
+					results.set(i, sortGeocodingResults(readers, res));
+				}
+				stats.loadedRoadTiles.addAndGet(ctx.getLoadedTiles());
+			} finally {
+				for (int i = 0; i < readers.size(); i++) {
+					pools.get(i).release(readers.get(i));
+				}
+			}
+		}
+
+		@Override
+		protected List<GeocodingResult> searchStreets(GeocodingResult road, BinaryMapIndexReader reader,
+				ResultMatcher<GeocodingResult> result) throws IOException {
+			String key = reader.getFile() + "/" + road.streetName;
+			List<Street> streets = streetsByName.get(key);
+			if (streets == null) {
+				stats.streetSearches.incrementAndGet();
+				// distance to every point is checked by filterStreets
+				streets = searchStreetsByName(road.streetName, null, reader, left31, top31, right31, bottom31,
+						result);
+				streetsByName.put(key, streets);
+			} else {
+				stats.streetCacheHits.incrementAndGet();
+			}
+			return filterStreets(road, streets);
+		}
+
+		@Override
+		protected void preloadBuildings(BinaryMapIndexReader reader, Street street) throws IOException {
+			// buildings are added to street on every read
+			if (loadedStreets.add(street)) {
+				super.preloadBuildings(reader, street);
+			}
+		}
+	}
+
+	public static class BatchGeocodingStats {
+		public final AtomicInteger points = new AtomicInteger();
+		public final AtomicInteger partitions = new AtomicInteger();
+		public final AtomicInteger loadedRoadTiles = new AtomicInteger();
+		public final AtomicInteger streetSearches = new AtomicInteger();
+		public final AtomicInteger streetCacheHits = new AtomicInteger();
+		public final AtomicLong timeNanos = new AtomicLong();
+
+		public double getPointsPerSecond() {
+			long t = timeNanos.get();
+			return t == 0 ? 0 : points.get() * 1e9 / t;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Geocoded %d points in %.2f s (%.1f points/s), partitions %d, road tiles %d, "
+							+ "street searches %d (cached %d)", points.get(), timeNanos.get() / 1e9, getPointsPerSecond(),
+					partitions.get(), loadedRoadTiles.get(), streetSearches.get(), streetCacheHits.get());
+		}
+	}
+}
@@ -600,6 +600,27 @@ public class BinaryMapAddressReaderAdapter {
 		}
 	}
 
+	// reads name index table of address region (see BinaryNameIndexFile)
+	void readAddressNameIndexTable(List<String> keys, TIntArrayList values) throws IOException {
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case OsmAndAddressNameIndexData.TABLE_FIELD_NUMBER:
+				long length = readInt();
+				long oldLimit = codedIS.pushLimitLong((long) length);
+				map.readIndexedStringTable("", keys, values);
+				codedIS.popLimit(oldLimit);
+				return;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
 	public void searchAddressDataByName(AddressRegion reg, SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
 		TIntArrayList loffsets = new TIntArrayList();
 		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
@@ -630,7 +651,14 @@ public class BinaryMapAddressReaderAdapter {
 				// here offsets are sorted by distance
 				TIntArrayList charsList = new TIntArrayList();
 				charsList.add(0);
-				map.readIndexedStringTable(stringMatcher.getCollator(), Collections.singletonList(req.nameQuery), "", Collections.singletonList(loffsets), charsList);
+				BinaryNameIndexFile nameIndex = map.getNameIndexFile();
+				int nameTable = nameIndex == null ? -1 : nameIndex.getTable(BinaryNameIndexFile.ADDRESS_TABLE, reg.filePointer);
+				if (nameTable != -1) {
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+					nameIndex.findOffsets(nameTable, stringMatcher.getCollator(), req.nameQuery, loffsets);
+				} else {
+					map.readIndexedStringTable(stringMatcher.getCollator(), Collections.singletonList(req.nameQuery), "", Collections.singletonList(loffsets), charsList);
+				}
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmAndAddressNameIndexData.ATOM_FIELD_NUMBER:
@@ -10,6 +10,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -63,6 +64,8 @@ import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiSubType;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
 import net.osmand.binary.BinaryMapTransportReaderAdapter.TransportIndex;
+import net.osmand.binary.MapDataBlocksCache.BlockKey;
+import net.osmand.binary.MapDataBlocksCache.DecodedBlock;
 import net.osmand.binary.OsmandOdb.MapDataBlock;
 import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapDataBox;
 import net.osmand.binary.OsmandOdb.OsmAndMapIndex.MapEncodingRule;
@@ -108,6 +111,10 @@ public class BinaryMapIndexReader {
 	
 	private final RandomAccessFile raf;
 	protected final File file;
+	// not null when file is read through memory mapping (shared with readers created from this one)
+	private ByteBuffer[] mappedChunks;
+	// optional side-car index of name tables (shared with readers created from this one), could be set by builder thread
+	private volatile BinaryNameIndexFile nameIndexFile;
 	/*private*/ int version;
 	/*private*/ long dateCreated;
 	/*private*/ OsmAndOwner owner;
@@ -147,9 +154,18 @@ public class BinaryMapIndexReader {
 	}
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
+		this(raf, file, init, false);
+	}
+
+	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init, boolean memoryMapped) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
+		if (memoryMapped) {
+			mappedChunks = CodedInputStream.mapFile(raf.getChannel());
+			codedIS = CodedInputStream.newInstance(mappedChunks);
+		} else {
+			codedIS = CodedInputStream.newInstance(raf);
+		}
 		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
@@ -162,10 +178,24 @@ public class BinaryMapIndexReader {
 	}
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
+		this(raf, referenceToSameFile, null);
+	}
+
+	// channelSource: reads shared channel without moving its position (raf is null), so channel is shared between readers
+	BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile,
+			CodedInputStream.ChannelSource channelSource) throws IOException {
 		this.raf = raf;
 		this.file = referenceToSameFile.file;
-		codedIS = CodedInputStream.newInstance(raf);
+		if (referenceToSameFile.mappedChunks != null) {
+			mappedChunks = referenceToSameFile.mappedChunks;
+			codedIS = CodedInputStream.newInstance(mappedChunks);
+		} else if (channelSource != null) {
+			codedIS = CodedInputStream.newInstance(channelSource);
+		} else {
+			codedIS = CodedInputStream.newInstance(raf);
+		}
 		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		nameIndexFile = referenceToSameFile.nameIndexFile;
 		version = referenceToSameFile.version;
 		dateCreated = referenceToSameFile.dateCreated;
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
@@ -455,10 +485,25 @@ public class BinaryMapIndexReader {
 		return raf;
 	}
 
+	public boolean isMemoryMapped() {
+		return mappedChunks != null;
+	}
+
 	public File getFile() {
 		return file;
 	}
 
+	public BinaryNameIndexFile getNameIndexFile() {
+		return nameIndexFile;
+	}
+
+	/**
+	 * POI and address search by name will look up name tables in index file (see {@link BinaryNameIndexFile#attach})
+	 */
+	public void setNameIndexFile(BinaryNameIndexFile nameIndexFile) {
+		this.nameIndexFile = nameIndexFile;
+	}
+
 	public String getCountryName() {
 		List<String> rg = getRegionNames();
 		if(rg.size() > 0) {
@@ -951,23 +996,54 @@ public class BinaryMapIndexReader {
 	public List<BinaryMapDataObject> searchMapIndex(SearchRequest<BinaryMapDataObject> req) throws IOException {
 		return searchMapIndex(req, null);
 	}
-	
+
+	/**
+	 * Objects could be taken from shared {@link MapDataBlocksCache} when it's enabled, they must not be modified.
+	 */
 	public List<BinaryMapDataObject> searchMapIndex(SearchRequest<BinaryMapDataObject> req, MapIndex filterMapIndex) throws IOException {
+		searchMapIndex(req, filterMapIndex, null);
+		return req.getSearchResults();
+	}
+
+	public MapDataObjectsBatch searchMapIndexBatch(SearchRequest<BinaryMapDataObject> req) throws IOException {
+		return searchMapIndexBatch(req, null);
+	}
+
+	/**
+	 * Same search as searchMapIndex but objects are decoded directly to columnar batch (without objects per result,
+	 * request results and block cache aren't used, read stats aren't collected).
+	 * Objects are not passed to {@link SearchRequest#publish}, so result matcher of request is not called for them
+	 * (only to check cancel): requests that filter objects by matcher (e.g. sub-tile ownership of
+	 * {@link ParallelMapObjectsLoader}) should use searchMapIndex or filter batch afterwards.
+	 */
+	public MapDataObjectsBatch searchMapIndexBatch(SearchRequest<BinaryMapDataObject> req, MapIndex filterMapIndex) throws IOException {
+		MapDataObjectsBatch.Builder batch = new MapDataObjectsBatch.Builder();
+		searchMapIndex(req, filterMapIndex, batch);
+		return batch.build();
+	}
+
+	private void searchMapIndex(SearchRequest<BinaryMapDataObject> req, MapIndex filterMapIndex,
+	                            MapDataObjectsBatch.Builder batch) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
 		req.numberOfAcceptedSubtrees = 0;
 		req.numberOfReadSubtrees = 0;
 		List<MapTree> foundSubtrees = new ArrayList<MapTree>();
+		// stats are collected only while reading blocks
+		MapDataBlocksCache blocksCache = READ_STATS || batch != null || !MapDataBlocksCache.getInstance().isEnabled()
+				? null : MapDataBlocksCache.getInstance();
 		for (MapIndex mapIndex : mapIndexes) {
 			if(filterMapIndex != null && mapIndex != filterMapIndex) {
 				continue;
 			}
-			// lazy initializing rules
-			if (mapIndex.encodingRules.isEmpty()) {
-				codedIS.seek(mapIndex.filePointer);
-				long oldLimit = codedIS.pushLimitLong((long) mapIndex.length);
-				readMapIndex(mapIndex, true);
-				codedIS.popLimit(oldLimit);
+			// lazy initializing rules (index is shared by pooled readers)
+			synchronized (mapIndex) {
+				if (mapIndex.encodingRules.isEmpty()) {
+					codedIS.seek(mapIndex.filePointer);
+					long oldLimit = codedIS.pushLimitLong((long) mapIndex.length);
+					readMapIndex(mapIndex, true);
+					codedIS.popLimit(oldLimit);
+				}
 			}
 			for (MapRoot index : mapIndex.getRoots()) {
 				if (index.minZoom <= req.zoom && index.maxZoom >= req.zoom) {
@@ -978,12 +1054,14 @@ public class BinaryMapIndexReader {
 
 
 					// lazy initializing trees
-					if (index.trees == null) {
-						index.trees = new ArrayList<MapTree>();
-						codedIS.seek(index.filePointer);
-						long oldLimit = codedIS.pushLimitLong((long) index.length);
-						readMapLevel(index);
-						codedIS.popLimit(oldLimit);
+					synchronized (index) {
+						if (index.trees == null) {
+							index.trees = new ArrayList<MapTree>();
+							codedIS.seek(index.filePointer);
+							long oldLimit = codedIS.pushLimitLong((long) index.length);
+							readMapLevel(index);
+							codedIS.popLimit(oldLimit);
+						}
 					}
 
 					for (MapTree tree : index.trees) {
@@ -1004,10 +1082,18 @@ public class BinaryMapIndexReader {
 					});
 					for (MapTree tree : foundSubtrees) {
 						if (!req.isCancelled()) {
+							if (blocksCache != null) {
+								searchCachedMapDataBlock(req, tree, mapIndex, index, blocksCache);
+								continue;
+							}
 							codedIS.seek(tree.mapDataBlock);
 							int length = codedIS.readRawVarint32();
 							long oldLimit = codedIS.pushLimitLong((long) length);
-							readMapDataBlocks(req, tree, mapIndex);
+							if (batch != null) {
+								readMapDataBlocks(req, tree, mapIndex, batch);
+							} else {
+								readMapDataBlocks(req, tree, mapIndex);
+							}
 							codedIS.popLimit(oldLimit);
 						}
 					}
@@ -1020,11 +1106,49 @@ public class BinaryMapIndexReader {
 			log.info("Search is done. Visit " + req.numberOfVisitedObjects + " objects. Read " + req.numberOfAcceptedObjects + " objects."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			log.info("Read " + req.numberOfReadSubtrees + " subtrees. Go through " + req.numberOfAcceptedSubtrees + " subtrees.");   //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
 		}
-		return req.getSearchResults();
 	}
 
 	
 
+	// publishes objects of block (decoded or taken from cache) with the same checks as readMapDataObject
+	private void searchCachedMapDataBlock(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex mapIndex,
+	                                      MapRoot root, MapDataBlocksCache cache) throws IOException {
+		BlockKey key = new BlockKey(file, dateCreated, mapIndex, root.minZoom, tree.mapDataBlock);
+		DecodedBlock block = cache.get(key);
+		if (block == null) {
+			SearchRequest<BinaryMapDataObject> all = buildSearchRequest(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
+					req.zoom, null);
+			codedIS.seek(tree.mapDataBlock);
+			int length = codedIS.readRawVarint32();
+			long oldLimit = codedIS.pushLimitLong((long) length);
+			readMapDataBlocks(all, tree, mapIndex);
+			codedIS.popLimit(oldLimit);
+			block = new DecodedBlock(all.getSearchResults());
+			cache.put(key, block);
+		}
+		int[] bbox = block.bbox;
+		for (int i = 0; i < block.objects.length; i++) {
+			if (req.isCancelled()) {
+				return;
+			}
+			req.numberOfVisitedObjects++;
+			if (bbox[4 * i + 2] < req.left || bbox[4 * i] > req.right || bbox[4 * i + 3] < req.top
+					|| bbox[4 * i + 1] > req.bottom) {
+				continue;
+			}
+			BinaryMapDataObject o = block.objects[i];
+			if (req.searchFilter != null) {
+				req.cacheTypes.clear();
+				req.cacheTypes.add(o.types);
+				if (!req.searchFilter.accept(req.cacheTypes, mapIndex)) {
+					continue;
+				}
+			}
+			req.numberOfAcceptedObjects++;
+			req.publish(o);
+		}
+	}
+
 	protected void readMapDataBlocks(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root) throws IOException {
 		List<BinaryMapDataObject> tempResults = null;
 		long baseId = 0;
@@ -1099,6 +1223,163 @@ public class BinaryMapIndexReader {
 
 	}
 
+	private void readMapDataBlocks(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root,
+	                               MapDataObjectsBatch.Builder batch) throws IOException {
+		long baseId = 0;
+		while (true) {
+			if (req.isCancelled()) {
+				batch.endBlock();
+				return;
+			}
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				batch.endBlock();
+				return;
+			case MapDataBlock.BASEID_FIELD_NUMBER:
+				baseId = codedIS.readUInt64();
+				break;
+			case MapDataBlock.DATAOBJECTS_FIELD_NUMBER:
+				int length = codedIS.readRawVarint32();
+				long oldLimit = codedIS.pushLimitLong((long) length);
+				readMapDataObject(tree, req, root, baseId, batch);
+				codedIS.popLimit(oldLimit);
+				break;
+			case MapDataBlock.STRINGTABLE_FIELD_NUMBER:
+				length = codedIS.readRawVarint32();
+				oldLimit = codedIS.pushLimitLong((long) length);
+				batch.setStringTable(readStringTable());
+				codedIS.popLimit(oldLimit);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
+	// same as readMapDataObject but appends object to batch
+	private void readMapDataObject(MapTree tree, SearchRequest<BinaryMapDataObject> req, MapIndex root, long baseId,
+	                               MapDataObjectsBatch.Builder batch) throws IOException {
+		int tag = WireFormat.getTagFieldNumber(codedIS.readTag());
+		boolean area = OsmandOdb.MapData.AREACOORDINATES_FIELD_NUMBER == tag;
+		if (!area && OsmandOdb.MapData.COORDINATES_FIELD_NUMBER != tag) {
+			throw new IllegalArgumentException();
+		}
+		batch.startObject();
+		int size = codedIS.readRawVarint32();
+		long old = codedIS.pushLimitLong((long) size);
+		int px = tree.left & MASK_TO_READ;
+		int py = tree.top & MASK_TO_READ;
+		int minX = Integer.MAX_VALUE;
+		int maxX = 0;
+		int minY = Integer.MAX_VALUE;
+		int maxY = 0;
+		req.numberOfVisitedObjects++;
+		while (codedIS.getBytesUntilLimit() > 0) {
+			int x = (codedIS.readSInt32() << SHIFT_COORDINATES) + px;
+			int y = (codedIS.readSInt32() << SHIFT_COORDINATES) + py;
+			batch.addPoint(x, y);
+			px = x;
+			py = y;
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		codedIS.popLimit(old);
+		if (maxX < req.left || minX > req.right || minY > req.bottom || maxY < req.top) {
+			batch.rollback();
+			codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+			return;
+		}
+
+		long id = 0;
+		int labelX = 0, labelY = 0;
+		while (true) {
+			int t = codedIS.readTag();
+			tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				batch.endObject(id + baseId, area, labelX, labelY, root);
+				return;
+			case OsmandOdb.MapData.POLYGONINNERCOORDINATES_FIELD_NUMBER:
+				batch.startInnerPolygon();
+				px = tree.left & MASK_TO_READ;
+				py = tree.top & MASK_TO_READ;
+				size = codedIS.readRawVarint32();
+				old = codedIS.pushLimitLong((long) size);
+				while (codedIS.getBytesUntilLimit() > 0) {
+					int x = (codedIS.readSInt32() << SHIFT_COORDINATES) + px;
+					int y = (codedIS.readSInt32() << SHIFT_COORDINATES) + py;
+					batch.addPoint(x, y);
+					px = x;
+					py = y;
+				}
+				codedIS.popLimit(old);
+				break;
+			case OsmandOdb.MapData.ADDITIONALTYPES_FIELD_NUMBER:
+				size = codedIS.readRawVarint32();
+				old = codedIS.pushLimitLong((long) size);
+				while (codedIS.getBytesUntilLimit() > 0) {
+					batch.addAdditionalType(codedIS.readRawVarint32());
+				}
+				codedIS.popLimit(old);
+				break;
+			case OsmandOdb.MapData.TYPES_FIELD_NUMBER:
+				req.cacheTypes.clear();
+				size = codedIS.readRawVarint32();
+				old = codedIS.pushLimitLong((long) size);
+				while (codedIS.getBytesUntilLimit() > 0) {
+					req.cacheTypes.add(codedIS.readRawVarint32());
+				}
+				codedIS.popLimit(old);
+				if (req.searchFilter != null && !req.searchFilter.accept(req.cacheTypes, root)) {
+					batch.rollback();
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+					return;
+				}
+				for (int i = 0; i < req.cacheTypes.size(); i++) {
+					batch.addType(req.cacheTypes.get(i));
+				}
+				req.numberOfAcceptedObjects++;
+				break;
+			case OsmandOdb.MapData.ID_FIELD_NUMBER:
+				id = codedIS.readSInt64();
+				break;
+			case OsmandOdb.MapData.STRINGNAMES_FIELD_NUMBER:
+				size = codedIS.readRawVarint32();
+				old = codedIS.pushLimitLong((long) size);
+				while (codedIS.getBytesUntilLimit() > 0) {
+					int stag = codedIS.readRawVarint32();
+					batch.addName(stag, codedIS.readRawVarint32());
+				}
+				codedIS.popLimit(old);
+				break;
+			case OsmandOdb.MapData.LABELCOORDINATES_FIELD_NUMBER:
+				size = codedIS.readRawVarint32();
+				old = codedIS.pushLimitLong((long) size);
+				int i = 0;
+				while (codedIS.getBytesUntilLimit() > 0) {
+					if (i == 0) {
+						labelX = codedIS.readSInt32();
+					} else if (i == 1) {
+						labelY = codedIS.readSInt32();
+					} else {
+						codedIS.readRawVarint32();
+					}
+					i++;
+				}
+				codedIS.popLimit(old);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
 	protected void searchMapTreeBounds(MapTree current, MapTree parent,
 			SearchRequest<BinaryMapDataObject> req, List<MapTree> foundSubtrees) throws IOException {
 		int init = 0;
@@ -1487,13 +1768,49 @@ public class BinaryMapIndexReader {
 			poiAdapter.initCategories(poiIndex);
 			codedIS.seek(poiIndex.filePointer);
 			long old = codedIS.pushLimitLong((long) poiIndex.length);
-			poiAdapter.searchPoiIndex(req.left, req.right, req.top, req.bottom, req, poiIndex);
+			poiAdapter.searchPoiIndex(Collections.singletonList(req), poiIndex);
 			codedIS.popLimit(old);
 		}
 
 		return req.getSearchResults();
 	}
 
+	/**
+	 * Searches many boxes (or parts of route corridor) at once: every data block is read only once
+	 * and poi are published to all requests which cover it.
+	 */
+	public void searchPoi(List<SearchRequest<Amenity>> reqs) throws IOException {
+		for (SearchRequest<Amenity> req : reqs) {
+			req.numberOfVisitedObjects = 0;
+			req.numberOfAcceptedObjects = 0;
+			req.numberOfAcceptedSubtrees = 0;
+			req.numberOfReadSubtrees = 0;
+		}
+		for (PoiRegion poiIndex : poiIndexes) {
+			poiAdapter.initCategories(poiIndex);
+			codedIS.seek(poiIndex.filePointer);
+			long old = codedIS.pushLimitLong((long) poiIndex.length);
+			poiAdapter.searchPoiIndex(reqs, poiIndex);
+			codedIS.popLimit(old);
+		}
+	}
+
+	/**
+	 * Searches k nearest poi to the point inside box of request (box limits search radius).
+	 * Poi are published in order of distance, index boxes further than k-th found poi are not read.
+	 */
+	public List<Amenity> searchNearestPoi(SearchRequest<Amenity> req, LatLon latLon, int k) throws IOException {
+		req.numberOfVisitedObjects = 0;
+		req.numberOfAcceptedObjects = 0;
+		req.numberOfAcceptedSubtrees = 0;
+		req.numberOfReadSubtrees = 0;
+		if (k > 0 && !poiIndexes.isEmpty()) {
+			poiAdapter.searchNearestPoi(poiIndexes, req, MapUtils.get31TileNumberX(latLon.getLongitude()),
+					MapUtils.get31TileNumberY(latLon.getLatitude()), k);
+		}
+		return req.getSearchResults();
+	}
+
 	public List<Amenity> searchPoi(PoiRegion poiIndex, SearchRequest<Amenity> req) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
@@ -1503,7 +1820,7 @@ public class BinaryMapIndexReader {
 		poiAdapter.initCategories(poiIndex);
 		codedIS.seek(poiIndex.filePointer);
 		long old = codedIS.pushLimitLong((long) poiIndex.length);
-		poiAdapter.searchPoiIndex(req.left, req.right, req.top, req.bottom, req, poiIndex);
+		poiAdapter.searchPoiIndex(Collections.singletonList(req), poiIndex);
 		codedIS.popLimit(old);
 		return req.getSearchResults();
 	}
@@ -1708,10 +2025,18 @@ public class BinaryMapIndexReader {
 		return request;
 	}
 
+	// drops state of read stopped with exception, so reader could be reused
+	void resetInputState() throws IOException {
+		codedIS.resetState();
+	}
+
 	public void close() throws IOException {
 		if (codedIS != null) {
-			raf.close();
+			if (raf != null) {
+				raf.close();
+			}
 			codedIS = null;
+			mappedChunks = null;
 			mapIndexes.clear();
 			addressIndexes.clear();
 			transportIndexes.clear();
@@ -2502,6 +2827,8 @@ public class BinaryMapIndexReader {
 	void readIndexedStringTable(Collator instance, List<String> queries, String prefix, List<TIntArrayList> listOffsets, TIntArrayList matchedCharacters) throws IOException {
 		String key = null;
 		boolean[] matched = new boolean[matchedCharacters.size()];
+		// keys of subtable start with key, so they could start with query even if key itself is too short
+		boolean[] readSubtable = new boolean[matchedCharacters.size()];
 		boolean shouldWeReadSubtable = false;
 		while (true) {
 			int t = codedIS.readTag();
@@ -2519,6 +2846,7 @@ public class BinaryMapIndexReader {
 					int charMatches = matchedCharacters.get(i);
 					String query = queries.get(i);
 					matched[i] = false;
+					readSubtable[i] = false;
 					if (query == null) {
 						continue;
 					}
@@ -2541,8 +2869,10 @@ public class BinaryMapIndexReader {
 							}
 							matched[i] = true;
 						}
+						readSubtable[i] = true;
 					}
-					shouldWeReadSubtable |= matched[i];
+					readSubtable[i] |= matched[i];
+					shouldWeReadSubtable |= readSubtable[i];
 				}
 				break;
 			case OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER :
@@ -2560,7 +2890,7 @@ public class BinaryMapIndexReader {
 					List<String> subqueries = new ArrayList<>(queries);
 					// reset query so we don't search what was not matched
 					for(int i = 0; i < queries.size(); i++) {
-						if(!matched[i]) {
+						if(!readSubtable[i]) {
 							subqueries.set(i, null);
 						}
 					}
@@ -2577,6 +2907,56 @@ public class BinaryMapIndexReader {
 		}
 	}
 
+	// reads all keys (with prefixes) and values of indexed string table
+	void readIndexedStringTable(String prefix, List<String> keys, TIntArrayList values) throws IOException {
+		String key = null;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case OsmandOdb.IndexedStringTable.KEY_FIELD_NUMBER :
+				key = prefix + codedIS.readString();
+				break;
+			case OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER :
+				keys.add(key);
+				values.add((int) readInt());
+				break;
+			case OsmandOdb.IndexedStringTable.SUBTABLES_FIELD_NUMBER :
+				long len = codedIS.readRawVarint32();
+				long oldLim = codedIS.pushLimitLong((long) len);
+				if (key != null) {
+					readIndexedStringTable(key, keys, values);
+				} else {
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				}
+				codedIS.popLimit(oldLim);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
+	void readPoiNameIndexTable(PoiRegion poiIndex, List<String> keys, TIntArrayList values) throws IOException {
+		codedIS.seek(poiIndex.filePointer);
+		long old = codedIS.pushLimitLong((long) poiIndex.length);
+		poiAdapter.readPoiNameIndexTable(keys, values);
+		codedIS.popLimit(old);
+	}
+
+	void readAddressNameIndexTable(AddressRegion reg, List<String> keys, TIntArrayList values) throws IOException {
+		if (reg.indexNameOffset != -1) {
+			codedIS.seek(reg.indexNameOffset);
+			long len = readInt();
+			long old = codedIS.pushLimitLong((long) len);
+			addressAdapter.readAddressNameIndexTable(keys, values);
+			codedIS.popLimit(old);
+		}
+	}
+
 	private static void testAddressSearchByName(BinaryMapIndexReader reader) throws IOException {
 		SearchRequest<MapObject> req = buildAddressByNameRequest(new ResultMatcher<MapObject>() {
 			@Override
@@ -1,12 +1,16 @@
 package net.osmand.binary;
 
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 
 import org.apache.commons.logging.Log;
 
@@ -15,10 +19,12 @@ import com.google.protobuf.WireFormat;
 
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntLongHashMap;
+import gnu.trove.set.hash.TIntHashSet;
 import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.FoldedCollatorStringMatcher;
 import net.osmand.Location;
 import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
@@ -129,6 +135,143 @@ public class BinaryMapPoiReaderAdapter {
 
 	}
 
+	// decoded data blocks by (file, date created, offset), shared by readers of the same file, access ordered
+	private static final LinkedHashMap<PoiBlockKey, PoiBlock> poiBlocksCache = new LinkedHashMap<PoiBlockKey, PoiBlock>(16, 0.75f, true);
+	// max approximate size of decoded poi blocks in bytes (as MapDataBlocksCache), guarded by poiBlocksCache
+	private static long poiBlocksCacheMaxWeight = 8 << 20;
+	private static long poiBlocksCacheWeight;
+
+	public static long getPoiBlocksCacheMaxWeight() {
+		synchronized (poiBlocksCache) {
+			return poiBlocksCacheMaxWeight;
+		}
+	}
+
+	public static void setPoiBlocksCacheMaxWeight(long maxWeight) {
+		synchronized (poiBlocksCache) {
+			poiBlocksCacheMaxWeight = maxWeight;
+			trimPoiBlocksCache();
+		}
+	}
+
+	public static void clearPoiBlocksCache() {
+		synchronized (poiBlocksCache) {
+			poiBlocksCache.clear();
+			poiBlocksCacheWeight = 0;
+		}
+	}
+
+	private static class PoiBlockKey {
+		final File file;
+		final long dateCreated;
+		final long filePointer;
+
+		PoiBlockKey(File file, long dateCreated, long filePointer) {
+			this.file = file;
+			this.dateCreated = dateCreated;
+			this.filePointer = filePointer;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof PoiBlockKey)) {
+				return false;
+			}
+			PoiBlockKey k = (PoiBlockKey) o;
+			return filePointer == k.filePointer && dateCreated == k.dateCreated
+					&& Algorithms.objectEquals(file, k.file);
+		}
+
+		@Override
+		public int hashCode() {
+			return (file == null ? 0 : file.hashCode()) * 31 + (int) (filePointer ^ (filePointer >>> 32));
+		}
+	}
+
+	private static class PoiBlock {
+		int zoom;
+		// approximate size in memory
+		long weight = 64;
+		final List<PoiBlockEntry> entries = new ArrayList<PoiBlockEntry>();
+	}
+
+	private static class PoiBlockEntry {
+		// poi with all categories (including forbidden), never published itself as requests get copies
+		Amenity amenity;
+		int x;
+		int y;
+		final List<PoiCategory> types = new ArrayList<PoiCategory>(1);
+		final List<String> subtypes = new ArrayList<String>(1);
+		final List<PoiSubType> subTypes = new ArrayList<PoiSubType>(0);
+		final List<String> subTypeValues = new ArrayList<String>(0);
+	}
+
+	private static class PoiBatchRequest {
+		final SearchRequest<Amenity> req;
+		final TIntLongHashMap offsetsMap = new TIntLongHashMap();
+		final TLongHashSet skipTiles;
+
+		PoiBatchRequest(SearchRequest<Amenity> req) {
+			this.req = req;
+			this.skipTiles = req.zoom >= 0 && req.zoom < 16 ? new TLongHashSet() : null;
+		}
+	}
+
+	private static final Comparator<NearestPoiEntry> NEAREST_POI_COMPARATOR = new Comparator<NearestPoiEntry>() {
+		@Override
+		public int compare(NearestPoiEntry o1, NearestPoiEntry o2) {
+			int c = Double.compare(o1.dist, o2.dist);
+			if (c == 0) {
+				// poi before boxes of the same distance
+				c = Boolean.compare(o1.amenity == null, o2.amenity == null);
+			}
+			return c;
+		}
+	};
+
+	// box to read, data block or poi found by nearest poi search
+	private static class NearestPoiEntry {
+		// square distance (tile metric) to poi or to the nearest point of box
+		final double dist;
+		final Amenity amenity;
+		final boolean data;
+		final PoiRegion region;
+		final long indexOffset;
+		final long filePointer;
+		final long length;
+		// tile of box parent
+		final int x;
+		final int y;
+		final int zoom;
+
+		NearestPoiEntry(double dist, Amenity amenity) {
+			this(dist, amenity, false, null, 0, 0, 0, 0, 0, 0);
+		}
+
+		NearestPoiEntry(double dist, PoiRegion region, long filePointer) {
+			this(dist, null, true, region, 0, filePointer, 0, 0, 0, 0);
+		}
+
+		NearestPoiEntry(double dist, PoiRegion region, long indexOffset, long filePointer, long length,
+				int x, int y, int zoom) {
+			this(dist, null, false, region, indexOffset, filePointer, length, x, y, zoom);
+		}
+
+		private NearestPoiEntry(double dist, Amenity amenity, boolean data, PoiRegion region, long indexOffset,
+				long filePointer, long length, int x, int y, int zoom) {
+			this.dist = dist;
+			this.amenity = amenity;
+			this.data = data;
+			this.region = region;
+			this.indexOffset = indexOffset;
+			this.filePointer = filePointer;
+			this.length = length;
+			this.x = x;
+			this.y = y;
+			this.zoom = zoom;
+		}
+	}
+
 	private CodedInputStream codedIS;
 	private final BinaryMapIndexReader map;
 
@@ -308,7 +451,7 @@ public class BinaryMapPoiReaderAdapter {
 	protected void searchPoiByName(PoiRegion region, SearchRequest<Amenity> req) throws IOException {
 		TIntLongHashMap offsets = new TIntLongHashMap();
 		String query = normalizeSearchPoiByNameQuery(req.nameQuery);
-		CollatorStringMatcher matcher = new CollatorStringMatcher(query,
+		CollatorStringMatcher matcher = new FoldedCollatorStringMatcher(query,
 				StringMatcherMode.CHECK_STARTS_FROM_SPACE);
 		long time = System.currentTimeMillis();
 		long indexOffset = codedIS.getTotalBytesRead();
@@ -325,7 +468,7 @@ public class BinaryMapPoiReaderAdapter {
 				long length = readInt();
 				long oldLimit = codedIS.pushLimitLong((long) length);
 				// here offsets are sorted by distance
-				offsets = readPoiNameIndex(matcher.getCollator(), query, req);
+				offsets = readPoiNameIndex(region, matcher.getCollator(), query, req);
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmandOdb.OsmAndPoiIndex.POIDATA_FIELD_NUMBER:
@@ -380,7 +523,9 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	private TIntLongHashMap readPoiNameIndex(Collator instance, String query, SearchRequest<Amenity> req) throws IOException {
+	private TIntLongHashMap readPoiNameIndex(PoiRegion region, Collator instance, String query, SearchRequest<Amenity> req) throws IOException {
+		BinaryNameIndexFile nameIndex = map.getNameIndexFile();
+		int nameTable = nameIndex == null ? -1 : nameIndex.getTable(BinaryNameIndexFile.POI_TABLE, region.filePointer);
 		TIntLongHashMap offsets = new TIntLongHashMap();
 		List<TIntArrayList> listOffsets = null;
 		List<TIntLongHashMap> listOfSepOffsets = new ArrayList<TIntLongHashMap>();
@@ -402,7 +547,14 @@ public class BinaryMapPoiReaderAdapter {
 					charsList.add(0);
 					listOffsets.add(new TIntArrayList());
 				}
-				map.readIndexedStringTable(instance, queries, "", listOffsets, charsList);
+				if (nameTable != -1) {
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+					for (int i = 0; i < queries.size(); i++) {
+						nameIndex.findOffsets(nameTable, instance, queries.get(i), listOffsets.get(i));
+					}
+				} else {
+					map.readIndexedStringTable(instance, queries, "", listOffsets, charsList);
+				}
 				codedIS.popLimit(oldLimit);
 				break;
 			}
@@ -448,6 +600,42 @@ public class BinaryMapPoiReaderAdapter {
 
 	}
 
+	// reads name index table of POI region (see BinaryNameIndexFile)
+	void readPoiNameIndexTable(List<String> keys, TIntArrayList values) throws IOException {
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case OsmandOdb.OsmAndPoiIndex.NAMEINDEX_FIELD_NUMBER:
+				long length = readInt();
+				long oldLimit = codedIS.pushLimitLong((long) length);
+				while (true) {
+					t = codedIS.readTag();
+					tag = WireFormat.getTagFieldNumber(t);
+					if (tag == 0) {
+						break;
+					} else if (tag == OsmandOdb.OsmAndPoiNameIndex.TABLE_FIELD_NUMBER) {
+						long len = readInt();
+						long oldLim = codedIS.pushLimitLong((long) len);
+						map.readIndexedStringTable("", keys, values);
+						codedIS.popLimit(oldLim);
+						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+						break;
+					} else {
+						skipUnknownField(t);
+					}
+				}
+				codedIS.popLimit(oldLimit);
+				return;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
 	private void readPoiNameIndexData(TIntLongHashMap offsets, SearchRequest<Amenity> req) throws IOException {
 		while (true) {
 			int t = codedIS.readTag();
@@ -507,19 +695,19 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	protected void searchPoiIndex(int left31, int right31, int top31, int bottom31,
-			SearchRequest<Amenity> req, PoiRegion region) throws IOException {
+	/**
+	 * Searches poi of one or many requests (boxes or route corridor parts): tree of boxes is read once for all
+	 * requests, then data blocks found by requests are read once in file order (or taken from decoded blocks cache)
+	 * and poi are published to every request which found the block.
+	 */
+	protected void searchPoiIndex(List<SearchRequest<Amenity>> reqs, PoiRegion region) throws IOException {
 		long indexOffset = codedIS.getTotalBytesRead();
-		long time = System.currentTimeMillis();
-		TLongHashSet skipTiles = null;
-		if (req.zoom >= 0 && req.zoom < 16) {
-			skipTiles = new TLongHashSet();
+		List<PoiBatchRequest> batch = new ArrayList<PoiBatchRequest>();
+		for (SearchRequest<Amenity> req : reqs) {
+			batch.add(new PoiBatchRequest(req));
 		}
-		long length;
-		long oldLimit;
-		TIntLongHashMap offsetsMap = new TIntLongHashMap();
 		while (true) {
-			if (req.isCancelled()) {
+			if (isCancelled(batch)) {
 				return;
 			}
 			int t = codedIS.readTag();
@@ -528,42 +716,48 @@ public class BinaryMapPoiReaderAdapter {
 			case 0:
 				return;
 			case OsmandOdb.OsmAndPoiIndex.BOXES_FIELD_NUMBER:
-				length = readInt();
-				oldLimit = codedIS.pushLimitLong((long) length);
-				readBoxField(left31, right31, top31, bottom31, 0, 0, 0, offsetsMap, skipTiles, req, region);
+				long length = readInt();
+				long oldLimit = codedIS.pushLimitLong(length);
+				readBoxField(batch, 0, 0, 0, region);
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmandOdb.OsmAndPoiIndex.POIDATA_FIELD_NUMBER:
-				int[] offsets = offsetsMap.keys();
-				// also offsets can be randomly skipped by limit
-				Arrays.sort(offsets);
-				if (skipTiles != null) {
-					skipTiles.clear();
+				TIntHashSet allOffsets = new TIntHashSet();
+				for (PoiBatchRequest b : batch) {
+					allOffsets.addAll(b.offsetsMap.keys());
+					if (b.skipTiles != null) {
+						b.skipTiles.clear();
+					}
 				}
-//				LOG.info("Searched poi structure in " + (System.currentTimeMillis() - time) + " ms. Found "
-//						+ offsets.length + " subtrees");
+				int[] offsets = allOffsets.toArray();
+				Arrays.sort(offsets);
 				for (int j = 0; j < offsets.length; j++) {
-					long skipVal = offsetsMap.get(offsets[j]);
-					if (skipTiles != null && skipVal != -1) {
-						int dzoom = ZOOM_TO_SKIP_FILTER_READ - ZOOM_TO_SKIP_FILTER;
-						long dx = (skipVal >> ZOOM_TO_SKIP_FILTER_READ);
-						long dy = skipVal - (dx << ZOOM_TO_SKIP_FILTER_READ);
-						skipVal = ((dx >> dzoom) << ZOOM_TO_SKIP_FILTER) | (dy >> dzoom);
-						if (skipVal != -1 && skipTiles.contains(skipVal)) {
+					if (isCancelled(batch)) {
+						return;
+					}
+					PoiBlock block = null;
+					for (PoiBatchRequest b : batch) {
+						if (b.req.isCancelled() || !b.offsetsMap.containsKey(offsets[j])) {
 							continue;
 						}
-					}
-					codedIS.seek(offsets[j] + indexOffset);
-					long len = readInt();
-					long oldLim = codedIS.pushLimitLong((long) len);
-					boolean read = readPoiData(left31, right31, top31, bottom31, req, region, skipTiles,
-							req.zoom == -1 ? 31 : req.zoom + ZOOM_TO_SKIP_FILTER);
-					if (read && skipVal != -1 && skipTiles != null) {
-						skipTiles.add(skipVal);
-					}
-					codedIS.popLimit(oldLim);
-					if (req.isCancelled()) {
-						return;
+						long skipVal = b.offsetsMap.get(offsets[j]);
+						if (b.skipTiles != null && skipVal != -1) {
+							int dzoom = ZOOM_TO_SKIP_FILTER_READ - ZOOM_TO_SKIP_FILTER;
+							long dx = (skipVal >> ZOOM_TO_SKIP_FILTER_READ);
+							long dy = skipVal - (dx << ZOOM_TO_SKIP_FILTER_READ);
+							skipVal = ((dx >> dzoom) << ZOOM_TO_SKIP_FILTER) | (dy >> dzoom);
+							if (skipVal != -1 && b.skipTiles.contains(skipVal)) {
+								continue;
+							}
+						}
+						if (block == null) {
+							block = getPoiBlock(offsets[j] + indexOffset, region);
+						}
+						boolean read = publishPoiBlock(block, b.req, b.skipTiles,
+								b.req.zoom == -1 ? 31 : b.req.zoom + ZOOM_TO_SKIP_FILTER);
+						if (read && skipVal != -1 && b.skipTiles != null) {
+							b.skipTiles.add(skipVal);
+						}
 					}
 				}
 				codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
@@ -575,24 +769,211 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	private void readPoiData(CollatorStringMatcher matcher, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
-		int x = 0;
-		int y = 0;
-		int zoom = 0;
+	/**
+	 * Searches k nearest poi to (x31, y31) inside box of request. Boxes and data blocks are visited in order
+	 * of distance to the point (priority queue), poi are published in order of distance
+	 * and search stops when k poi are published as all not visited boxes are further.
+	 */
+	protected void searchNearestPoi(List<PoiRegion> regions, SearchRequest<Amenity> req, int x31, int y31, int k)
+			throws IOException {
+		PriorityQueue<NearestPoiEntry> queue = new PriorityQueue<NearestPoiEntry>(64, NEAREST_POI_COMPARATOR);
+		for (PoiRegion region : regions) {
+			initCategories(region);
+			codedIS.seek(region.filePointer);
+			long oldLimit = codedIS.pushLimitLong((long) region.length);
+			readNearestPoiRoots(queue, region);
+			codedIS.popLimit(oldLimit);
+		}
+		int found = 0;
+		while (!queue.isEmpty() && found < k) {
+			if (req.isCancelled()) {
+				return;
+			}
+			NearestPoiEntry e = queue.poll();
+			if (e.amenity != null) {
+				req.collectRawData(e.amenity);
+				if (req.publish(e.amenity)) {
+					found++;
+				}
+			} else if (e.data) {
+				PoiBlock block = getPoiBlock(e.filePointer, e.region);
+				for (PoiBlockEntry entry : block.entries) {
+					Amenity am = filterPoi(entry, req);
+					if (am != null) {
+						// same coordinates as box bounds, so poi is never closer than its box
+						double dist = MapUtils.squareDist31TileMetric(x31, y31, entry.x, entry.y);
+						queue.add(new NearestPoiEntry(dist, am));
+					}
+				}
+			} else {
+				codedIS.seek(e.filePointer);
+				long oldLimit = codedIS.pushLimitLong(e.length);
+				readNearestPoiBox(queue, e, req, x31, y31);
+				codedIS.popLimit(oldLimit);
+			}
+		}
+	}
+
+	private void readNearestPoiRoots(PriorityQueue<NearestPoiEntry> queue, PoiRegion region) throws IOException {
+		long indexOffset = codedIS.getTotalBytesRead();
 		while (true) {
-			if (req.isCancelled() || req.limitExceeded()) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case OsmandOdb.OsmAndPoiIndex.BOXES_FIELD_NUMBER:
+				long length = readInt();
+				long filePointer = codedIS.getTotalBytesRead();
+				queue.add(new NearestPoiEntry(0, region, indexOffset, filePointer, length, 0, 0, 0));
+				codedIS.seek(filePointer + length);
+				break;
+			case OsmandOdb.OsmAndPoiIndex.POIDATA_FIELD_NUMBER:
+				codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
 				return;
+			default:
+				skipUnknownField(t);
+				break;
 			}
+		}
+	}
+
+	// same as readBoxField but subboxes and data are added to queue with distance of the box
+	private void readNearestPoiBox(PriorityQueue<NearestPoiEntry> queue, NearestPoiEntry parent,
+			SearchRequest<Amenity> req, int x31, int y31) throws IOException {
+		req.numberOfReadSubtrees++;
+		int zoom = parent.zoom;
+		int dx = parent.x;
+		int dy = parent.y;
+		double dist = -1;
+		while (true) {
 			int t = codedIS.readTag();
 			int tag = WireFormat.getTagFieldNumber(t);
 			switch (tag) {
 			case 0:
 				return;
+			case OsmandOdb.OsmAndPoiBox.ZOOM_FIELD_NUMBER:
+				zoom = codedIS.readUInt32() + parent.zoom;
+				break;
+			case OsmandOdb.OsmAndPoiBox.LEFT_FIELD_NUMBER:
+				dx = codedIS.readSInt32();
+				break;
+			case OsmandOdb.OsmAndPoiBox.TOP_FIELD_NUMBER:
+				dy = codedIS.readSInt32();
+				break;
+			case OsmandOdb.OsmAndPoiBox.CATEGORIES_FIELD_NUMBER:
+				if (req.poiTypeFilter == null) {
+					skipUnknownField(t);
+				} else {
+					int length = codedIS.readRawVarint32();
+					long oldLimit = codedIS.pushLimitLong((long) length);
+					boolean check = checkCategories(req, parent.region);
+					codedIS.popLimit(oldLimit);
+					if (!check) {
+						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+						return;
+					}
+				}
+				break;
+			case OsmandOdb.OsmAndPoiBox.SUBBOXES_FIELD_NUMBER:
+			case OsmandOdb.OsmAndPoiBox.SHIFTTODATA_FIELD_NUMBER:
+				int x = dx + (parent.x << (zoom - parent.zoom));
+				int y = dy + (parent.y << (zoom - parent.zoom));
+				if (dist < 0) {
+					int xL = x << (31 - zoom);
+					int xR = ((x + 1) << (31 - zoom)) - 1;
+					int yT = y << (31 - zoom);
+					int yB = ((y + 1) << (31 - zoom)) - 1;
+					if (req.left > xR || xL > req.right || req.bottom < yT || yB < req.top) {
+						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+						return;
+					}
+					req.numberOfAcceptedSubtrees++;
+					// distance to the nearest point of the box
+					dist = MapUtils.squareDist31TileMetric(x31, y31, Math.max(xL, Math.min(xR, x31)),
+							Math.max(yT, Math.min(yB, y31)));
+					dist = Math.max(dist, parent.dist);
+				}
+				long length = readInt();
+				if (tag == OsmandOdb.OsmAndPoiBox.SUBBOXES_FIELD_NUMBER) {
+					long filePointer = codedIS.getTotalBytesRead();
+					queue.add(new NearestPoiEntry(dist, parent.region, parent.indexOffset, filePointer, length, x, y, zoom));
+					codedIS.seek(filePointer + length);
+				} else {
+					queue.add(new NearestPoiEntry(dist, parent.region, parent.indexOffset + length));
+				}
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
+	private static boolean isCancelled(List<PoiBatchRequest> batch) {
+		for (PoiBatchRequest b : batch) {
+			if (!b.req.isCancelled()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private PoiBlock getPoiBlock(long filePointer, PoiRegion region) throws IOException {
+		File file = map.getFile();
+		PoiBlockKey key = new PoiBlockKey(file == null ? null : file.getAbsoluteFile(), map.getDateCreated(), filePointer);
+		PoiBlock block;
+		synchronized (poiBlocksCache) {
+			block = poiBlocksCache.get(key);
+		}
+		if (block == null) {
+			codedIS.seek(filePointer);
+			long len = readInt();
+			long oldLim = codedIS.pushLimitLong(len);
+			block = readPoiBlock(region);
+			codedIS.popLimit(oldLim);
+			putPoiBlock(key, block);
+		}
+		return block;
+	}
+
+	private static void putPoiBlock(PoiBlockKey key, PoiBlock block) {
+		synchronized (poiBlocksCache) {
+			if (block.weight > poiBlocksCacheMaxWeight) {
+				return;
+			}
+			PoiBlock old = poiBlocksCache.put(key, block);
+			poiBlocksCacheWeight += block.weight - (old == null ? 0 : old.weight);
+			trimPoiBlocksCache();
+		}
+	}
+
+	// removes least recently used blocks over max weight, called under lock of poiBlocksCache
+	private static void trimPoiBlocksCache() {
+		Iterator<PoiBlock> it = poiBlocksCache.values().iterator();
+		while (poiBlocksCacheWeight > poiBlocksCacheMaxWeight && it.hasNext()) {
+			poiBlocksCacheWeight -= it.next().weight;
+			it.remove();
+		}
+	}
+
+	// decodes all poi of data block without filters
+	private PoiBlock readPoiBlock(PoiRegion region) throws IOException {
+		PoiBlock block = new PoiBlock();
+		SearchRequest<Amenity> req = new SearchRequest<Amenity>();
+		int x = 0;
+		int y = 0;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return block;
 			case OsmandOdb.OsmAndPoiBoxData.X_FIELD_NUMBER:
 				x = codedIS.readUInt32();
 				break;
 			case OsmandOdb.OsmAndPoiBoxData.ZOOM_FIELD_NUMBER:
-				zoom = codedIS.readUInt32();
+				block.zoom = codedIS.readUInt32();
 				break;
 			case OsmandOdb.OsmAndPoiBoxData.Y_FIELD_NUMBER:
 				y = codedIS.readUInt32();
@@ -600,34 +981,14 @@ public class BinaryMapPoiReaderAdapter {
 			case OsmandOdb.OsmAndPoiBoxData.POIDATA_FIELD_NUMBER:
 				int len = codedIS.readRawVarint32();
 				long oldLim = codedIS.pushLimitLong((long) len);
-				Amenity am = readPoiPoint(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, x, y, zoom, req, region, false);
+				PoiBlockEntry entry = new PoiBlockEntry();
+				entry.amenity = readPoiPoint(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, x, y, block.zoom, req, region,
+						false, entry);
 				codedIS.popLimit(oldLim);
-				if (am != null) {
-					boolean matches = matcher.matches(am.getName().toLowerCase())
-							|| matcher.matches(am.getEnName(true).toLowerCase());
-					if (!matches) {
-						for (String s : am.getOtherNames()) {
-							matches = matcher.matches(s.toLowerCase());
-							if (matches) {
-								break;
-							}
-						}
-						if (!matches) {
-							for (String key : am.getAdditionalInfoKeys()) {
-								if (!key.contains("_name") && !key.equals("brand")) {
-									continue;
-								}
-								matches = matcher.matches(am.getAdditionalInfo(key));
-								if (matches) {
-									break;
-								}
-							}
-						}
-					}
-					if (matches) {
-						req.collectRawData(am);
-						req.publish(am);
-					}
+				if (entry.amenity != null) {
+					block.entries.add(entry);
+					// strings take more memory decoded than encoded
+					block.weight += 160 + 3L * len;
 				}
 				break;
 			default:
@@ -637,21 +998,104 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	private boolean readPoiData(int left31, int right31, int top31, int bottom31,
-			SearchRequest<Amenity> req, PoiRegion region, TLongHashSet toSkip, int zSkip) throws IOException {
+	// same as readPoiData for decoded block
+	private boolean publishPoiBlock(PoiBlock block, SearchRequest<Amenity> req, TLongHashSet toSkip, int zSkip) {
+		boolean read = false;
+		for (PoiBlockEntry entry : block.entries) {
+			if (req.isCancelled()) {
+				return read;
+			}
+			Amenity am = filterPoi(entry, req);
+			if (am == null) {
+				continue;
+			}
+			if (toSkip != null) {
+				int xp = (int) MapUtils.getTileNumberX(zSkip, am.getLocation().getLongitude());
+				int yp = (int) MapUtils.getTileNumberY(zSkip, am.getLocation().getLatitude());
+				long valSkip = (((long) xp) << zSkip) | yp;
+				if (!toSkip.contains(valSkip)) {
+					req.collectRawData(am);
+					if (req.publish(am)) {
+						read = true;
+						toSkip.add(valSkip);
+					}
+				} else if (zSkip <= block.zoom) {
+					return read;
+				}
+			} else {
+				req.collectRawData(am);
+				if (req.publish(am)) {
+					read = true;
+				}
+			}
+		}
+		return read;
+	}
+
+	// same checks as readPoiPoint does with filters of request
+	private Amenity filterPoi(PoiBlockEntry entry, SearchRequest<Amenity> req) {
+		req.numberOfVisitedObjects++;
+		if (req.left > entry.x || req.right < entry.x || req.top > entry.y || req.bottom < entry.y) {
+			return null;
+		}
+		// forbidden types could be changed after block is cached
+		PoiCategory type = null;
+		String subtype = null;
+		for (int i = 0; i < entry.types.size(); i++) {
+			String st = entry.subtypes.get(i);
+			if (!poiTypes.isTypeForbidden(st)
+					&& (req.poiTypeFilter == null || req.poiTypeFilter.accept(entry.types.get(i), st))) {
+				if (type == null) {
+					type = entry.types.get(i);
+					subtype = st;
+				} else {
+					subtype = subtype + ";" + st;
+				}
+			}
+		}
+		if (type == null) {
+			return null;
+		}
+		if (req.poiAdditionalFilter != null) {
+			boolean found = false;
+			for (int i = 0; i < entry.subTypes.size() && !found; i++) {
+				found = req.poiAdditionalFilter.accept(entry.subTypes.get(i), entry.subTypeValues.get(i));
+			}
+			if (!found) {
+				return null;
+			}
+		}
+		req.numberOfAcceptedObjects++;
+		if (req.radius > 0) {
+			LatLon loc = entry.amenity.getLocation();
+			List<Location> locs = req.tiles.get(req.getTileHashOnPath(loc.getLatitude(), loc.getLongitude()));
+			if (locs == null) {
+				return null;
+			}
+			AmenityRoutePoint arp = dist(loc, locs, req.radius);
+			if (arp == null) {
+				return null;
+			}
+			Amenity am = entry.amenity.copy(type, subtype);
+			am.setRoutePoint(arp);
+			return am;
+		}
+		return entry.amenity.copy(type, subtype);
+	}
+
+	private void readPoiData(CollatorStringMatcher matcher, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
 		int x = 0;
 		int y = 0;
 		int zoom = 0;
-		boolean read = false;
 		while (true) {
-			if (req.isCancelled()) {
-				return read;
+			if (req.isCancelled() || req.limitExceeded()) {
+				return;
 			}
 			int t = codedIS.readTag();
 			int tag = WireFormat.getTagFieldNumber(t);
 			switch (tag) {
 			case 0:
-				return read;
+				return;
 			case OsmandOdb.OsmAndPoiBoxData.X_FIELD_NUMBER:
 				x = codedIS.readUInt32();
 				break;
@@ -664,30 +1108,34 @@ public class BinaryMapPoiReaderAdapter {
 			case OsmandOdb.OsmAndPoiBoxData.POIDATA_FIELD_NUMBER:
 				int len = codedIS.readRawVarint32();
 				long oldLim = codedIS.pushLimitLong((long) len);
-				Amenity am = readPoiPoint(left31, right31, top31, bottom31, x, y, zoom, req, region, true);
+				Amenity am = readPoiPoint(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, x, y, zoom, req, region, false);
 				codedIS.popLimit(oldLim);
 				if (am != null) {
-					if (toSkip != null) {
-						int xp = (int) MapUtils.getTileNumberX(zSkip, am.getLocation().getLongitude());
-						int yp = (int) MapUtils.getTileNumberY(zSkip, am.getLocation().getLatitude());
-						long valSkip = (((long) xp) << zSkip) | yp;
-						if (!toSkip.contains(valSkip)) {
-							req.collectRawData(am);
-							boolean publish = req.publish(am);
-							if (publish) {
-								read = true;
-								toSkip.add(valSkip);
+					boolean matches = matcher.matches(am.getName().toLowerCase())
+							|| matcher.matches(am.getEnName(true).toLowerCase());
+					if (!matches) {
+						for (String s : am.getOtherNames()) {
+							matches = matcher.matches(s.toLowerCase());
+							if (matches) {
+								break;
 							}
-						} else if (zSkip <= zoom) {
-							codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-							return read;
 						}
-					} else {
-						req.collectRawData(am);
-						if (req.publish(am)) {
-							read = true;
+						if (!matches) {
+							for (String key : am.getAdditionalInfoKeys()) {
+								if (!key.contains("_name") && !key.equals("brand")) {
+									continue;
+								}
+								matches = matcher.matches(am.getAdditionalInfo(key));
+								if (matches) {
+									break;
+								}
+							}
 						}
 					}
+					if (matches) {
+						req.collectRawData(am);
+						req.publish(am);
+					}
 				}
 				break;
 			default:
@@ -723,6 +1171,13 @@ public class BinaryMapPoiReaderAdapter {
 
 	private Amenity readPoiPoint(int left31, int right31, int top31, int bottom31,
 			int px, int py, int zoom, SearchRequest<Amenity> req, PoiRegion region, boolean checkBounds) throws IOException {
+		return readPoiPoint(left31, right31, top31, bottom31, px, py, zoom, req, region, checkBounds, null);
+	}
+
+	// entry (if not null) collects categories and subtypes to filter poi later (see filterPoi)
+	private Amenity readPoiPoint(int left31, int right31, int top31, int bottom31,
+			int px, int py, int zoom, SearchRequest<Amenity> req, PoiRegion region, boolean checkBounds,
+			PoiBlockEntry entry) throws IOException {
 		Amenity am = null;
 		int x = 0;
 		int y = 0;
@@ -782,6 +1237,10 @@ public class BinaryMapPoiReaderAdapter {
 			case OsmandOdb.OsmAndPoiBoxDataAtom.DY_FIELD_NUMBER:
 				y = (codedIS.readSInt32() + (py << (BASE_POI_ZOOM - zoom))) << BASE_POI_SHIFT;
 				req.numberOfVisitedObjects++;
+				if (entry != null) {
+					entry.x = x;
+					entry.y = y;
+				}
 				if (checkBounds) {
 					if (left31 > x || right31 < x || top31 > y || bottom31 < y) {
 						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
@@ -803,6 +1262,10 @@ public class BinaryMapPoiReaderAdapter {
 				}
 				if (st != null) {
 					am.setAdditionalInfo(st.name, retValue.toString());
+					if (entry != null) {
+						entry.subTypes.add(st);
+						entry.subTypeValues.add(retValue.toString());
+					}
 				}
 				break;
 			case OsmandOdb.OsmAndPoiBoxDataAtom.TEXTCATEGORIES_FIELD_NUMBER:
@@ -836,7 +1299,12 @@ public class BinaryMapPoiReaderAdapter {
 					}
 				}
 				subtype = poiTypes.replaceDeprecatedSubtype(type, subtype);
-				boolean isForbidden = poiTypes.isTypeForbidden(subtype);
+				// cached entry keeps forbidden types (checked when poi is published)
+				boolean isForbidden = entry == null && poiTypes.isTypeForbidden(subtype);
+				if (entry != null) {
+					entry.types.add(type);
+					entry.subtypes.add(subtype);
+				}
 				if (!isForbidden && (req.poiTypeFilter == null || req.poiTypeFilter.accept(type, subtype))) {
 					if (amenityType == null) {
 						amenityType = type;
@@ -925,19 +1393,35 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	private boolean readBoxField(int left31, int right31, int top31, int bottom31,
-			int px, int py, int pzoom, TIntLongHashMap offsetsMap, TLongHashSet skipTiles,
-			SearchRequest<Amenity> req, PoiRegion region) throws IOException {
-		req.numberOfReadSubtrees++;
-		int zoomToSkip = req.zoom == -1 ? 31 : req.zoom + ZOOM_TO_SKIP_FILTER_READ;
+	// same as reading of box tree for one request (zoom, tiles, categories and skip filters of every request),
+	// box is read once while it's needed by any of requests, returns for every request if box has its categories
+	private boolean[] readBoxField(List<PoiBatchRequest> reqs, int px, int py, int pzoom, PoiRegion region)
+			throws IOException {
+		int n = reqs.size();
+		boolean[] existsCategories = new boolean[n];
+		// requests which still read this box
+		boolean[] active = new boolean[n];
+		int activeCount = 0;
+		for (int i = 0; i < n; i++) {
+			SearchRequest<Amenity> req = reqs.get(i).req;
+			req.numberOfReadSubtrees++;
+			active[i] = true;
+			activeCount++;
+		}
 		boolean checkBox = true;
-		boolean existsCategories = false;
 		int zoom = pzoom;
 		int dy = py;
 		int dx = px;
-		while (true) {
-			if (req.isCancelled()) {
-				return false;
+		while (activeCount > 0) {
+			for (int i = 0; i < n; i++) {
+				if (active[i] && reqs.get(i).req.isCancelled()) {
+					active[i] = false;
+					existsCategories[i] = false;
+					activeCount--;
+				}
+			}
+			if (activeCount == 0) {
+				break;
 			}
 			int t = codedIS.readTag();
 			int tag = WireFormat.getTagFieldNumber(t);
@@ -953,21 +1437,28 @@ public class BinaryMapPoiReaderAdapter {
 			case OsmandOdb.OsmAndPoiBox.TOP_FIELD_NUMBER:
 				dy = codedIS.readSInt32();
 				break;
-			case OsmandOdb.OsmAndPoiBox.CATEGORIES_FIELD_NUMBER:
-				if (req.poiTypeFilter == null) {
-					skipUnknownField(t);
-				} else {
-					int length = codedIS.readRawVarint32();
+			case OsmandOdb.OsmAndPoiBox.CATEGORIES_FIELD_NUMBER: {
+				int length = codedIS.readRawVarint32();
+				long categoriesOffset = codedIS.getTotalBytesRead();
+				for (int i = 0; i < n; i++) {
+					SearchRequest<Amenity> req = reqs.get(i).req;
+					if (!active[i] || req.poiTypeFilter == null) {
+						continue;
+					}
+					codedIS.seek(categoriesOffset);
 					long oldLimit = codedIS.pushLimitLong((long) length);
 					boolean check = checkCategories(req, region);
 					codedIS.popLimit(oldLimit);
-					if (!check) {
-						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-						return false;
+					if (check) {
+						existsCategories[i] = true;
+					} else {
+						active[i] = false;
+						activeCount--;
 					}
-					existsCategories = true;
 				}
-				break;
+				codedIS.seek(categoriesOffset + length);
+			}
+			break;
 			case OsmandOdb.OsmAndPoiBox.SUBBOXES_FIELD_NUMBER: {
 				int x = dx + (px << (zoom - pzoom));
 				int y = dy + (py << (zoom - pzoom));
@@ -977,24 +1468,48 @@ public class BinaryMapPoiReaderAdapter {
 					int yT = y << (31 - zoom);
 					int yB = ((y + 1) << (31 - zoom)) - 1;
 					// check intersection
-					if (left31 > xR || xL > right31 || bottom31 < yT || yB < top31) {
-						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-						return false;
+					for (int i = 0; i < n; i++) {
+						SearchRequest<Amenity> req = reqs.get(i).req;
+						if (!active[i]) {
+							continue;
+						}
+						if (req.left > xR || xL > req.right || req.bottom < yT || yB < req.top) {
+							active[i] = false;
+							existsCategories[i] = false;
+							activeCount--;
+						} else {
+							req.numberOfAcceptedSubtrees++;
+						}
 					}
-					req.numberOfAcceptedSubtrees++;
 					checkBox = false;
+					if (activeCount == 0) {
+						break;
+					}
+				}
+				List<PoiBatchRequest> subReqs = new ArrayList<PoiBatchRequest>(activeCount);
+				int[] subIndexes = new int[activeCount];
+				for (int i = 0; i < n; i++) {
+					if (active[i]) {
+						subIndexes[subReqs.size()] = i;
+						subReqs.add(reqs.get(i));
+					}
 				}
-
 				long length = readInt();
 				long oldLimit = codedIS.pushLimitLong((long) length);
-				boolean exists = readBoxField(left31, right31, top31, bottom31, x, y, zoom, offsetsMap, skipTiles, req, region);
+				boolean[] exists = readBoxField(subReqs, x, y, zoom, region);
 				codedIS.popLimit(oldLimit);
 
-				if (skipTiles != null && zoom >= zoomToSkip && exists) {
-					long val = ((((long) x) >> (zoom - zoomToSkip)) << zoomToSkip) | (((long) y) >> (zoom - zoomToSkip));
-					if (skipTiles.contains(val)) {
-						codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
-						return true;
+				for (int k = 0; k < subReqs.size(); k++) {
+					PoiBatchRequest b = subReqs.get(k);
+					int zoomToSkip = b.req.zoom == -1 ? 31 : b.req.zoom + ZOOM_TO_SKIP_FILTER_READ;
+					if (b.skipTiles != null && zoom >= zoomToSkip && exists[k]) {
+						long val = ((((long) x) >> (zoom - zoomToSkip)) << zoomToSkip) | (((long) y) >> (zoom - zoomToSkip));
+						if (b.skipTiles.contains(val)) {
+							int i = subIndexes[k];
+							active[i] = false;
+							existsCategories[i] = true;
+							activeCount--;
+						}
 					}
 				}
 			}
@@ -1002,25 +1517,32 @@ public class BinaryMapPoiReaderAdapter {
 			case OsmandOdb.OsmAndPoiBox.SHIFTTODATA_FIELD_NUMBER: {
 				int x = dx + (px << (zoom - pzoom));
 				int y = dy + (py << (zoom - pzoom));
-				boolean read = true;
-				if (req.tiles != null) {
-					long zx = x << (SearchRequest.ZOOM_TO_SEARCH_POI - zoom);
-					long zy = y << (SearchRequest.ZOOM_TO_SEARCH_POI - zoom);
-					read = req.tiles.contains((zx << SearchRequest.ZOOM_TO_SEARCH_POI) + zy);
-				}
 				long l = readInt();
-				if(l > Integer.MAX_VALUE) {
+				if (l > Integer.MAX_VALUE) {
 					throw new IllegalStateException();
 				}
 				int offset = (int) l;
-				if (read) {
-					if (skipTiles != null && zoom >= zoomToSkip) {
-						long valSkip = ((((long) x) >> (zoom - zoomToSkip)) << zoomToSkip)
-								| (((long) y) >> (zoom - zoomToSkip));
-						offsetsMap.put(offset, valSkip);
-						skipTiles.add(valSkip);
-					} else {
-						offsetsMap.put(offset, -1);
+				for (int i = 0; i < n; i++) {
+					PoiBatchRequest b = reqs.get(i);
+					if (!active[i]) {
+						continue;
+					}
+					boolean read = true;
+					if (b.req.tiles != null) {
+						long zx = x << (SearchRequest.ZOOM_TO_SEARCH_POI - zoom);
+						long zy = y << (SearchRequest.ZOOM_TO_SEARCH_POI - zoom);
+						read = b.req.tiles.contains((zx << SearchRequest.ZOOM_TO_SEARCH_POI) + zy);
+					}
+					if (read) {
+						int zoomToSkip = b.req.zoom == -1 ? 31 : b.req.zoom + ZOOM_TO_SKIP_FILTER_READ;
+						if (b.skipTiles != null && zoom >= zoomToSkip) {
+							long valSkip = ((((long) x) >> (zoom - zoomToSkip)) << zoomToSkip)
+									| (((long) y) >> (zoom - zoomToSkip));
+							b.offsetsMap.put(offset, valSkip);
+							b.skipTiles.add(valSkip);
+						} else {
+							b.offsetsMap.put(offset, -1);
+						}
 					}
 				}
 			}
@@ -1030,6 +1552,8 @@ public class BinaryMapPoiReaderAdapter {
 				break;
 			}
 		}
+		codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+		return existsCategories;
 	}
 
 }
@@ -0,0 +1,216 @@
+package net.osmand.binary;
+
+import net.osmand.PlatformUtil;
+
+import org.apache.commons.logging.Log;
+
+import com.google.protobuf.CodedInputStream;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of readers for the same obf file to be used from many threads at once.
+ * All readers share parsed index structures (MapIndex, RouteRegion, PoiRegion, AddressRegion, HHRouteRegion)
+ * of the initial reader and only keep own seek state and small read buffer. For memory mapped readers
+ * (see {@link CachedOsmandIndexes#setMemoryMapped(boolean)}) pooled readers read mapped chunks of the initial
+ * reader directly, otherwise they share one file channel opened by pool and read it with positional reads
+ * ({@link java.nio.channels.FileChannel#read(java.nio.ByteBuffer, long)}) which don't change its position.
+ * Interrupt of a thread during read closes the channel, so it is reopened by pool and reads of other threads
+ * continue (interrupted thread gets {@link java.nio.channels.ClosedByInterruptException}).
+ * Initial reader should stay open while pool is used.
+ *
+ * Usage:
+ * <pre>
+ * BinaryMapIndexReader r = pool.acquire();
+ * try {
+ *     ...
+ * } finally {
+ *     pool.release(r);
+ * }
+ * </pre>
+ */
+public class BinaryMapReaderPool {
+
+	private static final Log log = PlatformUtil.getLog(BinaryMapReaderPool.class);
+
+	private final BinaryMapIndexReader initialReader;
+	private final int maxReaders;
+	private final ArrayDeque<BinaryMapIndexReader> idle = new ArrayDeque<>();
+	private final List<BinaryMapIndexReader> created = new ArrayList<>();
+	private final ReaderPoolStats stats = new ReaderPoolStats();
+	private final SharedChannel channel = new SharedChannel();
+	private boolean closed;
+
+	public BinaryMapReaderPool(BinaryMapIndexReader initialReader, int maxReaders) {
+		if (maxReaders <= 0) {
+			throw new IllegalArgumentException("Max readers should be positive: " + maxReaders);
+		}
+		this.initialReader = initialReader;
+		this.maxReaders = maxReaders;
+	}
+
+	// should not use methods to read from file!
+	public BinaryMapIndexReader getShallowReader() {
+		return initialReader;
+	}
+
+	public int getMaxReaders() {
+		return maxReaders;
+	}
+
+	/**
+	 * Takes idle reader or creates a new one, if all {@link #getMaxReaders()} readers are in use waits until
+	 * one of them is released.
+	 */
+	public BinaryMapIndexReader acquire() throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		boolean waited = false;
+		BinaryMapIndexReader reader = null;
+		synchronized (this) {
+			while (reader == null) {
+				if (closed) {
+					throw new IOException("Reader pool is closed " + initialReader.getFile().getName());
+				}
+				if (!idle.isEmpty()) {
+					reader = idle.poll();
+				} else if (created.size() < maxReaders) {
+					reader = createReader();
+					created.add(reader);
+				} else {
+					waited = true;
+					wait();
+				}
+			}
+			stats.checkouts++;
+			stats.inUse++;
+			stats.maxInUse = Math.max(stats.maxInUse, stats.inUse);
+			if (waited) {
+				stats.waits++;
+				stats.waitTimeNanos += System.nanoTime() - start;
+			}
+		}
+		return reader;
+	}
+
+	/**
+	 * Returns reader to pool, reader could be released after failed or interrupted read.
+	 */
+	public void release(BinaryMapIndexReader reader) {
+		synchronized (this) {
+			stats.inUse--;
+			if (closed) {
+				if (stats.inUse == 0) {
+					channel.close();
+				}
+			} else {
+				try {
+					reader.resetInputState();
+					idle.push(reader);
+				} catch (IOException e) {
+					log.error("Fail to reset reader " + initialReader.getFile().getName(), e);
+					created.remove(reader);
+				}
+			}
+			notify();
+		}
+	}
+
+	public synchronized ReaderPoolStats getStats() {
+		ReaderPoolStats s = new ReaderPoolStats();
+		s.checkouts = stats.checkouts;
+		s.waits = stats.waits;
+		s.waitTimeNanos = stats.waitTimeNanos;
+		s.inUse = stats.inUse;
+		s.maxInUse = stats.maxInUse;
+		s.created = created.size();
+		s.reopens = channel.reopens;
+		return s;
+	}
+
+	/**
+	 * Drops pooled readers and closes shared channel when all readers in use are released.
+	 * Initial reader is not closed.
+	 */
+	public synchronized void close() {
+		closed = true;
+		idle.clear();
+		if (stats.inUse == 0) {
+			channel.close();
+		}
+		notifyAll();
+	}
+
+	private BinaryMapIndexReader createReader() throws IOException {
+		// pooled readers read mapped chunks of initial reader or use positional reads of the shared channel
+		return new BinaryMapIndexReader(null, initialReader, initialReader.isMemoryMapped() ? null : channel);
+	}
+
+	// own file of pool, so interrupted reads don't close file of initial reader
+	private class SharedChannel implements CodedInputStream.ChannelSource {
+
+		private RandomAccessFile raf;
+		private FileChannel fileChannel;
+		private boolean channelClosed;
+		private volatile int reopens;
+
+		@Override
+		public synchronized FileChannel getChannel() throws IOException {
+			if (channelClosed) {
+				throw new IOException("Reader pool is closed " + initialReader.getFile().getName());
+			}
+			if (fileChannel == null) {
+				raf = new RandomAccessFile(initialReader.getFile(), "r");
+				fileChannel = raf.getChannel();
+			}
+			return fileChannel;
+		}
+
+		@Override
+		public synchronized FileChannel reopen(FileChannel closed) throws IOException {
+			if (closed == fileChannel && !channelClosed) {
+				log.info("Reopen channel closed by interrupt " + initialReader.getFile().getName());
+				closeFile();
+				reopens++;
+			}
+			return getChannel();
+		}
+
+		synchronized void close() {
+			channelClosed = true;
+			closeFile();
+		}
+
+		private void closeFile() {
+			if (raf != null) {
+				try {
+					raf.close();
+				} catch (IOException e) {
+					log.error("Fail to close " + initialReader.getFile().getName(), e);
+				}
+				raf = null;
+				fileChannel = null;
+			}
+		}
+	}
+
+	public static class ReaderPoolStats {
+		public long checkouts;
+		public long waits;
+		public long waitTimeNanos;
+		public int inUse;
+		public int maxInUse;
+		public int created;
+		public int reopens;
+
+		@Override
+		public String toString() {
+			return String.format("Readers created %d, in use %d (max %d), checkouts %d, waits %d (%.2f ms), reopens %d",
+					created, inUse, maxInUse, checkouts, waits, waitTimeNanos / 1e6, reopens);
+		}
+	}
+}
@@ -22,12 +22,15 @@ import org.apache.commons.logging.Log;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import gnu.trove.iterator.TLongObjectIterator;
 import gnu.trove.list.array.TIntArrayList;
@@ -304,6 +307,26 @@ public class BinaryMapRouteReaderAdapter {
 		}
 	}
 
+	private static class TypesCombination {
+		private final int[] types;
+		private final int hash;
+
+		TypesCombination(int[] types) {
+			this.types = types;
+			this.hash = Arrays.hashCode(types);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TypesCombination && Arrays.equals(types, ((TypesCombination) obj).types);
+		}
+	}
+
 	public static class RouteRegion extends BinaryIndexPart {
 		public int regionsRead;
 		public List<RouteTypeRule> routeEncodingRules = new ArrayList<BinaryMapRouteReaderAdapter.RouteTypeRule>();
@@ -328,10 +351,46 @@ public class BinaryMapRouteReaderAdapter {
 		int destinationTypeRule = -1;
 		int destinationRefTypeRule = -1;
 		private RouteRegion referenceRouteRegion;
+		
+		// unique index of region and interned combinations of types (used by compiled router evaluation)
+		public static final int MAX_TYPES_COMBINATIONS = 1 << 16;
+		private static final AtomicInteger REGION_INDEXES = new AtomicInteger();
+		private final int regionIndex = REGION_INDEXES.getAndIncrement();
+		private final Map<TypesCombination, Integer> typesCombinations = new ConcurrentHashMap<TypesCombination, Integer>();
 
 		public String getPartName() {
 			return "Routing";
 		}
+		
+		public int getRegionIndex() {
+			return regionIndex;
+		}
+		
+		/**
+		 * @return id (0, 1, 2...) of the types combination, the same for equal arrays of this region,
+		 * -1 if region has {@link #MAX_TYPES_COMBINATIONS} combinations already (not interned)
+		 */
+		public int internTypesCombination(int[] types) {
+			TypesCombination key = new TypesCombination(types == null ? new int[0] : types);
+			Integer id = typesCombinations.get(key);
+			if (id == null) {
+				synchronized (typesCombinations) {
+					id = typesCombinations.get(key);
+					if (id == null) {
+						if (typesCombinations.size() >= MAX_TYPES_COMBINATIONS) {
+							return -1;
+						}
+						id = typesCombinations.size();
+						typesCombinations.put(new TypesCombination(key.types.clone()), id);
+					}
+				}
+			}
+			return id;
+		}
+		
+		public int getTypesCombinationsSize() {
+			return typesCombinations.size();
+		}
 
 		public int getFieldNumber() {
 			return OsmandOdb.OsmAndStructure.ROUTINGINDEX_FIELD_NUMBER;
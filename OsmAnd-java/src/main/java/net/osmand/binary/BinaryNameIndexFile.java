@@ -0,0 +1,401 @@
+package net.osmand.binary;
+
+import net.osmand.Collator;
+import net.osmand.CollatorFolding;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+
+import org.apache.commons.logging.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Side-car file (obf name + {@link #EXT}) with name index tables (indexed string tables) of POI and address
+ * regions of obf file, used instead of reading tables with collator comparisons for each query.
+ * Keys are stored sorted by collation folded form ({@link CollatorFolding}), so keys matching query are found
+ * by binary search and then checked with collator
+ * the same way as {@link BinaryMapIndexReader#readIndexedStringTable}. Values are offsets of name index data
+ * as in obf, so objects are read from obf as before.
+ * File is memory mapped and read only with absolute gets, so one instance could be shared by many readers.
+ * File is valid only for the same obf file (size and modification time) and same collator.
+ *
+ * Layout (big endian): header [magic, version, obf size long, obf modified long, fold hash, tables T],
+ * tables [type int, region file pointer long, table offset int] * T, table
+ * [keys K, folded offsets int[K+1], key offsets int[K+1], values int[K], folded chars, key chars].
+ */
+public class BinaryNameIndexFile {
+
+	private static final Log log = PlatformUtil.getLog(BinaryNameIndexFile.class);
+
+	public static final String EXT = ".names";
+	public static final int POI_TABLE = 1;
+	public static final int ADDRESS_TABLE = 2;
+	private static final int MAGIC = 0x4f4e4958; // ONIX
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int TABLE_HEADER_SIZE = 16;
+
+	private final File file;
+	private final ByteBuffer buf;
+	private final int tablesCount;
+
+	private BinaryNameIndexFile(File file, ByteBuffer buf) {
+		this.file = file;
+		this.buf = buf;
+		this.tablesCount = buf.getInt(28);
+	}
+
+	/**
+	 * @return index file of obf or null if file doesn't exist or was built for another obf file or collator
+	 */
+	public static BinaryNameIndexFile open(File obf) throws IOException {
+		File file = getIndexFile(obf);
+		if (!file.exists()) {
+			return null;
+		}
+		ByteBuffer buf;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE || channel.size() < HEADER_SIZE) {
+				return null;
+			}
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			// mapping stays valid after channel is closed
+			raf.close();
+		}
+		if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || buf.getLong(8) != obf.length()
+				|| buf.getLong(16) != obf.lastModified() || buf.getInt(24) != CollatorFolding.HASH) {
+			log.info("Name index is outdated " + file.getName());
+			return null;
+		}
+		return new BinaryNameIndexFile(file, buf);
+	}
+
+	/**
+	 * Opens index file of reader's obf (building it if needed) and attaches it to reader
+	 */
+	public static BinaryNameIndexFile attach(BinaryMapIndexReader reader, boolean build) throws IOException {
+		BinaryNameIndexFile index = open(reader.getFile());
+		if (index == null && build) {
+			try {
+				build(reader, getIndexFile(reader.getFile()));
+				index = open(reader.getFile());
+			} catch (IOException e) {
+				// search works without index
+				log.error("Error building name index for " + reader.getFile().getName(), e);
+			}
+		}
+		reader.setNameIndexFile(index);
+		return index;
+	}
+
+	/**
+	 * Attaches index file of reader's obf if it's up to date, otherwise index is built by executor (with own reader
+	 * of obf) and attached when it's ready, until then search by name reads tables from obf.
+	 * @return task building index or null if index is attached already
+	 */
+	public static Future<BinaryNameIndexFile> attachAsync(final BinaryMapIndexReader reader, ExecutorService executor)
+			throws IOException {
+		BinaryNameIndexFile index = open(reader.getFile());
+		reader.setNameIndexFile(index);
+		if (index != null) {
+			return null;
+		}
+		return executor.submit(new Callable<BinaryNameIndexFile>() {
+			@Override
+			public BinaryNameIndexFile call() {
+				BinaryNameIndexFile built = null;
+				try {
+					// previous task could build it
+					built = open(reader.getFile());
+					if (built == null) {
+						BinaryMapIndexReader buildReader = new BinaryMapIndexReader(
+								new RandomAccessFile(reader.getFile(), "r"), reader);
+						try {
+							build(buildReader, getIndexFile(reader.getFile()));
+						} finally {
+							buildReader.close();
+						}
+						built = open(reader.getFile());
+					}
+				} catch (IOException e) {
+					// search works without index
+					log.error("Error building name index for " + reader.getFile().getName(), e);
+				}
+				reader.setNameIndexFile(built);
+				return built;
+			}
+		});
+	}
+
+	public static File getIndexFile(File obf) {
+		return new File(obf.getParentFile(), obf.getName() + EXT);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return position of table or -1 if region has no table in index file
+	 */
+	public int getTable(int type, long regionFilePointer) {
+		for (int i = 0; i < tablesCount; i++) {
+			int p = HEADER_SIZE + i * TABLE_HEADER_SIZE;
+			if (buf.getInt(p) == type && buf.getLong(p + 4) == regionFilePointer) {
+				return buf.getInt(p + 12);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds values of keys matching query to offsets, the same as readIndexedStringTable: keys starting with query
+	 * have weight of query length, keys which query starts with have weight of key length and values of keys
+	 * with max weight are added
+	 */
+	public void findOffsets(int table, Collator collator, String query, TIntArrayList offsets) {
+		int count = buf.getInt(table);
+		int foldedOffsets = table + 4;
+		int keyOffsets = foldedOffsets + 4 * (count + 1);
+		int values = keyOffsets + 4 * (count + 1);
+		int foldedChars = values + 4 * count;
+		int keyChars = foldedChars + 2 * buf.getInt(foldedOffsets + 4 * count);
+		String folded = CollatorFolding.fold(query);
+		TIntArrayList found = new TIntArrayList();
+		int maxWeight = 0;
+		// keys starting with query
+		for (int i = lowerBound(count, foldedOffsets, foldedChars, folded); i < count; i++) {
+			if (!startsWith(foldedOffsets, foldedChars, i, folded)) {
+				break;
+			}
+			String key = getString(keyOffsets, keyChars, i);
+			if (CollatorStringMatcher.cmatches(collator, key, query, StringMatcherMode.CHECK_ONLY_STARTS_WITH)) {
+				maxWeight = query.length();
+				found.add(buf.getInt(values + 4 * i));
+			}
+		}
+		// keys which are part of query
+		for (int l = folded.length(); l >= 0; l--) {
+			String prefix = folded.substring(0, l);
+			for (int i = lowerBound(count, foldedOffsets, foldedChars, prefix); i < count; i++) {
+				if (!startsWith(foldedOffsets, foldedChars, i, prefix) || length(foldedOffsets, i) != l) {
+					break;
+				}
+				String key = getString(keyOffsets, keyChars, i);
+				if (key.length() >= maxWeight
+						&& CollatorStringMatcher.cmatches(collator, query, key, StringMatcherMode.CHECK_ONLY_STARTS_WITH)
+						&& !CollatorStringMatcher.cmatches(collator, key, query, StringMatcherMode.CHECK_ONLY_STARTS_WITH)) {
+					if (key.length() > maxWeight) {
+						maxWeight = key.length();
+						found.clear();
+					}
+					found.add(buf.getInt(values + 4 * i));
+				}
+			}
+		}
+		offsets.addAll(found);
+	}
+
+	private int lowerBound(int count, int offsets, int chars, String s) {
+		int lo = 0;
+		int hi = count;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compare(offsets, chars, mid, s) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private int compare(int offsets, int chars, int i, String s) {
+		int start = buf.getInt(offsets + 4 * i);
+		int len = buf.getInt(offsets + 4 * (i + 1)) - start;
+		int n = Math.min(len, s.length());
+		for (int k = 0; k < n; k++) {
+			char c = buf.getChar(chars + 2 * (start + k));
+			if (c != s.charAt(k)) {
+				return c - s.charAt(k);
+			}
+		}
+		return len - s.length();
+	}
+
+	private boolean startsWith(int offsets, int chars, int i, String s) {
+		int start = buf.getInt(offsets + 4 * i);
+		if (buf.getInt(offsets + 4 * (i + 1)) - start < s.length()) {
+			return false;
+		}
+		for (int k = 0; k < s.length(); k++) {
+			if (buf.getChar(chars + 2 * (start + k)) != s.charAt(k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// entries are sorted by folded keys, so folded prefix and folded key length are enough to find exact keys
+	private int length(int offsets, int i) {
+		return buf.getInt(offsets + 4 * (i + 1)) - buf.getInt(offsets + 4 * i);
+	}
+
+	private String getString(int offsets, int chars, int i) {
+		int start = buf.getInt(offsets + 4 * i);
+		int end = buf.getInt(offsets + 4 * (i + 1));
+		char[] c = new char[end - start];
+		for (int k = 0; k < c.length; k++) {
+			c[k] = buf.getChar(chars + 2 * (start + k));
+		}
+		return new String(c);
+	}
+
+	/**
+	 * Writes name index tables of all POI and address regions of reader to index file
+	 */
+	public static void build(BinaryMapIndexReader reader, File outFile) throws IOException {
+		long time = System.currentTimeMillis();
+		List<Table> tables = new ArrayList<>();
+		for (PoiRegion reg : reader.getPoiIndexes()) {
+			Table t = new Table(POI_TABLE, reg.filePointer);
+			reader.readPoiNameIndexTable(reg, t.keys, t.values);
+			tables.add(t);
+		}
+		for (AddressRegion reg : reader.getAddressIndexes()) {
+			Table t = new Table(ADDRESS_TABLE, reg.filePointer);
+			reader.readAddressNameIndexTable(reg, t.keys, t.values);
+			tables.add(t);
+		}
+		int keys = 0;
+		int offset = HEADER_SIZE + TABLE_HEADER_SIZE * tables.size();
+		for (Table t : tables) {
+			t.sort();
+			t.offset = offset;
+			offset += t.getSize();
+			keys += t.keys.size();
+		}
+		File tmp = new File(outFile.getParentFile(), outFile.getName() + ".tmp");
+		DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			dout.writeInt(MAGIC);
+			dout.writeInt(VERSION);
+			dout.writeLong(reader.getFile().length());
+			dout.writeLong(reader.getFile().lastModified());
+			dout.writeInt(CollatorFolding.HASH);
+			dout.writeInt(tables.size());
+			for (Table t : tables) {
+				dout.writeInt(t.type);
+				dout.writeLong(t.regionFilePointer);
+				dout.writeInt(t.offset);
+			}
+			for (Table t : tables) {
+				t.write(dout);
+			}
+		} finally {
+			dout.close();
+		}
+		if (outFile.exists() && !outFile.delete() || !tmp.renameTo(outFile)) {
+			throw new IOException("Can't write name index " + outFile.getName());
+		}
+		log.info(String.format("Name index %s: %d tables, %d keys built in %d ms", outFile.getName(), tables.size(),
+				keys, System.currentTimeMillis() - time));
+	}
+
+	private static class Table {
+		final int type;
+		final long regionFilePointer;
+		List<String> keys = new ArrayList<>();
+		TIntArrayList values = new TIntArrayList();
+		List<String> folded;
+		int offset;
+
+		Table(int type, long regionFilePointer) {
+			this.type = type;
+			this.regionFilePointer = regionFilePointer;
+		}
+
+		void sort() {
+			final List<String> fkeys = new ArrayList<>(keys.size());
+			Integer[] order = new Integer[keys.size()];
+			for (int i = 0; i < order.length; i++) {
+				fkeys.add(CollatorFolding.fold(keys.get(i)));
+				order[i] = i;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					return fkeys.get(o1).compareTo(fkeys.get(o2));
+				}
+			});
+			List<String> sortedKeys = new ArrayList<>(order.length);
+			TIntArrayList sortedValues = new TIntArrayList(order.length);
+			folded = new ArrayList<>(order.length);
+			for (int i : order) {
+				sortedKeys.add(keys.get(i));
+				sortedValues.add(values.get(i));
+				folded.add(fkeys.get(i));
+			}
+			keys = sortedKeys;
+			values = sortedValues;
+		}
+
+		int getSize() {
+			return 4 + 4 * (keys.size() + 1) * 2 + 4 * keys.size() + 2 * (chars(folded) + chars(keys));
+		}
+
+		void write(DataOutputStream dout) throws IOException {
+			dout.writeInt(keys.size());
+			writeOffsets(dout, folded);
+			writeOffsets(dout, keys);
+			for (int i = 0; i < values.size(); i++) {
+				dout.writeInt(values.get(i));
+			}
+			for (String s : folded) {
+				dout.writeChars(s);
+			}
+			for (String s : keys) {
+				dout.writeChars(s);
+			}
+		}
+
+		private static void writeOffsets(DataOutputStream dout, List<String> l) throws IOException {
+			int p = 0;
+			for (String s : l) {
+				dout.writeInt(p);
+				p += s.length();
+			}
+			dout.writeInt(p);
+		}
+
+		private static int chars(List<String> l) {
+			int cnt = 0;
+			for (String s : l) {
+				cnt += s.length();
+			}
+			return cnt;
+		}
+	}
+}
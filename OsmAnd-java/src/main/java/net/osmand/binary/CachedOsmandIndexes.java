@@ -32,6 +32,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 public class CachedOsmandIndexes {
 
@@ -39,6 +42,9 @@ public class CachedOsmandIndexes {
 	private OsmAndStoredIndex.Builder storedIndexBuilder;
 	private Log log = PlatformUtil.getLog(CachedOsmandIndexes.class);
 	private boolean hasChanged = false;
+	private boolean memoryMapped = false;
+	private boolean nameIndexes = false;
+	private ExecutorService nameIndexExecutor;
 	public static final String INDEXES_DEFAULT_FILENAME = "indexes.cache";
 
 	public static final int VERSION = 5;// synchronize with binaryRead.cpp CACHE_VERSION
@@ -208,13 +214,37 @@ public class CachedOsmandIndexes {
 		routing.addSubregions(rpart);
 	}
 
+	public boolean isMemoryMapped() {
+		return memoryMapped;
+	}
+
+	/**
+	 * Readers created by {@link #getReader(File, boolean)} will access files through memory mapping
+	 * instead of buffered RandomAccessFile reads (recommended for 64-bit server processes)
+	 */
+	public void setMemoryMapped(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+
+	public boolean isNameIndexes() {
+		return nameIndexes;
+	}
+
+	/**
+	 * Readers created by {@link #getReader(File, boolean)} will use side-car name index files for search by name,
+	 * missing or outdated files are built next to obf files in background (see {@link BinaryNameIndexFile#attachAsync})
+	 */
+	public void setNameIndexes(boolean nameIndexes) {
+		this.nameIndexes = nameIndexes;
+	}
+
 	public BinaryMapIndexReader getReader(File f, boolean useStoredIndex) throws IOException {
 		FileIndex found = useStoredIndex ? getFileIndex(f, false) : null;
 		BinaryMapIndexReader reader = null;
 		RandomAccessFile mf = new RandomAccessFile(f.getPath(), "r");
 		if (found == null) {
 			long val = System.currentTimeMillis();
-			reader = new BinaryMapIndexReader(mf, f);
+			reader = new BinaryMapIndexReader(mf, f, true, memoryMapped);
 			found = addToCache(reader, f);
 			if (log.isDebugEnabled()) {
 				log.debug("Initializing db " + f.getAbsolutePath() + " " + (System.currentTimeMillis() - val) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
@@ -222,9 +252,27 @@ public class CachedOsmandIndexes {
 		} else {
 			reader = initReaderFromFileIndex(found, mf, f);
 		}
+		if (nameIndexes) {
+			BinaryNameIndexFile.attachAsync(reader, getNameIndexExecutor());
+		}
 		return reader;
 	}
 
+	private synchronized ExecutorService getNameIndexExecutor() {
+		if (nameIndexExecutor == null) {
+			// one file is built at a time, threads don't keep application running
+			nameIndexExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "NameIndexBuilder");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return nameIndexExecutor;
+	}
+
 
 	public FileIndex getFileIndex(File f, boolean init) throws IOException {
 		FileIndex found = null;
@@ -253,7 +301,7 @@ public class CachedOsmandIndexes {
 	}
 
 	public BinaryMapIndexReader initReaderFromFileIndex(FileIndex found, RandomAccessFile mf, File f) throws IOException {
-		BinaryMapIndexReader reader = new BinaryMapIndexReader(mf, f, false);
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(mf, f, false, memoryMapped);
 		reader.version = found.getVersion();
 		reader.dateCreated = found.getDateModified();
 
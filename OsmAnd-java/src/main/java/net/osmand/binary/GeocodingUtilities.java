@@ -221,55 +221,7 @@ public class GeocodingUtilities {
 	public List<GeocodingResult> justifyReverseGeocodingSearch(final GeocodingResult road, BinaryMapIndexReader reader,
 			double knownMinBuildingDistance, final ResultMatcher<GeocodingResult> result) throws IOException {
 		// test address index search
-		final List<GeocodingResult> streetsList = new ArrayList<GeocodingResult>();
-		boolean addCommonWords = false;
-		List<String> streetNamesUsed = prepareStreetName(road.streetName, addCommonWords);
-		if(streetNamesUsed.size() == 0) {
-			addCommonWords = true;
-			streetNamesUsed = prepareStreetName(road.streetName, addCommonWords);
-		}
-		final boolean addCommonWordsFinal = addCommonWords;
-		final List<String> streetNamesUsedFinal = streetNamesUsed;
-		if (streetNamesUsedFinal.size() > 0) {
-//			log.info("Search street by name " + road.streetName + " " + streetNamesUsedFinal);
-			String mainWord = "";
-			for (int i = 0; i < streetNamesUsedFinal.size(); i++) {
-				String s = streetNamesUsedFinal.get(i);
-				if (s.length() > mainWord.length()) {
-					mainWord = s;
-				}
-			}
-			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
-					new ResultMatcher<MapObject>() {
-						@Override
-						public boolean publish(MapObject object) {
-							if (object instanceof Street
-									&& prepareStreetName(object.getName(), addCommonWordsFinal).equals(streetNamesUsedFinal)) {
-								double d = MapUtils.getDistance(object.getLocation(), road.searchPoint.getLatitude(),
-										road.searchPoint.getLongitude());
-								// double check to suport old format
-								if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
-									GeocodingResult rs = new GeocodingResult(road);
-									rs.street = (Street) object;
-									// set connection point to sort
-									rs.connectionPoint = rs.street.getLocation();
-									rs.city = rs.street.getCity();
-									streetsList.add(rs);
-									return true;
-								}
-								return false;
-							}
-							return false;
-						}
-
-						@Override
-						public boolean isCancelled() {
-							return result != null && result.isCancelled();
-						}
-					}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
-			req.setBBoxRadius(road.getLocation().getLatitude(), road.getLocation().getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
-			reader.searchAddressDataByName(req);
-		}
+		final List<GeocodingResult> streetsList = searchStreets(road, reader, result);
 
 		final List<GeocodingResult> res = new ArrayList<GeocodingResult>();
 		if (streetsList.size() == 0) {
@@ -312,6 +264,94 @@ public class GeocodingUtilities {
 		return res;
 	}
 
+	// streets with the same name as road near search point
+	protected List<GeocodingResult> searchStreets(GeocodingResult road, BinaryMapIndexReader reader,
+			ResultMatcher<GeocodingResult> result) throws IOException {
+		SearchRequest<MapObject> bbox = new SearchRequest<MapObject>();
+		bbox.setBBoxRadius(road.getLocation().getLatitude(), road.getLocation().getLongitude(),
+				DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
+		List<Street> streets = searchStreetsByName(road.streetName, road.searchPoint, reader, bbox.left, bbox.top,
+				bbox.right, bbox.bottom, result);
+		return filterStreets(road, streets);
+	}
+
+	protected List<GeocodingResult> filterStreets(GeocodingResult road, List<Street> streets) {
+		List<GeocodingResult> streetsList = new ArrayList<GeocodingResult>();
+		for (Street street : streets) {
+			double d = MapUtils.getDistance(street.getLocation(), road.searchPoint.getLatitude(),
+					road.searchPoint.getLongitude());
+			// double check to suport old format
+			if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
+				GeocodingResult rs = new GeocodingResult(road);
+				rs.street = street;
+				// set connection point to sort
+				rs.connectionPoint = rs.street.getLocation();
+				rs.city = rs.street.getCity();
+				streetsList.add(rs);
+			}
+		}
+		return streetsList;
+	}
+
+	// streets by name in bbox, not further than street radius from search point (if it's set)
+	protected List<Street> searchStreetsByName(String streetName, final LatLon searchPoint, BinaryMapIndexReader reader,
+			int left31, int top31, int right31, int bottom31, final ResultMatcher<?> result) throws IOException {
+		final List<Street> streets = new ArrayList<Street>();
+		boolean addCommonWords = false;
+		List<String> streetNamesUsed = prepareStreetName(streetName, addCommonWords);
+		if(streetNamesUsed.size() == 0) {
+			addCommonWords = true;
+			streetNamesUsed = prepareStreetName(streetName, addCommonWords);
+		}
+		final boolean addCommonWordsFinal = addCommonWords;
+		final List<String> streetNamesUsedFinal = streetNamesUsed;
+		if (streetNamesUsedFinal.size() > 0) {
+//			log.info("Search street by name " + streetName + " " + streetNamesUsedFinal);
+			String mainWord = "";
+			for (int i = 0; i < streetNamesUsedFinal.size(); i++) {
+				String s = streetNamesUsedFinal.get(i);
+				if (s.length() > mainWord.length()) {
+					mainWord = s;
+				}
+			}
+			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
+					new ResultMatcher<MapObject>() {
+						@Override
+						public boolean publish(MapObject object) {
+							if (object instanceof Street
+									&& prepareStreetName(object.getName(), addCommonWordsFinal).equals(streetNamesUsedFinal)) {
+								if (searchPoint != null) {
+									double d = MapUtils.getDistance(object.getLocation(), searchPoint.getLatitude(),
+											searchPoint.getLongitude());
+									// double check to suport old format
+									if (d >= DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
+										return false;
+									}
+								}
+								streets.add((Street) object);
+								return true;
+							}
+							return false;
+						}
+
+						@Override
+						public boolean isCancelled() {
+							return result != null && result.isCancelled();
+						}
+					}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+			req.left = left31;
+			req.top = top31;
+			req.right = right31;
+			req.bottom = bottom31;
+			reader.searchAddressDataByName(req);
+		}
+		return streets;
+	}
+
+	protected void preloadBuildings(BinaryMapIndexReader reader, Street street) throws IOException {
+		reader.preloadBuildings(street, null);
+	}
+
 	public void filterDuplicateRegionResults(final List<GeocodingResult> res) {
 		Collections.sort(res, DISTANCE_COMPARATOR);
 		// filter duplicate city results (when building is in both regions on boundary)
@@ -359,7 +399,7 @@ public class GeocodingUtilities {
 	private List<GeocodingResult> loadStreetBuildings(final GeocodingResult road, BinaryMapIndexReader reader,
 			GeocodingResult street) throws IOException {
 		final List<GeocodingResult> streetBuildings = new ArrayList<GeocodingResult>();
-		reader.preloadBuildings(street.street, null);
+		preloadBuildings(reader, street.street);
 //		log.info("Preload buildings " + street.street.getName() + " " + street.city.getName() + " " + street.street.getId());
 		for (Building b : street.street.getBuildings()) {
 			if (b.getLatLon2() != null) {
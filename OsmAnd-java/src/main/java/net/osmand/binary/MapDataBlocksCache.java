@@ -0,0 +1,228 @@
+package net.osmand.binary;
+
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.util.Algorithms;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import gnu.trove.iterator.TIntObjectIterator;
+
+/**
+ * Decoded map data blocks (leaves of map tree) shared by all readers, so next searches of the same area
+ * (small pans, zoom in and out) don't read and decode blocks again. Blocks are decoded without filters of request,
+ * search filters cached objects by bbox and types. Key is (file, map index, zoom level, block offset).
+ * Size is limited by approximate size of decoded objects in bytes, least recently used blocks are evicted.
+ * <p>
+ * Shared instance is disabled by default: application enables it with
+ * {@code setMaxWeight(DEFAULT_MAX_WEIGHT)} and should call {@link #trimMemory(boolean)} (or clear) when system
+ * asks to release memory. Set max weight to 0 to disable cache again.
+ * <p>
+ * The same {@link BinaryMapDataObject} instances are returned to every search of cached block (and to other
+ * threads), so while cache is enabled search results are read only: callers must not modify objects
+ * (set id, names, area, map index), objects to be changed should be copied.
+ */
+public class MapDataBlocksCache {
+
+	public static final long DEFAULT_MAX_WEIGHT = 16 << 20;
+
+	private static final MapDataBlocksCache INSTANCE = new MapDataBlocksCache(0);
+
+	// access ordered
+	private final LinkedHashMap<BlockKey, DecodedBlock> blocks = new LinkedHashMap<>(16, 0.75f, true);
+	private long maxWeight;
+	private long weight;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public MapDataBlocksCache(long maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
+	public static MapDataBlocksCache getInstance() {
+		return INSTANCE;
+	}
+
+	public synchronized void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+		evict();
+	}
+
+	public synchronized long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public synchronized boolean isEnabled() {
+		return maxWeight > 0;
+	}
+
+	synchronized DecodedBlock get(BlockKey key) {
+		DecodedBlock block = blocks.get(key);
+		if (block == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return block;
+	}
+
+	synchronized void put(BlockKey key, DecodedBlock block) {
+		if (block.weight > maxWeight) {
+			return;
+		}
+		DecodedBlock old = blocks.put(key, block);
+		weight += block.weight - (old == null ? 0 : old.weight);
+		evict();
+	}
+
+	private void evict() {
+		evict(maxWeight);
+	}
+
+	private void evict(long targetWeight) {
+		Iterator<DecodedBlock> it = blocks.values().iterator();
+		while (weight > targetWeight && it.hasNext()) {
+			weight -= it.next().weight;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Releases memory of cache on memory pressure: least recently used half of blocks are evicted,
+	 * all blocks are evicted if it's critical. Max weight is not changed.
+	 */
+	public synchronized void trimMemory(boolean critical) {
+		if (critical) {
+			clear();
+			return;
+		}
+		evict(weight / 2);
+	}
+
+	public synchronized void clear() {
+		blocks.clear();
+		weight = 0;
+	}
+
+	public synchronized int getBlocksCount() {
+		return blocks.size();
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Map blocks cache: %d blocks %d KB (max %d KB), hits %d, misses %d, evicted %d",
+				blocks.size(), weight >> 10, maxWeight >> 10, hits, misses, evictions);
+	}
+
+	static class BlockKey {
+		final File file;
+		final long dateCreated;
+		// objects refer to map index, so it's compared by identity (pooled readers share it)
+		final MapIndex mapIndex;
+		final int zoom;
+		final long blockPointer;
+
+		BlockKey(File file, long dateCreated, MapIndex mapIndex, int zoom, long blockPointer) {
+			this.file = file;
+			this.dateCreated = dateCreated;
+			this.mapIndex = mapIndex;
+			this.zoom = zoom;
+			this.blockPointer = blockPointer;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof BlockKey)) {
+				return false;
+			}
+			BlockKey k = (BlockKey) o;
+			return blockPointer == k.blockPointer && mapIndex == k.mapIndex && zoom == k.zoom
+					&& dateCreated == k.dateCreated && Algorithms.objectEquals(file, k.file);
+		}
+
+		@Override
+		public int hashCode() {
+			int h = file == null ? 0 : file.hashCode();
+			h = h * 31 + System.identityHashCode(mapIndex);
+			h = h * 31 + zoom;
+			return h * 31 + (int) (blockPointer ^ (blockPointer >>> 32));
+		}
+	}
+
+	static class DecodedBlock {
+		// objects in order of block
+		final BinaryMapDataObject[] objects;
+		// left, top, right, bottom of objects
+		final int[] bbox;
+		final long weight;
+
+		DecodedBlock(List<BinaryMapDataObject> objects) {
+			this.objects = objects.toArray(new BinaryMapDataObject[0]);
+			this.bbox = new int[4 * objects.size()];
+			long w = 64;
+			for (int i = 0; i < this.objects.length; i++) {
+				BinaryMapDataObject o = this.objects[i];
+				int left = Integer.MAX_VALUE;
+				int top = Integer.MAX_VALUE;
+				int right = Integer.MIN_VALUE;
+				int bottom = Integer.MIN_VALUE;
+				for (int k = 0; k < o.getPointsLength(); k++) {
+					int x = o.getPoint31XTile(k);
+					int y = o.getPoint31YTile(k);
+					left = Math.min(left, x);
+					right = Math.max(right, x);
+					top = Math.min(top, y);
+					bottom = Math.max(bottom, y);
+				}
+				bbox[4 * i] = left;
+				bbox[4 * i + 1] = top;
+				bbox[4 * i + 2] = right;
+				bbox[4 * i + 3] = bottom;
+				w += getWeight(o);
+			}
+			this.weight = w;
+		}
+
+		// approximate size of object in memory
+		private static long getWeight(BinaryMapDataObject o) {
+			long w = 96 + 16 + 4 * (o.coordinates == null ? 0 : o.coordinates.length)
+					+ 16 + 4 * (o.types == null ? 0 : o.types.length)
+					+ 16 + 4 * (o.additionalTypes == null ? 0 : o.additionalTypes.length);
+			if (o.polygonInnerCoordinates != null) {
+				for (int[] inner : o.polygonInnerCoordinates) {
+					w += 16 + 4 * inner.length;
+				}
+			}
+			if (o.objectNames != null) {
+				w += 64;
+				TIntObjectIterator<String> it = o.objectNames.iterator();
+				while (it.hasNext()) {
+					it.advance();
+					w += 48 + 2 * (it.value() == null ? 0 : it.value().length());
+				}
+			}
+			return w;
+		}
+	}
+}
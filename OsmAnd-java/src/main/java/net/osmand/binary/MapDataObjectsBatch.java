@@ -0,0 +1,506 @@
+package net.osmand.binary;
+
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.render.RenderingRulesStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Columnar storage of decoded map objects ({@link BinaryMapIndexReader#searchMapIndexBatch}). Instead of arrays and
+ * name maps per object, all coordinates, types and names of batch are kept in few shared arrays with offsets per
+ * object, names are interned in one table. Objects are accessed by index or by {@link Cursor} which has the same
+ * getters as {@link BinaryMapDataObject}, {@link Cursor#toMapDataObject()} creates usual object when it's needed.
+ */
+public class MapDataObjectsBatch {
+
+	private final int size;
+	private final long[] ids;
+	private final MapIndex[] mapIndexes;
+	private final boolean[] area;
+	// labelX, labelY of object
+	private final int[] labels;
+
+	// object i has rings [ringsStart[i], ringsStart[i + 1]), first ring is outer, others are inner polygons;
+	// ring r has coordinates [rings[r], rings[r + 1]) as x, y pairs
+	private final int[] ringsStart;
+	private final int[] rings;
+	private final int[] coordinates;
+
+	private final int[] typesStart;
+	private final int[] types;
+	private final int[] additionalTypesStart;
+	private final int[] additionalTypes;
+
+	// name types and ids in name table in order of object
+	private final int[] namesStart;
+	private final int[] nameTypes;
+	private final int[] nameIds;
+	private final String[] nameTable;
+
+	private MapDataObjectsBatch(Builder b) {
+		size = b.ids.size();
+		ids = b.ids.toArray();
+		mapIndexes = b.mapIndexes.toArray(new MapIndex[0]);
+		area = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			area[i] = b.area.get(i) != 0;
+		}
+		labels = b.labels.toArray();
+		ringsStart = b.ringsStart.toArray();
+		rings = b.rings.toArray();
+		coordinates = b.coordinates.toArray();
+		typesStart = b.typesStart.toArray();
+		types = b.types.toArray();
+		additionalTypesStart = b.additionalTypesStart.toArray();
+		additionalTypes = b.additionalTypes.toArray();
+		namesStart = b.namesStart.toArray();
+		nameTypes = b.nameTypes.toArray();
+		nameIds = b.nameIds.toArray();
+		nameTable = b.nameTable.toArray(new String[0]);
+	}
+
+	public static MapDataObjectsBatch fromObjects(Collection<BinaryMapDataObject> objects) {
+		Builder b = new Builder();
+		for (BinaryMapDataObject o : objects) {
+			b.add(o);
+		}
+		return b.build();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getId(int obj) {
+		return ids[obj];
+	}
+
+	public MapIndex getMapIndex(int obj) {
+		return mapIndexes[obj];
+	}
+
+	public boolean isArea(int obj) {
+		return area[obj];
+	}
+
+	public int getPointsLength(int obj) {
+		int r = ringsStart[obj];
+		return (rings[r + 1] - rings[r]) / 2;
+	}
+
+	public int getPoint31XTile(int obj, int ind) {
+		return coordinates[rings[ringsStart[obj]] + 2 * ind];
+	}
+
+	public int getPoint31YTile(int obj, int ind) {
+		return coordinates[rings[ringsStart[obj]] + 2 * ind + 1];
+	}
+
+	public int getTypesLength(int obj) {
+		return typesStart[obj + 1] - typesStart[obj];
+	}
+
+	public int getType(int obj, int ind) {
+		return types[typesStart[obj] + ind];
+	}
+
+	public String[] getNameTable() {
+		return nameTable;
+	}
+
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	@Override
+	public String toString() {
+		return "Map objects batch: " + size + " objects, " + coordinates.length / 2 + " points, "
+				+ nameTable.length + " names";
+	}
+
+	/**
+	 * Flyweight view of one object of batch, it's moved over objects without allocations.
+	 */
+	public class Cursor {
+		private int obj = -1;
+
+		public Cursor moveTo(int obj) {
+			if (obj < 0 || obj >= size) {
+				throw new IndexOutOfBoundsException("Object " + obj + " of " + size);
+			}
+			this.obj = obj;
+			return this;
+		}
+
+		public boolean next() {
+			if (obj + 1 >= size) {
+				return false;
+			}
+			obj++;
+			return true;
+		}
+
+		public int getIndex() {
+			return obj;
+		}
+
+		public long getId() {
+			return ids[obj];
+		}
+
+		public MapIndex getMapIndex() {
+			return mapIndexes[obj];
+		}
+
+		public boolean isArea() {
+			return area[obj];
+		}
+
+		public int getPointsLength() {
+			return getRingLength(ringsStart[obj]);
+		}
+
+		public int getPoint31XTile(int ind) {
+			return coordinates[rings[ringsStart[obj]] + 2 * ind];
+		}
+
+		public int getPoint31YTile(int ind) {
+			return coordinates[rings[ringsStart[obj]] + 2 * ind + 1];
+		}
+
+		public boolean isCycle() {
+			int len = getPointsLength();
+			if (len < 1) {
+				return false;
+			}
+			return getPoint31XTile(0) == getPoint31XTile(len - 1) && getPoint31YTile(0) == getPoint31YTile(len - 1);
+		}
+
+		public int getInnerPolygonsCount() {
+			return ringsStart[obj + 1] - ringsStart[obj] - 1;
+		}
+
+		public int getInnerPointsLength(int polygon) {
+			return getRingLength(ringsStart[obj] + 1 + polygon);
+		}
+
+		public int getInnerPoint31XTile(int polygon, int ind) {
+			return coordinates[rings[ringsStart[obj] + 1 + polygon] + 2 * ind];
+		}
+
+		public int getInnerPoint31YTile(int polygon, int ind) {
+			return coordinates[rings[ringsStart[obj] + 1 + polygon] + 2 * ind + 1];
+		}
+
+		private int getRingLength(int r) {
+			return (rings[r + 1] - rings[r]) / 2;
+		}
+
+		public int getTypesLength() {
+			return typesStart[obj + 1] - typesStart[obj];
+		}
+
+		public int getType(int ind) {
+			return types[typesStart[obj] + ind];
+		}
+
+		// copy of types, use getType(ind) to avoid allocation
+		public int[] getTypes() {
+			return copy(types, typesStart[obj], typesStart[obj + 1]);
+		}
+
+		public boolean containsType(int cachedType) {
+			return cachedType != -1 && contains(types, typesStart[obj], typesStart[obj + 1], cachedType);
+		}
+
+		public int getAdditionalTypesLength() {
+			return additionalTypesStart[obj + 1] - additionalTypesStart[obj];
+		}
+
+		public int getAdditionalType(int ind) {
+			return additionalTypes[additionalTypesStart[obj] + ind];
+		}
+
+		public int[] getAdditionalTypes() {
+			return copy(additionalTypes, additionalTypesStart[obj], additionalTypesStart[obj + 1]);
+		}
+
+		public boolean containsAdditionalType(int cachedType) {
+			return cachedType != -1
+					&& contains(additionalTypes, additionalTypesStart[obj], additionalTypesStart[obj + 1], cachedType);
+		}
+
+		public int getSimpleLayer() {
+			MapIndex mapIndex = mapIndexes[obj];
+			if (mapIndex != null) {
+				for (int i = additionalTypesStart[obj]; i < additionalTypesStart[obj + 1]; i++) {
+					if (mapIndex.positiveLayers.contains(additionalTypes[i])) {
+						return 1;
+					} else if (mapIndex.negativeLayers.contains(additionalTypes[i])) {
+						return -1;
+					}
+				}
+			}
+			return 0;
+		}
+
+		public String getName() {
+			if (namesStart[obj] == namesStart[obj + 1]) {
+				return "";
+			}
+			String name = getNameByType(mapIndexes[obj].nameEncodingType);
+			return name == null ? "" : name;
+		}
+
+		public String getNameByType(int type) {
+			if (type == -1) {
+				return null;
+			}
+			// last name of type as in names map of object
+			for (int i = namesStart[obj + 1] - 1; i >= namesStart[obj]; i--) {
+				if (nameTypes[i] == type) {
+					return nameIds[i] == -1 ? null : nameTable[nameIds[i]];
+				}
+			}
+			return null;
+		}
+
+		public int getNamesLength() {
+			return namesStart[obj + 1] - namesStart[obj];
+		}
+
+		public int getNameType(int ind) {
+			return nameTypes[namesStart[obj] + ind];
+		}
+
+		public String getNameValue(int ind) {
+			int id = nameIds[namesStart[obj] + ind];
+			return id == -1 ? null : nameTable[id];
+		}
+
+		public boolean isLabelSpecified() {
+			return (labels[2 * obj] != 0 || labels[2 * obj + 1] != 0) && getPointsLength() > 0;
+		}
+
+		public int getLabelX() {
+			return getLabel(0);
+		}
+
+		public int getLabelY() {
+			return getLabel(1);
+		}
+
+		// same as BinaryMapDataObject.getLabelX/Y
+		private int getLabel(int coordinate) {
+			long sum = 0;
+			int labelShift = 31 - BinaryMapIndexReader.LABEL_ZOOM_ENCODE;
+			int start = rings[ringsStart[obj]];
+			int len = getPointsLength();
+			for (int i = 0; i < len; i++) {
+				sum += coordinates[start + 2 * i + coordinate];
+			}
+			int average = ((int) (sum >> BinaryMapIndexReader.SHIFT_COORDINATES) / len)
+					<< (BinaryMapIndexReader.SHIFT_COORDINATES - labelShift);
+			return (average + labels[2 * obj + coordinate]) << labelShift;
+		}
+
+		public int getObjectType() {
+			return RenderingRulesStorage.POINT_RULES;
+		}
+
+		public BinaryMapDataObject toMapDataObject() {
+			int r = ringsStart[obj];
+			int[][] inner = new int[getInnerPolygonsCount()][];
+			for (int i = 0; i < inner.length; i++) {
+				inner[i] = copy(coordinates, rings[r + 1 + i], rings[r + 2 + i]);
+			}
+			BinaryMapDataObject o = new BinaryMapDataObject(ids[obj], copy(coordinates, rings[r], rings[r + 1]), inner,
+					RenderingRulesStorage.POINT_RULES, area[obj], getTypes(), getAdditionalTypes(),
+					labels[2 * obj], labels[2 * obj + 1]);
+			for (int i = 0; i < getNamesLength(); i++) {
+				o.putObjectName(getNameType(i), getNameValue(i));
+			}
+			o.setMapIndex(mapIndexes[obj]);
+			return o;
+		}
+	}
+
+	private static int[] copy(int[] array, int from, int to) {
+		int[] r = new int[to - from];
+		System.arraycopy(array, from, r, 0, r.length);
+		return r;
+	}
+
+	private static boolean contains(int[] array, int from, int to, int value) {
+		for (int i = from; i < to; i++) {
+			if (array[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Appends objects while blocks are decoded: startObject, points (outer ring, then inner polygons), types, names and
+	 * then endObject or rollback if object isn't accepted. Names refer to string table of block till endBlock().
+	 */
+	static class Builder {
+		private final TLongArrayList ids = new TLongArrayList();
+		private final List<MapIndex> mapIndexes = new ArrayList<MapIndex>();
+		private final TIntArrayList area = new TIntArrayList();
+		private final TIntArrayList labels = new TIntArrayList();
+		private final TIntArrayList ringsStart = new TIntArrayList();
+		private final TIntArrayList rings = new TIntArrayList();
+		private final TIntArrayList coordinates = new TIntArrayList();
+		private final TIntArrayList typesStart = new TIntArrayList();
+		private final TIntArrayList types = new TIntArrayList();
+		private final TIntArrayList additionalTypesStart = new TIntArrayList();
+		private final TIntArrayList additionalTypes = new TIntArrayList();
+		private final TIntArrayList namesStart = new TIntArrayList();
+		private final TIntArrayList nameTypes = new TIntArrayList();
+		private final TIntArrayList nameIds = new TIntArrayList();
+		private final List<String> nameTable = new ArrayList<String>();
+		private final Map<String, Integer> nameTableIds = new HashMap<String, Integer>();
+		private int blockNamesStart;
+
+		Builder() {
+			ringsStart.add(0);
+			rings.add(0);
+			typesStart.add(0);
+			additionalTypesStart.add(0);
+			namesStart.add(0);
+		}
+
+		void startObject() {
+			rollback();
+		}
+
+		// points before first inner polygon are outer ring
+		void startInnerPolygon() {
+			rings.add(coordinates.size());
+		}
+
+		void addPoint(int x, int y) {
+			coordinates.add(x);
+			coordinates.add(y);
+		}
+
+		void addType(int type) {
+			types.add(type);
+		}
+
+		void addAdditionalType(int type) {
+			additionalTypes.add(type);
+		}
+
+		// id is index in string table of block
+		void addName(int type, int id) {
+			nameTypes.add(type);
+			nameIds.add(id);
+		}
+
+		void endObject(long id, boolean area, int labelX, int labelY, MapIndex mapIndex) {
+			rings.add(coordinates.size());
+			ringsStart.add(rings.size() - 1);
+			typesStart.add(types.size());
+			additionalTypesStart.add(additionalTypes.size());
+			namesStart.add(nameTypes.size());
+			ids.add(id);
+			this.area.add(area ? 1 : 0);
+			labels.add(labelX);
+			labels.add(labelY);
+			mapIndexes.add(mapIndex);
+		}
+
+		// removes data of not finished object
+		void rollback() {
+			truncate(rings, ringsStart.get(ringsStart.size() - 1) + 1);
+			truncate(coordinates, rings.get(rings.size() - 1));
+			truncate(types, typesStart.get(typesStart.size() - 1));
+			truncate(additionalTypes, additionalTypesStart.get(additionalTypesStart.size() - 1));
+			truncate(nameTypes, namesStart.get(namesStart.size() - 1));
+			truncate(nameIds, namesStart.get(namesStart.size() - 1));
+		}
+
+		private static void truncate(TIntArrayList list, int size) {
+			if (list.size() > size) {
+				list.remove(size, list.size() - size);
+			}
+		}
+
+		void setStringTable(List<String> stringTable) {
+			for (int i = blockNamesStart; i < nameIds.size(); i++) {
+				int id = nameIds.get(i);
+				nameIds.set(i, id >= 0 && id < stringTable.size() ? intern(stringTable.get(id)) : -1);
+			}
+			blockNamesStart = nameIds.size();
+		}
+
+		void endBlock() {
+			rollback();
+			// names without string table
+			for (int i = blockNamesStart; i < nameIds.size(); i++) {
+				nameIds.set(i, -1);
+			}
+			blockNamesStart = nameIds.size();
+		}
+
+		private int intern(String name) {
+			Integer id = nameTableIds.get(name);
+			if (id == null) {
+				id = nameTable.size();
+				nameTable.add(name);
+				nameTableIds.put(name, id);
+			}
+			return id;
+		}
+
+		void add(BinaryMapDataObject o) {
+			startObject();
+			if (o.coordinates != null) {
+				coordinates.add(o.coordinates);
+			}
+			if (o.polygonInnerCoordinates != null) {
+				for (int[] inner : o.polygonInnerCoordinates) {
+					startInnerPolygon();
+					coordinates.add(inner);
+				}
+			}
+			if (o.types != null) {
+				types.add(o.types);
+			}
+			if (o.additionalTypes != null) {
+				additionalTypes.add(o.additionalTypes);
+			}
+			if (o.objectNames != null) {
+				if (o.namesOrder != null) {
+					for (int i = 0; i < o.namesOrder.size(); i++) {
+						int type = o.namesOrder.get(i);
+						addName(type, intern(o.objectNames.get(type)));
+					}
+				} else {
+					TIntObjectIterator<String> it = o.objectNames.iterator();
+					while (it.hasNext()) {
+						it.advance();
+						addName(it.key(), intern(it.value()));
+					}
+				}
+			}
+			endObject(o.id, o.area, o.labelX, o.labelY, o.mapIndex);
+			blockNamesStart = nameIds.size();
+		}
+
+		MapDataObjectsBatch build() {
+			endBlock();
+			return new MapDataObjectsBatch(this);
+		}
+	}
+}
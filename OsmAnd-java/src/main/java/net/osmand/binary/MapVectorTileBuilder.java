@@ -0,0 +1,455 @@
+package net.osmand.binary;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.JtsAdapter;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.UserDataKeyValueMapConverter;
+import com.wdtinc.mapbox_vector_tile.builder.MvtLayerBuild;
+import com.wdtinc.mapbox_vector_tile.builder.MvtLayerParams;
+import com.wdtinc.mapbox_vector_tile.builder.MvtLayerProps;
+
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.render.RenderingRuleSearchRequest;
+import net.osmand.render.RenderingRulesStorage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntByteHashMap;
+
+/**
+ * Builds Mapbox vector tile (MVT) z/x/y from map objects of obf files.
+ * Objects are read with {@link BinaryMapIndexReader#searchMapIndex} at tile zoom (map level of this zoom),
+ * types without rules in rendering style are skipped before objects are read and objects are kept only if
+ * style shows them at zoom (polygon, line, point or text rules). Coordinates are projected to tile extent,
+ * rounded, clipped to tile with buffer (lines are split, polygon rings are clipped by sides of tile) and
+ * simplified with Douglas-Peucker per ring, JTS overlay operations are not used as they are too slow per object.
+ * Every layer of tile is a tag of the first visible type (highway, building, ...), features have all tags
+ * of object and its names.
+ * Builder is not thread safe (one builder per thread), it works with own copy of rendering style.
+ */
+public class MapVectorTileBuilder {
+
+	public static final int DEFAULT_EXTENT = 4096;
+	// around tile in extent units
+	public static final int DEFAULT_BUFFER = 64;
+	// in extent units
+	public static final double DEFAULT_SIMPLIFY_TOLERANCE = 1;
+
+	private static final byte TYPE_RENDERED = 1;
+	private static final byte TYPE_NOT_RENDERED = 2;
+	private static final int[] RULES = {RenderingRulesStorage.POINT_RULES, RenderingRulesStorage.LINE_RULES,
+			RenderingRulesStorage.POLYGON_RULES, RenderingRulesStorage.TEXT_RULES};
+
+	private final RenderingRulesStorage storage;
+	private final RenderingRuleSearchRequest request;
+	private final MvtLayerParams layerParams;
+	private final int buffer;
+	private final double simplifyTolerance;
+	private final GeometryFactory geometryFactory = new GeometryFactory();
+	private final UserDataKeyValueMapConverter userDataConverter = new UserDataKeyValueMapConverter();
+	// types of map index which have rules in style
+	private final Map<MapIndex, TIntByteHashMap> renderedTypes = new IdentityHashMap<>();
+
+	public MapVectorTileBuilder(RenderingRulesStorage storage) {
+		this(storage, DEFAULT_EXTENT, DEFAULT_BUFFER, DEFAULT_SIMPLIFY_TOLERANCE);
+	}
+
+	public MapVectorTileBuilder(RenderingRulesStorage storage, int extent, int buffer, double simplifyTolerance) {
+		// search request adds strings to dictionary of storage
+		this.storage = storage.copy();
+		if (this.storage.getCompiledRules() == null) {
+			this.storage.compileRules();
+		}
+		this.request = new RenderingRuleSearchRequest(this.storage);
+		this.layerParams = new MvtLayerParams(256, extent);
+		this.buffer = buffer;
+		this.simplifyTolerance = simplifyTolerance;
+	}
+
+	public int getExtent() {
+		return layerParams.extent;
+	}
+
+	/**
+	 * Reads objects of tile with buffer which could be rendered by style.
+	 */
+	public List<BinaryMapDataObject> searchTileObjects(BinaryMapIndexReader reader, int zoom, int x, int y)
+			throws IOException {
+		int shift = 31 - zoom;
+		int buffer31 = (int) (((long) buffer << shift) / layerParams.extent);
+		int left = (int) Math.max(0, ((long) x << shift) - buffer31);
+		int right = (int) Math.min(Integer.MAX_VALUE, ((long) (x + 1) << shift) + buffer31);
+		int top = (int) Math.max(0, ((long) y << shift) - buffer31);
+		int bottom = (int) Math.min(Integer.MAX_VALUE, ((long) (y + 1) << shift) + buffer31);
+		SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(left, right, top, bottom, zoom,
+				new SearchFilter() {
+					@Override
+					public boolean accept(TIntArrayList types, MapIndex index) {
+						for (int i = 0; i < types.size(); i++) {
+							if (isTypeRendered(index, types.getQuick(i))) {
+								return true;
+							}
+						}
+						return false;
+					}
+				});
+		return reader.searchMapIndex(req);
+	}
+
+	private boolean isTypeRendered(MapIndex index, int type) {
+		TIntByteHashMap types = renderedTypes.get(index);
+		if (types == null) {
+			types = new TIntByteHashMap();
+			renderedTypes.put(index, types);
+		}
+		byte rendered = types.get(type);
+		if (rendered == 0) {
+			rendered = TYPE_NOT_RENDERED;
+			TagValuePair tv = index.decodeType(type);
+			if (tv != null) {
+				int tagValueKey = storage.getTagValueKey(tv.tag, tv.value);
+				int tagKey = storage.getTagValueKey(tv.tag, "");
+				for (int state : RULES) {
+					if (storage.getRule(state, tagValueKey) != null || storage.getRule(state, tagKey) != null
+							|| storage.getRule(state, 0) != null) {
+						rendered = TYPE_RENDERED;
+						break;
+					}
+				}
+			}
+			types.put(type, rendered);
+		}
+		return rendered == TYPE_RENDERED;
+	}
+
+	/**
+	 * @return layer (tag of first visible type) or null if style doesn't show object at zoom
+	 */
+	public String getVisibleLayer(BinaryMapDataObject o, int zoom) {
+		int state;
+		if (o.isArea()) {
+			state = RenderingRulesStorage.POLYGON_RULES;
+		} else if (o.getPointsLength() > 1) {
+			state = RenderingRulesStorage.LINE_RULES;
+		} else {
+			state = RenderingRulesStorage.POINT_RULES;
+		}
+		boolean named = o.getObjectNames() != null && !o.getObjectNames().isEmpty();
+		for (int type : o.getTypes()) {
+			TagValuePair tv = o.getMapIndex().decodeType(type);
+			if (tv == null) {
+				continue;
+			}
+			request.setInitialTagValueZoom(tv.tag, tv.value, zoom, o);
+			if (request.search(state, false)) {
+				return tv.tag;
+			}
+			if (named) {
+				request.setInitialTagValueZoom(tv.tag, tv.value, zoom, o);
+				if (request.search(RenderingRulesStorage.TEXT_RULES, false)) {
+					return tv.tag;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Builds tile from objects of tile (already filtered by style or not).
+	 * @return encoded MVT
+	 */
+	public byte[] buildTile(List<BinaryMapDataObject> objects, int zoom, int x, int y) {
+		Map<String, List<Geometry>> layers = new LinkedHashMap<>();
+		double scale = layerParams.extent / (double) (1L << (31 - zoom));
+		double left = (double) ((long) x << (31 - zoom));
+		double top = (double) ((long) y << (31 - zoom));
+		for (BinaryMapDataObject o : objects) {
+			String layer = getVisibleLayer(o, zoom);
+			if (layer == null) {
+				continue;
+			}
+			Geometry g = createGeometry(o, left, top, scale);
+			if (g == null) {
+				continue;
+			}
+			g.setUserData(getTags(o));
+			List<Geometry> list = layers.get(layer);
+			if (list == null) {
+				list = new ArrayList<>();
+				layers.put(layer, list);
+			}
+			list.addAll(JtsAdapter.flatFeatureList(g));
+		}
+		VectorTile.Tile.Builder tile = VectorTile.Tile.newBuilder();
+		for (Map.Entry<String, List<Geometry>> e : layers.entrySet()) {
+			MvtLayerProps props = new MvtLayerProps();
+			VectorTile.Tile.Layer.Builder layer = MvtLayerBuild.newLayerBuilder(e.getKey(), layerParams);
+			layer.addAllFeatures(JtsAdapter.toFeatures(e.getValue(), props, userDataConverter));
+			MvtLayerBuild.writeProps(layer, props);
+			tile.addLayers(layer.build());
+		}
+		return tile.build().toByteArray();
+	}
+
+	// geometry in tile extent clipped to tile with buffer and simplified or null if nothing is left
+	private Geometry createGeometry(BinaryMapDataObject o, double left, double top, double scale) {
+		int len = o.getPointsLength();
+		if (len == 0) {
+			return null;
+		}
+		double min = -buffer;
+		double max = layerParams.extent + buffer;
+		if (len == 1 && !o.isArea()) {
+			double px = Math.round((o.getPoint31XTile(0) - left) * scale);
+			double py = Math.round((o.getPoint31YTile(0) - top) * scale);
+			if (px < min || px > max || py < min || py > max) {
+				return null;
+			}
+			return geometryFactory.createPoint(new Coordinate(px, py));
+		}
+		List<Coordinate> coordinates = project(o.getCoordinates(), left, top, scale);
+		if (!o.isArea()) {
+			List<LineString> lines = new ArrayList<>();
+			for (List<Coordinate> part : clipLine(coordinates, min, max)) {
+				part = simplify(part, simplifyTolerance);
+				if (part.size() >= 2) {
+					lines.add(geometryFactory.createLineString(part.toArray(new Coordinate[0])));
+				}
+			}
+			if (lines.isEmpty()) {
+				return null;
+			}
+			return lines.size() == 1 ? lines.get(0) : geometryFactory.createMultiLineString(
+					lines.toArray(new LineString[0]));
+		}
+		LinearRing shell = createRing(coordinates, min, max);
+		if (shell == null) {
+			return null;
+		}
+		List<LinearRing> holes = new ArrayList<>();
+		if (o.getPolygonInnerCoordinates() != null) {
+			for (int[] inner : o.getPolygonInnerCoordinates()) {
+				LinearRing hole = createRing(project(inner, left, top, scale), min, max);
+				if (hole != null) {
+					holes.add(hole);
+				}
+			}
+		}
+		return geometryFactory.createPolygon(shell, holes.toArray(new LinearRing[0]));
+	}
+
+	private LinearRing createRing(List<Coordinate> ring, double min, double max) {
+		if (ring.size() < 3) {
+			return null;
+		}
+		ring = simplify(clipRing(ring, min, max), simplifyTolerance);
+		if (ring.size() < 3) {
+			return null;
+		}
+		ring.add(new Coordinate(ring.get(0)));
+		return geometryFactory.createLinearRing(ring.toArray(new Coordinate[0]));
+	}
+
+	// projects to tile extent and skips points which are rounded to previous point (ring is not closed)
+	private static List<Coordinate> project(int[] xy, double left, double top, double scale) {
+		List<Coordinate> res = new ArrayList<>(xy.length / 2);
+		double px = Double.NaN;
+		double py = Double.NaN;
+		for (int i = 0; i + 1 < xy.length; i += 2) {
+			double cx = Math.round((xy[i] - left) * scale);
+			double cy = Math.round((xy[i + 1] - top) * scale);
+			if (cx != px || cy != py) {
+				res.add(new Coordinate(cx, cy));
+				px = cx;
+				py = cy;
+			}
+		}
+		if (res.size() > 1 && res.get(0).equals2D(res.get(res.size() - 1))) {
+			res.remove(res.size() - 1);
+		}
+		return res;
+	}
+
+	/**
+	 * Clips line to square [min, max] (Liang-Barsky), line is split to parts where it leaves square.
+	 */
+	static List<List<Coordinate>> clipLine(List<Coordinate> line, double min, double max) {
+		List<List<Coordinate>> parts = new ArrayList<>();
+		List<Coordinate> part = null;
+		for (int i = 0; i + 1 < line.size(); i++) {
+			Coordinate a = line.get(i);
+			Coordinate b = line.get(i + 1);
+			double dx = b.x - a.x;
+			double dy = b.y - a.y;
+			double[] t = {0, 1};
+			if (!clipT(-dx, a.x - min, t) || !clipT(dx, max - a.x, t) || !clipT(-dy, a.y - min, t)
+					|| !clipT(dy, max - a.y, t)) {
+				part = null;
+				continue;
+			}
+			if (part == null || t[0] > 0) {
+				part = new ArrayList<>();
+				parts.add(part);
+				part.add(t[0] > 0 ? new Coordinate(Math.round(a.x + t[0] * dx), Math.round(a.y + t[0] * dy)) : a);
+			}
+			part.add(t[1] < 1 ? new Coordinate(Math.round(a.x + t[1] * dx), Math.round(a.y + t[1] * dy)) : b);
+			if (t[1] < 1) {
+				part = null;
+			}
+		}
+		return parts;
+	}
+
+	private static boolean clipT(double p, double q, double[] t) {
+		if (p == 0) {
+			return q >= 0;
+		}
+		double r = q / p;
+		if (p < 0) {
+			if (r > t[1]) {
+				return false;
+			}
+			t[0] = Math.max(t[0], r);
+		} else {
+			if (r < t[0]) {
+				return false;
+			}
+			t[1] = Math.min(t[1], r);
+		}
+		return true;
+	}
+
+	/**
+	 * Clips not closed ring to square [min, max] (Sutherland-Hodgman), parts of ring outside of square are
+	 * replaced by its sides.
+	 */
+	static List<Coordinate> clipRing(List<Coordinate> ring, double min, double max) {
+		for (int side = 0; side < 4 && !ring.isEmpty(); side++) {
+			boolean xAxis = side < 2;
+			double bound = side % 2 == 0 ? min : max;
+			List<Coordinate> res = new ArrayList<>(ring.size() + 4);
+			Coordinate prev = ring.get(ring.size() - 1);
+			boolean prevInside = inside(prev, xAxis, bound, side % 2 == 0);
+			for (Coordinate c : ring) {
+				boolean cInside = inside(c, xAxis, bound, side % 2 == 0);
+				if (cInside != prevInside) {
+					double t = xAxis ? (bound - prev.x) / (c.x - prev.x) : (bound - prev.y) / (c.y - prev.y);
+					res.add(new Coordinate(xAxis ? bound : Math.round(prev.x + t * (c.x - prev.x)),
+							xAxis ? Math.round(prev.y + t * (c.y - prev.y)) : bound));
+				}
+				if (cInside) {
+					res.add(c);
+				}
+				prev = c;
+				prevInside = cInside;
+			}
+			ring = res;
+		}
+		return ring;
+	}
+
+	private static boolean inside(Coordinate c, boolean xAxis, double bound, boolean minBound) {
+		double v = xAxis ? c.x : c.y;
+		return minBound ? v >= bound : v <= bound;
+	}
+
+	/**
+	 * Douglas-Peucker simplification of line (or not closed ring).
+	 */
+	static List<Coordinate> simplify(List<Coordinate> line, double tolerance) {
+		int n = line.size();
+		if (tolerance <= 0 || n <= 2) {
+			return line;
+		}
+		boolean[] keep = new boolean[n];
+		keep[0] = true;
+		keep[n - 1] = true;
+		int[] stack = new int[2 * n];
+		int size = 0;
+		stack[size++] = 0;
+		stack[size++] = n - 1;
+		double tolerance2 = tolerance * tolerance;
+		while (size > 0) {
+			int end = stack[--size];
+			int start = stack[--size];
+			double maxDist = -1;
+			int index = -1;
+			for (int i = start + 1; i < end; i++) {
+				double d = segmentDistance2(line.get(i), line.get(start), line.get(end));
+				if (d > maxDist) {
+					maxDist = d;
+					index = i;
+				}
+			}
+			if (index > 0 && maxDist > tolerance2) {
+				keep[index] = true;
+				stack[size++] = start;
+				stack[size++] = index;
+				stack[size++] = index;
+				stack[size++] = end;
+			}
+		}
+		List<Coordinate> res = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			if (keep[i]) {
+				res.add(line.get(i));
+			}
+		}
+		return res;
+	}
+
+	private static double segmentDistance2(Coordinate p, Coordinate a, Coordinate b) {
+		double dx = b.x - a.x;
+		double dy = b.y - a.y;
+		double t = 0;
+		if (dx != 0 || dy != 0) {
+			t = Math.max(0, Math.min(1, ((p.x - a.x) * dx + (p.y - a.y) * dy) / (dx * dx + dy * dy)));
+		}
+		double px = a.x + t * dx - p.x;
+		double py = a.y + t * dy - p.y;
+		return px * px + py * py;
+	}
+
+	private static Map<String, Object> getTags(BinaryMapDataObject o) {
+		Map<String, Object> tags = new LinkedHashMap<>();
+		MapIndex mapIndex = o.getMapIndex();
+		for (int type : o.getTypes()) {
+			putTag(tags, mapIndex.decodeType(type));
+		}
+		if (o.getAdditionalTypes() != null) {
+			for (int type : o.getAdditionalTypes()) {
+				putTag(tags, mapIndex.decodeType(type));
+			}
+		}
+		if (o.getObjectNames() != null) {
+			TIntObjectIterator<String> it = o.getObjectNames().iterator();
+			while (it.hasNext()) {
+				it.advance();
+				TagValuePair tv = mapIndex.decodeType(it.key());
+				if (tv != null) {
+					tags.put(tv.tag, it.value());
+				}
+			}
+		}
+		return tags;
+	}
+
+	private static void putTag(Map<String, Object> tags, TagValuePair tv) {
+		if (tv != null && !tags.containsKey(tv.tag)) {
+			tags.put(tv.tag, tv.value);
+		}
+	}
+}
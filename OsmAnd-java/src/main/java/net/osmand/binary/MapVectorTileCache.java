@@ -0,0 +1,361 @@
+package net.osmand.binary;
+
+import net.osmand.PlatformUtil;
+import net.osmand.render.RenderingRule;
+import net.osmand.render.RenderingRulesStorage;
+import net.osmand.util.Algorithms;
+
+import org.apache.commons.logging.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of encoded tiles in memory and in directory (z/x/y.pbf), both are limited by size in bytes and
+ * evict least recently used tiles. Tiles found on disk are moved to memory. Disk index is restored from
+ * directory on start (order by last modified time). Thread safe.
+ * Tiles depend on obf files and rendering style, so cache has version (see {@link #getVersion}) which is stored
+ * in directory, tiles of other version are deleted on start and when version is changed by {@link #setVersion}.
+ */
+public class MapVectorTileCache {
+
+	private static final Log log = PlatformUtil.getLog(MapVectorTileCache.class);
+
+	public static final String TILE_EXT = ".pbf";
+	public static final String VERSION_FILE = "version.txt";
+
+	private final File dir;
+	private String version;
+	private final long maxMemoryBytes;
+	private final long maxDiskBytes;
+	// access ordered
+	private final LinkedHashMap<Long, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+	private final LinkedHashMap<Long, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryBytes;
+	private long diskBytes;
+
+	private long memoryHits;
+	private long diskHits;
+	private long misses;
+
+	/**
+	 * @param dir directory of tiles or null to keep tiles only in memory
+	 * @param version version of obf files and style, tiles of other version in directory are deleted
+	 */
+	public MapVectorTileCache(File dir, String version, long maxMemoryBytes, long maxDiskBytes) {
+		this.dir = dir;
+		this.version = version;
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.maxDiskBytes = maxDiskBytes;
+		if (dir != null) {
+			if (version.equals(readVersion())) {
+				loadDiskIndex();
+			} else {
+				deleteTiles();
+				writeVersion();
+			}
+		}
+	}
+
+	/**
+	 * Version of tiles built from obf files (names, sizes and dates) with rendering style (hash of rules).
+	 */
+	public static String getVersion(Collection<File> obfFiles, RenderingRulesStorage storage) {
+		File[] files = obfFiles.toArray(new File[0]);
+		Arrays.sort(files);
+		long hash = 1;
+		for (File f : files) {
+			hash = hash * 31 + f.getName().hashCode();
+			hash = hash * 31 + f.length();
+			hash = hash * 31 + f.lastModified();
+		}
+		// rules are not ordered, so hashes of rules are summed
+		long styleHash = 0;
+		for (int state = 0; state < RenderingRulesStorage.LENGTH_RULES; state++) {
+			RenderingRule[] rules = storage.getRules(state);
+			for (int i = 0; i < rules.length; i++) {
+				int key = storage.getRuleTagValueKey(state, i);
+				String rule = state + " " + storage.getTagString(key) + "=" + storage.getValueString(key) + rules[i];
+				styleHash += rule.hashCode() * 0x9E3779B97F4A7C15L;
+			}
+		}
+		return storage.getName() + "-" + Long.toHexString(styleHash) + "-" + Long.toHexString(hash);
+	}
+
+	public synchronized String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Drops all tiles (memory and disk) if version is changed, e.g. obf files were updated.
+	 */
+	public void setVersion(String version) {
+		synchronized (this) {
+			if (Algorithms.stringsEqual(this.version, version)) {
+				return;
+			}
+			this.version = version;
+			memory.clear();
+			memoryBytes = 0;
+			disk.clear();
+			diskBytes = 0;
+			if (dir != null) {
+				deleteTiles();
+				writeVersion();
+			}
+		}
+		log.info("Tile cache " + dir + " version " + version);
+	}
+
+	private String readVersion() {
+		File f = new File(dir, VERSION_FILE);
+		byte[] data = f.exists() ? readFile(f) : null;
+		return data == null ? null : new String(data).trim();
+	}
+
+	private void writeVersion() {
+		if (!writeFile(new File(dir, VERSION_FILE), version.getBytes())) {
+			log.warn("Can't write version of tile cache " + dir);
+		}
+	}
+
+	private void deleteTiles() {
+		File[] zooms = dir.listFiles();
+		for (int i = 0; zooms != null && i < zooms.length; i++) {
+			if (zooms[i].isDirectory()) {
+				Algorithms.removeAllFiles(zooms[i]);
+			}
+		}
+	}
+
+	public static long tileKey(int zoom, int x, int y) {
+		return ((long) zoom << 58) | ((long) x << 29) | y;
+	}
+
+	private static int getZoom(long key) {
+		return (int) (key >>> 58);
+	}
+
+	private static int getX(long key) {
+		return (int) ((key >> 29) & ((1 << 29) - 1));
+	}
+
+	private static int getY(long key) {
+		return (int) (key & ((1 << 29) - 1));
+	}
+
+	private File getTileFile(long key) {
+		return new File(dir, getZoom(key) + "/" + getX(key) + "/" + getY(key) + TILE_EXT);
+	}
+
+	private void loadDiskIndex() {
+		List<File> files = new ArrayList<>();
+		final Map<File, Long> keys = new LinkedHashMap<>();
+		File[] zooms = dir.listFiles();
+		if (zooms == null) {
+			return;
+		}
+		for (File z : zooms) {
+			File[] xs = z.listFiles();
+			for (int i = 0; xs != null && i < xs.length; i++) {
+				File[] ys = xs[i].listFiles();
+				for (int j = 0; ys != null && j < ys.length; j++) {
+					String name = ys[j].getName();
+					if (!name.endsWith(TILE_EXT)) {
+						continue;
+					}
+					try {
+						long key = tileKey(Integer.parseInt(z.getName()), Integer.parseInt(xs[i].getName()),
+								Integer.parseInt(name.substring(0, name.length() - TILE_EXT.length())));
+						keys.put(ys[j], key);
+						files.add(ys[j]);
+					} catch (NumberFormatException e) {
+						// not a tile
+					}
+				}
+			}
+		}
+		Collections.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				return Long.compare(o1.lastModified(), o2.lastModified());
+			}
+		});
+		synchronized (this) {
+			for (File f : files) {
+				long len = f.length();
+				disk.put(keys.get(f), len);
+				diskBytes += len;
+			}
+			evictDisk();
+		}
+		log.info(String.format("Tile cache %s: %d tiles, %d KB", dir, disk.size(), diskBytes >> 10));
+	}
+
+	/**
+	 * @return tile from memory or disk or null
+	 */
+	public byte[] get(int zoom, int x, int y) {
+		long key = tileKey(zoom, x, y);
+		synchronized (this) {
+			byte[] data = memory.get(key);
+			if (data != null) {
+				memoryHits++;
+				return data;
+			}
+			if (disk.get(key) == null) {
+				misses++;
+				return null;
+			}
+		}
+		byte[] data = readFile(getTileFile(key));
+		synchronized (this) {
+			if (data == null) {
+				Long len = disk.remove(key);
+				if (len != null) {
+					diskBytes -= len;
+				}
+				misses++;
+				return null;
+			}
+			diskHits++;
+			putMemory(key, data);
+		}
+		return data;
+	}
+
+	public void put(int zoom, int x, int y, byte[] data) {
+		long key = tileKey(zoom, x, y);
+		synchronized (this) {
+			putMemory(key, data);
+		}
+		if (dir != null && data.length <= maxDiskBytes) {
+			File f = getTileFile(key);
+			if (writeFile(f, data)) {
+				synchronized (this) {
+					Long len = disk.put(key, (long) data.length);
+					diskBytes += data.length - (len == null ? 0 : len);
+					evictDisk();
+				}
+			}
+		}
+	}
+
+	private void putMemory(long key, byte[] data) {
+		if (data.length > maxMemoryBytes) {
+			return;
+		}
+		byte[] old = memory.put(key, data);
+		memoryBytes += data.length - (old == null ? 0 : old.length);
+		Iterator<byte[]> it = memory.values().iterator();
+		while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+			memoryBytes -= it.next().length;
+			it.remove();
+		}
+	}
+
+	private void evictDisk() {
+		Iterator<Map.Entry<Long, Long>> it = disk.entrySet().iterator();
+		while (diskBytes > maxDiskBytes && it.hasNext()) {
+			Map.Entry<Long, Long> e = it.next();
+			diskBytes -= e.getValue();
+			it.remove();
+			File f = getTileFile(e.getKey());
+			if (!f.delete()) {
+				log.warn("Can't delete tile " + f);
+			}
+		}
+	}
+
+	private static byte[] readFile(File f) {
+		InputStream is = null;
+		try {
+			is = new FileInputStream(f);
+			byte[] data = new byte[(int) f.length()];
+			int read = 0;
+			while (read < data.length) {
+				int r = is.read(data, read, data.length - read);
+				if (r < 0) {
+					return null;
+				}
+				read += r;
+			}
+			return data;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			Algorithms.closeStream(is);
+		}
+	}
+
+	private static boolean writeFile(File f, byte[] data) {
+		File parent = f.getParentFile();
+		if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+			log.warn("Can't create directory " + parent);
+			return false;
+		}
+		// tile is visible to readers only when it's written completely
+		File tmp = new File(parent, f.getName() + "." + Thread.currentThread().getId() + ".tmp");
+		OutputStream os = null;
+		try {
+			os = new FileOutputStream(tmp);
+			os.write(data);
+			os.close();
+			os = null;
+			if (!tmp.renameTo(f)) {
+				f.delete();
+				if (!tmp.renameTo(f)) {
+					tmp.delete();
+					return false;
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			log.warn("Can't write tile " + f + ": " + e.getMessage());
+			tmp.delete();
+			return false;
+		} finally {
+			Algorithms.closeStream(os);
+		}
+	}
+
+	public synchronized void clearMemory() {
+		memory.clear();
+		memoryBytes = 0;
+	}
+
+	public synchronized int getMemoryTilesCount() {
+		return memory.size();
+	}
+
+	public synchronized long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	public synchronized int getDiskTilesCount() {
+		return disk.size();
+	}
+
+	public synchronized long getDiskBytes() {
+		return diskBytes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Tile cache: memory %d tiles %d KB, disk %d tiles %d KB, hits memory %d disk %d, misses %d",
+				memory.size(), memoryBytes >> 10, disk.size(), diskBytes >> 10, memoryHits, diskHits, misses);
+	}
+}
@@ -0,0 +1,211 @@
+package net.osmand.binary;
+
+import net.osmand.render.RenderingRulesStorage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * Answers vector tiles z/x/y from obf files without rendering (headless tile server).
+ * Tiles are built by tasks of executor (one task per tile, the same tile requested by many clients
+ * is built once), every thread of executor has own {@link MapVectorTileBuilder} and takes readers from
+ * pools. Built tiles are put to {@link MapVectorTileCache} (optional).
+ * Usage:
+ * <pre>
+ * MapVectorTileService service = new MapVectorTileService(pools, storage, executor, cache);
+ * byte[] mvt = service.getTile(14, 8800, 5373);
+ * </pre>
+ */
+public class MapVectorTileService {
+
+	private final List<BinaryMapReaderPool> pools;
+	private final RenderingRulesStorage storage;
+	private final ExecutorService executor;
+	private final MapVectorTileCache cache;
+	private final ConcurrentHashMap<Long, Future<byte[]>> inProgress = new ConcurrentHashMap<>();
+	private final ThreadLocal<MapVectorTileBuilder> builders = new ThreadLocal<MapVectorTileBuilder>() {
+		@Override
+		protected MapVectorTileBuilder initialValue() {
+			return createBuilder(storage);
+		}
+	};
+	private final TileServiceStats stats = new TileServiceStats();
+	private int minZoom = 1;
+	private int maxZoom = 18;
+
+	/**
+	 * @param cache can be null
+	 */
+	public MapVectorTileService(List<BinaryMapReaderPool> pools, RenderingRulesStorage storage,
+	                            ExecutorService executor, MapVectorTileCache cache) {
+		this.pools = pools;
+		this.storage = storage;
+		this.executor = executor;
+		this.cache = cache;
+	}
+
+	public void setZoomRange(int minZoom, int maxZoom) {
+		this.minZoom = minZoom;
+		this.maxZoom = maxZoom;
+	}
+
+	public TileServiceStats getStats() {
+		return stats;
+	}
+
+	public MapVectorTileCache getCache() {
+		return cache;
+	}
+
+	protected MapVectorTileBuilder createBuilder(RenderingRulesStorage storage) {
+		return new MapVectorTileBuilder(storage);
+	}
+
+	/**
+	 * @return encoded tile (empty tile has no layers)
+	 */
+	public byte[] getTile(int zoom, int x, int y) throws IOException {
+		checkTile(zoom, x, y);
+		stats.requests.incrementAndGet();
+		if (cache != null) {
+			byte[] data = cache.get(zoom, x, y);
+			if (data != null) {
+				stats.cacheHits.incrementAndGet();
+				return data;
+			}
+		}
+		return get(submitTile(zoom, x, y));
+	}
+
+	/**
+	 * Tile is built (or taken from cache) by executor.
+	 */
+	public Future<byte[]> getTileAsync(final int zoom, final int x, final int y) {
+		checkTile(zoom, x, y);
+		stats.requests.incrementAndGet();
+		return submitTile(zoom, x, y);
+	}
+
+	private Future<byte[]> submitTile(final int zoom, final int x, final int y) {
+		final long key = MapVectorTileCache.tileKey(zoom, x, y);
+		Future<byte[]> f = inProgress.get(key);
+		if (f != null) {
+			return f;
+		}
+		FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws Exception {
+				if (cache != null) {
+					byte[] data = cache.get(zoom, x, y);
+					if (data != null) {
+						stats.cacheHits.incrementAndGet();
+						return data;
+					}
+				}
+				byte[] data = buildTile(zoom, x, y);
+				if (cache != null) {
+					cache.put(zoom, x, y, data);
+				}
+				return data;
+			}
+		}) {
+			@Override
+			protected void done() {
+				// result is set, so requests which got this task don't miss it
+				inProgress.remove(key, this);
+			}
+		};
+		f = inProgress.putIfAbsent(key, task);
+		if (f != null) {
+			return f;
+		}
+		try {
+			executor.execute(task);
+		} catch (RuntimeException e) {
+			inProgress.remove(key, task);
+			throw e;
+		}
+		return task;
+	}
+
+	private void checkTile(int zoom, int x, int y) {
+		if (zoom < minZoom || zoom > maxZoom || x < 0 || y < 0 || x >= (1 << zoom) || y >= (1 << zoom)) {
+			throw new IllegalArgumentException("Tile is out of range: " + zoom + "/" + x + "/" + y);
+		}
+	}
+
+	private static byte[] get(Future<byte[]> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Tile request was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Tile was not built", e.getCause());
+		}
+	}
+
+	protected byte[] buildTile(int zoom, int x, int y) throws IOException, InterruptedException {
+		long time = System.nanoTime();
+		MapVectorTileBuilder builder = builders.get();
+		List<BinaryMapDataObject> objects = searchObjects(builder, zoom, x, y);
+		byte[] data = builder.buildTile(objects, zoom, x, y);
+		stats.builtTiles.incrementAndGet();
+		stats.builtBytes.addAndGet(data.length);
+		stats.objects.addAndGet(objects.size());
+		stats.buildNanos.addAndGet(System.nanoTime() - time);
+		return data;
+	}
+
+	/**
+	 * Objects of all files, the same objects of neighbour files (by id) are added once.
+	 */
+	protected List<BinaryMapDataObject> searchObjects(MapVectorTileBuilder builder, int zoom, int x, int y)
+			throws IOException, InterruptedException {
+		List<BinaryMapDataObject> res = new ArrayList<>();
+		TLongHashSet ids = new TLongHashSet();
+		for (BinaryMapReaderPool pool : pools) {
+			BinaryMapIndexReader reader = pool.acquire();
+			try {
+				for (BinaryMapDataObject o : builder.searchTileObjects(reader, zoom, x, y)) {
+					if (ids.add(o.getId())) {
+						res.add(o);
+					}
+				}
+			} finally {
+				pool.release(reader);
+			}
+		}
+		return res;
+	}
+
+	public static class TileServiceStats {
+		public final AtomicLong requests = new AtomicLong();
+		public final AtomicLong cacheHits = new AtomicLong();
+		public final AtomicLong builtTiles = new AtomicLong();
+		public final AtomicLong builtBytes = new AtomicLong();
+		public final AtomicLong objects = new AtomicLong();
+		public final AtomicLong buildNanos = new AtomicLong();
+
+		@Override
+		public String toString() {
+			long built = builtTiles.get();
+			return String.format("Tiles requested %d, from cache %d, built %d (avg %.2f ms, %d objects, %d KB)",
+					requests.get(), cacheHits.get(), built, built == 0 ? 0 : buildNanos.get() / 1e6 / built,
+					objects.get(), builtBytes.get() >> 10);
+		}
+	}
+}
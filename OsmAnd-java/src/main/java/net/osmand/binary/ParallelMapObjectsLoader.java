@@ -0,0 +1,385 @@
+package net.osmand.binary;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.data.QuadRect;
+import net.osmand.util.MapUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * Loads map objects of area for rendering from many obf files in parallel, result is the same as sequential
+ * search of files (see MapRenderRepositories.readMapObjectsForRendering). Area is split into sub-tiles of tile grid,
+ * every file and sub-tile is searched by one task of executor with own reader taken from pool of the file.
+ * Object intersecting many sub-tiles is read by all of them but kept only by sub-tile which contains top left
+ * corner of its bbox (clipped to area), the same objects of different files are skipped by id.
+ * Results of tasks are merged in order of files and Z-order of sub-tiles, so they don't depend on speed of tasks.
+ * Usage:
+ * <pre>
+ * ParallelMapObjectsLoader loader = new ParallelMapObjectsLoader(pools, executor);
+ * MapObjects res = loader.loadObjects(latLonBox, zoom, filters, null);
+ * </pre>
+ */
+public class ParallelMapObjectsLoader {
+
+	public static final int DEFAULT_MAX_SUB_TILES = 16;
+
+	public interface SearchFilterFactory {
+		// filter is used only by one task, null to accept all objects
+		SearchFilter createFilter(int zoom);
+	}
+
+	private final List<BinaryMapReaderPool> pools;
+	private final ExecutorService executor;
+	private int maxSubTiles = DEFAULT_MAX_SUB_TILES;
+	private boolean checkDuplicateIds = true;
+	private final LoaderStats stats = new LoaderStats();
+
+	/**
+	 * @param pools readers of obf files in order of search (basemaps are recognized by reader)
+	 */
+	public ParallelMapObjectsLoader(List<BinaryMapReaderPool> pools, ExecutorService executor) {
+		this.pools = pools;
+		this.executor = executor;
+	}
+
+	public void setMaxSubTiles(int maxSubTiles) {
+		if (maxSubTiles <= 0) {
+			throw new IllegalArgumentException("Max sub tiles should be positive: " + maxSubTiles);
+		}
+		this.maxSubTiles = maxSubTiles;
+	}
+
+	/**
+	 * @param checkDuplicateIds skip objects of not basemap files with id which is already loaded
+	 */
+	public void setCheckDuplicateIds(boolean checkDuplicateIds) {
+		this.checkDuplicateIds = checkDuplicateIds;
+	}
+
+	public LoaderStats getStats() {
+		return stats;
+	}
+
+	public MapObjects loadObjects(QuadRect latLonBox, int zoom, SearchFilterFactory filters,
+	                              ResultMatcher<?> matcher) throws IOException {
+		int left = MapUtils.get31TileNumberX(latLonBox.left);
+		int right = MapUtils.get31TileNumberX(latLonBox.right);
+		int top = MapUtils.get31TileNumberY(latLonBox.top);
+		int bottom = MapUtils.get31TileNumberY(latLonBox.bottom);
+		return loadObjects(left, right, top, bottom, zoom, filters, matcher);
+	}
+
+	/**
+	 * @param filters can be null to load all objects
+	 * @param matcher only to cancel loading, can be null
+	 * @return objects or null if loading is cancelled
+	 */
+	public MapObjects loadObjects(int left31, int right31, int top31, int bottom31, int zoom,
+	                              SearchFilterFactory filters, ResultMatcher<?> matcher) throws IOException {
+		long start = System.nanoTime();
+		SubTiles tiles = new SubTiles(left31, right31, top31, bottom31, zoom, maxSubTiles);
+		AtomicBoolean stopped = new AtomicBoolean();
+		List<List<Future<SubTileResult>>> futures = new ArrayList<>();
+		try {
+			for (BinaryMapReaderPool pool : pools) {
+				List<Future<SubTileResult>> fileFutures = new ArrayList<>();
+				for (int i = 0; i < tiles.count; i++) {
+					final SubTileSearch task = new SubTileSearch(pool, tiles, i, zoom, filters, stopped, matcher);
+					fileFutures.add(executor.submit(new Callable<SubTileResult>() {
+						@Override
+						public SubTileResult call() throws Exception {
+							return task.search();
+						}
+					}));
+				}
+				futures.add(fileFutures);
+			}
+			MapObjects res = new MapObjects();
+			List<BinaryMapDataObject> objects = new ArrayList<>();
+			List<BinaryMapDataObject> basemapObjects = new ArrayList<>();
+			List<BinaryMapDataObject> coastlines = new ArrayList<>();
+			List<BinaryMapDataObject> basemapCoastlines = new ArrayList<>();
+			TLongSet ids = new TLongHashSet();
+			for (int f = 0; f < futures.size(); f++) {
+				BinaryMapIndexReader file = pools.get(f).getShallowReader();
+				boolean basemap = file.isBasemap();
+				boolean ocean = false;
+				boolean land = false;
+				int found = 0;
+				for (Future<SubTileResult> future : futures.get(f)) {
+					SubTileResult r = get(future);
+					if (r == null || isCancelled(stopped, matcher)) {
+						return null;
+					}
+					ocean |= r.ocean;
+					land |= r.land;
+					found += r.objects.size();
+					for (BinaryMapDataObject o : r.objects) {
+						if (checkDuplicateIds && !basemap) {
+							if (o.getId() > 0 && ids.contains(o.getId())) {
+								// do not add object twice
+								stats.duplicates.incrementAndGet();
+								continue;
+							}
+							ids.add(o.getId());
+						}
+						res.count++;
+						// do not mess coastline and other types
+						if (o.containsType(o.getMapIndex().coastlineEncodingType)) {
+							if (basemap) {
+								basemapCoastlines.add(o);
+							} else {
+								coastlines.add(o);
+							}
+						} else if (basemap) {
+							basemapObjects.add(o);
+						} else {
+							objects.add(o);
+						}
+					}
+				}
+				if (found > 0) {
+					res.filesWithObjects.add(file);
+				}
+				if (ocean) {
+					res.mapIndex = file.getMapIndexes().get(0);
+					res.ocean = true;
+				}
+				if (land) {
+					res.mapIndex = file.getMapIndexes().get(0);
+					res.land = true;
+				}
+			}
+			res.objects = objects.toArray(new BinaryMapDataObject[0]);
+			res.basemapObjects = basemapObjects.toArray(new BinaryMapDataObject[0]);
+			res.coastlines = coastlines.toArray(new BinaryMapDataObject[0]);
+			res.basemapCoastlines = basemapCoastlines.toArray(new BinaryMapDataObject[0]);
+			stats.loads.incrementAndGet();
+			stats.tasks.addAndGet(pools.size() * tiles.count);
+			stats.objects.addAndGet(res.count);
+			stats.timeNanos.addAndGet(System.nanoTime() - start);
+			return res;
+		} finally {
+			stopped.set(true);
+			for (List<Future<SubTileResult>> fileFutures : futures) {
+				for (Future<SubTileResult> f : fileFutures) {
+					f.cancel(false);
+				}
+			}
+		}
+	}
+
+	private static boolean isCancelled(AtomicBoolean stopped, ResultMatcher<?> matcher) {
+		return stopped.get() || (matcher != null && matcher.isCancelled());
+	}
+
+	private static SubTileResult get(Future<SubTileResult> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Loading of map objects was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Loading of map objects failed", e.getCause());
+		}
+	}
+
+	// grid of tiles covering area (the finest tile zoom up to search zoom with limited number of tiles)
+	static class SubTiles {
+		final int left;
+		final int right;
+		final int top;
+		final int bottom;
+		final int shift;
+		final int[] tileX;
+		final int[] tileY;
+		final int count;
+
+		SubTiles(int left, int right, int top, int bottom, int zoom, int maxSubTiles) {
+			this.left = left;
+			this.right = right;
+			this.top = top;
+			this.bottom = bottom;
+			int tileZoom = Math.max(0, Math.min(zoom, 31));
+			while (tileZoom > 0 && tilesCount(31 - tileZoom) > maxSubTiles) {
+				tileZoom--;
+			}
+			shift = 31 - tileZoom;
+			int tx = left >> shift;
+			int ty = top >> shift;
+			int width = (right >> shift) - tx + 1;
+			int height = (bottom >> shift) - ty + 1;
+			count = width * height;
+			tileX = new int[count];
+			tileY = new int[count];
+			long[] zorder = new long[count];
+			for (int i = 0; i < count; i++) {
+				tileX[i] = tx + i % width;
+				tileY[i] = ty + i / width;
+				zorder[i] = BatchReverseGeocoding.interleave(tileX[i], tileY[i]);
+			}
+			// insertion sort by Z-order, there are only few tiles
+			for (int i = 1; i < count; i++) {
+				for (int j = i; j > 0 && zorder[j - 1] > zorder[j]; j--) {
+					swap(zorder, j);
+					swap(tileX, j);
+					swap(tileY, j);
+				}
+			}
+		}
+
+		private long tilesCount(int shift) {
+			return ((long) (right >> shift) - (left >> shift) + 1) * ((long) (bottom >> shift) - (top >> shift) + 1);
+		}
+
+		int getLeft(int i) {
+			return Math.max(left, tileX[i] << shift);
+		}
+
+		int getRight(int i) {
+			return (int) Math.min(right, (((long) tileX[i] + 1) << shift) - 1);
+		}
+
+		int getTop(int i) {
+			return Math.max(top, tileY[i] << shift);
+		}
+
+		int getBottom(int i) {
+			return (int) Math.min(bottom, (((long) tileY[i] + 1) << shift) - 1);
+		}
+
+		// sub-tile contains top left corner of object bbox clipped to area
+		boolean isOwner(int i, BinaryMapDataObject o) {
+			int len = o.getPointsLength();
+			if (len == 0) {
+				return i == 0;
+			}
+			int minX = Integer.MAX_VALUE;
+			int minY = Integer.MAX_VALUE;
+			for (int k = 0; k < len; k++) {
+				minX = Math.min(minX, o.getPoint31XTile(k));
+				minY = Math.min(minY, o.getPoint31YTile(k));
+			}
+			return (Math.max(minX, left) >> shift) == tileX[i] && (Math.max(minY, top) >> shift) == tileY[i];
+		}
+
+		private static void swap(long[] a, int j) {
+			long t = a[j];
+			a[j] = a[j - 1];
+			a[j - 1] = t;
+		}
+
+		private static void swap(int[] a, int j) {
+			int t = a[j];
+			a[j] = a[j - 1];
+			a[j - 1] = t;
+		}
+	}
+
+	private static class SubTileResult {
+		final List<BinaryMapDataObject> objects;
+		final boolean ocean;
+		final boolean land;
+
+		SubTileResult(List<BinaryMapDataObject> objects, boolean ocean, boolean land) {
+			this.objects = objects;
+			this.ocean = ocean;
+			this.land = land;
+		}
+	}
+
+	private static class SubTileSearch implements ResultMatcher<BinaryMapDataObject> {
+		private final BinaryMapReaderPool pool;
+		private final SubTiles tiles;
+		private final int tile;
+		private final int zoom;
+		private final SearchFilterFactory filters;
+		private final AtomicBoolean stopped;
+		private final ResultMatcher<?> matcher;
+
+		SubTileSearch(BinaryMapReaderPool pool, SubTiles tiles, int tile, int zoom, SearchFilterFactory filters,
+		              AtomicBoolean stopped, ResultMatcher<?> matcher) {
+			this.pool = pool;
+			this.tiles = tiles;
+			this.tile = tile;
+			this.zoom = zoom;
+			this.filters = filters;
+			this.stopped = stopped;
+			this.matcher = matcher;
+		}
+
+		SubTileResult search() throws IOException, InterruptedException {
+			if (isCancelled()) {
+				return null;
+			}
+			SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(tiles.getLeft(tile),
+					tiles.getRight(tile), tiles.getTop(tile), tiles.getBottom(tile), zoom,
+					filters == null ? null : filters.createFilter(zoom), this);
+			BinaryMapIndexReader reader = pool.acquire();
+			try {
+				// not searchMapIndexBatch: it doesn't publish objects to this matcher
+				List<BinaryMapDataObject> res = reader.searchMapIndex(req);
+				return isCancelled() ? null : new SubTileResult(res, req.isOcean(), req.isLand());
+			} finally {
+				pool.release(reader);
+			}
+		}
+
+		@Override
+		public boolean publish(BinaryMapDataObject object) {
+			return tiles.isOwner(tile, object);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return ParallelMapObjectsLoader.isCancelled(stopped, matcher);
+		}
+	}
+
+	public static class MapObjects {
+		public BinaryMapDataObject[] objects;
+		public BinaryMapDataObject[] basemapObjects;
+		public BinaryMapDataObject[] coastlines;
+		public BinaryMapDataObject[] basemapCoastlines;
+		// files with found objects
+		public final List<BinaryMapIndexReader> filesWithObjects = new ArrayList<>();
+		// map index of the last file with ocean or land tiles
+		public MapIndex mapIndex;
+		public boolean ocean;
+		public boolean land;
+		public int count;
+	}
+
+	public static class LoaderStats {
+		public final AtomicInteger loads = new AtomicInteger();
+		public final AtomicInteger tasks = new AtomicInteger();
+		public final AtomicLong objects = new AtomicLong();
+		public final AtomicLong duplicates = new AtomicLong();
+		public final AtomicLong timeNanos = new AtomicLong();
+
+		@Override
+		public String toString() {
+			int l = loads.get();
+			return String.format("Loaded %d areas (avg %.2f ms), tasks %d, objects %d, skipped duplicates %d", l,
+					l == 0 ? 0 : timeNanos.get() / 1e6 / l, tasks.get(), objects.get(), duplicates.get());
+		}
+	}
+}
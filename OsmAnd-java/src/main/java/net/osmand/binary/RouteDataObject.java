@@ -39,6 +39,9 @@ public class RouteDataObject {
 	// mixed array [0, height, cumulative_distance height, cumulative_distance, height, ...] - length is length(points)*2
 	public float[] heightDistanceArray = null;
 	public float heightByCurrentLocation = Float.NaN;
+	// interned types combinations of region (compiled router evaluation), valid while arrays are the same
+	private InternedTypes internedTypes;
+	private InternedTypes[] internedPointTypes;
 
 	public RouteDataObject(RouteRegion region) {
 		this.region = region;
@@ -531,6 +534,50 @@ public class RouteDataObject {
 		return types;
 	}
 
+	/**
+	 * @return id of types combination interned by region (see {@link RouteRegion#internTypesCombination(int[])})
+	 */
+	public int getTypesCombinationId() {
+		int[] t = types;
+		InternedTypes it = internedTypes;
+		if (it == null || it.types != t) {
+			it = new InternedTypes(t, region.internTypesCombination(t));
+			internedTypes = it;
+		}
+		return it.id;
+	}
+
+	/**
+	 * @return id of point types combination interned by region or -1 if point has no types
+	 */
+	public int getPointTypesCombinationId(int ind) {
+		int[] t = getPointTypes(ind);
+		if (t == null) {
+			return -1;
+		}
+		InternedTypes[] its = internedPointTypes;
+		if (its == null || its.length != pointTypes.length) {
+			its = new InternedTypes[pointTypes.length];
+			internedPointTypes = its;
+		}
+		InternedTypes it = its[ind];
+		if (it == null || it.types != t) {
+			it = new InternedTypes(t, region.internTypesCombination(t));
+			its[ind] = it;
+		}
+		return it.id;
+	}
+
+	private static class InternedTypes {
+		final int[] types;
+		final int id;
+
+		InternedTypes(int[] types, int id) {
+			this.types = types;
+			this.id = id;
+		}
+	}
+
 	public void processConditionalTags(long conditionalTime) {
 		int sz = types.length;
 		for (int i = 0; i < sz; i++) {
@@ -591,6 +638,9 @@ public class RouteDataObject {
 				}
 			}
 		}
+		// arrays could be changed in place
+		internedTypes = null;
+		internedPointTypes = null;
 	}
 
 	public float getMaximumSpeed(boolean direction) {
@@ -257,6 +257,26 @@ public class Amenity extends MapObject {
 		}
 	}
 
+	// used when poi read from file is shared by several requests (each request gets own mutable copy)
+	public Amenity copy(PoiCategory type, String subType) {
+		Amenity a = new Amenity();
+		a.copyNames(this);
+		a.id = id;
+		a.location = location;
+		a.fileOffset = fileOffset;
+		a.setReferenceFile(getReferenceFile());
+		a.type = type;
+		a.subType = subType;
+		a.openingHours = openingHours;
+		a.additionalInfo = additionalInfo == null ? null : new LinkedHashMap<String, String>(additionalInfo);
+		a.routePoint = routePoint;
+		a.x = x == null ? null : new TIntArrayList(x);
+		a.y = y == null ? null : new TIntArrayList(y);
+		a.mapIconName = mapIconName;
+		a.order = order;
+		return a;
+	}
+
 	public void setRoutePoint(AmenityRoutePoint routePoint) {
 		this.routePoint = routePoint;
 	}
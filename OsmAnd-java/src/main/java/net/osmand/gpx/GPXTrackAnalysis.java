@@ -426,6 +426,24 @@ public class GPXTrackAnalysis {
 		return new GPXTrackAnalysis().prepareInformation(fileTimeStamp, pointsAnalyzer, new SplitSegment(segment));
 	}
 
+	/**
+	 * Analysis of track read by {@link GPXTrackReader} (the same as {@link GPXFile#getAnalysis(long)} of its tracks).
+	 * Points passed to pointsAnalyzer are reused between calls.
+	 */
+	public static GPXTrackAnalysis prepareInformation(long fileTimeStamp, TrackPointsAnalyser pointsAnalyzer, GPXTrackColumns track) {
+		GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		List<SplitSegment> splitSegments = new ArrayList<>();
+		for (int i = 0; i < track.getSegmentsCount(); i++) {
+			analysis.setTotalTracks(analysis.getTotalTracks() + 1);
+			int start = track.getSegmentStart(i);
+			int end = track.getSegmentEnd(i);
+			if (end - start > 1) {
+				splitSegments.add(new SplitSegment(track, start, end));
+			}
+		}
+		return analysis.prepareInformation(fileTimeStamp, pointsAnalyzer, splitSegments.toArray(new SplitSegment[0]));
+	}
+
 	public GPXTrackAnalysis prepareInformation(long fileTimeStamp, TrackPointsAnalyser pointsAnalyser, SplitSegment... splitSegments) {
 		float[] calculations = new float[1];
 
@@ -468,11 +486,11 @@ public class GPXTrackAnalysis {
 			for (int j = 0; j < numberOfPoints; j++) {
 				WptPt point = s.get(j);
 				if (j == 0 && locationStart == null) {
-					locationStart = point;
+					locationStart = s.keep(point);
 					setLatLonStart(point.lat, point.lon);
 				}
 				if (j == numberOfPoints - 1) {
-					locationEnd = point;
+					locationEnd = s.keep(point);
 				}
 				long time = point.time;
 				if (time != 0) {
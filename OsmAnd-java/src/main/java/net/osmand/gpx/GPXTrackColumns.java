@@ -0,0 +1,162 @@
+package net.osmand.gpx;
+
+import net.osmand.gpx.GPXTrackReader.TrackPointListener;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+import java.util.Arrays;
+
+/**
+ * Track points of gpx file in primitive arrays (column per value) filled by {@link GPXTrackReader}.
+ * Segments are ranges of points [getSegmentStart(i), getSegmentEnd(i)).
+ */
+public class GPXTrackColumns implements TrackPointListener {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final String[] extensionTags;
+	private int size;
+	private double[] lat = new double[INITIAL_CAPACITY];
+	private double[] lon = new double[INITIAL_CAPACITY];
+	private double[] ele = new double[INITIAL_CAPACITY];
+	private long[] time = new long[INITIAL_CAPACITY];
+	private float[] speed = new float[INITIAL_CAPACITY];
+	private float[] hdop = new float[INITIAL_CAPACITY];
+	private float[] bearing = new float[INITIAL_CAPACITY];
+	private final float[][] extensions;
+
+	private int segments;
+	private int[] segmentStart = new int[16];
+
+	public GPXTrackColumns(String... extensionTags) {
+		this.extensionTags = extensionTags;
+		this.extensions = new float[extensionTags.length][INITIAL_CAPACITY];
+	}
+
+	@Override
+	public void segmentStarted(GPXTrackReader reader) {
+		if (segments == segmentStart.length) {
+			segmentStart = Arrays.copyOf(segmentStart, segments * 2);
+		}
+		segmentStart[segments++] = size;
+	}
+
+	@Override
+	public void pointRead(GPXTrackReader reader) {
+		if (size == lat.length) {
+			int capacity = size * 2;
+			lat = Arrays.copyOf(lat, capacity);
+			lon = Arrays.copyOf(lon, capacity);
+			ele = Arrays.copyOf(ele, capacity);
+			time = Arrays.copyOf(time, capacity);
+			speed = Arrays.copyOf(speed, capacity);
+			hdop = Arrays.copyOf(hdop, capacity);
+			bearing = Arrays.copyOf(bearing, capacity);
+			for (int i = 0; i < extensions.length; i++) {
+				extensions[i] = Arrays.copyOf(extensions[i], capacity);
+			}
+		}
+		lat[size] = reader.getLatitude();
+		lon[size] = reader.getLongitude();
+		ele[size] = reader.getElevation();
+		time[size] = reader.getTime();
+		speed[size] = reader.getSpeed();
+		hdop[size] = reader.getHdop();
+		bearing[size] = reader.getBearing();
+		for (int i = 0; i < extensions.length; i++) {
+			extensions[i][size] = reader.getExtensionValue(i);
+		}
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getSegmentsCount() {
+		return segments;
+	}
+
+	public int getSegmentStart(int segment) {
+		return segmentStart[segment];
+	}
+
+	public int getSegmentEnd(int segment) {
+		return segment + 1 < segments ? segmentStart[segment + 1] : size;
+	}
+
+	public double getLatitude(int i) {
+		return lat[i];
+	}
+
+	public double getLongitude(int i) {
+		return lon[i];
+	}
+
+	public double getElevation(int i) {
+		return ele[i];
+	}
+
+	public long getTime(int i) {
+		return time[i];
+	}
+
+	public float getSpeed(int i) {
+		return speed[i];
+	}
+
+	public float getHdop(int i) {
+		return hdop[i];
+	}
+
+	public float getBearing(int i) {
+		return bearing[i];
+	}
+
+	public String[] getExtensionTags() {
+		return extensionTags;
+	}
+
+	/**
+	 * @return value of extension tag (index of tag passed to constructor) or NaN
+	 */
+	public float getExtensionValue(int tag, int i) {
+		return extensions[tag][i];
+	}
+
+	public double[] getLatitudes() {
+		return Arrays.copyOf(lat, size);
+	}
+
+	public double[] getLongitudes() {
+		return Arrays.copyOf(lon, size);
+	}
+
+	public double[] getElevations() {
+		return Arrays.copyOf(ele, size);
+	}
+
+	public long[] getTimes() {
+		return Arrays.copyOf(time, size);
+	}
+
+	public float[] getSpeeds() {
+		return Arrays.copyOf(speed, size);
+	}
+
+	/**
+	 * Fills point with values of i-th point (point is reused to avoid object per point).
+	 */
+	public WptPt fillPoint(int i, WptPt point) {
+		point.lat = lat[i];
+		point.lon = lon[i];
+		point.ele = ele[i];
+		point.time = time[i];
+		point.speed = speed[i];
+		point.hdop = hdop[i];
+		point.bearing = bearing[i];
+		point.distance = 0;
+		point.firstPoint = false;
+		point.lastPoint = false;
+		return point;
+	}
+}
@@ -0,0 +1,359 @@
+package net.osmand.gpx;
+
+import static net.osmand.gpx.GPXUtilities.NO_ISO_TIME;
+import static net.osmand.gpx.GPXUtilities.POINT_BEARING;
+import static net.osmand.gpx.GPXUtilities.POINT_ELEVATION;
+import static net.osmand.gpx.GPXUtilities.POINT_SPEED;
+import static net.osmand.util.Algorithms.isDigit;
+
+import net.osmand.PlatformUtil;
+import net.osmand.util.Algorithms;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming reader of track points (trkpt) of gpx file. Unlike {@link GPXUtilities#loadGPXFile(InputStream)}
+ * it doesn't create {@link GPXFile} and {@link GPXUtilities.WptPt}: values of every point are passed to
+ * {@link TrackPointListener} and are available from reader only while listener is called.
+ * Values are parsed as loadGPXFile parses them (time with {@link GPXUtilities#parseIsoTime} without
+ * SimpleDateFormat). Extensions of points are skipped except speed, bearing and extension tags passed
+ * to constructor (as tags of {@link PointAttributes}, i.e. {@link PointAttributes#SENSOR_TAG_HEART_RATE}).
+ * Waypoints, routes, route points of osmand route extension and csvattributes are not read.
+ */
+public class GPXTrackReader {
+
+	public interface TrackPointListener {
+
+		void segmentStarted(GPXTrackReader reader);
+
+		void pointRead(GPXTrackReader reader);
+	}
+
+	private final String[] extensionTags;
+	// tag names of extensions in file for every extension tag
+	private final String[][] extensionTagNames;
+	private final StringBuilder text = new StringBuilder();
+	private final int[] textHolder = new int[2];
+
+	private double lat;
+	private double lon;
+	private double ele;
+	private long time;
+	private float speed;
+	private float hdop;
+	private float bearing;
+	private final float[] extensionValues;
+	private int segments;
+	private int points;
+
+	public GPXTrackReader(String... extensionTags) {
+		this.extensionTags = extensionTags;
+		this.extensionTagNames = new String[extensionTags.length][];
+		this.extensionValues = new float[extensionTags.length];
+		for (int i = 0; i < extensionTags.length; i++) {
+			List<String> names = GPXUtilities.getExtensionsTags(extensionTags[i]);
+			extensionTagNames[i] = names.toArray(new String[0]);
+		}
+	}
+
+	public static GPXTrackColumns readColumns(File file, String... extensionTags) throws IOException {
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			return readColumns(fis, extensionTags);
+		} finally {
+			Algorithms.closeStream(fis);
+		}
+	}
+
+	public static GPXTrackColumns readColumns(InputStream stream, String... extensionTags) throws IOException {
+		GPXTrackColumns columns = new GPXTrackColumns(extensionTags);
+		new GPXTrackReader(extensionTags).read(stream, columns);
+		return columns;
+	}
+
+	public void read(InputStream stream, TrackPointListener listener) throws IOException {
+		segments = 0;
+		points = 0;
+		try {
+			XmlPullParser parser = PlatformUtil.newXMLPullParser();
+			parser.setInput(GPXUtilities.getUTF8Reader(stream));
+			boolean track = false;
+			boolean trackSegment = false;
+			boolean trackHasSegment = false;
+			int pointDepth = -1;
+			int extensionsDepth = -1;
+			boolean readText = false;
+			int tok;
+			while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
+				if (tok == XmlPullParser.START_TAG) {
+					String tag = parser.getName();
+					if (pointDepth >= 0) {
+						if (extensionsDepth < 0 && tag.equals("extensions")) {
+							extensionsDepth = parser.getDepth();
+						} else {
+							text.setLength(0);
+							readText = true;
+						}
+					} else if (track && (tag.equals("trkpt") || tag.equals("rpt"))) {
+						if (!trackSegment && !trackHasSegment) {
+							startSegment(listener);
+							trackHasSegment = true;
+						}
+						startPoint(parser);
+						pointDepth = parser.getDepth();
+					} else if (track && tag.equals("trkseg")) {
+						trackSegment = true;
+						trackHasSegment = true;
+						startSegment(listener);
+					} else if (tag.equals("trk")) {
+						track = true;
+						trackHasSegment = false;
+					}
+				} else if (tok == XmlPullParser.TEXT) {
+					if (readText) {
+						char[] ch = parser.getTextCharacters(textHolder);
+						text.append(ch, textHolder[0], textHolder[1]);
+					}
+				} else if (tok == XmlPullParser.END_TAG) {
+					String tag = parser.getName();
+					int depth = parser.getDepth();
+					if (depth == pointDepth) {
+						pointDepth = -1;
+						extensionsDepth = -1;
+						points++;
+						listener.pointRead(this);
+					} else if (pointDepth >= 0) {
+						if (depth == extensionsDepth) {
+							extensionsDepth = -1;
+						} else if (readText) {
+							if (extensionsDepth >= 0) {
+								readExtension(tag, depth == extensionsDepth + 1);
+							} else {
+								readValue(tag);
+							}
+						}
+					} else if (tag.equals("trkseg")) {
+						trackSegment = false;
+					} else if (tag.equals("trk")) {
+						track = false;
+					}
+					readText = false;
+				}
+			}
+		} catch (XmlPullParserException e) {
+			throw new IOException("Error reading gpx track: " + e.getMessage(), e);
+		}
+	}
+
+	private void startSegment(TrackPointListener listener) {
+		segments++;
+		listener.segmentStarted(this);
+	}
+
+	private void startPoint(XmlPullParser parser) {
+		lat = 0;
+		lon = 0;
+		try {
+			lat = Double.parseDouble(parser.getAttributeValue("", "lat"));
+			lon = Double.parseDouble(parser.getAttributeValue("", "lon"));
+		} catch (NumberFormatException | NullPointerException e) {
+			// ignore
+		}
+		ele = Double.NaN;
+		time = 0;
+		speed = 0;
+		hdop = Float.NaN;
+		bearing = Float.NaN;
+		Arrays.fill(extensionValues, Float.NaN);
+	}
+
+	private void readValue(String tag) {
+		if (tag.equals(POINT_ELEVATION)) {
+			float value = (float) parseDecimal(text);
+			if (!Float.isNaN(value)) {
+				ele = value;
+			}
+		} else if (tag.equals("time")) {
+			time = parseTime(text);
+		} else if (tag.equals(POINT_SPEED)) {
+			float value = (float) parseDecimal(text);
+			if (!Float.isNaN(value)) {
+				speed = value;
+			}
+		} else if (tag.equals("hdop")) {
+			float value = (float) parseDecimal(text);
+			if (!Float.isNaN(value)) {
+				hdop = value;
+			}
+		}
+	}
+
+	private void readExtension(String tag, boolean topLevel) {
+		if (isBlank(text)) {
+			return;
+		}
+		// speed and bearing are read only from top level tags of extensions as loadGPXFile does
+		if (topLevel && tag.equals(POINT_SPEED)) {
+			float value = (float) parseDecimal(text);
+			if (!Float.isNaN(value)) {
+				speed = value;
+			}
+		} else if (topLevel && tag.equals(POINT_BEARING)) {
+			float value = (float) parseDecimal(text);
+			if (!Float.isNaN(value)) {
+				bearing = value;
+			}
+		}
+		for (int i = 0; i < extensionTagNames.length; i++) {
+			for (String name : extensionTagNames[i]) {
+				if (name.equalsIgnoreCase(tag)) {
+					extensionValues[i] = (float) parseDecimal(text);
+					break;
+				}
+			}
+		}
+	}
+
+	private static long parseTime(StringBuilder text) {
+		int start = 0;
+		int end = text.length();
+		while (start < end && Character.isWhitespace(text.charAt(start))) {
+			start++;
+		}
+		while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		if (start == end) {
+			return 0;
+		}
+		long time = GPXUtilities.parseIsoTime(text, start, end);
+		if (time == NO_ISO_TIME) {
+			time = GPXUtilities.parseTime(text.substring(start, end));
+		}
+		return time;
+	}
+
+	private static boolean isBlank(CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (!Character.isWhitespace(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+			1e13, 1e14, 1e15};
+
+	/**
+	 * Parses decimal number without allocations (numbers with exponent or more than 15 digits are parsed by
+	 * {@link Double#parseDouble}), result is the same as of Double.parseDouble.
+	 * @return NaN if text is not a number
+	 */
+	static double parseDecimal(CharSequence text) {
+		int start = 0;
+		int end = text.length();
+		while (start < end && Character.isWhitespace(text.charAt(start))) {
+			start++;
+		}
+		while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		int i = start;
+		boolean negative = false;
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		boolean hasDigits = false;
+		int digits = 0;
+		int fractionDigits = -1;
+		for (; i < end; i++) {
+			char c = text.charAt(i);
+			if (isDigit(c)) {
+				hasDigits = true;
+				if (mantissa > 0 || c != '0') {
+					digits++;
+				}
+				mantissa = mantissa * 10 + (c - '0');
+				if (fractionDigits >= 0) {
+					fractionDigits++;
+				}
+			} else if (c == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+			} else {
+				break;
+			}
+			if (digits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+				break;
+			}
+		}
+		if (i == end && hasDigits) {
+			// both values are exact so result of division is correctly rounded
+			double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+			return negative ? -value : value;
+		}
+		try {
+			return Double.parseDouble(text.subSequence(start, end).toString());
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	public String[] getExtensionTags() {
+		return extensionTags;
+	}
+
+	public int getSegmentsCount() {
+		return segments;
+	}
+
+	public int getPointsCount() {
+		return points;
+	}
+
+	public double getLatitude() {
+		return lat;
+	}
+
+	public double getLongitude() {
+		return lon;
+	}
+
+	public double getElevation() {
+		return ele;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public float getSpeed() {
+		return speed;
+	}
+
+	public float getHdop() {
+		return hdop;
+	}
+
+	public float getBearing() {
+		return bearing;
+	}
+
+	/**
+	 * @param index index of extension tag passed to constructor
+	 * @return value of extension or NaN if point doesn't have it
+	 */
+	public float getExtensionValue(int index) {
+		return extensionValues[index];
+	}
+}
@@ -1460,10 +1460,112 @@ public class GPXUtilities {
 		if (GPX_TIME_OLD_FORMAT) {
 			return parseTime(text, getTimeFormatter());
 		} else {
+			if (text != null) {
+				long time = parseIsoTime(text, 0, text.length());
+				if (time != NO_ISO_TIME) {
+					return time;
+				}
+			}
 			return parseTime(text, getTimeFormatterTZ());
 		}
 	}
 
+	static final long NO_ISO_TIME = Long.MIN_VALUE;
+	private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+	/**
+	 * Parses yyyy-MM-ddTHH:mm:ss[.SSS][Z|+hh:mm] without allocations, result is the same as
+	 * {@link #parseTime(String)} gives (without time zone fraction of second is ignored).
+	 * @return {@link #NO_ISO_TIME} if text has other format, it should be parsed with {@link #parseTime(String)}
+	 */
+	static long parseIsoTime(CharSequence text, int start, int end) {
+		if (end - start < 19 || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-'
+				|| text.charAt(start + 10) != 'T' || text.charAt(start + 13) != ':' || text.charAt(start + 16) != ':') {
+			return NO_ISO_TIME;
+		}
+		int year = parseDigits(text, start, 4);
+		int month = parseDigits(text, start + 5, 2);
+		int day = parseDigits(text, start + 8, 2);
+		int hour = parseDigits(text, start + 11, 2);
+		int minute = parseDigits(text, start + 14, 2);
+		int second = parseDigits(text, start + 17, 2);
+		// before 1600 calendar of SimpleDateFormat is not proleptic gregorian
+		if (year < 1600 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+				|| hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+			return NO_ISO_TIME;
+		}
+		int i = start + 19;
+		long fraction = 0;
+		long fractionDiv = 1;
+		if (i < end && text.charAt(i) == '.') {
+			i++;
+			int digitsStart = i;
+			while (i < end && isDigit(text.charAt(i))) {
+				if (i - digitsStart >= 15) {
+					return NO_ISO_TIME;
+				}
+				fraction = fraction * 10 + (text.charAt(i) - '0');
+				fractionDiv *= 10;
+				i++;
+			}
+		}
+		long offset;
+		if (i == end) {
+			// parsed without time zone as UTC and fraction is skipped
+			fraction = 0;
+			offset = 0;
+		} else if (text.charAt(i) == 'Z' && i + 1 == end) {
+			offset = 0;
+		} else if ((text.charAt(i) == '+' || text.charAt(i) == '-') && i + 6 == end && text.charAt(i + 3) == ':') {
+			int oh = parseDigits(text, i + 1, 2);
+			int om = parseDigits(text, i + 4, 2);
+			if (oh < 0 || oh > 23 || om < 0 || om > 59) {
+				return NO_ISO_TIME;
+			}
+			offset = (oh * 60 + om) * 60000L * (text.charAt(i) == '-' ? -1 : 1);
+		} else {
+			return NO_ISO_TIME;
+		}
+		long days = daysFromEpoch(year, month, day);
+		long time = ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L - offset;
+		// same rounding as flexibleGpxTimeParser
+		double ms = fraction / (double) fractionDiv;
+		return time + (long) (ms * 1000);
+	}
+
+	private static int parseDigits(CharSequence text, int start, int length) {
+		int value = 0;
+		for (int i = start; i < start + length; i++) {
+			char c = text.charAt(i);
+			if (!isDigit(c)) {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static boolean isLeapYear(int year) {
+		return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		if (month == 2) {
+			return isLeapYear(year) ? 29 : 28;
+		}
+		return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+	}
+
+	private static long daysFromEpoch(int year, int month, int day) {
+		long y = year - 1;
+		long days = 365 * y + y / 4 - y / 100 + y / 400 + DAYS_BEFORE_MONTH[month - 1] + day - 1;
+		if (month > 2 && isLeapYear(year)) {
+			days++;
+		}
+		// days from 0001-01-01 to 1970-01-01
+		return days - 719162;
+	}
+
 	public static long parseTime(String text, SimpleDateFormat format) {
 		long time = 0;
 		if (text != null) {
@@ -1947,11 +2049,23 @@ public class GPXUtilities {
 		return gpxFile;
 	}
 
-	private static String getExtensionsSupportedTag(String tag) {
+	static String getExtensionsSupportedTag(String tag) {
 		String supportedTag = SUPPORTED_EXTENSION_TAGS.get(tag);
 		return supportedTag == null ? tag : supportedTag;
 	}
 
+	// tags of extensions which are read as supported tag (reverse of getExtensionsSupportedTag)
+	static List<String> getExtensionsTags(String supportedTag) {
+		List<String> tags = new ArrayList<>();
+		tags.add(supportedTag);
+		for (Entry<String, String> e : SUPPORTED_EXTENSION_TAGS.entrySet()) {
+			if (e.getValue().equals(supportedTag)) {
+				tags.add(e.getKey());
+			}
+		}
+		return tags;
+	}
+
 	private static Map<String, String> parseRouteKeyAttributes(XmlPullParser parser) {
 		Map<String, String> networkRouteKeyTags = new LinkedHashMap<>();
 		StringBundleXmlReader reader = new StringBundleXmlReader(parser);
@@ -1998,7 +2112,7 @@ public class GPXUtilities {
 		return pointsGroups;
 	}
 
-	private static Reader getUTF8Reader(InputStream f) throws IOException {
+	static Reader getUTF8Reader(InputStream f) throws IOException {
 		BufferedInputStream bis = new BufferedInputStream(f);
 		assert bis.markSupported();
 		bis.mark(3);
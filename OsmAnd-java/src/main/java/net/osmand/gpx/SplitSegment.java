@@ -12,6 +12,9 @@ class SplitSegment {
 	int endPointInd;
 	double metricEnd;
 	double secondaryMetricEnd;
+	// points of columns are filled into 2 reused points (current and previous point of analysis)
+	private GPXTrackColumns columns;
+	private WptPt[] columnPoints;
 
 	public SplitSegment(TrkSegment segment) {
 		startPointInd = 0;
@@ -29,6 +32,15 @@ class SplitSegment {
 		this.segment = segment;
 	}
 
+	public SplitSegment(GPXTrackColumns columns, int startInd, int endInd) {
+		this.segment = new TrkSegment();
+		this.columns = columns;
+		this.columnPoints = new WptPt[] {new WptPt(), new WptPt()};
+		startPointInd = startInd;
+		endPointInd = endInd - 2;
+		endCoeff = 1;
+	}
+
 	public SplitSegment(TrkSegment segment, int pointInd, double cf) {
 		this.segment = segment;
 		this.startPointInd = pointInd;
@@ -41,6 +53,9 @@ class SplitSegment {
 
 	public WptPt get(int j) {
 		final int ind = j + startPointInd;
+		if (columns != null) {
+			return columns.fillPoint(ind, columnPoints[ind & 1]);
+		}
 		if (j == 0) {
 			if (startCoeff == 0) {
 				return segment.points.get(ind);
@@ -56,6 +71,19 @@ class SplitSegment {
 		return segment.points.get(ind);
 	}
 
+	/**
+	 * @return point which could be kept after next {@link #get(int)}
+	 */
+	WptPt keep(WptPt point) {
+		if (columns == null) {
+			return point;
+		}
+		// copy constructor doesn't copy bearing
+		WptPt copy = new WptPt(point);
+		copy.bearing = point.bearing;
+		return copy;
+	}
+
 	private WptPt approx(WptPt w1, WptPt w2, double cf) {
 		long time = value(w1.time, w2.time, 0, cf);
 		double speed = value(w1.speed, w2.speed, 0, cf);
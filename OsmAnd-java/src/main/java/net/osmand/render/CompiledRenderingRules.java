@@ -0,0 +1,312 @@
+package net.osmand.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Rules of {@link RenderingRulesStorage} compiled to decision tables for {@link RenderingRuleSearchRequest}.
+ * For every state and tag/value key of style there is a chain of root rules which search tries one by one
+ * (tag/value, tag/"", ""/""), so search usually needs one table lookup instead of three. Rules are flattened to
+ * primitive arrays of input checks and output slots, zoom range of rule and of its if-else children is
+ * precomputed to skip subtrees without visiting them. Chain knows input properties read by its rules, so
+ * request could memoize result of search by values of these inputs.
+ * Compiled rules are immutable and shared by copies of storage, they should be compiled again if rules
+ * of storage are changed (storage resets them when rules are registered or merged).
+ */
+public class CompiledRenderingRules {
+
+	static final int INPUT_EQUALS = 0;
+	static final int INPUT_FLOAT_EQUALS = 1;
+	static final int INPUT_MIN_ZOOM = 2;
+	static final int INPUT_MAX_ZOOM = 3;
+	static final int INPUT_CUSTOM = 4;
+
+	static class CompiledRule {
+		boolean group;
+		// input properties in order of rule properties
+		RenderingRuleProperty[] inputs;
+		int[] inputIds;
+		int[] inputKinds;
+		int[] inputInts;
+		float[] inputFloats;
+		// disable is set before input with this index (as checkInputProperties does) or -1
+		int disableIndex = -1;
+		int disableValue;
+		// rule could match only if minzoom >= minZoom and maxzoom <= maxZoom
+		int minZoom = Integer.MIN_VALUE;
+		int maxZoom = Integer.MAX_VALUE;
+		// true if rule doesn't change disable when it doesn't match, so it could be skipped by zoom
+		boolean skipByZoom;
+		RenderingRuleProperty[] outputs;
+		int[] outputIds;
+		int[] outputInts;
+		float[] outputFloats;
+		// rendering attribute rules of outputs ($attribute) or null
+		CompiledRule[] outputAttributes;
+		CompiledRule[] ifElseChildren;
+		CompiledRule[] ifChildren;
+	}
+
+	static class RuleChain {
+		final int id;
+		final int[] tagKeys;
+		final int[] valueKeys;
+		final CompiledRule[] rules;
+		// last rule of chain is ""/"" rule
+		final boolean defaultRule;
+		// input properties (except tag and value) which could be checked by rules of chain
+		final int[] inputIds;
+		// properties which could be written by search (outputs of rules, tag, value and disable)
+		final int[] outputIds;
+		// rules check additional types of object
+		final boolean objectDependent;
+
+		RuleChain(int id, int[] tagKeys, int[] valueKeys, CompiledRule[] rules, int[] inputIds, int[] outputIds,
+		          boolean objectDependent) {
+			this.id = id;
+			this.tagKeys = tagKeys;
+			this.valueKeys = valueKeys;
+			this.rules = rules;
+			this.defaultRule = tagKeys[tagKeys.length - 1] == 0 && valueKeys[valueKeys.length - 1] == 0;
+			this.inputIds = inputIds;
+			this.outputIds = outputIds;
+			this.objectDependent = objectDependent;
+		}
+	}
+
+	// chains of one state: search tries tag/value, tag/"" and ""/"" even if some of them are the same key
+	private static class StateChains {
+		// by tag/value key of rule
+		final TIntObjectHashMap<RuleChain> chains = new TIntObjectHashMap<>();
+		// tag/"", ""/"" for tag and value without rule
+		final TIntObjectHashMap<RuleChain> tagChains = new TIntObjectHashMap<>();
+		// ""/"" once (tag/value and tag/"" without rules) and twice (""/value without rule)
+		RuleChain defaultChain;
+		RuleChain emptyTagDefaultChain;
+	}
+
+	private static final int SHIFT_TAG_VAL = 16;
+
+	private final RenderingRuleStorageProperties props;
+	private final StateChains[] states;
+	private final Map<RenderingRule, CompiledRule> compiled = new IdentityHashMap<>();
+	private int chainsCount;
+	private int rulesCount;
+
+	CompiledRenderingRules(RenderingRulesStorage storage) {
+		this.props = storage.PROPS;
+		TIntObjectHashMap<RenderingRule>[] tagValueRules = storage.tagValueGlobalRules;
+		states = new StateChains[tagValueRules.length];
+		for (int state = 0; state < tagValueRules.length; state++) {
+			TIntObjectHashMap<RenderingRule> rules = tagValueRules[state];
+			if (rules == null) {
+				continue;
+			}
+			StateChains sc = new StateChains();
+			for (int key : rules.keys()) {
+				int tagKey = key >> SHIFT_TAG_VAL;
+				int valueKey = key & ((1 << SHIFT_TAG_VAL) - 1);
+				sc.chains.put(key, createChain(rules, key, tagKey << SHIFT_TAG_VAL, 0));
+				if (valueKey == 0 && tagKey != 0) {
+					sc.tagChains.put(tagKey, createChain(rules, key, 0));
+				}
+			}
+			sc.defaultChain = createChain(rules, 0);
+			sc.emptyTagDefaultChain = createChain(rules, 0, 0);
+			states[state] = sc;
+		}
+		compiled.clear();
+	}
+
+	/**
+	 * @return chain of rules which search tries for tag and value or null if there are no rules
+	 */
+	RuleChain getChain(int state, int tagKey, int valueKey) {
+		StateChains sc = state < states.length ? states[state] : null;
+		if (sc == null) {
+			return null;
+		}
+		RuleChain chain = sc.chains.get((tagKey << SHIFT_TAG_VAL) | valueKey);
+		if (chain != null) {
+			return chain;
+		}
+		if (tagKey != 0 && valueKey != 0) {
+			chain = sc.tagChains.get(tagKey);
+			return chain != null ? chain : sc.defaultChain;
+		}
+		return tagKey == 0 && valueKey != 0 ? sc.emptyTagDefaultChain : sc.defaultChain;
+	}
+
+	public int getChainsCount() {
+		return chainsCount;
+	}
+
+	public int getRulesCount() {
+		return rulesCount;
+	}
+
+	// rules of keys which exist, null if there are no rules
+	private RuleChain createChain(TIntObjectHashMap<RenderingRule> rules, int... keys) {
+		TIntArrayList tags = new TIntArrayList();
+		TIntArrayList values = new TIntArrayList();
+		List<CompiledRule> chainRules = new ArrayList<>();
+		for (int key : keys) {
+			RenderingRule rule = rules.get(key);
+			if (rule != null) {
+				tags.add(key >> SHIFT_TAG_VAL);
+				values.add(key & ((1 << SHIFT_TAG_VAL) - 1));
+				chainRules.add(compile(rule));
+			}
+		}
+		if (chainRules.isEmpty()) {
+			return null;
+		}
+		TIntHashSet inputs = new TIntHashSet();
+		TIntHashSet outputs = new TIntHashSet();
+		Map<CompiledRule, Boolean> visited = new IdentityHashMap<>();
+		for (CompiledRule r : chainRules) {
+			collectProperties(r, inputs, outputs, visited);
+		}
+		boolean objectDependent = inputs.contains(props.R_ADDITIONAL.getId());
+		inputs.remove(props.R_TAG.getId());
+		inputs.remove(props.R_VALUE.getId());
+		outputs.add(props.R_TAG.getId());
+		outputs.add(props.R_VALUE.getId());
+		outputs.add(props.R_DISABLE.getId());
+		int[] inputIds = inputs.toArray();
+		Arrays.sort(inputIds);
+		int[] outputIds = outputs.toArray();
+		Arrays.sort(outputIds);
+		return new RuleChain(chainsCount++, tags.toArray(), values.toArray(),
+				chainRules.toArray(new CompiledRule[0]), inputIds, outputIds, objectDependent);
+	}
+
+	private static void collectProperties(CompiledRule rule, TIntHashSet inputs, TIntHashSet outputs,
+	                                      Map<CompiledRule, Boolean> visited) {
+		if (rule == null || visited.put(rule, Boolean.TRUE) != null) {
+			return;
+		}
+		inputs.addAll(rule.inputIds);
+		outputs.addAll(rule.outputIds);
+		if (rule.outputAttributes != null) {
+			for (CompiledRule r : rule.outputAttributes) {
+				collectProperties(r, inputs, outputs, visited);
+			}
+		}
+		for (CompiledRule r : rule.ifElseChildren) {
+			collectProperties(r, inputs, outputs, visited);
+		}
+		for (CompiledRule r : rule.ifChildren) {
+			collectProperties(r, inputs, outputs, visited);
+		}
+	}
+
+	private CompiledRule compile(RenderingRule rule) {
+		CompiledRule c = compiled.get(rule);
+		if (c != null) {
+			return c;
+		}
+		c = new CompiledRule();
+		compiled.put(rule, c);
+		rulesCount++;
+		c.group = rule.isGroup();
+		RenderingRuleProperty[] properties = rule.getProperties();
+		List<RenderingRuleProperty> inputs = new ArrayList<>();
+		List<RenderingRuleProperty> outputs = new ArrayList<>();
+		TIntArrayList inputIndexes = new TIntArrayList();
+		TIntArrayList outputIndexes = new TIntArrayList();
+		for (int i = 0; i < properties.length; i++) {
+			RenderingRuleProperty rp = properties[i];
+			if (rp.isInputProperty()) {
+				inputs.add(rp);
+				inputIndexes.add(i);
+			} else {
+				if (rp.getId() == props.R_DISABLE.getId() && c.disableIndex < 0) {
+					c.disableIndex = inputs.size();
+					c.disableValue = rule.getIntProp(i);
+				}
+				outputs.add(rp);
+				outputIndexes.add(i);
+			}
+		}
+		int n = inputs.size();
+		c.inputs = inputs.toArray(new RenderingRuleProperty[0]);
+		c.inputIds = new int[n];
+		c.inputKinds = new int[n];
+		c.inputInts = new int[n];
+		c.inputFloats = new float[n];
+		for (int j = 0; j < n; j++) {
+			RenderingRuleProperty rp = c.inputs[j];
+			int i = inputIndexes.get(j);
+			c.inputIds[j] = rp.getId();
+			c.inputInts[j] = rule.getIntProp(i);
+			c.inputFloats[j] = rule.getFloatProp(i);
+			if (rp.getId() == props.R_MINZOOM.getId()) {
+				c.inputKinds[j] = INPUT_MIN_ZOOM;
+				c.minZoom = Math.max(c.minZoom, c.inputInts[j]);
+			} else if (rp.getId() == props.R_MAXZOOM.getId()) {
+				c.inputKinds[j] = INPUT_MAX_ZOOM;
+				c.maxZoom = Math.min(c.maxZoom, c.inputInts[j]);
+			} else if (rp.getClass() != RenderingRuleProperty.class) {
+				c.inputKinds[j] = INPUT_CUSTOM;
+			} else if (rp.isFloat()) {
+				c.inputKinds[j] = INPUT_FLOAT_EQUALS;
+			} else if (rp.isIntParse()) {
+				c.inputKinds[j] = INPUT_EQUALS;
+			} else {
+				c.inputKinds[j] = INPUT_CUSTOM;
+			}
+		}
+		int m = outputs.size();
+		c.outputs = outputs.toArray(new RenderingRuleProperty[0]);
+		c.outputIds = new int[m];
+		c.outputInts = new int[m];
+		c.outputFloats = new float[m];
+		for (int j = 0; j < m; j++) {
+			int i = outputIndexes.get(j);
+			c.outputIds[j] = c.outputs[j].getId();
+			c.outputInts[j] = rule.getIntProp(i);
+			c.outputFloats[j] = rule.getFloatProp(i);
+			RenderingRule attr = rule.getAttrProp(i);
+			if (attr != null) {
+				if (c.outputAttributes == null) {
+					c.outputAttributes = new CompiledRule[m];
+				}
+				c.outputAttributes[j] = compile(attr);
+			}
+		}
+		c.ifElseChildren = compile(rule.getIfElseChildren());
+		c.ifChildren = compile(rule.getIfChildren());
+
+		boolean mayDisable = c.disableIndex >= 0;
+		if (c.group) {
+			// group matches only if one of if-else children matches
+			int childrenMin = Integer.MAX_VALUE;
+			int childrenMax = Integer.MIN_VALUE;
+			for (CompiledRule child : c.ifElseChildren) {
+				childrenMin = Math.min(childrenMin, child.minZoom);
+				childrenMax = Math.max(childrenMax, child.maxZoom);
+				mayDisable |= !child.skipByZoom;
+			}
+			c.minZoom = Math.max(c.minZoom, childrenMin);
+			c.maxZoom = Math.min(c.maxZoom, childrenMax);
+		}
+		c.skipByZoom = !mayDisable;
+		return c;
+	}
+
+	private CompiledRule[] compile(List<RenderingRule> rules) {
+		CompiledRule[] res = new CompiledRule[rules.size()];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = compile(rules.get(i));
+		}
+		return res;
+	}
+}
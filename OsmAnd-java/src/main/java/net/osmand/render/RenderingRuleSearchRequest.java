@@ -7,8 +7,14 @@ import static net.osmand.render.RenderingRuleProperty.INT_TYPE;
 import static net.osmand.render.RenderingRuleProperty.STRING_TYPE;
 
 import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.render.CompiledRenderingRules.CompiledRule;
+import net.osmand.render.CompiledRenderingRules.RuleChain;
 import net.osmand.util.Algorithms;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 
 public class RenderingRuleSearchRequest {
 
@@ -26,8 +32,25 @@ public class RenderingRuleSearchRequest {
 
 	private boolean searchResult = false;
 
+	// results of search with compiled rules by inputs read by rules (valid only for saved state of outputs)
+	private static final int MAX_CACHED_RESULTS = 8192;
+	// results are not cached for a while if less than 3/4 of searches of window are found in cache
+	private static final int CACHE_WINDOW = 1024;
+	private static final int CACHE_SKIP_SEARCHES = 16 * CACHE_WINDOW;
+	private final CompiledRenderingRules compiledRules;
+	private final Map<SearchKey, SearchResult> cachedResults = new HashMap<>();
+	private final SearchKey searchKey = new SearchKey();
+	private int[] valuesBeforeSearch;
+	private float[] fvaluesBeforeSearch;
+	// outputs are not changed since state was cleared
+	private boolean clearedState = true;
+	private int cacheLookups;
+	private int cacheHits;
+	private int cacheSkip;
+
 	public RenderingRuleSearchRequest(RenderingRulesStorage storage) {
 		this.storage = storage;
+		this.compiledRules = storage.getCompiledRules();
 		this.ALL = storage.PROPS;
 		props = storage.PROPS.getPoperties();
 		values = new int[props.length];
@@ -43,6 +66,7 @@ public class RenderingRuleSearchRequest {
 
 	public RenderingRuleSearchRequest(RenderingRuleSearchRequest searchRequest) {
 		this.storage = searchRequest.storage;
+		this.compiledRules = searchRequest.compiledRules;
 		this.props = searchRequest.props;
 		this.values = new int[searchRequest.values.length];
 		this.fvalues = new float[searchRequest.fvalues.length];
@@ -87,12 +111,15 @@ public class RenderingRuleSearchRequest {
 		savedFvalues = new float[fvalues.length];
 		System.arraycopy(values, 0, savedValues, 0, values.length);
 		System.arraycopy(fvalues, 0, savedFvalues, 0, fvalues.length);
+		cachedResults.clear();
+		clearedState = true;
 	}
 
 	public void clearState() {
 		System.arraycopy(savedValues, 0, values, 0, values.length);
 		System.arraycopy(savedFvalues, 0, fvalues, 0, fvalues.length);
 		object = null;
+		clearedState = true;
 	}
 	
 	public void clearValue(RenderingRuleProperty p) {
@@ -126,6 +153,7 @@ public class RenderingRuleSearchRequest {
 	
 	public boolean searchRenderingAttribute(String attribute) {
 		searchResult = false;
+		clearedState = false;
 		RenderingRule rule = storage.getRenderingAttributeRule(attribute);
 		if (rule == null) {
 			return false;
@@ -142,6 +170,11 @@ public class RenderingRuleSearchRequest {
 		searchResult = false;
 		int tagKey = values[storage.PROPS.R_TAG.getId()];
 		int valueKey = values[storage.PROPS.R_VALUE.getId()];
+		if (compiledRules != null) {
+			searchResult = searchCompiled(state, tagKey, valueKey, loadOutput);
+			return searchResult;
+		}
+		clearedState = false;
 		boolean result = searchInternal(state, tagKey, valueKey, loadOutput);
 		if (result) {
 			searchResult = true;
@@ -207,7 +240,186 @@ public class RenderingRuleSearchRequest {
 		return fit;
 	}
 	
+	private boolean searchCompiled(int state, int tagKey, int valueKey, boolean loadOutput) {
+		RuleChain chain = compiledRules.getChain(state, tagKey, valueKey);
+		boolean cache = clearedState && chain != null && useCache();
+		clearedState = false;
+		if (chain == null) {
+			resetSearchKeys();
+			return false;
+		}
+		if (cache) {
+			searchKey.set(chain, state, loadOutput, values, fvalues, object);
+			SearchResult res = cachedResults.get(searchKey);
+			if (res != null) {
+				cacheHits++;
+				res.apply(values, fvalues);
+				return res.found;
+			}
+			int[] outputIds = chain.outputIds;
+			if (valuesBeforeSearch == null || valuesBeforeSearch.length < outputIds.length) {
+				valuesBeforeSearch = new int[outputIds.length];
+				fvaluesBeforeSearch = new float[outputIds.length];
+			}
+			for (int i = 0; i < outputIds.length; i++) {
+				valuesBeforeSearch[i] = values[outputIds[i]];
+				fvaluesBeforeSearch[i] = fvalues[outputIds[i]];
+			}
+		}
+		boolean found = false;
+		for (int i = 0; i < chain.rules.length && !found; i++) {
+			found = searchInternal(chain.tagKeys[i], chain.valueKeys[i], chain.rules[i], loadOutput);
+		}
+		if (!found && !chain.defaultRule) {
+			// as search tries ""/"" without rule
+			resetSearchKeys();
+		}
+		if (cache) {
+			if (cachedResults.size() >= MAX_CACHED_RESULTS) {
+				cachedResults.clear();
+			}
+			cachedResults.put(searchKey.copy(), new SearchResult(found, chain.outputIds, valuesBeforeSearch,
+					fvaluesBeforeSearch, values, fvalues, storage.PROPS));
+		}
+		return found;
+	}
+
+	private boolean useCache() {
+		if (cacheSkip > 0) {
+			cacheSkip--;
+			return false;
+		}
+		if (++cacheLookups > CACHE_WINDOW) {
+			// too many different objects, search is cheaper than caching of results
+			if (cacheHits < CACHE_WINDOW * 3 / 4) {
+				cacheSkip = CACHE_SKIP_SEARCHES;
+			}
+			cacheLookups = 0;
+			cacheHits = 0;
+			return cacheSkip == 0;
+		}
+		return true;
+	}
+
+	private void resetSearchKeys() {
+		values[storage.PROPS.R_TAG.getId()] = 0;
+		values[storage.PROPS.R_VALUE.getId()] = 0;
+		values[storage.PROPS.R_DISABLE.getId()] = 0;
+	}
+
+	private boolean searchInternal(int tagKey, int valueKey, CompiledRule accept, boolean loadOutput) {
+		values[storage.PROPS.R_TAG.getId()] = tagKey;
+		values[storage.PROPS.R_VALUE.getId()] = valueKey;
+		values[storage.PROPS.R_DISABLE.getId()] = 0;
+		boolean match = visitRule(accept, loadOutput);
+		if (match && values[storage.PROPS.R_DISABLE.getId()] != 0) {
+			return false;
+		}
+		return match;
+	}
+
+	private boolean visitRule(CompiledRule rule, boolean loadOutput) {
+		if (rule.skipByZoom && (values[ALL.R_MINZOOM.getId()] < rule.minZoom
+				|| values[ALL.R_MAXZOOM.getId()] > rule.maxZoom)) {
+			return false;
+		}
+		if (!checkInputProperties(rule)) {
+			return false;
+		}
+		if (!loadOutput && !rule.group) {
+			return true;
+		}
+		if (!rule.group) {
+			loadOutputProperties(rule, true);
+		}
+		boolean match = false;
+		for (CompiledRule rr : rule.ifElseChildren) {
+			match = visitRule(rr, loadOutput);
+			if (match) {
+				break;
+			}
+		}
+		boolean fit = (match || !rule.group);
+		if (fit && loadOutput) {
+			if (rule.group) {
+				loadOutputProperties(rule, false);
+			}
+			for (CompiledRule rr : rule.ifChildren) {
+				visitRule(rr, loadOutput);
+			}
+		}
+		return fit;
+	}
+
+	private boolean checkInputProperties(CompiledRule rule) {
+		int[] ids = rule.inputIds;
+		for (int i = 0; i < ids.length; i++) {
+			if (i == rule.disableIndex) {
+				values[storage.PROPS.R_DISABLE.getId()] = rule.disableValue;
+			}
+			int id = ids[i];
+			boolean match;
+			switch (rule.inputKinds[i]) {
+				case CompiledRenderingRules.INPUT_EQUALS:
+					match = rule.inputInts[i] == values[id];
+					break;
+				case CompiledRenderingRules.INPUT_FLOAT_EQUALS:
+					match = rule.inputFloats[i] == fvalues[id];
+					break;
+				case CompiledRenderingRules.INPUT_MIN_ZOOM:
+					match = rule.inputInts[i] <= values[id];
+					break;
+				case CompiledRenderingRules.INPUT_MAX_ZOOM:
+					match = rule.inputInts[i] >= values[id];
+					break;
+				default:
+					RenderingRuleProperty rp = rule.inputs[i];
+					if (rp.isFloat()) {
+						match = rp.accept(rule.inputFloats[i], fvalues[id], this);
+					} else {
+						match = rp.accept(rule.inputInts[i], values[id], this);
+					}
+			}
+			if (!match) {
+				return false;
+			}
+		}
+		if (rule.disableIndex == ids.length) {
+			values[storage.PROPS.R_DISABLE.getId()] = rule.disableValue;
+		}
+		return true;
+	}
+
+	private void loadOutputProperties(CompiledRule rule, boolean override) {
+		RenderingRuleProperty[] outputs = rule.outputs;
+		for (int i = 0; i < outputs.length; i++) {
+			RenderingRuleProperty rp = outputs[i];
+			if (!override && isSpecified(rp)) {
+				continue;
+			}
+			int id = rule.outputIds[i];
+			CompiledRule rr = rule.outputAttributes == null ? null : rule.outputAttributes[i];
+			if (rr != null) {
+				visitRule(rr, true);
+				if (isSpecified(storage.PROPS.R_ATTR_COLOR_VALUE)) {
+					values[id] = getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE);
+				} else if (isSpecified(storage.PROPS.R_ATTR_INT_VALUE)) {
+					values[id] = getIntPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
+					fvalues[id] = getFloatPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
+				} else if (isSpecified(storage.PROPS.R_ATTR_BOOL_VALUE)) {
+					values[id] = getIntPropertyValue(storage.PROPS.R_ATTR_BOOL_VALUE);
+				}
+			} else if (rp.isFloat()) {
+				fvalues[id] = rule.outputFloats[i];
+				values[id] = rule.outputInts[i];
+			} else {
+				values[id] = rule.outputInts[i];
+			}
+		}
+	}
+
 	public void loadOutputProperties(RenderingRule rule, boolean override) {
+		clearedState = false;
 		RenderingRuleProperty[] properties = rule.getProperties();
 		for (int i = 0; i < properties.length; i++) {
 			RenderingRuleProperty rp = properties[i];
@@ -249,7 +461,7 @@ public class RenderingRuleSearchRequest {
 				if (!match) {
 					return false;
 				}
-			} else if (rp == storage.PROPS.R_DISABLE) {
+			} else if (rp.getId() == storage.PROPS.R_DISABLE.getId()) {
 				// quick disable return even without load output
 				values[rp.getId()] = rule.getIntProp(i);
 			}
@@ -312,6 +524,122 @@ public class RenderingRuleSearchRequest {
 		return val == -1 ? defValue : val;
 	}
 
+	private static class SearchKey {
+		private int[] key = new int[16];
+		private int length;
+		private Object mapIndex;
+		private int hash;
+
+		void set(RuleChain chain, int state, boolean loadOutput, int[] values, float[] fvalues,
+		         BinaryMapDataObject object) {
+			int[] inputIds = chain.inputIds;
+			int[] additional = chain.objectDependent && object != null ? object.getAdditionalTypes() : null;
+			int len = 4 + 2 * inputIds.length + (additional == null ? 0 : additional.length);
+			if (key.length < len) {
+				key = new int[len];
+			}
+			int k = 0;
+			key[k++] = chain.id;
+			key[k++] = state;
+			key[k++] = loadOutput ? 1 : 0;
+			for (int id : inputIds) {
+				key[k++] = values[id];
+				key[k++] = Float.floatToIntBits(fvalues[id]);
+			}
+			// additional types are checked only if rules check them
+			mapIndex = chain.objectDependent && object != null ? object.getMapIndex() : null;
+			key[k++] = additional == null ? -1 : additional.length;
+			if (additional != null) {
+				for (int type : additional) {
+					key[k++] = type;
+				}
+			}
+			length = k;
+			int h = 1;
+			for (int i = 0; i < length; i++) {
+				h = 31 * h + key[i];
+			}
+			hash = h;
+		}
+
+		SearchKey copy() {
+			SearchKey c = new SearchKey();
+			c.key = Arrays.copyOf(key, length);
+			c.length = length;
+			c.mapIndex = mapIndex;
+			c.hash = hash;
+			return c;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SearchKey)) {
+				return false;
+			}
+			SearchKey o = (SearchKey) obj;
+			if (o.hash != hash || o.length != length || o.mapIndex != mapIndex) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (o.key[i] != key[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	// values written by search
+	private static class SearchResult {
+		final boolean found;
+		final int[] ids;
+		final int[] values;
+		final float[] fvalues;
+
+		SearchResult(boolean found, int[] outputIds, int[] before, float[] fbefore, int[] values, float[] fvalues,
+		             RenderingRuleStorageProperties props) {
+			this.found = found;
+			int count = 0;
+			for (int i = 0; i < outputIds.length; i++) {
+				if (isWritten(i, outputIds, before, fbefore, values, fvalues, props)) {
+					count++;
+				}
+			}
+			this.ids = new int[count];
+			this.values = new int[count];
+			this.fvalues = new float[count];
+			for (int i = 0, k = 0; k < count; i++) {
+				if (isWritten(i, outputIds, before, fbefore, values, fvalues, props)) {
+					int id = outputIds[i];
+					this.ids[k] = id;
+					this.values[k] = values[id];
+					this.fvalues[k] = fvalues[id];
+					k++;
+				}
+			}
+		}
+
+		// tag, value and disable are always written (search of the same chain starts with different tag and value)
+		private static boolean isWritten(int i, int[] outputIds, int[] before, float[] fbefore, int[] values,
+		                                 float[] fvalues, RenderingRuleStorageProperties props) {
+			int id = outputIds[i];
+			return values[id] != before[i] || Float.floatToIntBits(fvalues[id]) != Float.floatToIntBits(fbefore[i])
+					|| id == props.R_TAG.getId() || id == props.R_VALUE.getId() || id == props.R_DISABLE.getId();
+		}
+
+		void apply(int[] values, float[] fvalues) {
+			for (int i = 0; i < ids.length; i++) {
+				values[ids[i]] = this.values[i];
+				fvalues[ids[i]] = this.fvalues[i];
+			}
+		}
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
@@ -62,6 +62,8 @@ public class RenderingRulesStorage {
 
 	protected int internalVersion = 1;
 
+	private CompiledRenderingRules compiledRules;
+
 
 	public String getDependsName() {
 		return dependsName;
@@ -97,9 +99,23 @@ public class RenderingRulesStorage {
 			}
 		}
 		storage.renderingAttributes.putAll(renderingAttributes);
+		storage.compiledRules = compiledRules;
 		return storage;
 	}
 
+	/**
+	 * Compiles rules to decision tables which are used by search requests created after it.
+	 * Rules should be compiled again if they are changed directly (not by registering or merging rules).
+	 */
+	public CompiledRenderingRules compileRules() {
+		compiledRules = new CompiledRenderingRules(this);
+		return compiledRules;
+	}
+
+	public CompiledRenderingRules getCompiledRules() {
+		return compiledRules;
+	}
+
 	public int getInternalVersion() {
 		return internalVersion;
 	}
@@ -143,6 +159,7 @@ public class RenderingRulesStorage {
 		if (depends == null) {
 			return;
 		}
+		compiledRules = null;
 		// merge results
 		// dictionary and props are already merged
 		Iterator<Entry<String, RenderingRule>> it = depends.renderingAttributes.entrySet().iterator();
@@ -196,6 +213,7 @@ public class RenderingRulesStorage {
 		if (tagS == null || valueS == null) {
 			throw new XmlPullParserException("Attribute tag should be specified for root filter " + rr.toString());
 		}
+		compiledRules = null;
 		int key = getTagValueKey(tagS, valueS);
 		RenderingRule insert = tagValueGlobalRules[state].get(key);
 		if (insert != null) {
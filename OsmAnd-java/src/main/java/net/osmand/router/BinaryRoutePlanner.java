@@ -63,8 +63,8 @@ public class BinaryRoutePlanner {
 		float cost;
 		RouteSegment segment;
 		
-		public RouteSegmentCost(RouteSegment segment, RoutingContext ctx) {
-			this.cost = cost(segment.distanceFromStart, segment.distanceToEnd, ctx);
+		public RouteSegmentCost(RouteSegment segment, float cost) {
+			this.cost = cost;
 			this.segment = segment;
 		}
 
@@ -74,6 +74,85 @@ public class BinaryRoutePlanner {
 		}
 	}
 
+	/**
+	 * Queue of segments to visit ordered by cost f(x) = g(x) + h(x)
+	 */
+	interface RouteSegmentQueue {
+		long NO_KEY = Long.MIN_VALUE;
+
+		// key is route point id of segment (or NO_KEY) and could be used to keep only cheapest segment in queue
+		void add(RouteSegment segment, float cost, long key);
+
+		RouteSegment poll();
+
+		RouteSegment peek();
+
+		float peekCost();
+
+		boolean isEmpty();
+
+		int size();
+
+		boolean isIndexed();
+	}
+
+	private static class PriorityRouteSegmentQueue implements RouteSegmentQueue {
+		private final PriorityQueue<RouteSegmentCost> queue = new PriorityQueue<>(50, new SegmentsComparator());
+
+		@Override
+		public void add(RouteSegment segment, float cost, long key) {
+			queue.add(new RouteSegmentCost(segment, cost));
+		}
+
+		@Override
+		public RouteSegment poll() {
+			RouteSegmentCost c = queue.poll();
+			return c == null ? null : c.segment;
+		}
+
+		@Override
+		public RouteSegment peek() {
+			RouteSegmentCost c = queue.peek();
+			return c == null ? null : c.segment;
+		}
+
+		@Override
+		public float peekCost() {
+			RouteSegmentCost c = queue.peek();
+			return c == null ? Float.NaN : c.cost;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return queue.isEmpty();
+		}
+
+		@Override
+		public int size() {
+			return queue.size();
+		}
+
+		@Override
+		public boolean isIndexed() {
+			return false;
+		}
+	}
+
+	private RouteSegmentQueue createQueue(RoutingContext ctx) {
+		if (ctx.config.useIndexedSegmentsQueue) {
+			return new RouteSegmentHeap(50);
+		}
+		return new PriorityRouteSegmentQueue();
+	}
+
+	private void addToQueue(RoutingContext ctx, RouteSegmentQueue graphSegments, RouteSegment segment) {
+		long key = RouteSegmentQueue.NO_KEY;
+		if (graphSegments.isIndexed() && !(segment instanceof FinalRouteSegment)) {
+			key = calculateRoutePointId(segment);
+		}
+		graphSegments.add(segment, cost(segment.distanceFromStart, segment.distanceToEnd, ctx), key);
+	}
+
 	/**
 	 * Calculate route between start.segmentEnd and end.segmentStart (using A* algorithm)
 	 * return list of segments
@@ -82,9 +161,13 @@ public class BinaryRoutePlanner {
 			TLongObjectMap<RouteSegment> boundaries) throws InterruptedException, IOException {
 		// measure time
 		ctx.memoryOverhead = 1000;
+		if (ctx.config.parallelBidirectionalSearch && start != null && end != null && ctx.planRouteIn2Directions()
+				&& ctx.visitor == null && ctx.precalculatedRouteDirection == null) {
+			return new ParallelSearch(ctx, start, end, boundaries).search();
+		}
 		// Initializing priority queue to visit way segments 
-		PriorityQueue<RouteSegmentCost> graphDirectSegments = new PriorityQueue<>(50, new SegmentsComparator());
-		PriorityQueue<RouteSegmentCost> graphReverseSegments = new PriorityQueue<>(50, new SegmentsComparator());
+		RouteSegmentQueue graphDirectSegments = createQueue(ctx);
+		RouteSegmentQueue graphReverseSegments = createQueue(ctx);
 		// Set to not visit one segment twice (stores road.id << X + segmentStart)
 		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
 		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
@@ -104,11 +187,11 @@ public class BinaryRoutePlanner {
 			end.others = null;
 			forwardSearch = false;
 		}
-		PriorityQueue<RouteSegmentCost> graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
+		RouteSegmentQueue graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
 		float[] minCost = new float[] { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
 		while (!graphSegments.isEmpty()) {
-			RouteSegmentCost cst = graphSegments.poll();
-			RouteSegment segment = cst.segment;
+			float segmentCost = graphSegments.peekCost();
+			RouteSegment segment = graphSegments.poll();
 			int visitedCnt = (start != null ? visitedDirectSegments.size() : 0) + (end != null ? visitedOppositeSegments.size() : 0);
 			// use accumulative approach
 			ctx.memoryOverhead = visitedCnt * STANDARD_ROAD_VISITED_OVERHEAD +
@@ -164,12 +247,12 @@ public class BinaryRoutePlanner {
 					println("  " + segment.segEnd + ">> Already visited by minimum");
 				}
 				skipSegment = true;
-			} else if (cst.cost + 0.1 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
+			} else if (segmentCost + 0.1 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
 				if (ctx.config.heuristicCoefficient <= 1) {
-					throw new IllegalStateException(cst.cost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
+					throw new IllegalStateException(segmentCost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
 				}
 			} else {
-				minCost[forwardSearch ? 1 : 0] = cst.cost;
+				minCost[forwardSearch ? 1 : 0] = segmentCost;
 			}
 			if (!skipSegment) {
 				if (forwardSearch) {
@@ -203,17 +286,17 @@ public class BinaryRoutePlanner {
 					graphSegments = graphDirectSegments.isEmpty() ? graphReverseSegments : graphDirectSegments;
 					if (finalSegment == null) {
 						while (!graphSegments.isEmpty()) {
-							RouteSegmentCost pc = graphSegments.poll();
-							if (pc.segment instanceof FinalRouteSegment) {
-								finalSegment = (FinalRouteSegment) pc.segment;
+							RouteSegment pc = graphSegments.poll();
+							if (pc instanceof FinalRouteSegment) {
+								finalSegment = (FinalRouteSegment) pc;
 								break;
 							}
 						}
 					}
 					return finalSegment;
 				} else {
-					RouteSegment fw = graphDirectSegments.peek().segment;
-					RouteSegment bw = graphReverseSegments.peek().segment;
+					RouteSegment fw = graphDirectSegments.peek();
+					RouteSegment bw = graphReverseSegments.peek();
 					forwardSearch = Double.compare(cost(fw.distanceFromStart, fw.distanceToEnd, ctx), 
 							cost(bw.distanceFromStart, bw.distanceToEnd,ctx)) <= 0;
 				}
@@ -247,8 +330,292 @@ public class BinaryRoutePlanner {
 		return finalSegment;
 	}
 
+	/**
+	 * Bidirectional A* with forward and reverse directions running on 2 threads.
+	 * Cost of route through segment visited by both directions is known when it is visited, so best meet cost
+	 * is updated at once and both directions stop when minimal cost of one of queues is not less than it
+	 * (every cheaper route passes segments of both queues), for costs without heuristic also when sum of
+	 * minimal costs is not less. Equal cost final segments are chosen by the same key whichever direction met
+	 * the other, so result doesn't depend on timing of threads. Visited segments of directions are synchronized
+	 * by one lock, loaded segments are separate objects per direction, tiles are loaded under RoutingContext lock,
+	 * reverse direction runs on own thread.
+	 */
+	private class ParallelSearch {
+		private final RoutingContext ctx;
+		private final TLongObjectMap<RouteSegment> boundaries;
+		private final SearchDirection direct;
+		private final SearchDirection reverse;
+		private FinalRouteSegment finalSegment;
+		private volatile float finalCost = Float.POSITIVE_INFINITY;
+		private volatile boolean stopped;
+		private Throwable error;
+		private final Object visitedLock = new Object();
+
+		ParallelSearch(RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
+				TLongObjectMap<RouteSegment> boundaries) {
+			this.ctx = ctx;
+			this.boundaries = boundaries;
+			direct = new SearchDirection(this, false, start, createQueue(ctx));
+			reverse = new SearchDirection(this, true, end, createQueue(ctx));
+			direct.opposite = reverse;
+			reverse.opposite = direct;
+			direct.visited.opposite = reverse.visited;
+			reverse.visited.opposite = direct.visited;
+		}
+
+		FinalRouteSegment search() throws InterruptedException, IOException {
+			initQueuesWithStartEnd(ctx, direct.point, reverse.point, direct.queue, reverse.queue);
+			ctx.dijkstraMode = 0;
+			direct.updateTopCost();
+			reverse.updateTopCost();
+			GeneralRouter router = ctx.config.router;
+			if (!router.isCompiledEvaluation()) {
+				// router could be shared by other contexts, compiled copy keeps cache of previous searches
+				ctx.setRouter(router.getCompiledEvaluationCopy());
+			}
+			try {
+				// own thread: executor could be busy or the caller could run on it
+				Thread reverseThread = new Thread(reverse, "Reverse route search");
+				reverseThread.setDaemon(true);
+				reverseThread.start();
+				direct.run();
+				waitReverseSearch(reverseThread);
+			} finally {
+				ctx.setRouter(router);
+			}
+			ctx.memoryOverhead = direct.visited.memoryOverhead + reverse.visited.memoryOverhead;
+			ctx.alertSlowerSegmentedWasVisitedEarlier += direct.visited.alertSlowerSegmentedWasVisitedEarlier
+					+ reverse.visited.alertSlowerSegmentedWasVisitedEarlier;
+			ctx.alertFasterRoadToVisitedSegments += direct.visited.alertFasterRoadToVisitedSegments
+					+ reverse.visited.alertFasterRoadToVisitedSegments;
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.finalSegmentsFound += direct.visited.finalSegments.size()
+						+ reverse.visited.finalSegments.size();
+				ctx.calculationProgress.visitedSegments += direct.polledSegments + reverse.polledSegments;
+				ctx.calculationProgress.visitedDirectSegments += direct.visited.size();
+				ctx.calculationProgress.visitedOppositeSegments += reverse.visited.size();
+				ctx.calculationProgress.directQueueSize += direct.queue.size();
+				ctx.calculationProgress.oppositeQueueSize += reverse.queue.size();
+			}
+			if (error instanceof InterruptedException) {
+				throw (InterruptedException) error;
+			} else if (error instanceof IOException) {
+				throw (IOException) error;
+			} else if (error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			} else if (error != null) {
+				throw new IllegalStateException(error);
+			}
+			return finalSegment;
+		}
+
+		private void waitReverseSearch(Thread reverseThread) throws InterruptedException {
+			try {
+				reverseThread.join();
+			} catch (InterruptedException e) {
+				stopped = true;
+				boolean joined = false;
+				while (!joined) {
+					try {
+						reverseThread.join();
+						joined = true;
+					} catch (InterruptedException ie) {
+						// reverse direction checks stopped flag after each segment
+					}
+				}
+				throw e;
+			}
+		}
+
+		boolean isFinished() {
+			if (stopped) {
+				return true;
+			}
+			float cost = finalCost;
+			float directTop = direct.topCost;
+			float reverseTop = reverse.topCost;
+			if (Math.max(directTop, reverseTop) >= cost) {
+				return true;
+			}
+			return ctx.config.heuristicCoefficient == 0 && directTop + reverseTop >= cost;
+		}
+
+		synchronized void offerFinalSegment(FinalRouteSegment segment, float cost) {
+			if (cost < finalCost || (cost == finalCost && finalSegmentKey(segment) < finalSegmentKey(finalSegment))) {
+				finalSegment = segment;
+				finalCost = cost;
+			}
+		}
+
+		// same for segment met by forward and by reverse direction (they have opposite directions)
+		private long finalSegmentKey(FinalRouteSegment segment) {
+			return (segment.getRoad().getId() << ROUTE_POINTS)
+					+ Math.min(segment.getSegmentStart(), segment.getSegmentEnd());
+		}
+
+		synchronized void fail(Throwable e) {
+			if (error == null) {
+				error = e;
+			}
+			stopped = true;
+		}
+	}
+
+	private class SearchDirection implements Runnable {
+		private final ParallelSearch search;
+		private final boolean reverseWaySearch;
+		private final RouteSegmentPoint point;
+		private final RouteSegmentQueue queue;
+		private final SynchronizedVisitedSegments visited;
+		private SearchDirection opposite;
+		private volatile float topCost;
+		private int polledSegments;
+		private int offeredFinalSegments;
+
+		SearchDirection(ParallelSearch search, boolean reverseWaySearch, RouteSegmentPoint point,
+				RouteSegmentQueue queue) {
+			this.search = search;
+			this.reverseWaySearch = reverseWaySearch;
+			this.point = point;
+			this.queue = queue;
+			this.visited = new SynchronizedVisitedSegments(search.visitedLock);
+		}
+
+		@Override
+		public void run() {
+			try {
+				searchDirection();
+			} catch (Throwable e) {
+				search.fail(e);
+			}
+		}
+
+		void updateTopCost() {
+			// empty queue could be filled with other start points, it is exhausted only after that
+			topCost = queue.isEmpty() ? 0 : queue.peekCost();
+		}
+
+		private void searchDirection() throws InterruptedException {
+			RoutingContext ctx = search.ctx;
+			while (!search.isFinished()) {
+				if (queue.isEmpty()) {
+					if (!checkIfGraphIsEmpty(ctx, true, reverseWaySearch, queue, point, visited, reverseWaySearch
+							? "Route is not found to selected target point." : "Route is not found from selected start point.")) {
+						// direction is exhausted, so opposite can't meet it anymore
+						topCost = Float.POSITIVE_INFINITY;
+						break;
+					}
+					updateTopCost();
+					continue;
+				}
+				RouteSegment segment = queue.poll();
+				polledSegments++;
+				int visitedCnt = visited.size() + opposite.visited.size();
+				visited.memoryOverhead = visited.size() * STANDARD_ROAD_VISITED_OVERHEAD
+						+ queue.size() * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+				if (ctx.config.MAX_VISITED > 0 && visitedCnt > ctx.config.MAX_VISITED) {
+					search.stopped = true;
+					break;
+				}
+				if (visited.getSearchMemoryOverhead() > ctx.config.memoryLimitation * 0.9) {
+					throw new IllegalStateException(
+							String.format("There is not enough memory %.5f, %.5f -> %.5f, %.5f - limit  %d  MB",
+									MapUtils.get31LatitudeY(ctx.startY), MapUtils.get31LongitudeX(ctx.startX),
+									MapUtils.get31LatitudeY(ctx.targetY), MapUtils.get31LongitudeX(ctx.targetX),
+									ctx.config.memoryLimitation / (1 << 20)));
+				}
+				if (segment instanceof FinalRouteSegment) {
+					// already offered when it was found
+					if (TRACE_ROUTING) {
+						println(" >>FINAL segment: " + segment);
+					}
+				} else if (!visited.containsKey(calculateRoutePointId(segment))) {
+					processRouteSegment(ctx, reverseWaySearch, queue, visited, segment, opposite.visited,
+							search.boundaries, false);
+					for (; offeredFinalSegments < visited.finalSegments.size(); offeredFinalSegments++) {
+						FinalRouteSegment fs = visited.finalSegments.get(offeredFinalSegments);
+						search.offerFinalSegment(fs, cost(fs.distanceFromStart, fs.distanceToEnd, ctx));
+					}
+				}
+				updateTopCost();
+				if (ctx.calculationProgress != null) {
+					// progress is updated by both directions
+					synchronized (ctx.calculationProgress) {
+						updateCalculationProgress(ctx, queue, reverseWaySearch);
+					}
+					if (ctx.calculationProgress.isCancelled) {
+						throw new InterruptedException("Route calculation interrupted");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Visited segments of one direction of parallel search. Maps of both directions use one lock, so check of
+	 * opposite direction and insert of visited segment is one step. Counters are per direction and merged after search.
+	 */
+	private static class SynchronizedVisitedSegments extends TLongObjectHashMap<RouteSegment> {
+		private final Object lock;
+		private SynchronizedVisitedSegments opposite;
+		private volatile int memoryOverhead;
+		private final List<FinalRouteSegment> finalSegments = new ArrayList<FinalRouteSegment>();
+		private int alertSlowerSegmentedWasVisitedEarlier;
+		private int alertFasterRoadToVisitedSegments;
+
+		SynchronizedVisitedSegments(Object lock) {
+			this.lock = lock;
+		}
+
+		int getSearchMemoryOverhead() {
+			return memoryOverhead + opposite.memoryOverhead;
+		}
+
+		@Override
+		public RouteSegment put(long key, RouteSegment value) {
+			synchronized (lock) {
+				return super.put(key, value);
+			}
+		}
+
+		@Override
+		public RouteSegment get(long key) {
+			synchronized (lock) {
+				return super.get(key);
+			}
+		}
+
+		@Override
+		public boolean containsKey(long key) {
+			synchronized (lock) {
+				return super.containsKey(key);
+			}
+		}
+
+		@Override
+		public RouteSegment remove(long key) {
+			synchronized (lock) {
+				return super.remove(key);
+			}
+		}
+
+		@Override
+		public int size() {
+			synchronized (lock) {
+				return super.size();
+			}
+		}
+
+		@Override
+		public boolean isEmpty() {
+			synchronized (lock) {
+				return super.isEmpty();
+			}
+		}
+	}
+
 	protected boolean checkIfGraphIsEmpty(final RoutingContext ctx, boolean allowDirection,
-			boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
+			boolean reverseWaySearch, RouteSegmentQueue graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
 			String msg) {
 		if (allowDirection && graphSegments.isEmpty()) {
 			if (pnt.others != null) {
@@ -263,7 +630,7 @@ public class BinaryRoutePlanner {
 						pos.setParentRoute(null);
 						pos.distanceFromStart = 0;
 						pos.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(pos, ctx));
+						addToQueue(ctx, graphSegments, pos);
 					}
 					RouteSegment neg = next.initRouteSegment(false);
 					if (neg != null && !visited.containsKey(calculateRoutePointId(neg)) && 
@@ -271,7 +638,7 @@ public class BinaryRoutePlanner {
 						neg.setParentRoute(null);
 						neg.distanceFromStart = 0;
 						neg.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(neg, ctx));
+						addToQueue(ctx, graphSegments, neg);
 					}
 					if (!graphSegments.isEmpty()) {
 						println("Reiterate point with new " + (!reverseWaySearch ? "start " : "destination ")
@@ -287,7 +654,7 @@ public class BinaryRoutePlanner {
 		return false;
 	}
 
-	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, PriorityQueue<RouteSegmentCost> graphSegments, boolean reverseSearchWay) {
+	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, RouteSegmentQueue graphSegments, boolean reverseSearchWay) {
 		if (pnt == null) {
 			return null;
 		}
@@ -331,7 +698,7 @@ public class BinaryRoutePlanner {
 		}
 		if (checkMovementAllowed(ctx, reverseSearchWay, seg)) {
 			seg.distanceToEnd = estimatedDistance(seg, reverseSearchWay, ctx);
-			graphSegments.add(new RouteSegmentCost(seg, ctx));
+			addToQueue(ctx, graphSegments, seg);
 			return seg;
 		}
 		return null;
@@ -348,7 +715,7 @@ public class BinaryRoutePlanner {
 	
 
 	private void initQueuesWithStartEnd(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
-			PriorityQueue<RouteSegmentCost> graphDirectSegments, PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+			RouteSegmentQueue graphDirectSegments, RouteSegmentQueue graphReverseSegments) {
 		if (ctx.precalculatedRouteDirection != null) {
 			ctx.precalculatedRouteDirection.updatePreciseStartEnd(
 					(start != null) ? start.preciseX : 0, (start != null) ? start.preciseY : 0,
@@ -383,22 +750,31 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private void updateCalculationProgress(final RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphDirectSegments,
-			PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+	private void updateCalculationProgress(final RoutingContext ctx, RouteSegmentQueue graphDirectSegments,
+			RouteSegmentQueue graphReverseSegments) {
+		updateCalculationProgress(ctx, graphDirectSegments, false);
+		updateCalculationProgress(ctx, graphReverseSegments, true);
+	}
+
+	private void updateCalculationProgress(final RoutingContext ctx, RouteSegmentQueue graphSegments,
+			boolean reverseWaySearch) {
 		if (ctx.calculationProgress != null) {
-			ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
-			ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
-			if (!graphDirectSegments.isEmpty() && ctx.getPlanRoadDirection() >= 0) {
-				RouteSegment peek = graphDirectSegments.peek().segment;
-				ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart,
-						ctx.calculationProgress.distanceFromBegin);
-				ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
-			}
-			if (!graphReverseSegments.isEmpty() && ctx.getPlanRoadDirection() <= 0) {
-				RouteSegment peek = graphReverseSegments.peek().segment;
-				ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
+			if (!reverseWaySearch) {
+				ctx.calculationProgress.directSegmentQueueSize = graphSegments.size();
+				if (!graphSegments.isEmpty() && ctx.getPlanRoadDirection() >= 0) {
+					RouteSegment peek = graphSegments.peek();
+					ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart,
+							ctx.calculationProgress.distanceFromBegin);
+					ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
+				}
+			} else {
+				ctx.calculationProgress.reverseSegmentQueueSize = graphSegments.size();
+				if (!graphSegments.isEmpty() && ctx.getPlanRoadDirection() <= 0) {
+					RouteSegment peek = graphSegments.peek();
+					ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
 							ctx.calculationProgress.distanceFromEnd);
-				ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
+					ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
+				}
 			}
 		}
 	}
@@ -489,7 +865,7 @@ public class BinaryRoutePlanner {
 	}
 
 	private void processRouteSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
+			RouteSegmentQueue graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
 			RouteSegment startSegment, TLongObjectMap<RouteSegment> oppositeSegments,
 			TLongObjectMap<RouteSegment> boundaries, boolean doNotAddIntersections) {
 		if (ASSERT_CHECKS && !checkMovementAllowed(ctx, reverseWaySearch, startSegment)) {
@@ -516,37 +892,43 @@ public class BinaryRoutePlanner {
 			// calculate new start segment time as we're going to assign to put to visited segments
 			float distFromStartPlusSegmentTime = currentSegment.distanceFromStart + segmentAndObstaclesTime;
 			
-			// 2. check if segment was already visited in opposite direction
-			// We check before we calculate segmentTime (to not calculate it twice with opposite and calculate turns
-			// onto each segment).
-			boolean bothDirVisited = checkIfOppositeSegmentWasVisited(ctx, reverseWaySearch, graphSegments,
-					currentSegment, oppositeSegments, boundaries);
- 			
-			// 3. upload segment itself to visited segments
+			boolean bothDirVisited;
 			long nextPntId = calculateRoutePointId(currentSegment);
-			RouteSegment existingSegment = visitedSegments.put(nextPntId, currentSegment);
-			if (existingSegment != null) {
-				if (distFromStartPlusSegmentTime > existingSegment.distanceFromStart) {
-					// insert back original segment (test case with large area way)
-					visitedSegments.put(nextPntId, existingSegment);
-					if (TRACE_ROUTING) {
-						println("  " + currentSegment.segEnd + ">> Already visited");
-					}
-					break;
-				} else {
-					if (ctx.config.heuristicCoefficient <= 1) {
-						if (RoutingContext.PRINT_ROUTING_ALERTS) {
-							System.err.println("! ALERT slower segment was visited earlier " + distFromStartPlusSegmentTime + " > "
-								+ existingSegment.distanceFromStart + ": " + currentSegment + " - " + existingSegment);
-						} else {
-							ctx.alertSlowerSegmentedWasVisitedEarlier++;
+			// opposite search could visit segments from parallel thread, so check and upload is one step
+			synchronized (getVisitedLock(visitedSegments)) {
+				// 2. check if segment was already visited in opposite direction
+				// We check before we calculate segmentTime (to not calculate it twice with opposite and calculate turns
+				// onto each segment).
+				bothDirVisited = checkIfOppositeSegmentWasVisited(ctx, reverseWaySearch, graphSegments,
+						currentSegment, visitedSegments, oppositeSegments, boundaries);
+
+				// 3. upload segment itself to visited segments
+				RouteSegment existingSegment = visitedSegments.put(nextPntId, currentSegment);
+				if (existingSegment != null) {
+					if (distFromStartPlusSegmentTime > existingSegment.distanceFromStart) {
+						// insert back original segment (test case with large area way)
+						visitedSegments.put(nextPntId, existingSegment);
+						if (TRACE_ROUTING) {
+							println("  " + currentSegment.segEnd + ">> Already visited");
+						}
+						break;
+					} else {
+						if (ctx.config.heuristicCoefficient <= 1) {
+							if (RoutingContext.PRINT_ROUTING_ALERTS) {
+								System.err.println("! ALERT slower segment was visited earlier " + distFromStartPlusSegmentTime + " > "
+									+ existingSegment.distanceFromStart + ": " + currentSegment + " - " + existingSegment);
+							} else if (visitedSegments instanceof SynchronizedVisitedSegments) {
+								((SynchronizedVisitedSegments) visitedSegments).alertSlowerSegmentedWasVisitedEarlier++;
+							} else {
+								ctx.alertSlowerSegmentedWasVisitedEarlier++;
+							}
 						}
 					}
 				}
-			}
 						
-			// reassign @distanceFromStart to make it correct for visited segment
-			currentSegment.distanceFromStart = distFromStartPlusSegmentTime;
+				// reassign @distanceFromStart to make it correct for visited segment
+				currentSegment.distanceFromStart = distFromStartPlusSegmentTime;
+			}
 			
 			if (bothDirVisited) {
  				// We stop here for shortcut creation (we can't improve the neighbors if they're already visited cause the opposite is min - prove by contradiction) 
@@ -563,7 +945,7 @@ public class BinaryRoutePlanner {
 			// a) final segment is always in queue & double checked b) using osm segment almost always is shorter routing than other connected
 			if (DEBUG_BREAK_EACH_SEGMENT && nextCurrentSegment != null) {
 				if (!doNotAddIntersections) {
-					graphSegments.add(new RouteSegmentCost(nextCurrentSegment, ctx));
+					addToQueue(ctx, graphSegments, nextCurrentSegment);
 				}
 				break;
 			}
@@ -633,7 +1015,7 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfOppositeSegmentWasVisited(RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, RouteSegment currentSegment,
+			RouteSegmentQueue graphSegments, RouteSegment currentSegment, TLongObjectMap<RouteSegment> visitedSegments,
 			TLongObjectMap<RouteSegment> oppositeSegments, TLongObjectMap<RouteSegment> boundaries) {
 		// check inverse direction for opposite
 		long currPoint = calculateRoutePointInternalId(currentSegment.getRoad(), 
@@ -661,11 +1043,13 @@ public class BinaryRoutePlanner {
 					// impossible route (when start/point on same segment but different dir) don't add to queue
 					return true;
 				}
-				graphSegments.add(new RouteSegmentCost(frs, ctx));
+				addToQueue(ctx, graphSegments, frs);
 				if (TRACE_ROUTING) {
 					printRoad("  " + currentSegment.segEnd + ">> Final segment : ", frs, reverseWaySearch);
 				}
-				if (ctx.calculationProgress != null) {
+				if (visitedSegments instanceof SynchronizedVisitedSegments) {
+					((SynchronizedVisitedSegments) visitedSegments).finalSegments.add(frs);
+				} else if (ctx.calculationProgress != null) {
 					ctx.calculationProgress.finalSegmentsFound++;
 				}
 				return true;
@@ -678,7 +1062,14 @@ public class BinaryRoutePlanner {
 		return false;
 	}
 
-	private long calculateRoutePointInternalId(final RouteDataObject road, int pntId, int nextPntId) {
+	private static Object getVisitedLock(TLongObjectMap<RouteSegment> visitedSegments) {
+		if (visitedSegments instanceof SynchronizedVisitedSegments) {
+			return ((SynchronizedVisitedSegments) visitedSegments).lock;
+		}
+		return visitedSegments;
+	}
+
+	private static long calculateRoutePointInternalId(final RouteDataObject road, int pntId, int nextPntId) {
 		int positive = nextPntId - pntId;
 		int pntLen = road.getPointsLength();
 		if (pntId < 0 || nextPntId < 0 || pntId >= pntLen || nextPntId >= pntLen || (positive != -1 && positive != 1)) {
@@ -688,7 +1079,7 @@ public class BinaryRoutePlanner {
 		return (road.getId() << ROUTE_POINTS) + (pntId << 1) + (positive > 0 ? 1 : 0);
 	}
 	
-	private long calculateRoutePointId(RouteSegment segm) {
+	static long calculateRoutePointId(RouteSegment segm) {
 		return calculateRoutePointInternalId(segm.getRoad(), segm.getSegmentStart(), 
 				segm.isPositive() ? segm.getSegmentStart() + 1 : segm.getSegmentStart() - 1);
 		// return calculateRoutePointInternalId(segm.getRoad(), segm.getSegmentStart(), segm.getSegmentEnd()); 
@@ -705,8 +1096,8 @@ public class BinaryRoutePlanner {
 				(parent == null || parent.getRoad().getRestrictionLength() == 0)) {
 			return false;
 		}
-		ctx.segmentsToVisitPrescripted.clear();
-		ctx.segmentsToVisitNotForbidden.clear();
+		getSegmentsToVisitPrescripted(ctx, reverseWay).clear();
+		getSegmentsToVisitNotForbidden(ctx, reverseWay).clear();
 		processRestriction(ctx, inputNext, reverseWay, 0, road);
 		if (parent != null) {
 			processRestriction(ctx, inputNext, reverseWay, road.id, parent.getRoad());
@@ -718,6 +1109,8 @@ public class BinaryRoutePlanner {
 	protected void processRestriction(RoutingContext ctx, RouteSegment inputNext, boolean reverseWay, long viaId,
 			RouteDataObject road) {
 		boolean via = viaId != 0;
+		List<RouteSegment> segmentsToVisitPrescripted = getSegmentsToVisitPrescripted(ctx, reverseWay);
+		List<RouteSegment> segmentsToVisitNotForbidden = getSegmentsToVisitNotForbidden(ctx, reverseWay);
 		RouteSegment next = inputNext;
 		boolean exclusiveRestriction = false;
 		while (next != null) {
@@ -779,11 +1172,11 @@ public class BinaryRoutePlanner {
 					|| type == MapRenderingTypes.RESTRICTION_NO_STRAIGHT_ON || type == MapRenderingTypes.RESTRICTION_NO_U_TURN) {
 				// next = next.next; continue;
 				if (via) {
-					ctx.segmentsToVisitPrescripted.remove(next);
+					segmentsToVisitPrescripted.remove(next);
 				}
 			} else if (type == -1) {
 				// case no restriction
-				ctx.segmentsToVisitNotForbidden.add(next);
+				segmentsToVisitNotForbidden.add(next);
 			} else {
 				if (!via) {
 					// case exclusive restriction (only_right, only_straight, ...)
@@ -792,21 +1185,29 @@ public class BinaryRoutePlanner {
 					// 2. in case we are going forward we have one "in" and many "out"
 					if (!reverseWay) {
 						exclusiveRestriction = true;
-						ctx.segmentsToVisitNotForbidden.clear();
-						ctx.segmentsToVisitPrescripted.add(next);
+						segmentsToVisitNotForbidden.clear();
+						segmentsToVisitPrescripted.add(next);
 					} else {
-						ctx.segmentsToVisitNotForbidden.add(next);
+						segmentsToVisitNotForbidden.add(next);
 					}
 				}
 			}
 			next = next.next;
 		}
 		if (!via) {
-			ctx.segmentsToVisitPrescripted.addAll(ctx.segmentsToVisitNotForbidden);
+			segmentsToVisitPrescripted.addAll(segmentsToVisitNotForbidden);
 		}
 	}
 
-	private RouteSegment processIntersections(RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphSegments,
+	private static List<RouteSegment> getSegmentsToVisitPrescripted(RoutingContext ctx, boolean reverseWay) {
+		return reverseWay ? ctx.reverseSegmentsToVisitPrescripted : ctx.segmentsToVisitPrescripted;
+	}
+
+	private static List<RouteSegment> getSegmentsToVisitNotForbidden(RoutingContext ctx, boolean reverseWay) {
+		return reverseWay ? ctx.reverseSegmentsToVisitNotForbidden : ctx.segmentsToVisitNotForbidden;
+	}
+
+	private RouteSegment processIntersections(RoutingContext ctx, RouteSegmentQueue graphSegments,
 			TLongObjectMap<RouteSegment> visitedSegments,  RouteSegment currentSegment,
 			boolean reverseWaySearch, boolean doNotAddIntersections) {
 		RouteSegment nextCurrentSegment = null;
@@ -818,7 +1219,14 @@ public class BinaryRoutePlanner {
 		// reassign @distanceToEnd to make it correct for visited segment
 		currentSegment.distanceToEnd = distanceToEnd; 
 		
-		final RouteSegment connectedNextSegment = ctx.loadRouteSegment(x, y, ctx.config.memoryLimitation - ctx.memoryOverhead, reverseWaySearch);
+		final RouteSegment connectedNextSegment;
+		// tiles are loaded by one thread in parallel search, loaded segments of each direction are separate objects
+		int memoryOverhead = visitedSegments instanceof SynchronizedVisitedSegments
+				? ((SynchronizedVisitedSegments) visitedSegments).getSearchMemoryOverhead() : ctx.memoryOverhead;
+		synchronized (ctx) {
+			connectedNextSegment = ctx.loadRouteSegment(x, y, ctx.config.memoryLimitation - memoryOverhead,
+					reverseWaySearch);
+		}
 		RouteSegment roadIter = connectedNextSegment;
 		boolean directionAllowed = true;
 		boolean singleRoad = true;
@@ -861,7 +1269,7 @@ public class BinaryRoutePlanner {
 		Iterator<RouteSegment> nextIterator = null;
 		boolean thereAreRestrictions = proccessRestrictions(ctx, currentSegment, connectedNextSegment, reverseWaySearch);
 		if (thereAreRestrictions) {
-			nextIterator = ctx.segmentsToVisitPrescripted.iterator();
+			nextIterator = getSegmentsToVisitPrescripted(ctx, reverseWaySearch).iterator();
 			if (TRACE_ROUTING) {
 				println("  " + currentSegment.segEnd + ">> There are restrictions ");
 			}
@@ -913,7 +1321,7 @@ public class BinaryRoutePlanner {
 		return nextCurrentSegment;
 	}
 
-	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments,
+	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, RouteSegmentQueue graphSegments,
 			TLongObjectMap<RouteSegment> visitedSegments, RouteSegment segment, RouteSegment next) {
 		if (next != null) {
 			if (!checkMovementAllowed(ctx, reverseWaySearch, next)) {
@@ -956,6 +1364,8 @@ public class BinaryRoutePlanner {
 							if (RoutingContext.PRINT_ROUTING_ALERTS) {
 								System.err.println("! ALERT new faster path to a visited segment: "
 										+ (distFromStart + routeSegmentTime) + " < " + visIt.distanceFromStart + ": " + next + " - " + visIt);
+							} else if (visitedSegments instanceof SynchronizedVisitedSegments) {
+								((SynchronizedVisitedSegments) visitedSegments).alertFasterRoadToVisitedSegments++;
 							} else {
 								ctx.alertFasterRoadToVisitedSegments++;
 							}
@@ -978,7 +1388,7 @@ public class BinaryRoutePlanner {
 				// put additional information to recover whole route after
 				next.setParentRoute(segment);
 				if (graphSegments != null) {
-					graphSegments.add(new RouteSegmentCost(next, ctx));
+					addToQueue(ctx, graphSegments, next);
 				}
 				return true;
 			}
@@ -0,0 +1,357 @@
+package net.osmand.router;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+
+import org.apache.commons.logging.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Process wide read only cache of route data for selected areas (java routing only).
+ * Route blocks (RouteSubregion with data) intersecting areas are decoded once and stored in direct buffers
+ * as struct of arrays (ids, x31/y31 points, types, names, point types and restrictions),
+ * strings are kept once in shared table. RoutingContext (see {@link RoutingContext#compactGraph}) creates
+ * RouteDataObject for loaded tile from buffers instead of decoding obf data again.
+ * Created objects own their arrays, so routing could modify them (conditional tags, attached points).
+ * Could be used by many RoutingContext from different threads after areas were added.
+ */
+public class CompactRouteGraph {
+
+	private static final Log log = PlatformUtil.getLog(CompactRouteGraph.class);
+	private static final int NULL_ARRAY = -1;
+
+	// absolute file path -> blocks of file by block file pointer
+	private final Map<String, FileBlocks> blocks = new ConcurrentHashMap<>();
+	private final List<String> strings = new ArrayList<>();
+	private final Map<String, Integer> stringIds = new HashMap<>();
+	private volatile String[] stringTable = new String[0];
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private long memorySize;
+
+	/**
+	 * Decodes and stores all route blocks of the reader (detailed routing) intersecting area
+	 */
+	public synchronized void addArea(BinaryMapIndexReader reader, int left31, int top31, int right31, int bottom31)
+			throws IOException {
+		long now = System.currentTimeMillis();
+		String fileName = reader.getFile().getName();
+		FileBlocks fileBlocks = getFileBlocks(reader);
+		if (fileBlocks == null) {
+			// file was replaced
+			removeFile(reader.getFile().getAbsolutePath());
+		}
+		TLongObjectHashMap<RouteBlock> newBlocks = fileBlocks == null ? new TLongObjectHashMap<RouteBlock>()
+				: new TLongObjectHashMap<RouteBlock>(fileBlocks.blocks);
+		SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(left31, right31, top31,
+				bottom31, null);
+		int added = 0;
+		for (RouteRegion reg : reader.getRoutingIndexes()) {
+			List<RouteSubregion> subregions = new ArrayList<>();
+			for (RouteSubregion rs : reg.getSubregions()) {
+				subregions.add(new RouteSubregion(rs));
+			}
+			for (RouteSubregion rs : reader.searchRouteIndexTree(req, subregions)) {
+				if (!newBlocks.containsKey(rs.filePointer)) {
+					newBlocks.put(rs.filePointer, encode(reader.loadRouteIndexData(rs)));
+					added++;
+				}
+			}
+		}
+		stringTable = strings.toArray(new String[0]);
+		blocks.put(reader.getFile().getAbsolutePath(), new FileBlocks(reader.getDateCreated(), newBlocks));
+		log.info(String.format("Compact route graph: %d blocks added from %s in %d ms, total size %.2f MB", added,
+				fileName, System.currentTimeMillis() - now, memorySize / (float) (1 << 20)));
+	}
+
+	/**
+	 * @return objects of route block or null if block is not cached
+	 */
+	public List<RouteDataObject> loadRouteIndexData(BinaryMapIndexReader reader, RouteSubregion rs) {
+		FileBlocks fileBlocks = getFileBlocks(reader);
+		RouteBlock block = fileBlocks == null ? null : fileBlocks.blocks.get(rs.filePointer);
+		if (block == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return block.decode(rs.routeReg, stringTable);
+	}
+
+	// blocks of the same file version (same path and creation date)
+	private FileBlocks getFileBlocks(BinaryMapIndexReader reader) {
+		FileBlocks fileBlocks = blocks.get(reader.getFile().getAbsolutePath());
+		if (fileBlocks == null || fileBlocks.dateCreated != reader.getDateCreated()) {
+			return null;
+		}
+		return fileBlocks;
+	}
+
+	private void removeFile(String path) {
+		FileBlocks old = blocks.remove(path);
+		if (old != null) {
+			for (RouteBlock b : old.blocks.valueCollection()) {
+				memorySize -= b.getMemorySize();
+			}
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public synchronized long getMemorySize() {
+		return memorySize;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Compact route graph %.2f MB: hits %d, misses %d", getMemorySize() / (float) (1 << 20),
+				hits.get(), misses.get());
+	}
+
+	private int stringId(String s) {
+		Integer id = stringIds.get(s);
+		if (id == null) {
+			id = strings.size();
+			strings.add(s);
+			stringIds.put(s, id);
+		}
+		return id;
+	}
+
+	private RouteBlock encode(List<RouteDataObject> objects) {
+		TLongArrayList ids = new TLongArrayList();
+		TIntArrayList offsets = new TIntArrayList();
+		TIntArrayList data = new TIntArrayList();
+		TLongArrayList longs = new TLongArrayList();
+		for (RouteDataObject o : objects) {
+			if (o == null) {
+				continue;
+			}
+			ids.add(o.id);
+			offsets.add(data.size());
+			int len = o.pointsX.length;
+			data.add(len);
+			for (int i = 0; i < len; i++) {
+				data.add(o.pointsX[i]);
+				data.add(o.pointsY[i]);
+			}
+			addArray(data, o.types);
+			if (o.nameIds == null) {
+				data.add(NULL_ARRAY);
+			} else {
+				data.add(o.nameIds.length);
+				for (int tag : o.nameIds) {
+					data.add(tag);
+					String name = o.names == null ? null : o.names.get(tag);
+					data.add(name == null ? NULL_ARRAY : stringId(name));
+				}
+			}
+			if (o.pointTypes == null) {
+				data.add(NULL_ARRAY);
+			} else {
+				data.add(o.pointTypes.length);
+				for (int[] pt : o.pointTypes) {
+					addArray(data, pt);
+				}
+			}
+			if (o.pointNames == null) {
+				data.add(NULL_ARRAY);
+			} else {
+				data.add(o.pointNames.length);
+				for (int k = 0; k < o.pointNames.length; k++) {
+					String[] pn = o.pointNames[k];
+					if (pn == null) {
+						data.add(NULL_ARRAY);
+					} else {
+						data.add(pn.length);
+						for (int j = 0; j < pn.length; j++) {
+							data.add(o.pointNameTypes[k][j]);
+							data.add(stringId(pn[j]));
+						}
+					}
+				}
+			}
+			data.add(longs.size());
+			addLongs(longs, o.restrictions);
+			addLongs(longs, o.restrictionsVia);
+		}
+		offsets.add(data.size());
+		RouteBlock block = new RouteBlock(ids, offsets, data, longs);
+		memorySize += block.getMemorySize();
+		return block;
+	}
+
+	private static void addArray(TIntArrayList data, int[] arr) {
+		if (arr == null) {
+			data.add(NULL_ARRAY);
+		} else {
+			data.add(arr.length);
+			data.add(arr);
+		}
+	}
+
+	private static void addLongs(TLongArrayList longs, long[] arr) {
+		if (arr == null) {
+			longs.add(NULL_ARRAY);
+		} else {
+			longs.add(arr.length);
+			longs.add(arr);
+		}
+	}
+
+	private static class FileBlocks {
+		final long dateCreated;
+		final TLongObjectHashMap<RouteBlock> blocks;
+
+		FileBlocks(long dateCreated, TLongObjectHashMap<RouteBlock> blocks) {
+			this.dateCreated = dateCreated;
+			this.blocks = blocks;
+		}
+	}
+
+	private static class RouteBlock {
+		private final LongBuffer ids;
+		private final IntBuffer offsets;
+		private final IntBuffer data;
+		private final LongBuffer longs;
+
+		RouteBlock(TLongArrayList ids, TIntArrayList offsets, TIntArrayList data, TLongArrayList longs) {
+			this.ids = allocateLongs(ids);
+			this.offsets = allocateInts(offsets);
+			this.data = allocateInts(data);
+			this.longs = allocateLongs(longs);
+		}
+
+		long getMemorySize() {
+			return 8L * (ids.capacity() + longs.capacity()) + 4L * (offsets.capacity() + data.capacity());
+		}
+
+		// only absolute get is used, so buffers are safe to read from many threads
+		List<RouteDataObject> decode(RouteRegion reg, String[] stringTable) {
+			int size = ids.limit();
+			List<RouteDataObject> res = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				RouteDataObject o = new RouteDataObject(reg);
+				o.id = ids.get(i);
+				int p = offsets.get(i);
+				int len = data.get(p++);
+				o.pointsX = new int[len];
+				o.pointsY = new int[len];
+				for (int k = 0; k < len; k++) {
+					o.pointsX[k] = data.get(p++);
+					o.pointsY[k] = data.get(p++);
+				}
+				len = data.get(p++);
+				o.types = readInts(p, len);
+				p += Math.max(len, 0);
+				len = data.get(p++);
+				if (len != NULL_ARRAY) {
+					o.nameIds = new int[len];
+					o.names = new TIntObjectHashMap<String>();
+					for (int k = 0; k < len; k++) {
+						o.nameIds[k] = data.get(p++);
+						int sid = data.get(p++);
+						if (sid != NULL_ARRAY) {
+							o.names.put(o.nameIds[k], stringTable[sid]);
+						}
+					}
+				}
+				len = data.get(p++);
+				if (len != NULL_ARRAY) {
+					o.pointTypes = new int[len][];
+					for (int k = 0; k < len; k++) {
+						int l = data.get(p++);
+						o.pointTypes[k] = readInts(p, l);
+						p += Math.max(l, 0);
+					}
+				}
+				len = data.get(p++);
+				if (len != NULL_ARRAY) {
+					o.pointNames = new String[len][];
+					o.pointNameTypes = new int[len][];
+					for (int k = 0; k < len; k++) {
+						int l = data.get(p++);
+						if (l != NULL_ARRAY) {
+							o.pointNames[k] = new String[l];
+							o.pointNameTypes[k] = new int[l];
+							for (int j = 0; j < l; j++) {
+								o.pointNameTypes[k][j] = data.get(p++);
+								o.pointNames[k][j] = stringTable[data.get(p++)];
+							}
+						}
+					}
+				}
+				int lp = data.get(p);
+				len = (int) longs.get(lp++);
+				o.restrictions = readLongs(lp, len);
+				lp += Math.max(len, 0);
+				len = (int) longs.get(lp++);
+				o.restrictionsVia = readLongs(lp, len);
+				res.add(o);
+			}
+			return res;
+		}
+
+		private int[] readInts(int p, int len) {
+			if (len == NULL_ARRAY) {
+				return null;
+			}
+			int[] r = new int[len];
+			for (int k = 0; k < len; k++) {
+				r[k] = data.get(p + k);
+			}
+			return r;
+		}
+
+		private long[] readLongs(int p, int len) {
+			if (len == NULL_ARRAY) {
+				return null;
+			}
+			long[] r = new long[len];
+			for (int k = 0; k < len; k++) {
+				r[k] = longs.get(p + k);
+			}
+			return r;
+		}
+
+		private static IntBuffer allocateInts(TIntArrayList list) {
+			IntBuffer b = ByteBuffer.allocateDirect(Math.max(list.size(), 1) * 4).order(ByteOrder.nativeOrder())
+					.asIntBuffer();
+			b.put(list.toArray());
+			return (IntBuffer) b.flip();
+		}
+
+		private static LongBuffer allocateLongs(TLongArrayList list) {
+			LongBuffer b = ByteBuffer.allocateDirect(Math.max(list.size(), 1) * 8).order(ByteOrder.nativeOrder())
+					.asLongBuffer();
+			b.put(list.toArray());
+			return (LongBuffer) b.flip();
+		}
+	}
+}
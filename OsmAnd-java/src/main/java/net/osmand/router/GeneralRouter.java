@@ -93,6 +93,11 @@ public class GeneralRouter implements VehicleRouter {
 	private GeneralRouterProfile profile;
 	
 	Map<RouteRegion, Map<IntHolder, Float>>[] evalCache;
+	// compiled evaluation: attribute -> region index -> value by types combination id * 2 + extra (NaN - not evaluated)
+	private boolean compiledEvaluation;
+	private volatile float[][][] compiledCache;
+	// kept copy with compiled evaluation, so its cache is reused by next searches
+	private volatile GeneralRouter compiledCopy;
 
 	public String[] hhNativeFilter = new String[0]; // getFilteredTags() as flat Array (JNI)
 	public String[] hhNativeParameterValues = new String[0]; // parameterValues as flat Array (JNI)
@@ -165,6 +170,7 @@ public class GeneralRouter implements VehicleRouter {
 		ruleToValue = parent.ruleToValue;
 		parameters = parent.parameters;
 		profileName = parent.profileName;
+		compiledEvaluation = copy.compiledEvaluation;
 		
 		objectAttributes = new RouteAttributeContext[RouteDataObjectAttribute.values().length];
 		for (int i = 0; i < objectAttributes.length; i++) {
@@ -229,6 +235,82 @@ public class GeneralRouter implements VehicleRouter {
 		for (int i = 0; i < l; i++) {
 			evalCache[i] = new HashMap<>();
 		}
+		compiledCache = new float[l][0][];
+	}
+
+	public boolean isCompiledEvaluation() {
+		return compiledEvaluation;
+	}
+
+	/**
+	 * Compiled evaluation keeps evaluated values in primitive tables per region indexed by types combination id
+	 * interned on RouteDataObject, so cached lookups don't lock and don't allocate and
+	 * router could be shared by many routing threads.
+	 */
+	public void setCompiledEvaluation(boolean compiledEvaluation) {
+		this.compiledEvaluation = compiledEvaluation;
+	}
+
+	/**
+	 * Copy of this router with own caches and compiled evaluation, so this router (possibly shared by other
+	 * routing contexts) is not changed.
+	 */
+	public GeneralRouter copyWithCompiledEvaluation() {
+		GeneralRouter r = new GeneralRouter(this, new LinkedHashMap<String, String>(parameterValues));
+		r.attributes.putAll(attributes);
+		r.filename = filename;
+		r.profileName = profileName;
+		r.hhNativeFilter = hhNativeFilter;
+		if (impassableRoads != null) {
+			r.impassableRoads = new TLongHashSet(impassableRoads);
+		}
+		r.compiledEvaluation = true;
+		return r;
+	}
+
+	/**
+	 * Same as {@link #copyWithCompiledEvaluation()} but the copy is kept and returned to next calls, so values
+	 * cached by previous searches are reused. Copy is dropped when impassable roads are changed or caches are cleared.
+	 */
+	public GeneralRouter getCompiledEvaluationCopy() {
+		GeneralRouter r = compiledCopy;
+		if (r == null) {
+			synchronized (this) {
+				r = compiledCopy;
+				if (r == null) {
+					r = copyWithCompiledEvaluation();
+					compiledCopy = r;
+				}
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Compiled evaluation: evaluates cached attributes of road and its points once per types combination while road
+	 * is loaded, so routing threads read filled tables and don't evaluate rules (synchronized) during search.
+	 */
+	public void compileRoad(RouteDataObject road) {
+		if (!compiledEvaluation) {
+			return;
+		}
+		if (road.getTypesCombinationId() >= 0 && Float.isNaN(getCache(RouteDataObjectAttribute.ONEWAY, road))) {
+			isOneWay(road);
+			getPenaltyTransition(road);
+			defineDestinationPriority(road);
+			defineRoutingSpeed(road, true);
+			defineRoutingSpeed(road, false);
+			defineSpeedPriority(road, true);
+			defineSpeedPriority(road, false);
+		}
+		for (int i = 0; road.pointTypes != null && i < road.pointTypes.length; i++) {
+			if (road.pointTypes[i] != null) {
+				defineObstacle(road, i, true);
+				defineObstacle(road, i, false);
+				defineRoutingObstacle(road, i, true);
+				defineRoutingObstacle(road, i, false);
+			}
+		}
 	}
 
 	public String getFilename() {
@@ -328,9 +410,9 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public boolean acceptLine(RouteDataObject way) {
-		Float res = getCache(RouteDataObjectAttribute.ACCESS, way);
-		if (res == null) {
-			res = (float) getObjContext(RouteDataObjectAttribute.ACCESS).evaluateInt(way, 0);
+		float res = getCache(RouteDataObjectAttribute.ACCESS, way);
+		if (Float.isNaN(res)) {
+			res = getObjContext(RouteDataObjectAttribute.ACCESS).evaluateInt(way, 0);
 			putCache(RouteDataObjectAttribute.ACCESS, way, res);
 		}
 		if (impassableRoads != null && impassableRoads.contains(way.id >> IMPASSABLE_ROAD_SHIFT)) {
@@ -422,11 +504,11 @@ public class GeneralRouter implements VehicleRouter {
 	public float defineObstacle(RouteDataObject road, int point, boolean dir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, dir);
-			if (obst == null) {
+			float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road, point, dir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, dir);
 				obst = getObjContext(RouteDataObjectAttribute.OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
-				putCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, obst, dir);
+				putCache(RouteDataObjectAttribute.OBSTACLES, road, point, obst, dir);
 			}
 			return obst;
 		}
@@ -437,11 +519,11 @@ public class GeneralRouter implements VehicleRouter {
 	public float defineRoutingObstacle(RouteDataObject road, int point, boolean dir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, dir);
-			if (obst == null) {
+			float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road, point, dir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, dir);
 				obst = getObjContext(RouteDataObjectAttribute.ROUTING_OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
-				putCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, obst, dir);
+				putCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road, point, obst, dir);
 			}
 			return obst;
 		}
@@ -516,12 +598,12 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public int isOneWay(RouteDataObject road) {
-		Float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
-		if(res == null) {
-			res = (float) getObjContext(RouteDataObjectAttribute.ONEWAY).evaluateInt(road, 0);
+		float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
+		if (Float.isNaN(res)) {
+			res = getObjContext(RouteDataObjectAttribute.ONEWAY).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.ONEWAY, road, res);
 		}
-		return res.intValue();
+		return (int) res;
 	}
 	
 	@Override
@@ -531,9 +613,9 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float getPenaltyTransition(RouteDataObject road) {
-		Float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
-		if (vl == null) {
-			vl = (float) getObjContext(RouteDataObjectAttribute.PENALTY_TRANSITION).evaluateInt(road, 0);
+		float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
+		if (Float.isNaN(vl)) {
+			vl = getObjContext(RouteDataObjectAttribute.PENALTY_TRANSITION).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road, vl);
 		}
 		return vl;
@@ -541,8 +623,8 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public float defineRoutingSpeed(RouteDataObject road, boolean dir) {
-		Float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
-		if (definedSpd == null) {
+		float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
+		if (Float.isNaN(definedSpd)) {
 			// not implemented direction usage
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
  			definedSpd = Math.max(Math.min(spd, maxSpeed), minSpeed);
@@ -559,8 +641,8 @@ public class GeneralRouter implements VehicleRouter {
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			return Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
 		}
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
-		if (sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
+		if (Float.isNaN(sp)) {
 			// not implemented direction usage
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			sp = Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
@@ -571,8 +653,8 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float defineSpeedPriority(RouteDataObject road, boolean dir) {
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, dir);
-		if(sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, dir);
+		if (Float.isNaN(sp)) {
 			// not implemented direction usage
 			sp = getObjContext(RouteDataObjectAttribute.ROAD_PRIORITIES).evaluateFloat(road, 1f);
 			putCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, sp, dir);
@@ -582,23 +664,35 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float defineDestinationPriority(RouteDataObject road) {
-		Float sp = getCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road);
-		if(sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road);
+		if (Float.isNaN(sp)) {
 			sp = getObjContext(RouteDataObjectAttribute.DESTINATION_PRIORITIES).evaluateFloat(road, 1f);
 			putCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road, sp, false);
 		}
 		return sp;
 	}
 
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val) {
-		putCache(attr, road.region, road.types, val, false);
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, float val) {
+		putCache(attr, road, val, false);
+	}
+	
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, float val, boolean extra) {
+		if (compiledEvaluation) {
+			putCompiledCache(attr, road.region, road.getTypesCombinationId(), val, extra);
+		} else {
+			putCache(attr, road.region, road.types, val, extra);
+		}
 	}
 	
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val, boolean extra) {
-		putCache(attr, road.region, road.types, val, extra);
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, int point, float val, boolean extra) {
+		if (compiledEvaluation) {
+			putCompiledCache(attr, road.region, road.getPointTypesCombinationId(point), val, extra);
+		} else {
+			putCache(attr, road.region, road.getPointTypes(point), val, extra);
+		}
 	}
 	
-	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, Float val, boolean extra) {
+	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, float val, boolean extra) {
 //		TIMER -= System.nanoTime();
 		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
 		if (USE_CACHE) {
@@ -612,6 +706,38 @@ public class GeneralRouter implements VehicleRouter {
 //		TIMER += System.nanoTime();
 	}
 	
+	// only misses are synchronized. When table grows, new arrays (values, region and attribute tables) are fully
+	// filled first and then published by volatile write, so lock free readers never see partially initialized arrays.
+	// Value of existing slot is written in place: float write is atomic and reader either sees NaN (not cached) or value
+	private synchronized void putCompiledCache(RouteDataObjectAttribute attr, RouteRegion reg, int combinationId,
+			float val, boolean extra) {
+		if (!USE_CACHE || combinationId < 0) {
+			// combinations limit of region is reached
+			return;
+		}
+		float[][][] cache = compiledCache;
+		float[][] byRegion = cache[attr.ordinal()];
+		int regionIndex = reg.getRegionIndex();
+		int ind = (combinationId << 1) + (extra ? 1 : 0);
+		float[] values = regionIndex < byRegion.length ? byRegion[regionIndex] : null;
+		if (values != null && ind < values.length) {
+			values[ind] = val;
+			return;
+		}
+		int len = values == null ? 0 : values.length;
+		float[] nvalues = new float[Math.max(ind + 1, Math.max(len * 2, 64))];
+		if (values != null) {
+			System.arraycopy(values, 0, nvalues, 0, len);
+		}
+		Arrays.fill(nvalues, len, nvalues.length, Float.NaN);
+		nvalues[ind] = val;
+		float[][] nbyRegion = Arrays.copyOf(byRegion, Math.max(byRegion.length, regionIndex + 1));
+		nbyRegion[regionIndex] = nvalues;
+		float[][][] ncache = cache.clone();
+		ncache[attr.ordinal()] = nbyRegion;
+		compiledCache = ncache;
+	}
+	
 	class IntHolder {
 		private final int[] array;
 		private final boolean extra;
@@ -642,21 +768,31 @@ public class GeneralRouter implements VehicleRouter {
 		}
 	}
 
-	private Float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
-		return getCache(attr, road.region, road.types, false);
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
+		return getCache(attr, road, false);
 	}
 	
-	private Float getCache(RouteDataObjectAttribute attr, RouteDataObject road, boolean extra) {
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road, boolean extra) {
+		if (compiledEvaluation) {
+			return getCompiledCache(attr, road.region, road.getTypesCombinationId(), extra);
+		}
 		return getCache(attr, road.region, road.types, extra);
 	}
 	
-	private Float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, boolean extra) {
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road, int point, boolean extra) {
+		if (compiledEvaluation) {
+			return getCompiledCache(attr, road.region, road.getPointTypesCombinationId(point), extra);
+		}
+		return getCache(attr, road.region, road.getPointTypes(point), extra);
+	}
+	
+	private float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, boolean extra) {
 		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
 //		TIMER -= System.nanoTime();
 		if (USE_CACHE) {
 			Map<IntHolder, Float> rM = ch.get(reg);
 			if (rM == null) {
-				return null;
+				return Float.NaN;
 			}
 			Float vl = rM.get(new IntHolder(types, extra));
 			if(vl != null) {
@@ -664,7 +800,23 @@ public class GeneralRouter implements VehicleRouter {
 				return vl;
 			}
 		}
-		return null;
+		return Float.NaN;
+	}
+	
+	private float getCompiledCache(RouteDataObjectAttribute attr, RouteRegion reg, int combinationId, boolean extra) {
+		if (combinationId < 0) {
+			return Float.NaN;
+		}
+		float[][] byRegion = compiledCache[attr.ordinal()];
+		int regionIndex = reg.getRegionIndex();
+		if (regionIndex < byRegion.length) {
+			float[] values = byRegion[regionIndex];
+			int ind = (combinationId << 1) + (extra ? 1 : 0);
+			if (values != null && ind < values.length) {
+				return values[ind];
+			}
+		}
+		return Float.NaN;
 	}
 
 	@Override
@@ -958,22 +1110,25 @@ public class GeneralRouter implements VehicleRouter {
 		}
 		
 		private BitSet convert(RouteRegion reg, int[] types) {
-			BitSet b = new BitSet(universalRules.size());
-			Map<Integer, Integer> map = regionConvert.get(reg);
-			if(map == null){
-				map = new HashMap<Integer, Integer>();
-				regionConvert.put(reg, map);
-			}
-			for(int k = 0; k < types.length; k++) {
-				Integer nid = map.get(types[k]);
-				if (nid == null) {
-					RouteTypeRule r = reg.quickGetEncodingRule(types[k]);
-					nid = registerTagValueAttribute(r.getTag(), r.getValue());
-					map.put(types[k], nid);
+			// universal rules are shared with root router which could be used by many threads
+			synchronized (root) {
+				BitSet b = new BitSet(universalRules.size());
+				Map<Integer, Integer> map = regionConvert.get(reg);
+				if(map == null){
+					map = new HashMap<Integer, Integer>();
+					regionConvert.put(reg, map);
 				}
-				b.set(nid);
+				for(int k = 0; k < types.length; k++) {
+					Integer nid = map.get(types[k]);
+					if (nid == null) {
+						RouteTypeRule r = reg.quickGetEncodingRule(types[k]);
+						nid = registerTagValueAttribute(r.getTag(), r.getValue());
+						map.put(types[k], nid);
+					}
+					b.set(nid);
+				}
+				return b;
 			}
-			return b;
 		}
 	}
 
@@ -1321,6 +1476,12 @@ public class GeneralRouter implements VehicleRouter {
 				evalCache[i].clear();
 			}
 		}
+		if (compiledCache != null) {
+			synchronized (this) {
+				compiledCache = new float[compiledCache.length][0][];
+			}
+		}
+		compiledCopy = null;
 	}
 
 	public void printRules(PrintStream out) {
@@ -1337,6 +1498,7 @@ public class GeneralRouter implements VehicleRouter {
 		} else if (this.impassableRoads != null) {
 			this.impassableRoads.clear();
 		}
+		compiledCopy = null;
 	}
 }
 
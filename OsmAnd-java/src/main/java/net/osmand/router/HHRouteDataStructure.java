@@ -4,10 +4,13 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.TreeMap;
@@ -15,6 +18,8 @@ import java.util.TreeMap;
 import com.google.protobuf.CodedInputStream;
 
 import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.hash.TLongHashSet;
@@ -62,6 +67,7 @@ public class HHRouteDataStructure {
 		double MAX_COST;
 		int MAX_DEPTH = -1; // max depth to go to
 		int MAX_SETTLE_POINTS = -1; // max points to settle
+		int MATRIX_BUCKET_POINTS = 2000; // points settled by reverse matrix search from target (stored as buckets)
 		
 		boolean USE_CH;
 		boolean USE_CH_SHORTCUTS;
@@ -170,6 +176,8 @@ public class HHRouteDataStructure {
 		public final short id;
 		int routingProfile = 0;
 		TLongObjectHashMap<T> pntsByFileId = new TLongObjectHashMap<T>();
+		// optional binary copy of networkDB segments & geometry (see HHRoutingNetworkFile)
+		HHRoutingNetworkFile networkFile;
 		
 		public HHRouteRegionPointsCtx(short id, HHRoutingDB networkDB) {
 			this.id = id;
@@ -192,6 +200,14 @@ public class HHRouteDataStructure {
 			return routingProfile;
 		}
 		
+		public HHRoutingNetworkFile getNetworkFile() {
+			return networkFile;
+		}
+		
+		public void setNetworkFile(HHRoutingNetworkFile networkFile) {
+			this.networkFile = networkFile;
+		}
+		
 		public HHRouteRegion getFileRegion() {
 			return fileRegion;
 		}
@@ -207,11 +223,12 @@ public class HHRouteDataStructure {
 	public static class HHRoutingContext<T extends NetworkDBPoint> {
 		// faster when roads are in 1 global network but doesn't make sense for isolated islands
 		static boolean USE_GLOBAL_QUEUE = false; 
+		// max number of idle query states kept by shared network (each state takes ~100 bytes per point)
+		public static int MAX_IDLE_ROUTE_STATES = 4;
 		
 		// Initial data structure
 		RoutingContext rctx; 
 		List<HHRouteRegionPointsCtx<T>> regions = new ArrayList<>();
-		TreeMap<String, String> filterRoutingParameters = new TreeMap<>();
 		
 		TLongObjectHashMap<T> pointsById; 
 		TLongObjectHashMap<T> pointsByGeo;
@@ -219,10 +236,17 @@ public class HHRouteDataStructure {
 		TIntObjectHashMap<List<T>> clusterOutPoints;
 
 		DataTileManager<T> pointsRect = new DataTileManager<>(11); // 20km tile
-		TLongObjectHashMap<RouteSegment> boundaries;
+		TLongObjectHashMap<RouteSegment> networkBoundaries;
+		// network boundaries with start / end points of the query
+		TLongObjectMap<RouteSegment> boundaries;
 		boolean initialized = false;
+		// context which loaded network (this for not shared context), used as lock to load segments
+		final HHRoutingContext<T> network;
+		NetworkDBPoint[] networkPoints;
+		private final List<NetworkDBPointsRouteState> idleRouteStates = new ArrayList<>();
 		
 		// Route specific details
+		NetworkDBPointsRouteState rt;
 		RoutingStats stats = new RoutingStats();
 		HHRoutingConfig config;
 		int startX;
@@ -241,6 +265,81 @@ public class HHRouteDataStructure {
 
 
 
+		public HHRoutingContext() {
+			this.network = this;
+		}
+		
+		/**
+		 * Context for 1 query which shares loaded network (points, clusters, segments, geometry) with initialized
+		 * network context, search state is taken from network pool and returned by {@link #releaseRouteState()}.
+		 */
+		public HHRoutingContext(HHRoutingContext<T> network, RoutingContext rctx) {
+			if (!network.initialized) {
+				throw new IllegalStateException("Network is not loaded");
+			}
+			this.network = network;
+			this.rctx = rctx;
+			this.regions = network.regions;
+			this.pointsById = network.pointsById;
+			this.pointsByGeo = network.pointsByGeo;
+			this.clusterInPoints = network.clusterInPoints;
+			this.clusterOutPoints = network.clusterOutPoints;
+			this.pointsRect = network.pointsRect;
+			this.networkPoints = network.networkPoints;
+			this.networkBoundaries = network.networkBoundaries;
+			this.boundaries = new OverlayTLongObjectMap<RouteSegment>(networkBoundaries);
+			this.initialized = true;
+		}
+		
+		public boolean isShared() {
+			return network != this;
+		}
+		
+		// assigns dense indexes to loaded points
+		void initRouteState() {
+			List<NetworkDBPoint> pnts = new ArrayList<>(pointsById.size());
+			for (T p : pointsById.valueCollection()) {
+				p.routeStateIndex = pnts.size();
+				pnts.add(p);
+			}
+			for (T p : pointsById.valueCollection()) {
+				if (p.dualPoint != null && p.dualPoint.routeStateIndex < 0) {
+					p.dualPoint.routeStateIndex = pnts.size();
+					pnts.add(p.dualPoint);
+				}
+			}
+			networkPoints = pnts.toArray(new NetworkDBPoint[0]);
+		}
+		
+		void acquireRouteState() {
+			if (rt == null) {
+				synchronized (network) {
+					int sz = network.idleRouteStates.size();
+					rt = sz > 0 ? network.idleRouteStates.remove(sz - 1) : null;
+				}
+				if (rt == null) {
+					rt = new NetworkDBPointsRouteState(networkPoints);
+				}
+			}
+		}
+		
+		/**
+		 * Clears search state (O(visited)) and returns it to the network pool (shared context only)
+		 */
+		public void releaseRouteState() {
+			if (!isShared() || rt == null) {
+				return;
+			}
+			clearVisited();
+			rt.clearCorrections();
+			synchronized (network) {
+				if (network.idleRouteStates.size() < MAX_IDLE_ROUTE_STATES) {
+					network.idleRouteStates.add(rt);
+				}
+			}
+			rt = null;
+		}
+
 		private PriorityQueue<NetworkDBPointCost<T>> createQueue() {
 			return new PriorityQueue<>(new Comparator<NetworkDBPointCost<T>>() {
 				@Override
@@ -254,17 +353,21 @@ public class HHRouteDataStructure {
 			clearVisited();
 			if (stPoints != null) {
 				for (NetworkDBPoint p : stPoints.valueCollection()) {
-					p.clearRouting();
+					rt.clearRouting(p);
 				}
 			}
 			if (endPoints != null) {
 				for (NetworkDBPoint p : endPoints.valueCollection()) {
-					p.clearRouting();
+					rt.clearRouting(p);
 				}
 			}
 		}
 		
 		public void clearSegments() {
+			if (isShared()) {
+				// segments could be used by other queries
+				return;
+			}
 			for (T p : pointsById.valueCollection()) {
 				p.markSegmentsNotLoaded();
 			}
@@ -273,14 +376,83 @@ public class HHRouteDataStructure {
 		public void clearVisited() {
 			queue(false).clear();
 			queue(true).clear();
-			for (NetworkDBPoint p : queueAdded) {
-				p.clearRouting();
+			if (rt != null) {
+				rt.clearAll();
 			}
 			queueAdded.clear();
 			visited.clear();
 			visitedRev.clear();
 		}
 
+		// corrections of shared network are kept by query state, not shared context corrects network itself
+		public double getDist(NetworkDBSegment s) {
+			return rt.getDist(s);
+		}
+
+		public void correctDist(NetworkDBSegment s, double dist) {
+			if (isShared()) {
+				rt.correctDist(s, dist);
+			} else {
+				s.dist = dist;
+			}
+		}
+
+		public List<NetworkDBSegment> connected(NetworkDBPoint p, boolean rev) {
+			List<NetworkDBSegment> added = rt.getAddedSegments(p, rev);
+			List<NetworkDBSegment> l = p.connected(rev);
+			if (added == null) {
+				return l;
+			}
+			List<NetworkDBSegment> res = new ArrayList<NetworkDBSegment>(l);
+			res.addAll(added);
+			return res;
+		}
+
+		public NetworkDBSegment getSegment(NetworkDBPoint p, NetworkDBPoint target, boolean dir) {
+			NetworkDBSegment s = p.getSegment(target, dir);
+			List<NetworkDBSegment> added = rt.getAddedSegments(p, !dir);
+			if (s == null && added != null) {
+				for (NetworkDBSegment a : added) {
+					if (dir ? a.end == target : a.start == target) {
+						return a;
+					}
+				}
+			}
+			return s;
+		}
+
+		public void addConnected(NetworkDBPoint p, boolean rev, NetworkDBSegment s) {
+			if (isShared()) {
+				if (p.connected(rev) != null) {
+					rt.addSegment(p, rev, s);
+				}
+			} else {
+				p.addConnected(rev, s);
+			}
+		}
+
+		public void correctPoint(NetworkDBPoint p, int startX, int startY, int endX, int endY) {
+			if (isShared()) {
+				rt.correctPoint(p, new int[] { startX, startY, endX, endY });
+			} else {
+				p.startX = startX;
+				p.startY = startY;
+				p.endX = endX;
+				p.endY = endY;
+			}
+		}
+
+		// start x, y of point corrected by query
+		public int getStartX(NetworkDBPoint p) {
+			int[] c = rt.getCorrectedPoint(p);
+			return c == null ? p.startX : c[0];
+		}
+
+		public int getStartY(NetworkDBPoint p) {
+			int[] c = rt.getCorrectedPoint(p);
+			return c == null ? p.startY : c[1];
+		}
+
 		public List<T> getIncomingPoints(T point) {
 			return clusterInPoints.get(point.clusterId);
 		}
@@ -295,16 +467,16 @@ public class HHRouteDataStructure {
 			Iterator<T> it = queueAdded.iterator();
 			while (it.hasNext()) {
 				NetworkDBPoint p = it.next();
-				FinalRouteSegment pos = p.rt(false).rtDetailedRoute;
-				FinalRouteSegment rev = p.rt(true).rtDetailedRoute;
-				p.clearRouting();
+				FinalRouteSegment pos = rt.getDetailedRoute(false, p);
+				FinalRouteSegment rev = rt.getDetailedRoute(true, p);
+				rt.clearRouting(p);
 				if (stPoints.containsKey(p.index) && pos != null) {
-					p.setDistanceToEnd(false, distanceToEnd(false, p));
-					p.setDetailedParentRt(false, pos);
+					rt.setDistanceToEnd(false, p, distanceToEnd(false, p));
+					rt.setDetailedParentRt(false, p, pos);
 				} 
 				if (endPoints.containsKey(p.index) && rev != null) {
-					p.setDistanceToEnd(true, distanceToEnd(true, p));
-					p.setDetailedParentRt(true, rev);
+					rt.setDistanceToEnd(true, p, distanceToEnd(true, p));
+					rt.setDetailedParentRt(true, p, rev);
 				}
 				it.remove();
 			}
@@ -313,6 +485,9 @@ public class HHRouteDataStructure {
 		}
 
 		public void unloadAllConnections() {
+			if (isShared()) {
+				return;
+			}
 			for (NetworkDBPoint p : pointsById.valueCollection()) {
 				p.markSegmentsNotLoaded();
 			}
@@ -358,9 +533,17 @@ public class HHRouteDataStructure {
 		}
 
 		public int loadNetworkSegments(Collection<T> valueCollection) throws SQLException {
+			synchronized (network) {
+				return loadNetworkSegmentsInternal(valueCollection);
+			}
+		}
+
+		private int loadNetworkSegmentsInternal(Collection<T> valueCollection) throws SQLException {
 			int loaded = 0;
 			for (HHRouteRegionPointsCtx<T> r : regions) {
-				if (r.networkDB != null) {
+				if (r.networkFile != null) {
+					loaded += r.networkFile.loadNetworkSegments(valueCollection);
+				} else if (r.networkDB != null) {
 					loaded += r.networkDB.loadNetworkSegments(valueCollection, r.routingProfile);
 				} else {
 					throw new UnsupportedOperationException();
@@ -370,11 +553,47 @@ public class HHRouteDataStructure {
 		}
 
 		public boolean loadGeometry(NetworkDBSegment segment, boolean reload) throws SQLException {
+			synchronized (network) {
+				return loadGeometryInternal(segment, reload);
+			}
+		}
+
+		// length of segment by its geometry (straight line if geometry is not stored),
+		// geometry loaded only to measure length is not kept in shared network
+		public double getSegmentLength(NetworkDBSegment segment) throws SQLException {
+			double len = segment.length;
+			if (len >= 0) {
+				return len;
+			}
+			synchronized (network) {
+				if (segment.length >= 0) {
+					return segment.length;
+				}
+				boolean loaded = segment.geom != null && !segment.geom.isEmpty();
+				List<LatLon> geom = loadGeometryInternal(segment, false) ? segment.getGeometry()
+						: Arrays.asList(segment.start.getPoint(), segment.end.getPoint());
+				len = 0;
+				for (int i = 1; i < geom.size(); i++) {
+					len += MapUtils.getDistance(geom.get(i - 1), geom.get(i));
+				}
+				if (!loaded) {
+					segment.geom = null;
+				}
+				segment.length = len;
+				return len;
+			}
+		}
+
+		private boolean loadGeometryInternal(NetworkDBSegment segment, boolean reload) throws SQLException {
 			if (!segment.getGeometry().isEmpty() && !reload) {
 				return true;
 			}
 			for (HHRouteRegionPointsCtx<T> r : regions) {
-				if (r.networkDB != null && !r.networkDB.compactDB) {
+				if (r.networkFile != null) {
+					if (r.networkFile.loadGeometry(segment, reload)) {
+						return true;
+					}
+				} else if (r.networkDB != null && !r.networkDB.compactDB) {
 					if (r.networkDB.loadGeometry(segment, r.routingProfile, reload)) {
 						return true;
 					}
@@ -384,8 +603,21 @@ public class HHRouteDataStructure {
 		}
 
 		public int loadNetworkSegmentPoint(T point, boolean reverse) throws SQLException, IOException {
+			if (point.connected(reverse) != null) {
+				return 0;
+			}
+			// readers (db statements, files) are not thread safe
+			synchronized (network) {
+				return loadNetworkSegmentPointInternal(point, reverse);
+			}
+		}
+
+		private int loadNetworkSegmentPointInternal(T point, boolean reverse) throws SQLException, IOException {
 			short mapId = point.mapId;
 			HHRouteRegionPointsCtx<T> r = regions.get(mapId);
+			if (r.networkFile != null) {
+				return r.networkFile.loadNetworkSegmentPoint(this, point, reverse);
+			}
 			if (r.networkDB != null) {
 				return r.networkDB.loadNetworkSegmentPoint(this, r, point, reverse);
 			}
@@ -416,12 +648,12 @@ public class HHRouteDataStructure {
 		
 		public double distanceToEnd(boolean reverse,  NetworkDBPoint nextPoint) {
 			if (config.HEURISTIC_COEFFICIENT > 0) {
-				double distanceToEnd = nextPoint.rt(reverse).rtDistanceToEnd;
+				double distanceToEnd = rt.getDistanceToEnd(reverse, nextPoint);
 				if (distanceToEnd == 0) {
 					double dist = HHRoutePlanner.squareRootDist31(reverse ? startX : endX, reverse ? startY : endY, 
 							nextPoint.midX(), nextPoint.midY());
 					distanceToEnd = config.HEURISTIC_COEFFICIENT * dist / rctx.getRouter().getMaxSpeed();
-					nextPoint.setDistanceToEnd(reverse, distanceToEnd);
+					rt.setDistanceToEnd(reverse, nextPoint, distanceToEnd);
 				}
 				return distanceToEnd;
 			}
@@ -503,6 +735,24 @@ public class HHRouteDataStructure {
 		
 	}
 	
+	public static class HHRouteMatrix {
+		public static final float UNREACHABLE = -1;
+		
+		// [source][target]
+		public final float[][] cost; // seconds
+		public final float[][] distance; // meters
+		public RoutingStats stats = new RoutingStats();
+		
+		public HHRouteMatrix(int sources, int targets) {
+			cost = new float[sources][targets];
+			distance = new float[sources][targets];
+			for (int i = 0; i < sources; i++) {
+				Arrays.fill(cost[i], UNREACHABLE);
+				Arrays.fill(distance[i], UNREACHABLE);
+			}
+		}
+	}
+	
 	public static class HHNetworkSegmentRes {
 		public NetworkDBSegment segment;
 		public List<RouteSegmentResult> list = null;
@@ -559,6 +809,8 @@ public class HHRouteDataStructure {
 		final boolean shortcut;
 		double dist;
 		List<LatLon> geom;
+		// length by geometry in meters (-1 not calculated)
+		volatile double length = -1;
 		
 		public NetworkDBSegment(NetworkDBPoint start, NetworkDBPoint end, double dist, boolean direction, boolean shortcut) {
 			this.direction = direction;
@@ -583,38 +835,230 @@ public class HHRouteDataStructure {
 	}
 	
 	
-	static class NetworkDBPointRouteInfo {
-		NetworkDBPoint rtRouteToPoint;
-		boolean rtVisited;
-		double rtDistanceFromStart;
-		int rtDepth = -1; // possibly not needed (used 1)
-		double rtDistanceToEnd; // possibly not needed (used 1)
-		double rtCost;
-		FinalRouteSegment rtDetailedRoute;
-		
-		public int getDepth(boolean rev) {
-			if (rtDepth > 0) {
-				return rtDepth;
-			}
-			if (rtRouteToPoint != null) {
-				rtDepth = rtRouteToPoint.rt(rev).getDepth(rev) + 1; 
-				return rtDepth ;
+	/**
+	 * Search state of network points for 1 query kept in primitive arrays indexed by
+	 * {@link NetworkDBPoint#routeStateIndex} (2 * index + 1 for reverse direction), so network points are not
+	 * modified by routing and could be shared by concurrent queries (see {@link HHRoutingContext#HHRoutingContext(HHRoutingContext, RoutingContext)}).
+	 * Modified points are tracked, so clear costs O(visited) and state could be reused for next query.
+	 */
+	static class NetworkDBPointsRouteState {
+		private static final byte VISITED = 1;
+		
+		private final NetworkDBPoint[] points;
+		// slot for the point created by query and not present in the network (short route start / end)
+		private final int extraIndex;
+		private NetworkDBPoint extraPoint;
+		
+		private final double[] cost;
+		private final double[] distanceFromStart;
+		private final double[] distanceToEnd;
+		private final double[] length; // meters (used by matrix calculation)
+		private final int[] routeToPoint;
+		private final int[] depth;
+		private final byte[] flags;
+		private final FinalRouteSegment[] detailedRoute;
+		private final boolean[] exclude;
+		private final boolean[] touched;
+		private final TIntArrayList touchedPoints = new TIntArrayList();
+		// parameters used to calculate exclude flags
+		TreeMap<String, String> filterRoutingParameters = new TreeMap<>();
+		// corrections of shared network by cluster recalculation of this query (kept until state is released)
+		private final Map<NetworkDBSegment, Double> correctedDist = new HashMap<>();
+		private final TIntObjectHashMap<List<NetworkDBSegment>> addedSegments = new TIntObjectHashMap<>();
+		private final TIntObjectHashMap<int[]> correctedPoints = new TIntObjectHashMap<>();
+		
+		NetworkDBPointsRouteState(NetworkDBPoint[] points) {
+			this.points = points;
+			this.extraIndex = points.length;
+			int size = 2 * (points.length + 1);
+			cost = new double[size];
+			distanceFromStart = new double[size];
+			distanceToEnd = new double[size];
+			length = new double[size];
+			routeToPoint = new int[size];
+			Arrays.fill(routeToPoint, -1);
+			depth = new int[size];
+			flags = new byte[size];
+			detailedRoute = new FinalRouteSegment[size];
+			exclude = new boolean[points.length + 1];
+			touched = new boolean[points.length + 1];
+		}
+		
+		private int pointIndex(NetworkDBPoint p) {
+			return p.routeStateIndex < 0 ? extraIndex : p.routeStateIndex;
+		}
+		
+		private int ind(NetworkDBPoint p, boolean rev) {
+			return 2 * pointIndex(p) + (rev ? 1 : 0);
+		}
+		
+		private int touch(NetworkDBPoint p, boolean rev) {
+			int pi = pointIndex(p);
+			if (pi == extraIndex) {
+				extraPoint = p;
+			}
+			if (!touched[pi]) {
+				touched[pi] = true;
+				touchedPoints.add(pi);
+			}
+			return 2 * pi + (rev ? 1 : 0);
+		}
+		
+		private NetworkDBPoint point(int pi) {
+			return pi == extraIndex ? extraPoint : points[pi];
+		}
+		
+		public double getCost(boolean rev, NetworkDBPoint p) {
+			return cost[ind(p, rev)];
+		}
+		
+		public double getDistanceFromStart(boolean rev, NetworkDBPoint p) {
+			return distanceFromStart[ind(p, rev)];
+		}
+		
+		public double getDistanceToEnd(boolean rev, NetworkDBPoint p) {
+			return distanceToEnd[ind(p, rev)];
+		}
+		
+		public double getLength(boolean rev, NetworkDBPoint p) {
+			return length[ind(p, rev)];
+		}
+		
+		public void setLength(boolean rev, NetworkDBPoint p, double len) {
+			length[touch(p, rev)] = len;
+		}
+		
+		public boolean isVisited(boolean rev, NetworkDBPoint p) {
+			return (flags[ind(p, rev)] & VISITED) != 0;
+		}
+		
+		public NetworkDBPoint getRouteToPoint(boolean rev, NetworkDBPoint p) {
+			int r = routeToPoint[ind(p, rev)];
+			return r < 0 ? null : point(r);
+		}
+		
+		public FinalRouteSegment getDetailedRoute(boolean rev, NetworkDBPoint p) {
+			return detailedRoute[ind(p, rev)];
+		}
+		
+		public int getDepth(boolean rev, NetworkDBPoint p) {
+			int i = ind(p, rev);
+			if (depth[i] > 0) {
+				return depth[i];
+			}
+			NetworkDBPoint parent = getRouteToPoint(rev, p);
+			if (parent != null) {
+				depth[touch(p, rev)] = getDepth(rev, parent) + 1;
+				return depth[i];
 			}
 			return 0;
 		}
 		
-		public void setDetailedParentRt(FinalRouteSegment r) {
+		public boolean isExcluded(NetworkDBPoint p) {
+			return exclude[pointIndex(p)];
+		}
+		
+		public void setExcluded(NetworkDBPoint p, boolean excluded) {
+			exclude[pointIndex(p)] = excluded;
+		}
+		
+		public void setDistanceToEnd(boolean rev, NetworkDBPoint p, double segmentDist) {
+			distanceToEnd[touch(p, rev)] = segmentDist;
+		}
+		
+		public void markVisited(boolean rev, NetworkDBPoint p) {
+			flags[touch(p, rev)] |= VISITED;
+		}
+		
+		public void setCostParentRt(boolean rev, NetworkDBPoint p, double cost, NetworkDBPoint parent, double segmentDist) {
+			int i = touch(p, rev);
+			this.cost[i] = cost;
+			routeToPoint[i] = parent == null ? -1 : pointIndex(parent);
+			distanceFromStart[i] = (parent == null ? 0 : getDistanceFromStart(rev, parent)) + segmentDist;
+		}
+		
+		public void setDetailedParentRt(boolean rev, NetworkDBPoint p, FinalRouteSegment r) {
+			int i = touch(p, rev);
 			double segmentDist = r.getDistanceFromStart();
-			rtRouteToPoint = null;
-			rtCost = rtDistanceToEnd + segmentDist;
-			rtDetailedRoute = r;
-			rtDistanceFromStart = segmentDist;
+			routeToPoint[i] = -1;
+			cost[i] = distanceToEnd[i] + segmentDist;
+			detailedRoute[i] = r;
+			distanceFromStart[i] = segmentDist;
+		}
+		
+		public void clearRouting(NetworkDBPoint p) {
+			clearPoint(pointIndex(p));
+		}
+		
+		public void clearAll() {
+			for (int k = 0; k < touchedPoints.size(); k++) {
+				int pi = touchedPoints.getQuick(k);
+				clearPoint(pi);
+				touched[pi] = false;
+			}
+			touchedPoints.resetQuick();
+			extraPoint = null;
+		}
+		
+		private void clearPoint(int pi) {
+			for (int i = 2 * pi; i < 2 * pi + 2; i++) {
+				cost[i] = 0;
+				distanceFromStart[i] = 0;
+				distanceToEnd[i] = 0;
+				length[i] = 0;
+				routeToPoint[i] = -1;
+				depth[i] = 0;
+				flags[i] = 0;
+				detailedRoute[i] = null;
+			}
+		}
+		
+		public int getPointsSize() {
+			return points.length;
+		}
+		
+		public double getDist(NetworkDBSegment s) {
+			if (correctedDist.isEmpty()) {
+				return s.dist;
+			}
+			Double d = correctedDist.get(s);
+			return d == null ? s.dist : d;
+		}
+		
+		public void correctDist(NetworkDBSegment s, double dist) {
+			correctedDist.put(s, dist);
+		}
+		
+		public List<NetworkDBSegment> getAddedSegments(NetworkDBPoint p, boolean rev) {
+			return addedSegments.isEmpty() ? null : addedSegments.get(ind(p, rev));
+		}
+		
+		public void addSegment(NetworkDBPoint p, boolean rev, NetworkDBSegment s) {
+			List<NetworkDBSegment> l = addedSegments.get(ind(p, rev));
+			if (l == null) {
+				l = new ArrayList<NetworkDBSegment>();
+				addedSegments.put(ind(p, rev), l);
+			}
+			l.add(s);
+		}
+		
+		public int[] getCorrectedPoint(NetworkDBPoint p) {
+			return correctedPoints.isEmpty() ? null : correctedPoints.get(pointIndex(p));
+		}
+		
+		public void correctPoint(NetworkDBPoint p, int[] startEndXY) {
+			correctedPoints.put(pointIndex(p), startEndXY);
 		}
 		
-		public void setCostParentRt(boolean rev, double cost, NetworkDBPoint point, double segmentDist) {
-			rtCost = cost;
-			rtRouteToPoint = point;
-			rtDistanceFromStart = (point == null ? 0 : point.rt(rev).rtDistanceFromStart) + segmentDist;
+		public void clearCorrections() {
+			correctedDist.clear();
+			addedSegments.clear();
+			correctedPoints.clear();
+		}
+		
+		public void copyExclusions(NetworkDBPointsRouteState from) {
+			System.arraycopy(from.exclude, 0, exclude, 0, exclude.length);
+			filterRoutingParameters = from.filterRoutingParameters;
 		}
 	}
 	
@@ -637,12 +1081,12 @@ public class HHRouteDataStructure {
 		public int endX;
 		public int endY;
 		
-		boolean rtExclude;
-		NetworkDBPointRouteInfo rtRev;
-		NetworkDBPointRouteInfo rtPos;
+		// dense index of point in loaded network (see NetworkDBPointsRouteState)
+		int routeStateIndex = -1;
 		
-		List<NetworkDBSegment> connected = new ArrayList<NetworkDBSegment>();
-		List<NetworkDBSegment> connectedReverse = new ArrayList<NetworkDBSegment>();
+		// segments are loaded lazily and shared by concurrent queries
+		volatile List<NetworkDBSegment> connected = new ArrayList<NetworkDBSegment>();
+		volatile List<NetworkDBSegment> connectedReverse = new ArrayList<NetworkDBSegment>();
 		
 		public int midX() {
 			return startX / 2 + endX / 2 ;
@@ -652,31 +1096,18 @@ public class HHRouteDataStructure {
 			return startY / 2 + endY/ 2 ;
 		}
 		
-		public NetworkDBPointRouteInfo rt(boolean rev) {
-			if (rev) {
-				if (rtRev == null) {
-					rtRev = new NetworkDBPointRouteInfo();
-				}
-				return rtRev;
-			} else {
-				if (rtPos == null) {
-					rtPos = new NetworkDBPointRouteInfo();
-				}
-				return rtPos;
-			}
-		}
-		
 		public List<NetworkDBSegment> connected(boolean rev) {
 			return rev ? connectedReverse : connected;
 		}
 		
-		public void setDistanceToEnd(boolean rev, double segmentDist) {
-			rt(rev).rtDistanceToEnd = segmentDist;
-		}
-		
-
-		public void markVisited(boolean rev) {
-			rt(rev).rtVisited = true;
+		// copy on write as segments could be iterated by other queries
+		public void addConnected(boolean rev, NetworkDBSegment s) {
+			List<NetworkDBSegment> l = connected(rev);
+			if (l != null) {
+				l = new ArrayList<NetworkDBSegment>(l);
+				l.add(s);
+				connectedSet(rev, l);
+			}
 		}
 		
 		public void connectedSet(boolean rev, List<NetworkDBSegment> l) {
@@ -687,14 +1118,6 @@ public class HHRouteDataStructure {
 			}
 		}
 		
-		public void setCostParentRt(boolean reverse, double cost, NetworkDBPoint point, double segmentDist) {
-			rt(reverse).setCostParentRt(reverse, cost, point, segmentDist);
-		}
-		
-		public void setDetailedParentRt(boolean reverse, FinalRouteSegment r) {
-			rt(reverse).setDetailedParentRt(r);
-		}
-		
 		public void markSegmentsNotLoaded() {
 			connected = null;
 			connectedReverse = null;
@@ -725,12 +1148,6 @@ public class HHRouteDataStructure {
 			return null;
 		}
 
-		public void clearRouting() {
-			rtExclude = false;
-			rtPos = null;
-			rtRev = null;
-		}
-
 		public int chInd() {
 			return 0;
 		}
@@ -15,6 +15,11 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TLongObjectMap;
@@ -36,6 +41,7 @@ import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
 import net.osmand.router.GeneralRouter.RoutingParameter;
 import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
 import net.osmand.router.HHRouteDataStructure.HHNetworkSegmentRes;
+import net.osmand.router.HHRouteDataStructure.HHRouteMatrix;
 import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
 import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
 import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
@@ -65,6 +71,8 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	private final Class<T> pointClass;
 	private final HHRouteRegionPointsCtx<T> predefinedRegions;
 	private HHRoutingContext<T> currentCtx; // never null
+	// planner which loads shared network for query planners (see createQueryPlanner)
+	private final HHRoutePlanner<T> networkPlanner;
 	
 	
 	public static HHRoutePlanner<NetworkDBPoint> createDB(RoutingContext ctx, HHRoutingDB networkDB) {
@@ -76,6 +84,16 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return new HHRoutePlanner<Ts>(ctx, new HHRouteRegionPointsCtx<Ts>((short) 0, networkDB), cl);
 	}
 	
+	/**
+	 * Points are loaded from networkDB, segments and geometry are read from binary network file exported from it
+	 */
+	public static HHRoutePlanner<NetworkDBPoint> createDB(RoutingContext ctx, HHRoutingDB networkDB,
+			HHRoutingNetworkFile networkFile) {
+		HHRouteRegionPointsCtx<NetworkDBPoint> reg = new HHRouteRegionPointsCtx<NetworkDBPoint>((short) 0, networkDB);
+		reg.setNetworkFile(networkFile);
+		return new HHRoutePlanner<NetworkDBPoint>(ctx, reg, NetworkDBPoint.class);
+	}
+	
 	public static HHRoutePlanner<NetworkDBPoint> create(RoutingContext ctx) {
 		return new HHRoutePlanner<NetworkDBPoint>(ctx, null, NetworkDBPoint.class);
 	}
@@ -83,9 +101,27 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	private HHRoutePlanner(RoutingContext ctx, HHRouteRegionPointsCtx<T> src, Class<T> cl) {
 		this.pointClass = cl;
 		this.predefinedRegions = src;
+		this.networkPlanner = null;
 		initNewContext(ctx, src == null ? null : Collections.singletonList(src));
 	}
 	
+	private HHRoutePlanner(RoutingContext ctx, HHRoutePlanner<T> networkPlanner) {
+		this.pointClass = networkPlanner.pointClass;
+		this.predefinedRegions = networkPlanner.predefinedRegions;
+		this.networkPlanner = networkPlanner;
+		initNewContext(ctx, null);
+	}
+	
+	/**
+	 * Creates planner with own RoutingContext which shares network (points, clusters, segments and geometry)
+	 * loaded once by this planner. Search state is kept per query in arrays indexed by point and is cleared in O(visited),
+	 * so query planners could run routing concurrently (1 query per planner at a time).
+	 * This planner should be used only to create query planners and to be closed.
+	 */
+	public HHRoutePlanner<T> createQueryPlanner(RoutingContext ctx) {
+		return new HHRoutePlanner<T>(ctx, this);
+	}
+	
 	private HHRoutingContext<T> initNewContext(RoutingContext ctx, List<HHRouteRegionPointsCtx<T>> regions) {
 		currentCtx = new HHRoutingContext<T>();
 		currentCtx.rctx = ctx;
@@ -96,6 +132,10 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	}
 
 	public void close() throws SQLException {
+		if (networkPlanner != null) {
+			currentCtx.releaseRouteState();
+			return;
+		}
 		if (predefinedRegions != null && predefinedRegions.networkDB != null) {
 			try {
 				predefinedRegions.networkDB.close();
@@ -157,13 +197,22 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		}
 	}
 	
-	@SuppressWarnings("unchecked")
 	public HHNetworkRouteRes runRouting(LatLon start, LatLon end, HHRoutingConfig config) throws SQLException, IOException, InterruptedException {
+		try {
+			return runRoutingInternal(start, end, config);
+		} finally {
+			// search state is returned to shared network between queries
+			currentCtx.releaseRouteState();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private HHNetworkRouteRes runRoutingInternal(LatLon start, LatLon end, HHRoutingConfig config) throws SQLException, IOException, InterruptedException {
 		long startTime = System.nanoTime();
 		int SL = HHRoutingConfig.STATS_VERBOSE_LEVEL;
 		RouteCalculationProgress progress = currentCtx.rctx.calculationProgress;
 		// important assumption that routing context match!
-		if (config.cacheCtx != null && config.cacheCtx.rctx  == currentCtx.rctx) {
+		if (networkPlanner == null && config.cacheCtx != null && config.cacheCtx.rctx == currentCtx.rctx) {
 			currentCtx = (HHRoutingContext<T>) config.cacheCtx;
 		}
 		config = prepareDefaultRoutingConfig(config);
@@ -293,6 +342,505 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				hctx.config.toString(start, end), hctx.getRoutingInfo());
 		return route;
 	}
+	
+	/**
+	 * Calculates travel time (seconds) and distance (meters) between all sources and targets, unreachable pairs are
+	 * {@link HHRouteMatrix#UNREACHABLE}. All points are snapped to roads and network points once,
+	 * then search from every target (reverse direction) stores buckets (target, cost) on settled network points and
+	 * one-to-many search from every source merges them. For CH networks ({@link HHRoutingConfig#USE_CH}) both searches
+	 * are upward only. Searches run on executor (if not null), each with own search state of the shared network.
+	 * Distance is length of network segments geometry and of last mile roads. Points of the same cluster are also
+	 * connected by direct route inside the cluster as in {@link #runRouting(LatLon, LatLon, HHRoutingConfig)}.
+	 *
+	 * @return null if files were not found or calculation was cancelled (see RoutingContext.calculationProgress)
+	 */
+	public HHRouteMatrix calculateMatrix(List<LatLon> sources, List<LatLon> targets, HHRoutingConfig config,
+			ExecutorService executor) throws SQLException, IOException, InterruptedException {
+		if (sources.isEmpty() || targets.isEmpty()) {
+			return new HHRouteMatrix(sources.size(), targets.size());
+		}
+		RouteCalculationProgress progress = currentCtx.rctx.calculationProgress;
+		if (progress == null) {
+			progress = new RouteCalculationProgress();
+		}
+		config = prepareDefaultRoutingConfig(config);
+		LatLon[] bbox = getBoundingBox(sources, targets);
+		HHRoutingContext<T> hctx = initHCtx(config, bbox[0], bbox[1]);
+		if (hctx == null) {
+			return null;
+		}
+		try {
+			return calculateMatrix(hctx, sources, targets, executor, progress);
+		} finally {
+			hctx.clearVisited();
+			currentCtx.releaseRouteState();
+		}
+	}
+	
+	private HHRouteMatrix calculateMatrix(final HHRoutingContext<T> hctx, List<LatLon> sources, List<LatLon> targets,
+			ExecutorService executor, final RouteCalculationProgress progress) throws SQLException, IOException, InterruptedException {
+		filterPointsBasedOnConfiguration(hctx);
+		final HHRouteMatrix matrix = new HHRouteMatrix(sources.size(), targets.size());
+		long time = System.nanoTime();
+		progress.hhIteration(HHIteration.START_END_POINT);
+		final List<MatrixEndpoint<T>> src = new ArrayList<>();
+		final List<MatrixEndpoint<T>> trg = new ArrayList<>();
+		for (int i = 0; i < sources.size() + targets.size(); i++) {
+			boolean reverse = i >= sources.size();
+			LatLon p = reverse ? targets.get(i - sources.size()) : sources.get(i);
+			(reverse ? trg : src).add(snapMatrixPoint(hctx, p, reverse));
+			if (progress.isCancelled) {
+				return null;
+			}
+			progress.hhIterationProgress((double) i / (sources.size() + targets.size()));
+		}
+		if (hctx.config.ROUTE_LAST_MILE) {
+			calculateMatrixDirectRoutes(hctx, src, trg, matrix, progress);
+			if (progress.isCancelled) {
+				return null;
+			}
+		}
+		matrix.stats.searchPointsTime = (System.nanoTime() - time) / 1e6;
+		
+		time = System.nanoTime();
+		progress.hhIteration(HHIteration.ROUTING);
+		final Queue<HHRoutingContext<T>> workers = new ConcurrentLinkedQueue<>();
+		try {
+			List<Callable<MatrixBuckets>> bucketTasks = new ArrayList<>();
+			for (final MatrixEndpoint<T> t : trg) {
+				bucketTasks.add(new Callable<MatrixBuckets>() {
+					@Override
+					public MatrixBuckets call() throws Exception {
+						HHRoutingContext<T> w = acquireMatrixWorker(hctx, workers);
+						try {
+							return searchMatrixBuckets(w, t, progress);
+						} finally {
+							releaseMatrixWorker(w, workers);
+						}
+					}
+				});
+			}
+			List<MatrixBuckets> targetBuckets = runMatrixTasks(bucketTasks, executor);
+			if (progress.isCancelled) {
+				return null;
+			}
+			final int[] bucketsStart = new int[hctx.networkPoints.length + 2];
+			final MatrixBuckets buckets = mergeMatrixBuckets(targetBuckets, bucketsStart);
+			progress.hhIterationProgress(0.5);
+			List<Callable<MatrixBuckets>> rowTasks = new ArrayList<>();
+			for (int i = 0; i < src.size(); i++) {
+				final int row = i;
+				rowTasks.add(new Callable<MatrixBuckets>() {
+					@Override
+					public MatrixBuckets call() throws Exception {
+						HHRoutingContext<T> w = acquireMatrixWorker(hctx, workers);
+						try {
+							searchMatrixRow(w, src.get(row), buckets, bucketsStart, matrix.cost[row], matrix.distance[row], progress);
+							return null;
+						} finally {
+							releaseMatrixWorker(w, workers);
+						}
+					}
+				});
+			}
+			runMatrixTasks(rowTasks, executor);
+			if (progress.isCancelled) {
+				return null;
+			}
+		} finally {
+			for (HHRoutingContext<T> w : workers) {
+				matrix.stats.visitedVertices += w.stats.visitedVertices;
+				matrix.stats.addedVertices += w.stats.addedVertices;
+				matrix.stats.loadEdgesCnt += w.stats.loadEdgesCnt;
+				w.releaseRouteState();
+			}
+		}
+		matrix.stats.routingTime = (System.nanoTime() - time) / 1e6;
+		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "Matrix %d x %d: snap points %.2f ms, routing %.2f ms (visited %,d)\n",
+				sources.size(), targets.size(), matrix.stats.searchPointsTime, matrix.stats.routingTime, matrix.stats.visitedVertices);
+		return matrix;
+	}
+	
+	private static LatLon[] getBoundingBox(List<LatLon> sources, List<LatLon> targets) {
+		double top = -90, bottom = 90, left = 180, right = -180;
+		for (List<LatLon> l : Arrays.asList(sources, targets)) {
+			for (LatLon p : l) {
+				top = Math.max(top, p.getLatitude());
+				bottom = Math.min(bottom, p.getLatitude());
+				left = Math.min(left, p.getLongitude());
+				right = Math.max(right, p.getLongitude());
+			}
+		}
+		return new LatLon[] { new LatLon(top, left), new LatLon(bottom, right) };
+	}
+	
+	private static <V> List<V> runMatrixTasks(List<Callable<V>> tasks, ExecutorService executor)
+			throws SQLException, IOException, InterruptedException {
+		List<V> res = new ArrayList<>(tasks.size());
+		try {
+			if (executor == null) {
+				for (Callable<V> c : tasks) {
+					res.add(c.call());
+				}
+			} else {
+				for (Future<V> f : executor.invokeAll(tasks)) {
+					res.add(f.get());
+				}
+			}
+		} catch (ExecutionException e) {
+			throwMatrixException(e.getCause());
+		} catch (InterruptedException | SQLException | IOException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throwMatrixException(e);
+		}
+		return res;
+	}
+	
+	private static void throwMatrixException(Throwable e) throws SQLException, IOException, InterruptedException {
+		if (e instanceof SQLException) {
+			throw (SQLException) e;
+		} else if (e instanceof IOException) {
+			throw (IOException) e;
+		} else if (e instanceof InterruptedException) {
+			throw (InterruptedException) e;
+		} else if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		}
+		throw new IllegalStateException(e);
+	}
+	
+	private HHRoutingContext<T> acquireMatrixWorker(HHRoutingContext<T> hctx, Queue<HHRoutingContext<T>> workers) {
+		HHRoutingContext<T> w = workers.poll();
+		if (w == null) {
+			w = new HHRoutingContext<T>(hctx.network, hctx.rctx);
+			w.config = hctx.config;
+			w.acquireRouteState();
+			w.rt.copyExclusions(hctx.rt);
+		}
+		return w;
+	}
+	
+	private void releaseMatrixWorker(HHRoutingContext<T> w, Queue<HHRoutingContext<T>> workers) {
+		w.clearVisited();
+		workers.add(w);
+	}
+	
+	private MatrixEndpoint<T> snapMatrixPoint(HHRoutingContext<T> hctx, LatLon p, boolean reverse)
+			throws IOException, InterruptedException {
+		MatrixEndpoint<T> e = new MatrixEndpoint<>();
+		hctx.setStartEnd(reverse ? null : p, reverse ? p : null);
+		TLongObjectHashMap<T> pnts = new TLongObjectHashMap<>();
+		RouteSegmentPoint s = null;
+		if (hctx.config.ROUTE_LAST_MILE) {
+			s = new RoutePlannerFrontEnd().findRouteSegment(p.getLatitude(), p.getLongitude(), hctx.rctx, null);
+			if (s == null) {
+				return e;
+			}
+			e.segment = new RouteSegmentPoint(s);
+		}
+		initStart(hctx, s, reverse, pnts);
+		for (T pnt : pnts.valueCollection()) {
+			if (pnt.index == PNT_SHORT_ROUTE_START_END || hctx.rt.isExcluded(pnt)) {
+				continue;
+			}
+			FinalRouteSegment detailed = hctx.rt.getDetailedRoute(reverse, pnt);
+			double len;
+			if (detailed != null) {
+				len = getRouteSegmentLength(detailed);
+			} else if (hctx.config.ROUTE_LAST_MILE) {
+				len = 0; // start / end is on network point
+			} else {
+				len = MapUtils.getDistance(pnt.getPoint(), p);
+			}
+			e.points.add(pnt);
+			e.costs.add(pnt.routeStateIndex, hctx.rt.getDistanceFromStart(reverse, pnt), len);
+		}
+		hctx.clearAll(pnts, null);
+		return e;
+	}
+	
+	private static double getRouteSegmentLength(RouteSegment s) {
+		double len = 0;
+		while (s != null) {
+			RouteDataObject r = s.getRoad();
+			int d = s.getSegmentEnd() >= s.getSegmentStart() ? 1 : -1;
+			for (int i = s.getSegmentStart(); i != s.getSegmentEnd(); i += d) {
+				len += MapUtils.measuredDist31(r.getPoint31XTile(i), r.getPoint31YTile(i),
+						r.getPoint31XTile(i + d), r.getPoint31YTile(i + d));
+			}
+			s = s.getParentRoute();
+		}
+		return len;
+	}
+	
+	// as short route of runRouting: points of the same cluster could be connected without network points
+	private void calculateMatrixDirectRoutes(HHRoutingContext<T> hctx, List<MatrixEndpoint<T>> src,
+			List<MatrixEndpoint<T>> trg, HHRouteMatrix matrix, RouteCalculationProgress progress)
+			throws IOException, InterruptedException {
+		for (int i = 0; i < src.size(); i++) {
+			for (int j = 0; j < trg.size(); j++) {
+				if (progress.isCancelled) {
+					return;
+				}
+				MatrixEndpoint<T> s = src.get(i);
+				MatrixEndpoint<T> t = trg.get(j);
+				if (s.segment == null || t.segment == null || !isSameMatrixCluster(s, t)) {
+					continue;
+				}
+				FinalRouteSegment f = searchMatrixDirectRoute(hctx, s.segment, t.segment);
+				if (f != null) {
+					matrix.cost[i][j] = f.distanceFromStart;
+					matrix.distance[i][j] = (float) (getRouteSegmentLength(f) + getRouteSegmentLength(f.opposite));
+				}
+			}
+		}
+	}
+	
+	// cluster border points found from source and to target are the same (or dual) for points of one cluster
+	private boolean isSameMatrixCluster(MatrixEndpoint<T> s, MatrixEndpoint<T> t) {
+		if (s.points.isEmpty() || t.points.isEmpty()) {
+			// cluster without border points
+			return true;
+		}
+		for (T p : s.points) {
+			for (T q : t.points) {
+				if (p == q || p.dualPoint == q) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private FinalRouteSegment searchMatrixDirectRoute(HHRoutingContext<T> hctx, RouteSegmentPoint s, RouteSegmentPoint e)
+			throws IOException, InterruptedException {
+		int savedMaxVisited = hctx.rctx.config.MAX_VISITED;
+		int savedPlanRoadDirection = hctx.rctx.config.planRoadDirection;
+		hctx.rctx.config.MAX_VISITED = MAX_POINTS_CLUSTER_ROUTING;
+		hctx.rctx.config.planRoadDirection = 0;
+		hctx.rctx.unloadAllData();
+		try {
+			// boundaries limit search by cluster, other start points are not used (not found route isn't an error)
+			return new BinaryRoutePlanner().searchRouteInternal(hctx.rctx, new RouteSegmentPoint(s),
+					new RouteSegmentPoint(e), hctx.boundaries);
+		} finally {
+			hctx.rctx.config.MAX_VISITED = savedMaxVisited;
+			hctx.rctx.config.planRoadDirection = savedPlanRoadDirection;
+		}
+	}
+	
+	// reverse search from target: all settled points get bucket with exact cost to target
+	private MatrixBuckets searchMatrixBuckets(HHRoutingContext<T> w, MatrixEndpoint<T> target,
+			RouteCalculationProgress progress) throws SQLException, IOException {
+		MatrixBuckets res = new MatrixBuckets();
+		int entriesLeft = initMatrixQueue(w, target, true);
+		int maxSettle = w.config.MAX_SETTLE_POINTS > 0 ? w.config.MAX_SETTLE_POINTS : w.config.MATRIX_BUCKET_POINTS;
+		Queue<NetworkDBPointCost<T>> queue = w.queue(true);
+		while (!queue.isEmpty() && !progress.isCancelled) {
+			T point = pollMatrixQueue(w, queue, true);
+			if (point == null) {
+				continue;
+			}
+			if (target.points.contains(point)) {
+				entriesLeft--;
+			}
+			res.add(point.routeStateIndex, w.rt.getDistanceFromStart(true, point), w.rt.getLength(true, point));
+			if (!w.config.USE_CH && entriesLeft <= 0 && res.size >= maxSettle) {
+				// rest of the route is found by one-to-many search from source
+				break;
+			}
+			addMatrixConnected(w, point, true);
+		}
+		return res;
+	}
+	
+	// one-to-many search from source, settled points with buckets give upper bounds for targets
+	private void searchMatrixRow(HHRoutingContext<T> w, MatrixEndpoint<T> source, MatrixBuckets buckets,
+			int[] bucketsStart, float[] costRow, float[] distRow, RouteCalculationProgress progress) throws SQLException, IOException {
+		double[] best = new double[costRow.length];
+		double[] bestLen = new double[costRow.length];
+		Arrays.fill(best, Double.POSITIVE_INFINITY);
+		double maxBest = Double.POSITIVE_INFINITY;
+		int found = 0;
+		for (int t = 0; t < best.length; t++) {
+			// direct route inside cluster
+			if (costRow[t] != HHRouteMatrix.UNREACHABLE) {
+				best[t] = costRow[t];
+				bestLen[t] = distRow[t];
+				found++;
+			}
+		}
+		if (found == best.length) {
+			maxBest = max(best);
+		}
+		initMatrixQueue(w, source, false);
+		Queue<NetworkDBPointCost<T>> queue = w.queue(false);
+		while (!queue.isEmpty() && !progress.isCancelled) {
+			if (!w.config.USE_CH && found == best.length && queue.peek().cost >= maxBest) {
+				// all points with smaller cost are settled
+				break;
+			}
+			T point = pollMatrixQueue(w, queue, false);
+			if (point == null) {
+				continue;
+			}
+			double cost = w.rt.getDistanceFromStart(false, point);
+			double len = w.rt.getLength(false, point);
+			boolean updated = false;
+			for (int k = bucketsStart[point.routeStateIndex]; k < bucketsStart[point.routeStateIndex + 1]; k++) {
+				int t = buckets.targets[k];
+				double c = cost + buckets.cost[k];
+				if (c < best[t]) {
+					if (best[t] == Double.POSITIVE_INFINITY) {
+						found++;
+					}
+					best[t] = c;
+					bestLen[t] = len + buckets.length[k];
+					updated = true;
+				}
+			}
+			if (updated && found == best.length) {
+				maxBest = max(best);
+			}
+			addMatrixConnected(w, point, false);
+		}
+		for (int t = 0; t < best.length; t++) {
+			if (best[t] != Double.POSITIVE_INFINITY) {
+				costRow[t] = (float) best[t];
+				distRow[t] = (float) bestLen[t];
+			}
+		}
+	}
+	
+	private static double max(double[] values) {
+		double m = 0;
+		for (double v : values) {
+			m = Math.max(m, v);
+		}
+		return m;
+	}
+	
+	private int initMatrixQueue(HHRoutingContext<T> w, MatrixEndpoint<T> e, boolean reverse) {
+		int added = 0;
+		for (int i = 0; i < e.points.size(); i++) {
+			T pnt = e.points.get(i);
+			double cost = e.costs.cost[i];
+			double exCost = w.rt.getCost(reverse, pnt);
+			if (exCost == 0 || Math.max(cost, MINIMAL_COST) < exCost) {
+				if (exCost == 0) {
+					added++;
+				}
+				w.rt.setCostParentRt(reverse, pnt, Math.max(cost, MINIMAL_COST), null, cost);
+				w.rt.setLength(reverse, pnt, e.costs.length[i]);
+				w.queueAdded.add(pnt);
+				w.queue(reverse).add(new NetworkDBPointCost<T>(pnt, Math.max(cost, MINIMAL_COST), reverse));
+			}
+		}
+		return added;
+	}
+	
+	private T pollMatrixQueue(HHRoutingContext<T> w, Queue<NetworkDBPointCost<T>> queue, boolean reverse)
+			throws SQLException {
+		NetworkDBPointCost<T> pc = queue.poll();
+		T point = pc.point;
+		if (w.rt.isVisited(reverse, point) || pc.cost > w.rt.getCost(reverse, point)) {
+			return null;
+		}
+		w.rt.markVisited(reverse, point);
+		w.stats.visitedVertices++;
+		// parent is final when point is settled, so geometry is measured once per settled point
+		NetworkDBPoint parent = w.rt.getRouteToPoint(reverse, point);
+		if (parent != null) {
+			NetworkDBSegment segment = w.getSegment(parent, point, !reverse);
+			double len = segment != null ? w.getSegmentLength(segment)
+					: MapUtils.getDistance(parent.getPoint(), point.getPoint());
+			w.rt.setLength(reverse, point, w.rt.getLength(reverse, parent) + len);
+		}
+		return point;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void addMatrixConnected(HHRoutingContext<T> w, T point, boolean reverse) throws SQLException, IOException {
+		w.stats.loadEdgesCnt += w.loadNetworkSegmentPoint(point, reverse);
+		double cost = w.rt.getDistanceFromStart(reverse, point);
+		for (NetworkDBSegment connected : w.connected(point, reverse)) {
+			T nextPoint = (T) (reverse ? connected.start : connected.end);
+			if (!w.config.USE_CH && !w.config.USE_CH_SHORTCUTS && connected.shortcut) {
+				continue;
+			}
+			double dist = w.getDist(connected);
+			if (dist < 0 || w.rt.isExcluded(nextPoint) || w.rt.isVisited(reverse, nextPoint)) {
+				continue;
+			}
+			if (w.config.USE_CH && (nextPoint.chInd() > 0 && nextPoint.chInd() < point.chInd())) {
+				continue;
+			}
+			double nextCost = cost + dist;
+			double exCost = w.rt.getCost(reverse, nextPoint);
+			if (exCost == 0 || nextCost < exCost) {
+				w.rt.setCostParentRt(reverse, nextPoint, nextCost, point, dist);
+				w.queueAdded.add(nextPoint);
+				w.queue(reverse).add(new NetworkDBPointCost<T>(nextPoint, nextCost, reverse));
+				w.stats.addedVertices++;
+			}
+		}
+	}
+	
+	// buckets of all targets are sorted by network point (bucketsStart[pnt] .. bucketsStart[pnt + 1])
+	private static MatrixBuckets mergeMatrixBuckets(List<MatrixBuckets> targetBuckets, int[] bucketsStart) {
+		int total = 0;
+		for (MatrixBuckets b : targetBuckets) {
+			for (int k = 0; k < b.size; k++) {
+				bucketsStart[b.points[k] + 2]++;
+			}
+			total += b.size;
+		}
+		for (int i = 2; i < bucketsStart.length; i++) {
+			bucketsStart[i] += bucketsStart[i - 1];
+		}
+		MatrixBuckets res = new MatrixBuckets();
+		res.targets = new int[total];
+		res.cost = new double[total];
+		res.length = new double[total];
+		res.size = total;
+		for (int t = 0; t < targetBuckets.size(); t++) {
+			MatrixBuckets b = targetBuckets.get(t);
+			for (int k = 0; k < b.size; k++) {
+				int pos = bucketsStart[b.points[k] + 1]++;
+				res.targets[pos] = t;
+				res.cost[pos] = b.cost[k];
+				res.length[pos] = b.length[k];
+			}
+		}
+		return res;
+	}
+	
+	private static class MatrixEndpoint<T extends NetworkDBPoint> {
+		RouteSegmentPoint segment;
+		final List<T> points = new ArrayList<>();
+		final MatrixBuckets costs = new MatrixBuckets();
+	}
+	
+	private static class MatrixBuckets {
+		int[] points = new int[16];
+		int[] targets;
+		double[] cost = new double[16];
+		double[] length = new double[16];
+		int size;
+		
+		void add(int point, double c, double len) {
+			if (size == points.length) {
+				points = Arrays.copyOf(points, size * 2);
+				cost = Arrays.copyOf(cost, size * 2);
+				length = Arrays.copyOf(length, size * 2);
+			}
+			points[size] = point;
+			cost[size] = c;
+			length[size] = len;
+			size++;
+		}
+	}
 
 	public static TreeMap<String, String> getFilteredTags(GeneralRouter generalRouter) {
 		Map<String, RoutingParameter> parameters = generalRouter.getParameters();
@@ -312,57 +860,61 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 
 	private void filterPointsBasedOnConfiguration(HHRoutingContext<T> hctx) {
 		TreeMap<String, String> tm = getFilteredTags((GeneralRouter) hctx.rctx.getRouter());
-		if (hctx.filterRoutingParameters.equals(tm)) {
+		if (hctx.rt.filterRoutingParameters.equals(tm)) {
 			return;
 		}
 		for (T pnt : hctx.pointsById.valueCollection()) {
-			pnt.rtExclude = false;
+			hctx.rt.setExcluded(pnt, false);
 		}
 		if (tm.isEmpty()) {
 			// no parameters
-			hctx.filterRoutingParameters = tm;
+			hctx.rt.filterRoutingParameters = tm;
 			return;
 		}
 		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, " Filter points based on parameters...");
 		long nt = System.nanoTime();
-		RouteRegion regR = new RouteRegion();
-		TIntArrayList tint = new TIntArrayList(50);
-		RouteDataObject rdo = new RouteDataObject(regR);
-		for (T pnt : hctx.pointsById.valueCollection()) {
-			if (pnt.tagValues != null) {
-				for (TagValuePair tp : pnt.tagValues) {
-					tp.additionalAttribute = -1;
+		int filtered = 0;
+		// tag values of shared network are used to cache encoding rules
+		synchronized (hctx.network) {
+			RouteRegion regR = new RouteRegion();
+			TIntArrayList tint = new TIntArrayList(50);
+			RouteDataObject rdo = new RouteDataObject(regR);
+			for (T pnt : hctx.pointsById.valueCollection()) {
+				if (pnt.tagValues != null) {
+					for (TagValuePair tp : pnt.tagValues) {
+						tp.additionalAttribute = -1;
+					}
 				}
 			}
-		}
-		int filtered = 0;
-		for (T pnt : hctx.pointsById.valueCollection()) {
-			if (pnt.tagValues != null) {
-				tint.reset();
-				for (TagValuePair tp : pnt.tagValues) {
-					// reuse additionalAttribute to cache values
-					if (tp.additionalAttribute < 0) {
-						tp.additionalAttribute = regR.searchRouteEncodingRule(tp.tag, tp.value);
+			for (T pnt : hctx.pointsById.valueCollection()) {
+				if (pnt.tagValues != null) {
+					tint.reset();
+					for (TagValuePair tp : pnt.tagValues) {
+						// reuse additionalAttribute to cache values
+						if (tp.additionalAttribute < 0) {
+							tp.additionalAttribute = regR.searchRouteEncodingRule(tp.tag, tp.value);
+						}
+						if (tp.additionalAttribute < 0) {
+							tp.additionalAttribute = regR.routeEncodingRules.size();
+							regR.initRouteEncodingRule(tp.additionalAttribute, tp.tag, tp.value);
+						}
+						tint.add(tp.additionalAttribute);
 					}
-					if (tp.additionalAttribute < 0) {
-						tp.additionalAttribute = regR.routeEncodingRules.size();
-						regR.initRouteEncodingRule(tp.additionalAttribute, tp.tag, tp.value);
+					// here we always copy array but in C++ we could be more efficient
+					rdo.types = tint.toArray();
+					boolean exclude = !hctx.rctx.getRouter().acceptLine(rdo);
+					if (!exclude) {
+						// constant should be reduced if route is not found
+						exclude = hctx.rctx.getRouter().defineSpeedPriority(rdo, pnt.end > pnt.start) < EXCLUDE_PRIORITY_CONSTANT;
+					}
+					hctx.rt.setExcluded(pnt, exclude);
+					if (exclude) {
+						filtered++;
 					}
-					tint.add(tp.additionalAttribute);
-				}
-				// here we always copy array but in C++ we could be more efficient
-				rdo.types = tint.toArray();
-				pnt.rtExclude = !currentCtx.rctx.getRouter().acceptLine(rdo);
-				if (!pnt.rtExclude) {
-					// constant should be reduced if route is not found
-					pnt.rtExclude = currentCtx.rctx.getRouter().defineSpeedPriority(rdo, pnt.end > pnt.start) < EXCLUDE_PRIORITY_CONSTANT;
-				}
-				if (pnt.rtExclude) {
-					filtered++;
 				}
 			}
 		}
-		hctx.filterRoutingParameters = tm;
+		hctx.rt.filterRoutingParameters = tm;
 		double time = (System.nanoTime() - nt) / 1e6;
 		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "%d excluded from %d, %.2f ms\n", filtered, hctx.pointsById.size(), time);
 		hctx.stats.loadPointsTime += time;
@@ -393,11 +945,11 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				break;
 			}
 			for (T p : stPoints.valueCollection()) {
-				p.clearRouting();
+				hctx.rt.clearRouting(p);
 			}
 			stPoints.clear();
 			for (T p : endPoints.valueCollection()) {
-				p.clearRouting();
+				hctx.rt.clearRouting(p);
 			}
 			endPoints.clear();
 			RouteSegmentPoint startP = startPnt;
@@ -524,7 +1076,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				hctx.clearVisited(stPoints, endPoints);
 //				hctx.clearVisited();
 				for (NetworkDBPoint pnt : exclude) {
-					pnt.rtExclude = false;
+					hctx.rt.setExcluded(pnt, false);
 				}
 				exclude.clear();
 				
@@ -533,7 +1085,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				for (T p : objs) {
 					if (MapUtils.getDistance(p.getPoint(), pnt) <= minDistance[i]) {
 						exclude.add(p);
-						p.rtExclude = true;
+						hctx.rt.setExcluded(p, true);
 					}
 				}
 				
@@ -542,7 +1094,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					return;
 				}
 				if (finalPnt != null) {
-					double cost = (finalPnt.rt(false).rtDistanceFromStart + finalPnt.rt(true).rtDistanceFromStart);
+					double cost = (hctx.rt.getDistanceFromStart(false, finalPnt) + hctx.rt.getDistanceFromStart(true, finalPnt));
 					if (DEBUG_VERBOSE_LEVEL == 1) {
 						System.out.println("Alternative route cost: " + cost);
 					}
@@ -595,18 +1147,48 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			}
 		} finally {
 			for (NetworkDBPoint pnt : exclude) {
-				pnt.rtExclude = false;
+				hctx.rt.setExcluded(pnt, false);
 			}
 		}
 				
 	}
 
 	protected HHRoutingContext<T> initHCtx(HHRoutingConfig c, LatLon start, LatLon end) throws SQLException, IOException {
+		RoutingStats stats = new RoutingStats();
+		HHRoutingContext<T> hctx;
+		if (networkPlanner == null) {
+			hctx = loadNetwork(c, start, end, currentCtx.rctx, stats);
+		} else {
+			HHRoutingContext<T> network;
+			// shared network is only selected and loaded here, query state is kept by query context
+			synchronized (networkPlanner) {
+				network = networkPlanner.loadNetwork(c, start, end, currentCtx.rctx, stats);
+			}
+			if (network != null && currentCtx.network != network) {
+				currentCtx.releaseRouteState();
+				currentCtx = new HHRoutingContext<T>(network, currentCtx.rctx);
+			}
+			hctx = network == null ? null : currentCtx;
+		}
+		if (hctx == null) {
+			return null;
+		}
+		hctx.acquireRouteState();
+		hctx.stats = stats;
+		hctx.config = c;
+		hctx.setStartEnd(start, end);
+		hctx.clearVisited();
+		return hctx;
+	}
+
+	// selects and loads network with routing context of query, doesn't change state of queries
+	private HHRoutingContext<T> loadNetwork(HHRoutingConfig c, LatLon start, LatLon end, RoutingContext rctx,
+			RoutingStats stats) throws SQLException, IOException {
 		HHRoutingContext<T> hctx = this.currentCtx;
-		RouteCalculationProgress progress = hctx.rctx.calculationProgress;
+		RouteCalculationProgress progress = rctx.calculationProgress;
 		if (predefinedRegions == null) {
 			progress.hhIteration(HHIteration.SELECT_REGIONS);
-			hctx = selectBestRoutingFiles(start, end, hctx);
+			hctx = selectBestRoutingFiles(start, end, rctx);
 		}
 		if (hctx == null) {
 			System.out.println("No files found for routing");
@@ -615,10 +1197,6 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		if (HHRoutingConfig.STATS_VERBOSE_LEVEL > 0) {
 			System.out.println("Selected files: " + (hctx == null ? " NULL " : hctx.getRoutingInfo()));
 		}
-		hctx.stats = new RoutingStats();
-		hctx.config = c;
-		hctx.setStartEnd(start, end);
-		hctx.clearVisited();
 		if (hctx.initialized) {
 			return hctx;
 		}
@@ -627,15 +1205,16 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		progress.hhIteration(HHIteration.LOAD_POINTS);
 		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "Loading points... ");
 		hctx.pointsById = hctx.loadNetworkPoints(pointClass);
-		hctx.boundaries = new TLongObjectHashMap<RouteSegment>();
+		hctx.networkBoundaries = new TLongObjectHashMap<RouteSegment>();
+		hctx.boundaries = new OverlayTLongObjectMap<RouteSegment>(hctx.networkBoundaries);
 		hctx.pointsByGeo = new TLongObjectHashMap<T>();
 		if (c.PRELOAD_SEGMENTS) {
 			time = System.nanoTime();
 			printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "Loading segments...");
 			int cntEdges = hctx.loadNetworkSegments(hctx.pointsById.valueCollection());
-			hctx.stats.loadEdgesTime = (System.nanoTime() - time) / 1e6;
-			printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, " %,d - %.2fms\n", cntEdges, hctx.stats.loadEdgesTime);
-			hctx.stats.loadEdgesCnt = cntEdges;
+			stats.loadEdgesTime = (System.nanoTime() - time) / 1e6;
+			printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, " %,d - %.2fms\n", cntEdges, stats.loadEdgesTime);
+			stats.loadEdgesCnt = cntEdges;
 		} else {
 			for (NetworkDBPoint p : hctx.pointsById.valueCollection()) {
 				p.markSegmentsNotLoaded();
@@ -650,16 +1229,17 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			if (pos != pnt.getGeoPntId()) {
 				throw new IllegalStateException(pnt + " " + pos + " != "+ pnt.getGeoPntId());
 			}
-			hctx.boundaries.put(pos, null);
+			hctx.networkBoundaries.put(pos, null);
 			hctx.pointsByGeo.put(pos, pnt);
 			hctx.regions.get(pnt.mapId).pntsByFileId.put(pnt.fileId, pnt);
 		}		
 		if (DEBUG_VERBOSE_LEVEL > 0) {
 			hctx.pointsRect.printStatsDistribution("  Points distributed");
 		}
+		hctx.initRouteState();
 		hctx.initialized = true;
-		hctx.stats.loadPointsTime = (System.nanoTime() - time) / 1e6;
-		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, " %,d - %.2fms\n", hctx.pointsById.size(), hctx.stats.loadPointsTime);
+		stats.loadPointsTime = (System.nanoTime() - time) / 1e6;
+		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, " %,d - %.2fms\n", hctx.pointsById.size(), stats.loadPointsTime);
 		return hctx;
 	}
 
@@ -720,10 +1300,10 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		}
 	}
 
-	private HHRoutingContext<T> selectBestRoutingFiles(LatLon start, LatLon end, HHRoutingContext<T> hctx) throws IOException {
+	private HHRoutingContext<T> selectBestRoutingFiles(LatLon start, LatLon end, RoutingContext rctx) throws IOException {
 		List<HHRouteRegionsGroup<T>> groups = new ArrayList<>();
 	
-		GeneralRouter router = hctx.rctx.config.router;
+		GeneralRouter router = rctx.config.router;
 //		String profile = router.getProfileName();
 		String profile = router.getProfile().toString().toLowerCase(); // use base profile
 		List<String> ls = router.serializeParameterValues(router.getParameterValues());
@@ -732,7 +1312,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				Math.max(start.getLongitude(), end.getLongitude()),
 				Math.min(start.getLatitude(), end.getLatitude()));
 		
-		for (BinaryMapIndexReader r : hctx.rctx.map.keySet()) {
+		for (BinaryMapIndexReader r : rctx.map.keySet()) {
 			for (HHRouteRegion hhregion : r.getHHRoutingIndexes()) {
 				if (hhregion.profile.equals(profile) && QuadRect.intersects(hhregion.getLatLonBbox(), qr)) {
 					double intersect = QuadRect.intersectionArea(hhregion.getLatLonBbox(), qr);
@@ -797,7 +1377,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		if (allMatched) {
 			return currentCtx;
 		}
-		return initNewContext(hctx.rctx, regions);
+		return initNewContext(currentCtx.rctx, regions);
 	}
 
 	public static <T extends NetworkDBPoint> TIntObjectHashMap<List<T>> groupByClusters(TLongObjectHashMap<T> pointsById, boolean out) {
@@ -840,7 +1420,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					}
 					T pnt  = reverse ? (T) pSelect.dualPoint : pSelect;
 					double cost = MapUtils.getDistance(pnt.getPoint(), startLat, startLon) / spd;
-					pnt.setCostParentRt(reverse, cost + hctx.distanceToEnd(reverse, pnt), null, cost);
+					hctx.rt.setCostParentRt(reverse, pnt, cost + hctx.distanceToEnd(reverse, pnt), null, cost);
 					pnts.put(pnt.index, pnt);
 				}
 			}
@@ -863,13 +1443,13 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					negCost += hctx.rctx.config.penaltyForReverseDirection;
 				}
 			}
-			finitePnt.setDistanceToEnd(reverse, hctx.distanceToEnd(reverse, finitePnt));
-			finitePnt.setCostParentRt(reverse, plusCost, null, plusCost);
+			hctx.rt.setDistanceToEnd(reverse, finitePnt, hctx.distanceToEnd(reverse, finitePnt));
+			hctx.rt.setCostParentRt(reverse, finitePnt, plusCost, null, plusCost);
 			pnts.put(finitePnt.index, finitePnt);
 
 			T dualPoint = (T) finitePnt.dualPoint;
-			dualPoint.setDistanceToEnd(reverse, hctx.distanceToEnd(reverse, dualPoint));
-			dualPoint.setCostParentRt(reverse, negCost, null, negCost);
+			hctx.rt.setDistanceToEnd(reverse, dualPoint, hctx.distanceToEnd(reverse, dualPoint));
+			hctx.rt.setCostParentRt(reverse, dualPoint, negCost, null, negCost);
 			pnts.put(dualPoint.index, dualPoint);
 
 			return pnts;
@@ -923,11 +1503,11 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					} else {
 						o.distanceFromStart += planner.calcRoutingSegmentTimeOnlyDist(hctx.rctx.getRouter(), o) / 2;
 					}
-					if (pnt.rt(reverse).rtCost != 0) {
+					if (hctx.rt.getCost(reverse, pnt) != 0) {
 						throw new IllegalStateException();
 					}
-					pnt.setDistanceToEnd(reverse, hctx.distanceToEnd(reverse, pnt));
-					pnt.setDetailedParentRt(reverse, o);
+					hctx.rt.setDistanceToEnd(reverse, pnt, hctx.distanceToEnd(reverse, pnt));
+					hctx.rt.setDetailedParentRt(reverse, pnt, o);
 					pnts.put(pnt.index, pnt);
 				}
 			}
@@ -955,19 +1535,19 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	protected T runRoutingPointsToPoints(HHRoutingContext<T> hctx, TLongObjectHashMap<T> stPoints,
 	                                     TLongObjectHashMap<T> endPoints) throws SQLException, IOException {
 		for (T start : stPoints.valueCollection()) {
-			if (start.rtExclude) {
+			if (hctx.rt.isExcluded(start)) {
 				continue;
 			}
-			double cost = start.rt(false).rtCost;
-			addPointToQueue(hctx, hctx.queue(false), false, start, null, start.rt(false).rtDistanceFromStart,
+			double cost = hctx.rt.getCost(false, start);
+			addPointToQueue(hctx, hctx.queue(false), false, start, null, hctx.rt.getDistanceFromStart(false, start),
 					cost <= 0 ? MINIMAL_COST : cost);
 		}
 		for (T end : endPoints.valueCollection()) {
-			if (end.rtExclude) {
+			if (hctx.rt.isExcluded(end)) {
 				continue;
 			}
-			double cost = end.rt(true).rtCost;
-			addPointToQueue(hctx, hctx.queue(true), true, end, null, end.rt(true).rtDistanceFromStart,
+			double cost = hctx.rt.getCost(true, end);
+			addPointToQueue(hctx, hctx.queue(true), true, end, null, hctx.rt.getDistanceFromStart(true, end),
 					cost <= 0 ? MINIMAL_COST : cost);
 		}
 		T t = runRoutingWithInitQueue(hctx);
@@ -1016,7 +1596,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			boolean rev = pointCost.rev;
 			hctx.stats.pollQueueTime += (System.nanoTime() - tm) / 1e6;
 			hctx.stats.visitedVertices++;
-			if (point.rt(!rev).rtVisited) {
+			if (hctx.rt.isVisited(!rev, point)) {
 				if (hctx.stats.firstRouteVisitedVertices == 0) {
 					hctx.stats.firstRouteVisitedVertices = hctx.stats.visitedVertices;
 					if (DIR_CONFIG == 0 && hctx.config.HEURISTIC_COEFFICIENT != 0) {
@@ -1027,29 +1607,29 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				if (hctx.config.HEURISTIC_COEFFICIENT == 0 && hctx.config.DIJKSTRA_DIRECTION == 0) {
 					// Valid only HC=0, Dijkstra as we run Many-to-Many - Test( Lat 49.12691 Lon 9.213685 -> Lat 49.155483 Lon 9.2140045)
 					T finalPoint = point;
-					finalPoint = scanFinalPoint(finalPoint, hctx.visited);
-					finalPoint = scanFinalPoint(finalPoint, hctx.visitedRev);
+					finalPoint = scanFinalPoint(hctx, finalPoint, hctx.visited);
+					finalPoint = scanFinalPoint(hctx, finalPoint, hctx.visitedRev);
 					return finalPoint;
 				} else {
-					double rcost = point.rt(true).rtDistanceFromStart + point.rt(false).rtDistanceFromStart;
+					double rcost = hctx.rt.getDistanceFromStart(true, point) + hctx.rt.getDistanceFromStart(false, point);
 					if (rcost <= pointCost.cost) {
 						// Universal condition to stop: works for any algorithm - cost equals to route length
 						return point;
 					} else {
 						queue.add(new NetworkDBPointCost<T>(point, rcost, rev));
-						point.markVisited(rev);
+						hctx.rt.markVisited(rev, point);
 						continue;
 					}
 				}
 			}
-			if (point.rt(rev).rtVisited) {
+			if (hctx.rt.isVisited(rev, point)) {
 				continue;
 			}
 			hctx.stats.uniqueVisitedVertices++;
-			point.markVisited(rev);
+			hctx.rt.markVisited(rev, point);
 			hctx.visited.add(point);
 			(rev ? hctx.visited : hctx.visitedRev).add(point);
-			printPoint(point, rev);
+			printPoint(hctx, point, rev);
 			if (progress != null && straightStartEndCost > 0) {
 				final double STRAIGHT_TO_ROUTE_COST = 1.25; // approximate, tested on car/bike
 				// correlation between straight-cost and route-cost (enough for the progress bar)
@@ -1071,13 +1651,13 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return null;
 	}
 
-	private T scanFinalPoint(T finalPoint, List<T> lt) {
+	private T scanFinalPoint(HHRoutingContext<T> hctx, T finalPoint, List<T> lt) {
 		for (T p : lt) {
-			if (p.rt(true).rtDistanceFromStart == 0 || p.rt(false).rtDistanceFromStart == 0) {
+			if (hctx.rt.getDistanceFromStart(true, p) == 0 || hctx.rt.getDistanceFromStart(false, p) == 0) {
 				continue;
 			}
-			if (p.rt(true).rtDistanceFromStart + p.rt(false).rtDistanceFromStart 
-					< finalPoint.rt(true).rtDistanceFromStart + finalPoint.rt(false).rtDistanceFromStart) {
+			if (hctx.rt.getDistanceFromStart(true, p) + hctx.rt.getDistanceFromStart(false, p) 
+					< hctx.rt.getDistanceFromStart(true, finalPoint) + hctx.rt.getDistanceFromStart(false, finalPoint)) {
 				finalPoint = p;
 			}
 		}
@@ -1086,7 +1666,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	
 	@SuppressWarnings("unchecked")
 	private void addConnectedToQueue(HHRoutingContext<T> hctx, Queue<NetworkDBPointCost<T>> queue, T point, boolean reverse) throws SQLException, IOException {
-		int depth = hctx.config.USE_MIDPOINT || hctx.config.MAX_DEPTH > 0 ? point.rt(reverse).getDepth(reverse) : 0;
+		int depth = hctx.config.USE_MIDPOINT || hctx.config.MAX_DEPTH > 0 ? hctx.rt.getDepth(reverse, point) : 0;
 		if (hctx.config.MAX_DEPTH > 0 && depth >= hctx.config.MAX_DEPTH) {
 			return;
 		}
@@ -1094,12 +1674,12 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		int cnt = hctx.loadNetworkSegmentPoint(point, reverse);
 		hctx.stats.loadEdgesCnt += cnt;
 		hctx.stats.loadEdgesTime += (System.nanoTime() - tm) / 1e6;
-		for (NetworkDBSegment connected : point.connected(reverse)) {
+		for (NetworkDBSegment connected : hctx.connected(point, reverse)) {
 			T nextPoint = (T) (reverse ? connected.start : connected.end);
 			if (!hctx.config.USE_CH && !hctx.config.USE_CH_SHORTCUTS && connected.shortcut) {
 				continue;
 			}
-			if (nextPoint.rtExclude) {
+			if (hctx.rt.isExcluded(nextPoint)) {
 				continue;
 			}
 			// modify CH to not compute all top points
@@ -1109,26 +1689,28 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			if (hctx.config.USE_MIDPOINT && Math.min(depth, hctx.config.MIDPOINT_MAX_DEPTH) > nextPoint.midPntDepth() + hctx.config.MIDPOINT_ERROR) {
 				continue;
 			}
-			if (connected.dist < 0) {
+			double dist = hctx.getDist(connected);
+			if (dist < 0) {
 				// disabled segment
 				continue;
 			}
 			if (ASSERT_AND_CORRECT_DIST_SMALLER && hctx.config.HEURISTIC_COEFFICIENT > 0
-					&& smallestSegmentCost(hctx, point, nextPoint) - connected.dist >  1) {
+					&& smallestSegmentCost(hctx, point, nextPoint) - dist >  1) {
 				double smallestSegmentCost = smallestSegmentCost(hctx, point, nextPoint);
-				System.err.printf("Incorrect distance %s -> %s: db = %.2f > fastest %.2f \n", point, nextPoint, connected.dist, smallestSegmentCost);
-				connected.dist = smallestSegmentCost;
+				System.err.printf("Incorrect distance %s -> %s: db = %.2f > fastest %.2f \n", point, nextPoint, dist, smallestSegmentCost);
+				hctx.correctDist(connected, smallestSegmentCost);
+				dist = smallestSegmentCost;
 			}
-			double cost = point.rt(reverse).rtDistanceFromStart  + connected.dist + hctx.distanceToEnd(reverse, nextPoint);
-			if (ASSERT_COST_INCREASING && point.rt(reverse).rtCost - cost > 1) {
+			double cost = hctx.rt.getDistanceFromStart(reverse, point)  + dist + hctx.distanceToEnd(reverse, nextPoint);
+			if (ASSERT_COST_INCREASING && hctx.rt.getCost(reverse, point) - cost > 1) {
 				String msg = String.format("%s (cost %.2f) -> %s (cost %.2f) st=%.2f-> + %.2f, toend=%.2f->%.2f: ",
-						point, point.rt(reverse).rtCost, nextPoint, cost, point.rt(reverse).rtDistanceFromStart,
-						connected.dist, point.rt(reverse).rtDistanceToEnd, hctx.distanceToEnd(reverse, nextPoint));
+						point, hctx.rt.getCost(reverse, point), nextPoint, cost, hctx.rt.getDistanceFromStart(reverse, point),
+						dist, hctx.rt.getDistanceToEnd(reverse, point), hctx.distanceToEnd(reverse, nextPoint));
 				throw new IllegalStateException(msg);
 			}
-			double exCost = nextPoint.rt(reverse).rtCost;
-			if ((exCost == 0 && !nextPoint.rt(reverse).rtVisited) || cost < exCost) {
-				addPointToQueue(hctx, queue, reverse, nextPoint, point, connected.dist, cost);
+			double exCost = hctx.rt.getCost(reverse, nextPoint);
+			if ((exCost == 0 && !hctx.rt.isVisited(reverse, nextPoint)) || cost < exCost) {
+				addPointToQueue(hctx, queue, reverse, nextPoint, point, dist, cost);
 			}
 		}
 	}
@@ -1138,13 +1720,13 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		long tm = System.nanoTime();
 		if (DEBUG_VERBOSE_LEVEL > 2) {
 			System.out.printf("Add  %s to visit - cost %.2f (%.2f prev, %.2f dist) > prev cost %.2f \n", point, 
-					cost, parent == null ? 0 : parent.rt(reverse).rtDistanceFromStart, segmentDist, point.rt(reverse).rtCost);
+					cost, parent == null ? 0 : hctx.rt.getDistanceFromStart(reverse, parent), segmentDist, hctx.rt.getCost(reverse, point));
 		}
-		if (point.rt(reverse).rtVisited) {
+		if (hctx.rt.isVisited(reverse, point)) {
 			throw new IllegalStateException(String.format("%s visited - cost %.2f > prev cost %.2f", point, cost, 
-					point.rt(reverse).rtCost));
+					hctx.rt.getCost(reverse, point)));
 		}
-		point.setCostParentRt(reverse, cost, parent, segmentDist);
+		hctx.rt.setCostParentRt(reverse, point, cost, parent, segmentDist);
 		hctx.queueAdded.add(point);
 		queue.add(new NetworkDBPointCost<T>(point, cost, reverse)); // we need to add new object to not  remove / rebalance priority queue
 		hctx.stats.addQueueTime += (System.nanoTime() - tm) / 1e6;
@@ -1158,15 +1740,15 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 	}
 
 		
-	private void printPoint(T p, boolean rev) {
+	private void printPoint(HHRoutingContext<T> hctx, T p, boolean rev) {
 		if (DEBUG_VERBOSE_LEVEL > 1) {
 			int pind = 0; long pchInd = 0;
-			if (p.rt(rev).rtRouteToPoint != null) {
-				pind = p.rt(rev).rtRouteToPoint.index;
-				pchInd = p.rt(rev).rtRouteToPoint.chInd();
+			if (hctx.rt.getRouteToPoint(rev, p) != null) {
+				pind = hctx.rt.getRouteToPoint(rev, p).index;
+				pchInd = hctx.rt.getRouteToPoint(rev, p).chInd();
 			}
 			String symbol = String.format("%s %d [%d] (from %d [%d])", rev ? "<-" : "->", p.index, p.chInd(), pind, pchInd);
-			System.out.printf("Visit Point %s (cost %.1f s) %.5f/%.5f - %d\n", symbol, p.rt(rev).rtCost,
+			System.out.printf("Visit Point %s (cost %.1f s) %.5f/%.5f - %d\n", symbol, hctx.rt.getCost(rev, p),
 					MapUtils.get31LatitudeY(p.startY), MapUtils.get31LongitudeX(p.startX), p.roadId / 64);
 		}
 	}
@@ -1183,8 +1765,8 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		// if (c.USE_GC_MORE_OFTEN) {
 		// printGCInformation();
 		// }
-		RouteSegmentPoint start = loadPoint(hctx.rctx, startS);
-		RouteSegmentPoint end = loadPoint(hctx.rctx, endS);
+		RouteSegmentPoint start = loadPoint(hctx, startS);
+		RouteSegmentPoint end = loadPoint(hctx, endS);
 		if (start == null) {
 			return null; // no logging it's same as end of previos segment
 		} else if (end == null) {
@@ -1241,15 +1823,16 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 					if (full) {
 						recalculateNetworkCluster(hctx, s.segment.start);
 					}
-					s.segment.dist = -1;
+					hctx.correctDist(s.segment, -1);
 					return true;
 				}
-				if ((f.distanceFromStart + MAX_INC_COST_CORR) > (s.segment.dist + MAX_INC_COST_CORR) * hctx.config.MAX_INC_COST_CF) {
+				double segmentDist = hctx.getDist(s.segment);
+				if ((f.distanceFromStart + MAX_INC_COST_CORR) > (segmentDist + MAX_INC_COST_CORR) * hctx.config.MAX_INC_COST_CF) {
 					if (DEBUG_VERBOSE_LEVEL > 0) {
 						System.out.printf("Route cost increased (%.2f > %.2f) between %s -> %s: recalculate route\n",
-								f.distanceFromStart, s.segment.dist, s.segment.start, s.segment.end);
+								f.distanceFromStart, segmentDist, s.segment.start, s.segment.end);
 					}
-					s.segment.dist = f.distanceFromStart;
+					hctx.correctDist(s.segment, f.distanceFromStart);
 					return true;
 				}
 				s.rtTimeDetailed = f.distanceFromStart;
@@ -1272,7 +1855,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		hctx.rctx.config.heuristicCoefficient = 0;
 		// SPEEDUP: Speed up by just clearing visited
 		hctx.rctx.unloadAllData(); // needed for proper multidijsktra work
-		RouteSegmentPoint s = loadPoint(hctx.rctx, start);
+		RouteSegmentPoint s = loadPoint(hctx, start);
 		// hctx.rctx.calculationProgress = new RouteCalculationProgress(); // we should reuse same progress for cancellation
 		hctx.rctx.config.MAX_VISITED = MAX_POINTS_CLUSTER_ROUTING * 2;
 		long ps = calcRPId(s, s.getSegmentStart(), s.getSegmentEnd());
@@ -1281,6 +1864,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		MultiFinalRouteSegment frs = (MultiFinalRouteSegment) plan.searchRouteInternal(hctx.rctx, s, null, bounds);
 		hctx.rctx.config.MAX_VISITED = -1;
 		TLongObjectHashMap<RouteSegment> resUnique = new TLongObjectHashMap<>();
+		// shared network is not modified, corrections are kept by query
 		if (frs != null) {
 			for (FinalRouteSegment o : frs.all) {
 				long pntId = calculateRoutePointInternalId(o.getRoad().getId(), o.getSegmentStart(), o.getSegmentEnd());
@@ -1295,35 +1879,32 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 						System.err.println("Error calculations new final boundary not found");
 						continue;
 					}
-					p.startX = o.getStartPointX();
-					p.startY = o.getStartPointY();
-					p.endX = o.getEndPointX();
-					p.endY = o.getEndPointY();
+					hctx.correctPoint(p, o.getStartPointX(), o.getStartPointY(), o.getEndPointX(), o.getEndPointY());
 					float routeTime = o.getDistanceFromStart()
 							+ plan.calcRoutingSegmentTimeOnlyDist(hctx.rctx.getRouter(), o) / 2 + 1;
-					NetworkDBSegment c = start.getSegment(p, true);
+					NetworkDBSegment c = hctx.getSegment(start, p, true);
 					if (c != null) {
 						// System.out.printf("Corrected dist %.2f -> %.2f\n", c.dist, routeTime);
-						c.dist = routeTime;
+						hctx.correctDist(c, routeTime);
 					} else {
-						start.connected.add(new NetworkDBSegment(start, p, routeTime, true, false));
+						hctx.addConnected(start, false, new NetworkDBSegment(start, p, routeTime, true, false));
 					}
-					NetworkDBSegment co = p.getSegment(start, false);
+					NetworkDBSegment co = hctx.getSegment(p, start, false);
 					if (co != null) {
-						co.dist = routeTime;
-					} else if (p.connectedReverse != null) {
-						p.connectedReverse.add(new NetworkDBSegment(start, p, routeTime, false, false));
+						hctx.correctDist(co, routeTime);
+					} else {
+						hctx.addConnected(p, true, new NetworkDBSegment(start, p, routeTime, false, false));
 					}
 				}
 			}
 		}
-		for (NetworkDBSegment c : start.connected) {
+		for (NetworkDBSegment c : hctx.connected(start, false)) {
 			if (!resUnique.containsKey(c.end.getGeoPntId())) {
 //				System.out.printf("Remove connection %s -> %s\n", start, c.end); // to debug later if all correct
-				c.dist = -1; // disable as not found
-				NetworkDBSegment co = c.end.getSegment(start, false);
+				hctx.correctDist(c, -1); // disable as not found
+				NetworkDBSegment co = hctx.getSegment(c.end, start, false);
 				if (co != null) {
-					co.dist = -1;
+					hctx.correctDist(co, -1);
 				}
 			}
 		}
@@ -1375,7 +1956,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				} else {
 					printf(HHRoutingConfig.STATS_VERBOSE_LEVEL > 0, "\nRoute %d [%d] -> %d [%d] %s - hh dist %.2f s, detail %.2f s (%.1f%%) segments %d ( end %.5f/%.5f - %d ) ",
 							s.start.index, s.start.chInd(), s.end.index, s.end.chInd(), s.shortcut ? "sh" : "bs",
-							s.dist, routeSegment.rtTimeDetailed, 100 * (1 - routeSegment.rtTimeDetailed / s.dist),
+							hctx.getDist(s), routeSegment.rtTimeDetailed, 100 * (1 - routeSegment.rtTimeDetailed / hctx.getDist(s)),
 							segments, MapUtils.get31LatitudeY(s.end.startY), MapUtils.get31LongitudeX(s.end.startX),
 							s.end.roadId / 64);
 				}
@@ -1390,36 +1971,36 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		if (pnt != null) {
 			NetworkDBPoint itPnt = pnt;
 			route.uniquePoints.add(itPnt.index);
-			while (itPnt.rt(true).rtRouteToPoint != null) {
-				NetworkDBPoint nextPnt = itPnt.rt(true).rtRouteToPoint;
-				NetworkDBSegment segment = nextPnt.getSegment(itPnt, false);
+			while (hctx.rt.getRouteToPoint(true, itPnt) != null) {
+				NetworkDBPoint nextPnt = hctx.rt.getRouteToPoint(true, itPnt);
+				NetworkDBSegment segment = hctx.getSegment(nextPnt, itPnt, false);
 				HHNetworkSegmentRes res = new HHNetworkSegmentRes(segment);
 				route.segments.add(res);
-				res.rtTimeDetailed = res.rtTimeHHSegments = segment.dist;
+				res.rtTimeDetailed = res.rtTimeHHSegments = hctx.getDist(segment);
 				itPnt = nextPnt;
 				route.uniquePoints.add(itPnt.index);
 			}
-			if (itPnt.rt(true).rtDetailedRoute != null) {
+			if (hctx.rt.getDetailedRoute(true, itPnt) != null) {
 				HHNetworkSegmentRes res = new HHNetworkSegmentRes(null);
-				res.list = new RouteResultPreparation().convertFinalSegmentToResults(hctx.rctx, itPnt.rt(true).rtDetailedRoute);
-				res.rtTimeDetailed = res.rtTimeHHSegments = itPnt.rt(true).rtDetailedRoute.distanceFromStart;
+				res.list = new RouteResultPreparation().convertFinalSegmentToResults(hctx.rctx, hctx.rt.getDetailedRoute(true, itPnt));
+				res.rtTimeDetailed = res.rtTimeHHSegments = hctx.rt.getDetailedRoute(true, itPnt).distanceFromStart;
 				route.segments.add(res);
 			}
 			Collections.reverse(route.segments);
 			itPnt = pnt;
-			while (itPnt.rt(false).rtRouteToPoint != null) {
-				NetworkDBPoint nextPnt = itPnt.rt(false).rtRouteToPoint;
-				NetworkDBSegment segment = nextPnt.getSegment(itPnt, true);
+			while (hctx.rt.getRouteToPoint(false, itPnt) != null) {
+				NetworkDBPoint nextPnt = hctx.rt.getRouteToPoint(false, itPnt);
+				NetworkDBSegment segment = hctx.getSegment(nextPnt, itPnt, true);
 				HHNetworkSegmentRes res = new HHNetworkSegmentRes(segment);
 				route.segments.add(res);
-				res.rtTimeDetailed = res.rtTimeHHSegments = segment.dist;
+				res.rtTimeDetailed = res.rtTimeHHSegments = hctx.getDist(segment);
 				itPnt = nextPnt;
 				route.uniquePoints.add(itPnt.index);
 			}
-			if (itPnt.rt(false).rtDetailedRoute != null) {
+			if (hctx.rt.getDetailedRoute(false, itPnt) != null) {
 				HHNetworkSegmentRes res = new HHNetworkSegmentRes(null);
-				res.list = new RouteResultPreparation().convertFinalSegmentToResults(hctx.rctx, itPnt.rt(false).rtDetailedRoute);
-				res.rtTimeDetailed = res.rtTimeHHSegments = itPnt.rt(false).rtDetailedRoute.distanceFromStart;
+				res.list = new RouteResultPreparation().convertFinalSegmentToResults(hctx.rctx, hctx.rt.getDetailedRoute(false, itPnt));
+				res.rtTimeDetailed = res.rtTimeHHSegments = hctx.rt.getDetailedRoute(false, itPnt).distanceFromStart;
 				route.segments.add(res);
 			}
 			Collections.reverse(route.segments);
@@ -1430,8 +2011,16 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 
 	/// Utilities
 	static final int ROUTE_POINTS = 11;
+	private RouteSegmentPoint loadPoint(HHRoutingContext<T> hctx, NetworkDBPoint pnt) {
+		return loadPoint(hctx.rctx, pnt, hctx.getStartX(pnt), hctx.getStartY(pnt));
+	}
+
 	public static RouteSegmentPoint loadPoint(RoutingContext ctx, NetworkDBPoint pnt) {
-		RouteSegment s = ctx.loadRouteSegment(pnt.startX, pnt.startY, ctx.config.memoryLimitation);
+		return loadPoint(ctx, pnt, pnt.startX, pnt.startY);
+	}
+
+	private static RouteSegmentPoint loadPoint(RoutingContext ctx, NetworkDBPoint pnt, int startX, int startY) {
+		RouteSegment s = ctx.loadRouteSegment(startX, startY, ctx.config.memoryLimitation);
 		while (s != null) {
 			if (s.getRoad().getId() == pnt.roadId && s.getSegmentStart() == pnt.start) {
 				if (s.getSegmentEnd() != pnt.end) {
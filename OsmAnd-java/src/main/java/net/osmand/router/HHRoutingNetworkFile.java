@@ -0,0 +1,371 @@
+package net.osmand.router;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.PlatformUtil;
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
+import net.osmand.util.MapUtils;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Read only binary copy of one routing profile of HH network (.hhdb / .chdb) used instead of SQL queries
+ * for segments and geometry (points are still loaded from database once).
+ * File is memory mapped and read only with absolute gets, so one instance could be shared by many threads.
+ *
+ * Layout (big endian): header [magic, version, points N, segments E], point indexes int[N] (sorted),
+ * outgoing CSR [offsets int[N+1], targets int[E], distances double[E], shortcut flags byte[E]],
+ * incoming CSR [offsets int[N+1], sources int[E], distances double[E], shortcut flags byte[E]],
+ * geometry of outgoing segments [offsets int[E+1], data] where geometry is varint count and zigzag varint
+ * deltas of x31, y31. Targets and sources are positions in point indexes array.
+ * Distances are kept as double (same as segments of database), so routing with file has the same costs.
+ */
+public class HHRoutingNetworkFile {
+
+	private static final Log log = PlatformUtil.getLog(HHRoutingNetworkFile.class);
+
+	public static final String EXT = ".hhbin";
+	private static final int MAGIC = 0x48484e42; // HHNB
+	// version 1 had float distances
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 16;
+
+	private final File file;
+	private final ByteBuffer buf;
+	private final int pointsCount;
+	private final int segmentsCount;
+	private final int pointIndexesOffset;
+	private final Adjacency out;
+	private final Adjacency in;
+	private final int geometryOffsets;
+	private final int geometryData;
+
+	public HHRoutingNetworkFile(File file) throws IOException {
+		this.file = file;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Network file is too large to be mapped " + file.getName());
+			}
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			// mapping stays valid after channel is closed
+			raf.close();
+		}
+		if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+			throw new IOException("Unsupported network file " + file.getName());
+		}
+		pointsCount = buf.getInt(8);
+		segmentsCount = buf.getInt(12);
+		pointIndexesOffset = HEADER_SIZE;
+		out = new Adjacency(pointIndexesOffset + 4 * pointsCount);
+		in = new Adjacency(out.end);
+		geometryOffsets = in.end;
+		geometryData = geometryOffsets + 4 * (segmentsCount + 1);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getPointsCount() {
+		return pointsCount;
+	}
+
+	public int getSegmentsCount() {
+		return segmentsCount;
+	}
+
+	/**
+	 * Same as {@link HHRoutingDB#loadNetworkSegmentPoint} but reads segments of point from mapped file
+	 */
+	public <T extends NetworkDBPoint> int loadNetworkSegmentPoint(HHRoutingContext<T> ctx, T point, boolean reverse) {
+		if (point.connected(reverse) != null) {
+			return 0;
+		}
+		int pos = findPoint(point.index);
+		List<NetworkDBSegment> l;
+		if (pos < 0) {
+			l = new ArrayList<NetworkDBSegment>();
+		} else {
+			l = reverse ? in.segments(ctx.pointsById, point, pos, true) : out.segments(ctx.pointsById, point, pos, false);
+		}
+		point.connectedSet(reverse, l);
+		return l.size();
+	}
+
+	/**
+	 * Same as {@link HHRoutingDB#loadNetworkSegments} but reads all segments from mapped file
+	 */
+	public int loadNetworkSegments(Collection<? extends NetworkDBPoint> points) {
+		TLongObjectHashMap<NetworkDBPoint> pntsById = new TLongObjectHashMap<>();
+		for (NetworkDBPoint p : points) {
+			pntsById.put(p.index, p);
+		}
+		int cnt = 0;
+		for (NetworkDBPoint p : points) {
+			int pos = findPoint(p.index);
+			if (pos >= 0) {
+				List<NetworkDBSegment> l = out.segments(pntsById, p, pos, false);
+				for (NetworkDBSegment s : l) {
+					s.start.connected.add(s);
+					s.end.connectedReverse.add(new NetworkDBSegment(s.start, s.end, s.dist, false, s.shortcut));
+				}
+				cnt += l.size();
+			}
+		}
+		return cnt;
+	}
+
+	public boolean loadGeometry(NetworkDBSegment segment, boolean reload) {
+		List<LatLon> geometry = segment.getGeometry();
+		if (!geometry.isEmpty() && !reload) {
+			return true;
+		}
+		int startPos = findPoint(segment.start.index);
+		int endPos = findPoint(segment.end.index);
+		if (startPos < 0 || endPos < 0) {
+			return false;
+		}
+		for (int e = out.offset(startPos); e < out.offset(startPos + 1); e++) {
+			if (out.point(e) == endPos && out.shortcut(e) == segment.shortcut) {
+				geometry.clear();
+				int[] cursor = new int[] { geometryData + buf.getInt(geometryOffsets + 4 * e) };
+				int cnt = readVarint(cursor);
+				int x = 0;
+				int y = 0;
+				for (int i = 0; i < cnt; i++) {
+					x += decodeZigZag(readVarint(cursor));
+					y += decodeZigZag(readVarint(cursor));
+					geometry.add(new LatLon(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x)));
+				}
+				return !geometry.isEmpty();
+			}
+		}
+		return false;
+	}
+
+	private int findPoint(int index) {
+		int lo = 0;
+		int hi = pointsCount - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int v = buf.getInt(pointIndexesOffset + 4 * mid);
+			if (v < index) {
+				lo = mid + 1;
+			} else if (v > index) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	// reads varint at cursor[0] and moves cursor
+	private int readVarint(int[] cursor) {
+		int res = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buf.get(cursor[0]++);
+			res |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return res;
+	}
+
+	private static int decodeZigZag(int n) {
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	private class Adjacency {
+		final int offsets;
+		final int points;
+		final int distances;
+		final int flags;
+		final int end;
+
+		Adjacency(int start) {
+			offsets = start;
+			points = offsets + 4 * (pointsCount + 1);
+			distances = points + 4 * segmentsCount;
+			flags = distances + 8 * segmentsCount;
+			end = flags + segmentsCount;
+		}
+
+		int offset(int pos) {
+			return buf.getInt(offsets + 4 * pos);
+		}
+
+		int point(int e) {
+			return buf.getInt(points + 4 * e);
+		}
+
+		boolean shortcut(int e) {
+			return buf.get(flags + e) != 0;
+		}
+
+		<T extends NetworkDBPoint> List<NetworkDBSegment> segments(TLongObjectHashMap<T> pointsById,
+				NetworkDBPoint pnt, int pos, boolean reverse) {
+			int from = offset(pos);
+			int to = offset(pos + 1);
+			List<NetworkDBSegment> l = new ArrayList<NetworkDBSegment>(to - from);
+			for (int e = from; e < to; e++) {
+				NetworkDBPoint other = pointsById.get(buf.getInt(pointIndexesOffset + 4 * point(e)));
+				if (other == null) {
+					continue;
+				}
+				double dist = buf.getDouble(distances + 8 * e);
+				l.add(reverse ? new NetworkDBSegment(other, pnt, dist, false, shortcut(e))
+						: new NetworkDBSegment(pnt, other, dist, true, shortcut(e)));
+			}
+			return l;
+		}
+	}
+
+	/**
+	 * Writes segments and geometry of routing profile of network database to binary network file
+	 */
+	public static void export(HHRoutingDB db, int routingProfile, File outFile) throws SQLException, IOException {
+		long time = System.currentTimeMillis();
+		HHRoutingContext<NetworkDBPoint> ctx = new HHRoutingContext<NetworkDBPoint>();
+		HHRouteRegionPointsCtx<NetworkDBPoint> reg = new HHRouteRegionPointsCtx<NetworkDBPoint>((short) 0, db);
+		reg.routingProfile = routingProfile;
+		ctx.regions.add(reg);
+		ctx.pointsById = ctx.loadNetworkPoints(NetworkDBPoint.class);
+		ctx.clusterOutPoints = HHRoutePlanner.groupByClusters(ctx.pointsById, true);
+		ctx.clusterInPoints = HHRoutePlanner.groupByClusters(ctx.pointsById, false);
+		NetworkDBPoint[] points = ctx.pointsById.values(new NetworkDBPoint[ctx.pointsById.size()]);
+		Arrays.sort(points, HHRoutingDB.indexComparator);
+		TLongObjectHashMap<Integer> positions = new TLongObjectHashMap<>();
+		for (int i = 0; i < points.length; i++) {
+			positions.put(points[i].index, i);
+			points[i].markSegmentsNotLoaded();
+		}
+		List<NetworkDBSegment> segments = new ArrayList<NetworkDBSegment>();
+		for (NetworkDBPoint p : points) {
+			ctx.loadNetworkSegmentPoint(p, false);
+			for (NetworkDBSegment s : p.connected(false)) {
+				if (positions.containsKey(s.end.index)) {
+					segments.add(s);
+				}
+			}
+		}
+		write(outFile, points, segments, ctx, !db.compactDB);
+		log.info(String.format("Exported %d points, %d segments of %s to %s in %d ms", points.length,
+				segments.size(), db.getFile().getName(), outFile.getName(), System.currentTimeMillis() - time));
+	}
+
+	/**
+	 * Writes network file of points sorted by index and their outgoing segments (ordered by start point),
+	 * geometry of segments is loaded by context if withGeometry
+	 */
+	static void write(File outFile, NetworkDBPoint[] points, List<NetworkDBSegment> segments,
+			HHRoutingContext<?> ctx, boolean withGeometry) throws SQLException, IOException {
+		TLongObjectHashMap<Integer> positions = new TLongObjectHashMap<>();
+		for (int i = 0; i < points.length; i++) {
+			positions.put(points[i].index, i);
+		}
+		int[] outCounts = new int[points.length + 1];
+		// incoming segments are built from outgoing, so both directions are the same network
+		int[] inCounts = new int[points.length + 1];
+		for (NetworkDBSegment s : segments) {
+			outCounts[positions.get(s.start.index) + 1]++;
+			inCounts[positions.get(s.end.index) + 1]++;
+		}
+		for (int i = 0; i < points.length; i++) {
+			outCounts[i + 1] += outCounts[i];
+			inCounts[i + 1] += inCounts[i];
+		}
+		int[] inOrder = new int[segments.size()];
+		int[] fill = Arrays.copyOf(inCounts, points.length);
+		for (int e = 0; e < segments.size(); e++) {
+			inOrder[fill[positions.get(segments.get(e).end.index)]++] = e;
+		}
+
+		DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)));
+		try {
+			dout.writeInt(MAGIC);
+			dout.writeInt(VERSION);
+			dout.writeInt(points.length);
+			dout.writeInt(segments.size());
+			for (NetworkDBPoint p : points) {
+				dout.writeInt(p.index);
+			}
+			for (int i = 0; i < outCounts.length; i++) {
+				dout.writeInt(outCounts[i]);
+			}
+			for (NetworkDBSegment s : segments) {
+				dout.writeInt(positions.get(s.end.index));
+			}
+			for (NetworkDBSegment s : segments) {
+				dout.writeDouble(s.dist);
+			}
+			for (NetworkDBSegment s : segments) {
+				dout.writeByte(s.shortcut ? 1 : 0);
+			}
+			for (int i = 0; i < inCounts.length; i++) {
+				dout.writeInt(inCounts[i]);
+			}
+			for (int e : inOrder) {
+				dout.writeInt(positions.get(segments.get(e).start.index));
+			}
+			for (int e : inOrder) {
+				dout.writeDouble(segments.get(e).dist);
+			}
+			for (int e : inOrder) {
+				dout.writeByte(segments.get(e).shortcut ? 1 : 0);
+			}
+			ByteArrayOutputStream geometry = new ByteArrayOutputStream();
+			for (NetworkDBSegment s : segments) {
+				dout.writeInt(geometry.size());
+				List<LatLon> l = !withGeometry || !ctx.loadGeometry(s, false) ? new ArrayList<LatLon>() : s.getGeometry();
+				writeVarint(geometry, l.size());
+				int px = 0;
+				int py = 0;
+				for (LatLon ll : l) {
+					int x = MapUtils.get31TileNumberX(ll.getLongitude());
+					int y = MapUtils.get31TileNumberY(ll.getLatitude());
+					writeVarint(geometry, (x - px) << 1 ^ (x - px) >> 31);
+					writeVarint(geometry, (y - py) << 1 ^ (y - py) >> 31);
+					px = x;
+					py = y;
+				}
+				// geometry is not needed in memory while exporting
+				s.geom = null;
+			}
+			dout.writeInt(geometry.size());
+			geometry.writeTo(dout);
+		} finally {
+			dout.close();
+		}
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+}
@@ -0,0 +1,153 @@
+package net.osmand.router;
+
+import java.util.Collection;
+import java.util.Map;
+
+import gnu.trove.function.TObjectFunction;
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.procedure.TLongObjectProcedure;
+import gnu.trove.procedure.TLongProcedure;
+import gnu.trove.procedure.TObjectProcedure;
+import gnu.trove.set.TLongSet;
+
+/**
+ * Map with own entries on top of read only map: put / remove change only own entries,
+ * so many users could extend the same shared map.
+ */
+public class OverlayTLongObjectMap<T> implements TLongObjectMap<T> {
+
+	TLongObjectHashMap<T> added = new TLongObjectHashMap<>();
+	TLongObjectMap<T> map;
+
+	public OverlayTLongObjectMap(TLongObjectMap<T> map) {
+		this.map = map;
+	}
+
+	@Override
+	public long getNoEntryKey() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int size() {
+		return map.size() + added.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty() && added.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(long key) {
+		return added.containsKey(key) || map.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public T get(long key) {
+		if (added.containsKey(key)) {
+			return added.get(key);
+		}
+		return map.get(key);
+	}
+
+	@Override
+	public T put(long key, T value) {
+		return added.put(key, value);
+	}
+
+	@Override
+	public T putIfAbsent(long key, T value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public T remove(long key) {
+		return added.remove(key);
+	}
+
+	@Override
+	public void putAll(Map<? extends Long, ? extends T> m) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void clear() {
+		added.clear();
+	}
+
+	@Override
+	public TLongSet keySet() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public long[] keys() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public long[] keys(long[] array) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Collection<T> valueCollection() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public TLongObjectIterator<T> iterator() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean forEachKey(TLongProcedure procedure) {
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public void transformValues(TObjectFunction<T, T> function) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void putAll(TLongObjectMap<T> map) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public T[] values() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public <T> T[] values(T[] array) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean forEachValue(TObjectProcedure<T> procedure) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean forEachEntry(TLongObjectProcedure<T> procedure) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean retainEntries(TLongObjectProcedure<T> procedure) {
+		throw new UnsupportedOperationException();
+	}
+
+}
\ No newline at end of file
@@ -42,7 +42,7 @@ public class RouteCalculationProgress {
 	public int unloadedTiles = 0;
 	public int loadedTiles = 0;
 	
-	public boolean isCancelled;
+	public volatile boolean isCancelled;
 	public boolean requestPrivateAccessRouting;
 
 	public long routeCalculationStartTime;
@@ -2,6 +2,8 @@ package net.osmand.router;
 
 import net.osmand.gpx.GPXFile;
 import net.osmand.gpx.GPXTrackAnalysis;
+import net.osmand.gpx.GPXTrackColumns;
+import net.osmand.gpx.GPXTrackReader;
 import net.osmand.gpx.GPXUtilities.Track;
 import net.osmand.gpx.GPXUtilities.TrkSegment;
 import net.osmand.gpx.GPXUtilities.WptPt;
@@ -103,14 +105,61 @@ public class RouteColorize {
 			}
 		}
 
+		init(listToArray(latList), listToArray(lonList), listToArray(valList), analysis, type, palette, maxProfileSpeed);
+	}
+
+	/**
+	 * Colorization of track read by {@link GPXTrackReader} without {@link WptPt} objects.
+	 * @param analysis can be null
+	 */
+	public RouteColorize(GPXTrackColumns track, GPXTrackAnalysis analysis, ColorizationType type,
+			ColorPalette palette, float maxProfileSpeed) {
+		if (track.size() == 0) {
+			LOG.warn("GPX file is not consist of track points");
+			return;
+		}
+		if (analysis == null) {
+			analysis = GPXTrackAnalysis.prepareInformation(System.currentTimeMillis(), null, track);
+		}
+		int count = 0;
+		for (int s = 0; s < track.getSegmentsCount(); s++) {
+			int size = track.getSegmentEnd(s) - track.getSegmentStart(s);
+			count += size < 2 ? 0 : size;
+		}
+		double[] lats = new double[count];
+		double[] lons = new double[count];
+		double[] vals = new double[count];
+		int wptIdx = 0;
+		for (int s = 0; s < track.getSegmentsCount(); s++) {
+			int start = track.getSegmentStart(s);
+			int end = track.getSegmentEnd(s);
+			if (end - start < 2) {
+				continue;
+			}
+			for (int i = start; i < end; i++) {
+				lats[wptIdx] = track.getLatitude(i);
+				lons[wptIdx] = track.getLongitude(i);
+				if (type == ColorizationType.SPEED) {
+					vals[wptIdx] = analysis.pointAttributes.get(wptIdx).speed;
+				} else {
+					vals[wptIdx] = analysis.pointAttributes.get(wptIdx).elevation;
+				}
+				wptIdx++;
+			}
+		}
+		init(lats, lons, vals, analysis, type, palette, maxProfileSpeed);
+	}
+
+	private void init(double[] latitudes, double[] longitudes, double[] values, GPXTrackAnalysis analysis,
+			ColorizationType type, ColorPalette palette, float maxProfileSpeed) {
 		colorizationType = type;
-		latitudes = listToArray(latList);
-		longitudes = listToArray(lonList);
+		this.latitudes = latitudes;
+		this.longitudes = longitudes;
 
 		if (type == ColorizationType.SLOPE) {
-			values = calculateSlopesByElevations(latitudes, longitudes, listToArray(valList), SLOPE_RANGE);
+			this.values = calculateSlopesByElevations(latitudes, longitudes, values, SLOPE_RANGE);
 		} else {
-			values = listToArray(valList);
+			this.values = values;
 		}
 		calculateMinMaxValue(analysis, maxProfileSpeed);
 		if (type == ColorizationType.SLOPE) {
@@ -0,0 +1,217 @@
+package net.osmand.router;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentQueue;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of route segments keyed by float cost.
+ * Segments with the same route point id (road id, segment start, direction) are kept once:
+ * adding cheaper segment decreases the key of the queued one, adding more expensive segment is ignored
+ * (it would be skipped by the planner as already visited anyway).
+ * Segments added with {@link RouteSegmentQueue#NO_KEY} (final segments) are never merged.
+ * Doesn't allocate per operation except growing of internal arrays.
+ */
+class RouteSegmentHeap implements RouteSegmentQueue {
+
+	private static final long EMPTY_KEY = NO_KEY;
+
+	private float[] costs;
+	private long[] keys;
+	private RouteSegment[] segments;
+	private int size;
+
+	// open addressing index: route point id -> heap position
+	private long[] indexKeys;
+	private int[] indexPositions;
+	private int indexSize;
+
+	public RouteSegmentHeap(int capacity) {
+		capacity = Math.max(capacity, 16);
+		costs = new float[capacity];
+		keys = new long[capacity];
+		segments = new RouteSegment[capacity];
+		indexKeys = new long[Integer.highestOneBit(capacity) << 2];
+		Arrays.fill(indexKeys, EMPTY_KEY);
+		indexPositions = new int[indexKeys.length];
+	}
+
+	@Override
+	public void add(RouteSegment segment, float cost, long key) {
+		if (key != NO_KEY) {
+			int slot = findSlot(key);
+			if (indexKeys[slot] == key) {
+				int pos = indexPositions[slot];
+				if (cost < costs[pos]) {
+					costs[pos] = cost;
+					segments[pos] = segment;
+					siftUp(pos);
+				}
+				return;
+			}
+		}
+		if (size == costs.length) {
+			int newCapacity = size + (size >> 1);
+			costs = Arrays.copyOf(costs, newCapacity);
+			keys = Arrays.copyOf(keys, newCapacity);
+			segments = Arrays.copyOf(segments, newCapacity);
+		}
+		int pos = size++;
+		costs[pos] = cost;
+		keys[pos] = key;
+		segments[pos] = segment;
+		if (key != NO_KEY) {
+			putIndex(key, pos);
+		}
+		siftUp(pos);
+	}
+
+	@Override
+	public RouteSegment poll() {
+		if (size == 0) {
+			return null;
+		}
+		RouteSegment res = segments[0];
+		if (keys[0] != NO_KEY) {
+			removeIndex(keys[0]);
+		}
+		size--;
+		if (size > 0) {
+			move(size, 0);
+			segments[size] = null;
+			siftDown(0);
+		} else {
+			segments[0] = null;
+		}
+		return res;
+	}
+
+	@Override
+	public RouteSegment peek() {
+		return size == 0 ? null : segments[0];
+	}
+
+	@Override
+	public float peekCost() {
+		return size == 0 ? Float.NaN : costs[0];
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isIndexed() {
+		return true;
+	}
+
+	private void siftUp(int pos) {
+		float cost = costs[pos];
+		long key = keys[pos];
+		RouteSegment segment = segments[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (costs[parent] <= cost) {
+				break;
+			}
+			move(parent, pos);
+			pos = parent;
+		}
+		set(pos, cost, key, segment);
+	}
+
+	private void siftDown(int pos) {
+		float cost = costs[pos];
+		long key = keys[pos];
+		RouteSegment segment = segments[pos];
+		int half = size >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			int right = child + 1;
+			if (right < size && costs[right] < costs[child]) {
+				child = right;
+			}
+			if (cost <= costs[child]) {
+				break;
+			}
+			move(child, pos);
+			pos = child;
+		}
+		set(pos, cost, key, segment);
+	}
+
+	private void move(int from, int to) {
+		set(to, costs[from], keys[from], segments[from]);
+	}
+
+	private void set(int pos, float cost, long key, RouteSegment segment) {
+		costs[pos] = cost;
+		keys[pos] = key;
+		segments[pos] = segment;
+		if (key != NO_KEY) {
+			indexPositions[findSlot(key)] = pos;
+		}
+	}
+
+	private int findSlot(long key) {
+		int mask = indexKeys.length - 1;
+		int slot = (int) (key ^ (key >>> 32)) * 0x9E3779B9 & mask;
+		while (indexKeys[slot] != EMPTY_KEY && indexKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void putIndex(long key, int pos) {
+		if ((indexSize + 1) * 2 > indexKeys.length) {
+			rehash(indexKeys.length << 1);
+		}
+		int slot = findSlot(key);
+		indexKeys[slot] = key;
+		indexPositions[slot] = pos;
+		indexSize++;
+	}
+
+	private void removeIndex(long key) {
+		int mask = indexKeys.length - 1;
+		int slot = findSlot(key);
+		if (indexKeys[slot] != key) {
+			return;
+		}
+		indexKeys[slot] = EMPTY_KEY;
+		indexSize--;
+		// shift following entries of the cluster (linear probing deletion)
+		int next = (slot + 1) & mask;
+		while (indexKeys[next] != EMPTY_KEY) {
+			long k = indexKeys[next];
+			int p = indexPositions[next];
+			indexKeys[next] = EMPTY_KEY;
+			int s = findSlot(k);
+			indexKeys[s] = k;
+			indexPositions[s] = p;
+			next = (next + 1) & mask;
+		}
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = indexKeys;
+		int[] oldPositions = indexPositions;
+		indexKeys = new long[capacity];
+		Arrays.fill(indexKeys, EMPTY_KEY);
+		indexPositions = new int[capacity];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY_KEY) {
+				int s = findSlot(oldKeys[i]);
+				indexKeys[s] = oldKeys[i];
+				indexPositions[s] = oldPositions[i];
+			}
+		}
+	}
+}
@@ -67,6 +67,14 @@ public class RoutingConfiguration {
 	// 1.7 Maximum visited segments
 	public int MAX_VISITED = -1;
 
+	// 1.8 Use indexed heap (with decrease key) instead of PriorityQueue for segments to visit
+	// (equal cost segments could be visited in different order)
+	public boolean useIndexedSegmentsQueue = false;
+
+	// 1.9 Search from start and from end on 2 threads (only for 2 directions search without precalculated route),
+	// reverse direction runs on own thread, search uses copy of router with compiled evaluation shared by threads
+	public boolean parallelBidirectionalSearch = false;
+
 
 	// extra points to be inserted in ways (quad tree is based on 31 coords)
 	private QuadTree<DirectionPoint> directionPoints;
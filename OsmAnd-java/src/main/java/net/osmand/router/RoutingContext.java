@@ -91,6 +91,9 @@ public class RoutingContext {
 	// 3. Warm object caches
 	ArrayList<RouteSegment> segmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
 	ArrayList<RouteSegment> segmentsToVisitNotForbidden = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
+	// reverse search has own lists (directions could be searched in parallel)
+	ArrayList<RouteSegment> reverseSegmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
+	ArrayList<RouteSegment> reverseSegmentsToVisitNotForbidden = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
 	
 	
 	// 5. debug information (package accessor)
@@ -98,6 +101,10 @@ public class RoutingContext {
 	// updated by route planner in bytes
 	public int memoryOverhead = 0;
 	public float routingTime = 0;
+	// optional parallel loading of tiles (java routing only)
+	public RoutingTilePrefetcher tilePrefetcher;
+	// optional shared decoded route data (java routing only)
+	public CompactRouteGraph compactGraph;
 
 	// callback of processing segments
 	RouteSegmentVisitor visitor = null;
@@ -118,6 +125,7 @@ public class RoutingContext {
 		this.nativeLib = cp.nativeLib;
 		this.visitor = cp.visitor;
 		this.calculationProgress = cp.calculationProgress;
+		this.compactGraph = cp.compactGraph;
 	}
 	
 	RoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] list, RouteCalculationMode calcMode) {
@@ -157,6 +165,10 @@ public class RoutingContext {
 	}
 	
 	public int getCurrentEstimatedSize(){
+		if (tilePrefetcher != null) {
+			// decoded tiles waiting to be attached
+			return global.size + tilePrefetcher.getPrefetchedSize();
+		}
 		return global.size;
 	}
 	
@@ -218,6 +230,9 @@ public class RoutingContext {
 		}
 		subregionTiles.clear();
 		indexedSubregions.clear();
+		if (tilePrefetcher != null) {
+			tilePrefetcher.clear();
+		}
 	}
 	
 	private int searchSubregionTile(RouteSubregion subregion){
@@ -290,7 +305,19 @@ public class RoutingContext {
 			try {
 				BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
 				ts.setLoadedNonNative();
-				List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
+				List<RouteDataObject> res = null;
+				if (compactGraph != null) {
+					res = compactGraph.loadRouteIndexData(reader, ts.subregion);
+				}
+				if (res != null) {
+					// already decoded
+				} else if (tilePrefetcher != null) {
+					res = tilePrefetcher.loadRouteIndexData(reader, ts);
+				} else {
+					long loadStart = System.nanoTime();
+					res = reader.loadRouteIndexData(ts.subregion);
+					ts.tileStatistics.loadTime += System.nanoTime() - loadStart;
+				}
 				
 				if (toLoad != null) {
 					toLoad.addAll(res);
@@ -301,6 +328,7 @@ public class RoutingContext {
 								ro.processConditionalTags(config.routeCalculationTime);
 							}
 							if (config.router.acceptLine(ro)) {
+								config.router.compileRoad(ro);
 								if (excludeNotAllowed != null && !excludeNotAllowed.contains(ro.getId())) {
 									// don't attach point for route precalculation
 									if (!config.router.attributes.containsKey(GeneralRouter.CHECK_ALLOW_PRIVATE_NEEDED)) {
@@ -342,6 +370,7 @@ public class RoutingContext {
 			if(global != null) {
 				global.allRoutes += ts.tileStatistics.allRoutes;
 				global.coordinates += ts.tileStatistics.coordinates;
+				global.loadTime += ts.tileStatistics.loadTime;
 			}
 			if (calculationProgress != null) {
 				calculationProgress.distinctLoadedTiles++;
@@ -484,11 +513,7 @@ public class RoutingContext {
 				log.warn("Used memory before " + us1 / mb + " after " + us1 / mb );
 			}
 		}
-		if (!indexedSubregions.containsKey(tileId)) {
-			List<RoutingSubregionTile> collection = loadTileHeaders(x31, y31);
-			indexedSubregions.put(tileId, collection);
-		}
-		List<RoutingSubregionTile> subregions = indexedSubregions.get(tileId);
+		List<RoutingSubregionTile> subregions = getTileHeaders(x31, y31);
 		if (subregions != null) {
 			boolean load = false;
 			for (RoutingSubregionTile ts : subregions) {
@@ -497,6 +522,10 @@ public class RoutingContext {
 				}
 			}
 			if (load) {
+				if (tilePrefetcher != null && nativeLib == null) {
+					tilePrefetcher.prefetch(this, subregions);
+					tilePrefetcher.prefetchAround(this, x31, y31);
+				}
 				TLongHashSet excludeIds = new TLongHashSet();
 				for (RoutingSubregionTile ts : subregions) {
 					if (!ts.isLoaded()) {
@@ -513,7 +542,17 @@ public class RoutingContext {
 		return tileId;
 	}
 
-	
+
+	List<RoutingSubregionTile> getTileHeaders(int x31, int y31) {
+		int zmShift = 31 - config.ZOOM_TO_LOAD_TILES;
+		long tileId = ((long) (x31 >> zmShift) << config.ZOOM_TO_LOAD_TILES) + (y31 >> zmShift);
+		if (!indexedSubregions.containsKey(tileId)) {
+			List<RoutingSubregionTile> collection = loadTileHeaders(x31, y31);
+			indexedSubregions.put(tileId, collection);
+		}
+		return indexedSubregions.get(tileId);
+	}
+
 	private void connectPoint(final RoutingSubregionTile ts, RouteDataObject ro, List<DirectionPoint> points) {
 		int createType = ro.region.findOrCreateRouteType(DirectionPoint.TAG, DirectionPoint.CREATE_TYPE);
 		int deleteType = ro.region.findOrCreateRouteType(DirectionPoint.TAG, DirectionPoint.DELETE_TYPE);
@@ -647,6 +686,9 @@ public class RoutingContext {
 	
 	public void unloadUnusedTiles(long memoryLimit) {
 		float desirableSize = memoryLimit * 0.7f;
+		if (tilePrefetcher != null) {
+			tilePrefetcher.evict(0);
+		}
 		List<RoutingSubregionTile> list = new ArrayList<RoutingSubregionTile>(subregionTiles.size() / 2);
 		int loaded = 0;
 		for(RoutingSubregionTile t : subregionTiles) {
@@ -917,12 +959,14 @@ public class RoutingContext {
 		public int size = 0;
 		public int allRoutes = 0;
 		public int coordinates = 0;
+		// nanoseconds spent to read and decode data
+		public long loadTime = 0;
 		
 		@Override
 		public String toString() {
 			return "All routes " + allRoutes + 
 					" size " + (size / 1024f) + " KB coordinates " + coordinates + " ratio coord " + (((float)size) / coordinates)
-					+ " ratio routes " + (((float)size) / allRoutes);
+					+ " ratio routes " + (((float)size) / allRoutes) + " load time " + (loadTime / 1e6f) + " ms";
 		}
 
 		public void addObject(RouteDataObject o) {
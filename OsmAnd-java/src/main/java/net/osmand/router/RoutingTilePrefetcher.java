@@ -0,0 +1,287 @@
+package net.osmand.router;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapReaderPool;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.router.RoutingContext.RoutingSubregionTile;
+
+import org.apache.commons.logging.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads route data of routing tiles in parallel (java routing only).
+ * Data of all files intersecting requested tile and of tiles around search frontier is read and decoded
+ * by executor threads with pooled readers, while attaching objects to RoutingContext stays on the routing thread
+ * so the routing result doesn't depend on the prefetch.
+ * Decoded but not yet requested tiles are counted in {@link RoutingContext#getCurrentEstimatedSize()}. When there are
+ * too many pending tiles, the oldest finished (or not started) tiles and tiles loaded by other means are dropped.
+ * Should be used by one RoutingContext (see {@link RoutingContext#tilePrefetcher}).
+ */
+public class RoutingTilePrefetcher {
+
+	private static final Log log = PlatformUtil.getLog(RoutingTilePrefetcher.class);
+	// prefetch neighbour tiles only while loaded data stays below this part of memory limit
+	private static final float PREFETCH_MEMORY_RATIO = 0.6f;
+	public static final int DEFAULT_MAX_PENDING_TILES = 64;
+
+	private final ExecutorService executor;
+	private final int readersPerFile;
+	private final Map<BinaryMapIndexReader, BinaryMapReaderPool> pools = new HashMap<>();
+	// in order of submit
+	private final LinkedHashMap<RouteSubregion, LoadTileTask> pending = new LinkedHashMap<>();
+	// estimated size of decoded tiles which are not taken yet
+	private final AtomicLong prefetchedSize = new AtomicLong();
+	private int maxPendingTiles = DEFAULT_MAX_PENDING_TILES;
+
+	// statistics
+	public int submittedTiles;
+	public int readyTiles;
+	public int waitedTiles;
+	public int evictedTiles;
+	public long waitTime;
+
+	public RoutingTilePrefetcher(ExecutorService executor, int readersPerFile) {
+		this.executor = executor;
+		this.readersPerFile = readersPerFile;
+	}
+
+	public void setMaxPendingTiles(int maxPendingTiles) {
+		this.maxPendingTiles = maxPendingTiles;
+	}
+
+	public int getPendingTiles() {
+		return pending.size();
+	}
+
+	public int getPrefetchedSize() {
+		return (int) prefetchedSize.get();
+	}
+
+	/**
+	 * Submits all not loaded tiles for loading, tiles of different files are loaded in parallel
+	 */
+	public void prefetch(RoutingContext ctx, List<RoutingSubregionTile> tiles) {
+		if (tiles == null) {
+			return;
+		}
+		for (RoutingSubregionTile ts : tiles) {
+			if (pending.size() >= maxPendingTiles) {
+				evict(maxPendingTiles / 2);
+				if (pending.size() >= maxPendingTiles) {
+					break;
+				}
+			}
+			if (!ts.isLoaded() && !pending.containsKey(ts.subregion)) {
+				BinaryMapIndexReader reader = ctx.reverseMap.get(ts.subregion.routeReg);
+				if (reader != null) {
+					LoadTileTask task = new LoadTileTask(getPool(reader), ts, prefetchedSize);
+					task.future = executor.submit(task);
+					pending.put(ts.subregion, task);
+					submittedTiles++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops pending tiles which were loaded by other means and then the oldest tiles which are finished or not started
+	 * until at most maxPending tiles stay. Running tasks are kept.
+	 */
+	public void evict(int maxPending) {
+		Iterator<LoadTileTask> it = pending.values().iterator();
+		while (it.hasNext()) {
+			LoadTileTask task = it.next();
+			if (task.ts.isLoaded()) {
+				drop(task);
+				it.remove();
+			}
+		}
+		it = pending.values().iterator();
+		while (pending.size() > maxPending && it.hasNext()) {
+			LoadTileTask task = it.next();
+			if (task.future.isDone() || task.future.cancel(false)) {
+				drop(task);
+				it.remove();
+			}
+		}
+	}
+
+	private void drop(LoadTileTask task) {
+		task.release();
+		evictedTiles++;
+	}
+
+	/**
+	 * Submits tiles around the tile (ZOOM_TO_LOAD_TILES) containing point, headers are loaded on the calling thread
+	 */
+	public void prefetchAround(RoutingContext ctx, int x31, int y31) {
+		long memoryLimit = ctx.config.memoryLimitation;
+		if (memoryLimit > 0 && ctx.getCurrentEstimatedSize() > PREFETCH_MEMORY_RATIO * memoryLimit) {
+			return;
+		}
+		int zmShift = 31 - ctx.config.ZOOM_TO_LOAD_TILES;
+		int tileX = x31 >> zmShift;
+		int tileY = y31 >> zmShift;
+		int max = (1 << ctx.config.ZOOM_TO_LOAD_TILES) - 1;
+		for (int i = -1; i <= 1; i++) {
+			for (int j = -1; j <= 1; j++) {
+				int tx = tileX + i;
+				int ty = tileY + j;
+				if ((i == 0 && j == 0) || tx < 0 || ty < 0 || tx > max || ty > max) {
+					continue;
+				}
+				prefetch(ctx, ctx.getTileHeaders(tx << zmShift, ty << zmShift));
+			}
+		}
+	}
+
+	/**
+	 * Returns data of the tile loaded by executor or loads it synchronously if it wasn't submitted
+	 */
+	public List<RouteDataObject> loadRouteIndexData(BinaryMapIndexReader reader, RoutingSubregionTile ts) throws IOException {
+		LoadTileTask task = pending.remove(ts.subregion);
+		if (task == null) {
+			long now = System.nanoTime();
+			List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
+			ts.tileStatistics.loadTime += System.nanoTime() - now;
+			return res;
+		}
+		Future<List<RouteDataObject>> f = task.future;
+		if (f.isDone()) {
+			readyTiles++;
+		} else {
+			waitedTiles++;
+		}
+		long now = System.nanoTime();
+		try {
+			List<RouteDataObject> res = f.get();
+			// time is measured by worker and added on routing thread
+			ts.tileStatistics.loadTime += task.loadTime;
+			return res;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Loading tile was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Loading tile failed", e.getCause());
+		} finally {
+			task.release();
+			waitTime += System.nanoTime() - now;
+		}
+	}
+
+	/**
+	 * Cancels pending tiles (data is dropped), pooled readers stay open until {@link #close()}
+	 */
+	public void clear() {
+		for (LoadTileTask task : pending.values()) {
+			Future<List<RouteDataObject>> f = task.future;
+			task.release();
+			if (!f.cancel(false)) {
+				// running task still writes to subregion, so it should finish before subregion is read again
+				try {
+					f.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					// already logged
+				}
+			}
+		}
+		pending.clear();
+	}
+
+	public void close() {
+		clear();
+		for (BinaryMapReaderPool pool : pools.values()) {
+			pool.close();
+		}
+		pools.clear();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Prefetched tiles %d (ready %d, waited %d %.2f ms, evicted %d), pending %d (%d KB)",
+				submittedTiles, readyTiles, waitedTiles, waitTime / 1e6, evictedTiles, pending.size(),
+				prefetchedSize.get() >> 10);
+	}
+
+	private BinaryMapReaderPool getPool(BinaryMapIndexReader reader) {
+		BinaryMapReaderPool pool = pools.get(reader);
+		if (pool == null) {
+			pool = new BinaryMapReaderPool(reader, readersPerFile);
+			pools.put(reader, pool);
+		}
+		return pool;
+	}
+
+	private static class LoadTileTask implements Callable<List<RouteDataObject>> {
+		private static final int RUNNING = -1;
+		private static final int RELEASED = -2;
+
+		private final BinaryMapReaderPool pool;
+		private final RoutingSubregionTile ts;
+		private final AtomicLong prefetchedSize;
+		// size counted in prefetchedSize or RUNNING, RELEASED
+		private final AtomicInteger size = new AtomicInteger(RUNNING);
+		Future<List<RouteDataObject>> future;
+		// read by routing thread after future.get()
+		long loadTime;
+
+		LoadTileTask(BinaryMapReaderPool pool, RoutingSubregionTile ts, AtomicLong prefetchedSize) {
+			this.pool = pool;
+			this.ts = ts;
+			this.prefetchedSize = prefetchedSize;
+		}
+
+		@Override
+		public List<RouteDataObject> call() throws Exception {
+			long now = System.nanoTime();
+			BinaryMapIndexReader reader = pool.acquire();
+			List<RouteDataObject> res;
+			try {
+				res = reader.loadRouteIndexData(ts.subregion);
+			} catch (IOException e) {
+				log.error("Error loading tile " + reader.getFile().getName(), e);
+				throw e;
+			} finally {
+				pool.release(reader);
+				loadTime = System.nanoTime() - now;
+			}
+			int sz = 0;
+			for (RouteDataObject o : res) {
+				if (o != null) {
+					sz += RoutingContext.getEstimatedSize(o);
+				}
+			}
+			if (size.compareAndSet(RUNNING, sz)) {
+				prefetchedSize.addAndGet(sz);
+			}
+			return res;
+		}
+
+		// data is taken or dropped, so it isn't counted anymore
+		void release() {
+			int sz = size.getAndSet(RELEASED);
+			if (sz > 0) {
+				prefetchedSize.addAndGet(-sz);
+			}
+		}
+	}
+}
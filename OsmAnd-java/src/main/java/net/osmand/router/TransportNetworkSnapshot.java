@@ -0,0 +1,222 @@
+package net.osmand.router;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+
+import org.apache.commons.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Transport stops and routes of region loaded once from obf files and shared by many
+ * {@link TransportRoutingContext} (also from different threads). Stops are read tile by tile at zoom
+ * {@link TransportRoutingConfiguration#ZOOM_TO_LOAD_TILES} exactly as context loads them, merged stops keep
+ * combined routes with schedules. Snapshot is not modified after build: stops are kept in arrays sorted by tile
+ * (tile index is sorted array of tile ids with start of tile stops), routes of every stop with index of stop
+ * in route are kept in int arrays, so contexts create route segments of tile without searching stops in routes.
+ * Stops, routes and schedules themselves are shared objects (the same objects as read from files) and must not be
+ * modified by contexts; transfers are not stored, they depend on walk radius of configuration and are found
+ * through tiles.
+ * Snapshot is bound to files it was built from, when files are changed ({@link #isUpToDate()} is false)
+ * contexts don't use it and it should be built again.
+ */
+public class TransportNetworkSnapshot {
+
+	private static final Log log = PlatformUtil.getLog(TransportNetworkSnapshot.class);
+
+	private final int zoom;
+	// tiles of bbox
+	private final int leftX;
+	private final int rightX;
+	private final int topY;
+	private final int bottomY;
+	private final File[] files;
+	private final long[] filesModified;
+	private final long[] filesLength;
+
+	// sorted tile ids, stops of tileIds[i] are stops[tileStart[i]..tileStart[i + 1])
+	private final long[] tileIds;
+	private final int[] tileStart;
+	private final TransportStop[] stops;
+	private final TransportRoute[] routes;
+	// routes of stops[i] are stopRoute[stopRoutesStart[i]..stopRoutesStart[i + 1]) (index in routes),
+	// stopRouteIndex is index of stop in forward stops of route
+	private final int[] stopRoutesStart;
+	private final int[] stopRoute;
+	private final int[] stopRouteIndex;
+
+	private TransportNetworkSnapshot(int zoom, int leftX, int rightX, int topY, int bottomY,
+			List<BinaryMapIndexReader> readers, long[] tileIds, int[] tileStart, TransportStop[] stops,
+			TransportRoute[] routes, int[] stopRoutesStart, int[] stopRoute, int[] stopRouteIndex) {
+		this.zoom = zoom;
+		this.leftX = leftX;
+		this.rightX = rightX;
+		this.topY = topY;
+		this.bottomY = bottomY;
+		this.files = new File[readers.size()];
+		this.filesModified = new long[readers.size()];
+		this.filesLength = new long[readers.size()];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = readers.get(i).getFile();
+			filesModified[i] = files[i] == null ? 0 : files[i].lastModified();
+			filesLength[i] = files[i] == null ? 0 : files[i].length();
+		}
+		this.tileIds = tileIds;
+		this.tileStart = tileStart;
+		this.stops = stops;
+		this.routes = routes;
+		this.stopRoutesStart = stopRoutesStart;
+		this.stopRoute = stopRoute;
+		this.stopRouteIndex = stopRouteIndex;
+	}
+
+	/**
+	 * Reads all transport stops and routes of bbox from files (readers are not used by snapshot after build).
+	 */
+	public static TransportNetworkSnapshot build(int left31, int top31, int right31, int bottom31, int zoom,
+			BinaryMapIndexReader... readers) throws IOException {
+		long time = System.currentTimeMillis();
+		int pz = 31 - zoom;
+		int lx = left31 >> pz;
+		int rx = right31 >> pz;
+		int ty = top31 >> pz;
+		int by = bottom31 >> pz;
+		List<BinaryMapIndexReader> files = Arrays.asList(readers);
+		TransportStopsRouteReader reader = new TransportStopsRouteReader(files);
+		TLongArrayList tiles = new TLongArrayList();
+		TIntArrayList starts = new TIntArrayList();
+		List<TransportStop> stops = new ArrayList<TransportStop>();
+		// combined routes are shared by stops, routes of different files could have the same id
+		Map<TransportRoute, Integer> routeIds = new IdentityHashMap<TransportRoute, Integer>();
+		List<TransportRoute> routes = new ArrayList<TransportRoute>();
+		TIntArrayList stopRoutesStart = new TIntArrayList();
+		TIntArrayList stopRoute = new TIntArrayList();
+		TIntArrayList stopRouteIndex = new TIntArrayList();
+		for (int x = lx; x <= rx; x++) {
+			for (int y = ty; y <= by; y++) {
+				BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(
+						x << pz, (x + 1) << pz, y << pz, (y + 1) << pz, -1, null);
+				Collection<TransportStop> tileStops = reader.readMergedTransportStops(sr);
+				if (tileStops.isEmpty()) {
+					continue;
+				}
+				tiles.add(tileId(x, y, zoom));
+				starts.add(stops.size());
+				for (TransportStop s : tileStops) {
+					stops.add(s);
+					stopRoutesStart.add(stopRoute.size());
+					if (s.isDeleted() || s.getRoutes() == null) {
+						continue;
+					}
+					for (TransportRoute r : s.getRoutes()) {
+						int stopIndex = TransportRoutingContext.getStopIndex(r, s);
+						if (stopIndex == -1) {
+							log.error(String.format("Missing stop '%s' in route '%s' id: %d", s, r.getRef(),
+									r.getId() / 2));
+							continue;
+						}
+						Integer ind = routeIds.get(r);
+						if (ind == null) {
+							ind = routes.size();
+							routeIds.put(r, ind);
+							routes.add(r);
+						}
+						stopRoute.add(ind);
+						stopRouteIndex.add(stopIndex);
+					}
+				}
+			}
+		}
+		starts.add(stops.size());
+		stopRoutesStart.add(stopRoute.size());
+		// tile ids are already sorted as x, y increase
+		TransportNetworkSnapshot snapshot = new TransportNetworkSnapshot(zoom, lx, rx, ty, by, files, tiles.toArray(),
+				starts.toArray(), stops.toArray(new TransportStop[0]), routes.toArray(new TransportRoute[0]),
+				stopRoutesStart.toArray(), stopRoute.toArray(), stopRouteIndex.toArray());
+		log.info(String.format("Transport snapshot %d tiles, %d stops, %d routes loaded in %d ms", tiles.size(),
+				stops.size(), routes.size(), System.currentTimeMillis() - time));
+		return snapshot;
+	}
+
+	static long tileId(int x, int y, int zoom) {
+		// same as TransportRoutingContext
+		return (((long) x) << (zoom + 1)) + y;
+	}
+
+	public int getZoom() {
+		return zoom;
+	}
+
+	public int getStopsCount() {
+		return stops.length;
+	}
+
+	public int getRoutesCount() {
+		return routes.length;
+	}
+
+	public boolean isUpToDate() {
+		for (int i = 0; i < files.length; i++) {
+			if (files[i] != null && (files[i].lastModified() != filesModified[i] || files[i].length() != filesLength[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if snapshot has all stops of tile (tile of snapshot zoom)
+	 */
+	public boolean containsTile(int x, int y) {
+		return x >= leftX && x <= rightX && y >= topY && y <= bottomY;
+	}
+
+	/**
+	 * @return index of tile (of snapshot zoom) or -1 if tile has no stops
+	 */
+	public int getTile(int x, int y) {
+		int ind = Arrays.binarySearch(tileIds, tileId(x, y, zoom));
+		return ind < 0 ? -1 : ind;
+	}
+
+	/**
+	 * @return first stop of tile, stops of tile are [getTileStopsStart(tile), getTileStopsStart(tile + 1))
+	 */
+	public int getTileStopsStart(int tile) {
+		return tileStart[tile];
+	}
+
+	public TransportStop getStop(int stop) {
+		return stops[stop];
+	}
+
+	/**
+	 * @return first route of stop, routes of stop are [getStopRoutesStart(stop), getStopRoutesStart(stop + 1))
+	 */
+	public int getStopRoutesStart(int stop) {
+		return stopRoutesStart[stop];
+	}
+
+	public TransportRoute getStopRoute(int stopRouteInd) {
+		return routes[stopRoute[stopRouteInd]];
+	}
+
+	/**
+	 * @return index of stop in forward stops of route
+	 */
+	public int getStopRouteIndex(int stopRouteInd) {
+		return stopRouteIndex[stopRouteInd];
+	}
+}
@@ -0,0 +1,405 @@
+package net.osmand.router;
+
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+import net.osmand.router.TransportRoutePlanner.TransportRouteSegment;
+import net.osmand.util.MapUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Round based (RAPTOR like) alternative of {@link TransportRoutePlanner#buildRoute}, selected with
+ * {@link TransportRoutingConfiguration#useRaptor}. Round k finds earliest arrival to stops with k rides:
+ * routes (trips for schedule) boarded from stops improved in the previous round are scanned once
+ * along their stops. Arrival times and parents of every round are kept in int arrays indexed by stop.
+ * Travel, walk, change and boarding times are the same as in {@link TransportRoutePlanner}.
+ * Result contains pareto optimal journeys: each next journey has more changes and arrives earlier.
+ */
+public class TransportRaptorPlanner {
+
+	private static final int INF = Integer.MAX_VALUE;
+
+	// stops found while search, index of stop is used in round arrays
+	private final TLongObjectHashMap<Integer> stopIndexes = new TLongObjectHashMap<Integer>();
+	private final List<TransportStop> stops = new ArrayList<TransportStop>();
+	// trips (route with start time for schedule) by route id and start time, index of trip is used in round arrays
+	private final TLongObjectHashMap<TIntObjectHashMap<Trip>> routeTrips = new TLongObjectHashMap<TIntObjectHashMap<Trip>>();
+	private final List<Trip> trips = new ArrayList<Trip>();
+	// earliest arrival to stop in any round
+	private int[] best = new int[0];
+	private Round[] rounds;
+	private double maxBoardTime;
+
+	private static class Trip {
+		final int index;
+		final TransportRoute route;
+		// start time of trip (10 seconds) or -1
+		final int startTime;
+		final float speed;
+		// boardings found in current round
+		final List<Boarding> boardings = new ArrayList<Boarding>(2);
+
+		Trip(int index, TransportRoute route, int startTime, float speed) {
+			this.index = index;
+			this.route = route;
+			this.startTime = startTime;
+			this.speed = speed;
+		}
+	}
+
+	private static class Boarding {
+		final int stopIndex;
+		final int time;
+		final int fromStop;
+		final float walkDist;
+
+		Boarding(int stopIndex, int time, int fromStop, float walkDist) {
+			this.stopIndex = stopIndex;
+			this.time = time;
+			this.fromStop = fromStop;
+			this.walkDist = walkDist;
+		}
+	}
+
+	// arrivals of round and how stop was reached (trip from board stop index to exit stop index)
+	private static class Round {
+		int[] arrival;
+		int[] trip;
+		int[] boardIndex;
+		int[] exitIndex;
+		int[] boardTime;
+		// stop (index) of previous round or -1 for start point
+		int[] fromStop;
+		float[] walkDist;
+		TIntArrayList marked = new TIntArrayList();
+
+		// arrival to end point
+		int destArrival = INF;
+		int destTrip;
+		int destBoardIndex;
+		int destExitIndex;
+		int destBoardTime;
+		int destFromStop;
+		float destBoardWalk;
+		float destFinishWalk;
+
+		Round(int capacity) {
+			arrival = new int[capacity];
+			Arrays.fill(arrival, INF);
+			trip = new int[capacity];
+			boardIndex = new int[capacity];
+			exitIndex = new int[capacity];
+			boardTime = new int[capacity];
+			fromStop = new int[capacity];
+			walkDist = new float[capacity];
+		}
+
+		void ensureCapacity(int capacity) {
+			if (arrival.length < capacity) {
+				int old = arrival.length;
+				arrival = Arrays.copyOf(arrival, capacity);
+				Arrays.fill(arrival, old, capacity, INF);
+				trip = Arrays.copyOf(trip, capacity);
+				boardIndex = Arrays.copyOf(boardIndex, capacity);
+				exitIndex = Arrays.copyOf(exitIndex, capacity);
+				boardTime = Arrays.copyOf(boardTime, capacity);
+				fromStop = Arrays.copyOf(fromStop, capacity);
+				walkDist = Arrays.copyOf(walkDist, capacity);
+			}
+		}
+	}
+
+	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, LatLon start, LatLon end)
+			throws IOException, InterruptedException {
+		ctx.startCalcTime = System.currentTimeMillis();
+		TransportRoutingConfiguration cfg = ctx.cfg;
+		double totalDistance = MapUtils.getDistance(start, end);
+		List<TransportRouteSegment> startStops = ctx.getTransportStops(start);
+		List<TransportRouteSegment> endStops = ctx.getTransportStops(end);
+		if (startStops.size() == 0) {
+			return Collections.emptyList();
+		}
+		// walk distance to end from stops of routes (by route id and stop index)
+		TLongObjectHashMap<TIntObjectHashMap<Float>> endDist = new TLongObjectHashMap<TIntObjectHashMap<Float>>();
+		for (TransportRouteSegment s : endStops) {
+			float d = (float) MapUtils.getDistance(s.getLocation(), end);
+			if (d < cfg.walkRadius) {
+				TIntObjectHashMap<Float> routeDist = endDist.get(s.road.getId());
+				if (routeDist == null) {
+					routeDist = new TIntObjectHashMap<Float>();
+					endDist.put(s.road.getId(), routeDist);
+				}
+				routeDist.put(s.segStart, d);
+			}
+		}
+		double finishTime = cfg.maxRouteTime;
+		if (totalDistance > cfg.maxRouteDistance && cfg.maxRouteIncreaseSpeed > 0) {
+			finishTime += (int) ((totalDistance - cfg.maxRouteDistance) * 3.6 / cfg.maxRouteIncreaseSpeed);
+		}
+		int maxTime = (int) (finishTime + cfg.finishTimeSeconds);
+		// journey is not started if walk is faster
+		maxBoardTime = totalDistance / cfg.walkSpeed - cfg.changeTime / 2;
+		int bestDest = INF;
+		rounds = new Round[cfg.maxNumberOfChanges + 2];
+		rounds[0] = new Round(0);
+		List<TransportRouteSegment> sgms = new ArrayList<TransportRouteSegment>();
+		for (int k = 1; k < rounds.length; k++) {
+			rounds[k] = new Round(best.length);
+			List<Trip> boarded = new ArrayList<Trip>();
+			if (k == 1) {
+				for (TransportRouteSegment s : startStops) {
+					addBoarding(ctx, boarded, s, 0, -1, (float) MapUtils.getDistance(s.getLocation(), start), false);
+				}
+			} else {
+				Round prev = rounds[k - 1];
+				for (int i = 0; i < prev.marked.size(); i++) {
+					int st = prev.marked.getQuick(i);
+					TransportStop stop = stops.get(st);
+					sgms.clear();
+					sgms = ctx.getTransportStops(stop.x31, stop.y31, true, sgms);
+					ctx.visitedStops++;
+					for (TransportRouteSegment s : sgms) {
+						addBoarding(ctx, boarded, s, prev.arrival[st], st,
+								(float) MapUtils.getDistance(s.getLocation(), stop.getLocation()), true);
+					}
+				}
+			}
+			if (boarded.isEmpty()) {
+				break;
+			}
+			for (Trip trip : boarded) {
+				if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+					throw new InterruptedException("Route calculation interrupted");
+				}
+				bestDest = scanTrip(ctx, k, trip, endDist, maxTime, bestDest);
+				trip.boardings.clear();
+			}
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.directSegmentQueueSize = rounds[k].marked.size();
+			}
+			if (rounds[k].marked.isEmpty()) {
+				break;
+			}
+		}
+		return prepareResults(ctx);
+	}
+
+	private void addBoarding(TransportRoutingContext ctx, List<Trip> boarded, TransportRouteSegment s, int arrival,
+			int fromStop, float walkDist, boolean change) {
+		TransportRoutingConfiguration cfg = ctx.cfg;
+		double time = arrival + walkDist / cfg.walkSpeed;
+		if (change) {
+			time += cfg.getChangeTime() + cfg.getBoardingTime();
+		}
+		int startTime = -1;
+		if (cfg.useSchedule) {
+			if (s.departureTime == -1) {
+				return;
+			}
+			int tm = (s.departureTime - cfg.scheduleTimeOfDay) * 10;
+			if (tm < time) {
+				return;
+			}
+			time = tm;
+			startTime = s.departureTime - stopTravelTime(s.road.getSchedule(), s.segStart);
+		}
+		if (time > maxBoardTime) {
+			return;
+		}
+		TIntObjectHashMap<Trip> startTrips = routeTrips.get(s.road.getId());
+		if (startTrips == null) {
+			startTrips = new TIntObjectHashMap<Trip>();
+			routeTrips.put(s.road.getId(), startTrips);
+		}
+		Trip trip = startTrips.get(startTime);
+		if (trip == null) {
+			float speed = cfg.getSpeedByRouteType(s.road.getType());
+			trip = new Trip(trips.size(), s.road, startTime, speed);
+			startTrips.put(startTime, trip);
+			trips.add(trip);
+		}
+		if (trip.speed == 0) {
+			return;
+		}
+		if (trip.boardings.isEmpty()) {
+			boarded.add(trip);
+		}
+		trip.boardings.add(new Boarding(s.segStart, (int) Math.ceil(time), fromStop, walkDist));
+	}
+
+	private int scanTrip(TransportRoutingContext ctx, int k, Trip trip,
+			TLongObjectHashMap<TIntObjectHashMap<Float>> endDist, int maxTime, int bestDest) {
+		TransportRoutingConfiguration cfg = ctx.cfg;
+		Round round = rounds[k];
+		TIntObjectHashMap<Float> routeEndDist = endDist.get(trip.route.getId());
+		List<TransportStop> routeStops = trip.route.getForwardStops();
+		TransportSchedule schedule = trip.route.getSchedule();
+		int first = routeStops.size();
+		int last = -1;
+		for (Boarding b : trip.boardings) {
+			first = Math.min(first, b.stopIndex);
+			last = Math.max(last, b.stopIndex);
+		}
+		ctx.visitedRoutesCount++;
+		double onboard = INF;
+		Boarding current = null;
+		for (int ind = first; ind < routeStops.size(); ind++) {
+			for (Boarding b : trip.boardings) {
+				// board later on the same route if it is faster to get there
+				if (b.stopIndex == ind && b.time < onboard) {
+					onboard = b.time;
+					current = b;
+				}
+			}
+			if (current == null) {
+				continue;
+			}
+			if (onboard > maxTime || onboard >= bestDest) {
+				if (ind >= last) {
+					break;
+				}
+				// later boarding on the same route could be still in time
+				onboard = INF;
+				current = null;
+				continue;
+			}
+			int time = (int) Math.ceil(onboard);
+			if (ind > current.stopIndex) {
+				int st = getStopIndex(routeStops.get(ind));
+				round.ensureCapacity(best.length);
+				if (time < best[st]) {
+					best[st] = time;
+					if (round.arrival[st] == INF) {
+						round.marked.add(st);
+					}
+					round.arrival[st] = time;
+					round.trip[st] = trip.index;
+					round.boardIndex[st] = current.stopIndex;
+					round.exitIndex[st] = ind;
+					round.boardTime[st] = current.time;
+					round.fromStop[st] = current.fromStop;
+					round.walkDist[st] = current.walkDist;
+				}
+				Float d = routeEndDist == null ? null : routeEndDist.get(ind);
+				if (d != null) {
+					int destTime = (int) Math.ceil(onboard + d / cfg.walkSpeed);
+					if (destTime < bestDest) {
+						bestDest = destTime;
+						round.destArrival = destTime;
+						round.destTrip = trip.index;
+						round.destBoardIndex = current.stopIndex;
+						round.destExitIndex = ind;
+						round.destBoardTime = current.time;
+						round.destFromStop = current.fromStop;
+						round.destBoardWalk = current.walkDist;
+						round.destFinishWalk = d;
+					}
+				}
+			}
+			if (ind + 1 < routeStops.size()) {
+				if (cfg.useSchedule) {
+					if (schedule == null || schedule.avgStopIntervals.size() <= ind) {
+						break;
+					}
+					onboard += schedule.avgStopIntervals.getQuick(ind) * 10;
+				} else {
+					onboard += cfg.stopTime + MapUtils.getDistance(routeStops.get(ind).getLocation(),
+							routeStops.get(ind + 1).getLocation()) / trip.speed;
+				}
+			}
+		}
+		return bestDest;
+	}
+
+	private int getStopIndex(TransportStop stop) {
+		Integer ind = stopIndexes.get(stop.getId());
+		if (ind == null) {
+			ind = stops.size();
+			stopIndexes.put(stop.getId(), ind);
+			stops.add(stop);
+			if (best.length <= ind) {
+				int old = best.length;
+				best = Arrays.copyOf(best, Math.max(16, old * 2));
+				Arrays.fill(best, old, best.length, INF);
+			}
+		}
+		return ind;
+	}
+
+	private static int stopTravelTime(TransportSchedule schedule, int stopIndex) {
+		int t = 0;
+		if (schedule != null) {
+			for (int i = 0; i < stopIndex && i < schedule.avgStopIntervals.size(); i++) {
+				t += schedule.avgStopIntervals.getQuick(i);
+			}
+		}
+		return t;
+	}
+
+	private List<TransportRouteResult> prepareResults(TransportRoutingContext ctx) {
+		List<TransportRouteResult> lst = new ArrayList<TransportRouteResult>();
+		// every next round has more changes and earlier arrival, results are sorted by time as in TransportRoutePlanner
+		for (int k = 1; k < rounds.length && rounds[k] != null; k++) {
+			Round r = rounds[k];
+			if (r.destArrival == INF) {
+				continue;
+			}
+			TransportRouteResult route = new TransportRouteResult(ctx);
+			route.routeTime = r.destArrival;
+			route.finishWalkDist = r.destFinishWalk;
+			route.segments.add(createSegment(ctx, trips.get(r.destTrip), r.destBoardIndex, r.destExitIndex,
+					r.destBoardTime, r.destBoardWalk));
+			int from = r.destFromStop;
+			for (int j = k - 1; j > 0 && from != -1; j--) {
+				Round p = rounds[j];
+				route.segments.add(0, createSegment(ctx, trips.get(p.trip[from]), p.boardIndex[from], p.exitIndex[from],
+						p.boardTime[from], p.walkDist[from]));
+				from = p.fromStop[from];
+			}
+			lst.add(route);
+		}
+		Collections.reverse(lst);
+		System.out.println(String.format(Locale.US, "Calculated (rounds) %.1f seconds, found %d results, visited %d routes / %d stops, loaded %d tiles (%d ms read, %d ms total)",
+				(System.currentTimeMillis() - ctx.startCalcTime) / 1000.0, lst.size(), ctx.visitedRoutesCount,
+				ctx.visitedStops, ctx.quadTree.size(), ctx.readTime / (1000 * 1000), ctx.loadTime / (1000 * 1000)));
+		return lst;
+	}
+
+	private TransportRouteResultSegment createSegment(TransportRoutingContext ctx, Trip trip, int boardIndex,
+			int exitIndex, int boardTime, float walkDist) {
+		TransportRouteResultSegment sg = new TransportRouteResultSegment();
+		sg.route = trip.route;
+		sg.start = boardIndex;
+		sg.end = exitIndex;
+		sg.walkDist = walkDist;
+		sg.walkTime = walkDist / ctx.cfg.walkSpeed;
+		sg.depTime = trip.startTime == -1 ? -1 : trip.startTime + stopTravelTime(trip.route.getSchedule(), boardIndex);
+		double dist = 0;
+		double time = 0;
+		List<TransportStop> routeStops = trip.route.getForwardStops();
+		for (int i = boardIndex; i < exitIndex; i++) {
+			double d = MapUtils.getDistance(routeStops.get(i).getLocation(), routeStops.get(i + 1).getLocation());
+			dist += d;
+			if (trip.startTime != -1 && trip.route.getSchedule() != null) {
+				time += trip.route.getSchedule().avgStopIntervals.getQuick(i) * 10;
+			} else {
+				time += ctx.cfg.stopTime + d / trip.speed;
+			}
+		}
+		sg.travelDistApproximate = dist;
+		sg.travelTime = time;
+		return sg;
+	}
+}
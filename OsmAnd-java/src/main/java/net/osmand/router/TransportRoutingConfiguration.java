@@ -35,6 +35,8 @@ public class TransportRoutingConfiguration {
 	public int boardingTime = 180;
 	
 	public boolean useSchedule;
+	// use TransportRaptorPlanner instead of segments queue
+	public boolean useRaptor;
 	// 10 seconds based
 	public int scheduleTimeOfDay = 12 * 60 * 6; // 12:00 - 60*6*12
 	public int scheduleMaxTime = 50 * 6; // not appropriate variable, should be dynamic
@@ -48,6 +50,9 @@ public class TransportRoutingConfiguration {
 	public float getSpeedByRouteType(String routeType) {
 		Float sl = speed.get(routeType);
 		if(sl == null) {
+			if (router == null) {
+				return defaultTravelSpeed;
+			}
 			RouteAttributeContext spds = router.getObjContext(RouteDataObjectAttribute.ROAD_SPEED);
 			sl = spds.evaluateFloat(getRawBitset("route", routeType), defaultTravelSpeed);
 			speed.put(routeType, sl);
@@ -90,6 +95,7 @@ public class TransportRoutingConfiguration {
 			maxRouteIncreaseSpeed =  router.getIntAttribute("maxRouteIncreaseSpeed", maxRouteIncreaseSpeed);
 			maxRouteDistance =  router.getIntAttribute("maxRouteDistance", maxRouteDistance);
 			finishTimeSeconds =  router.getIntAttribute("delayForAlternativesRoutes", finishTimeSeconds);
+			useRaptor = "true".equals(params.get("use_raptor"));
 			String mn = params.get("max_num_changes");
 			maxNumberOfChanges = (int) RoutingConfiguration.parseSilentFloat(mn, maxNumberOfChanges);
 			
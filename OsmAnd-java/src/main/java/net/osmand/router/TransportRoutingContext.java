@@ -34,6 +34,8 @@ public class TransportRoutingContext {
 	// Incomplete routes usually don't need more files than around Max-BBOX of start/end,
 	// so here an improvement could be introduced
 	final TransportStopsRouteReader transportStopsReader;
+	// preloaded stops shared with other contexts (null if not used)
+	private final TransportNetworkSnapshot snapshot;
 	public int finishTimeSeconds;
 
 	// stats
@@ -49,12 +51,30 @@ public class TransportRoutingContext {
 	private final int walkChangeRadiusIn31;
 
 	public TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library, BinaryMapIndexReader... readers) {
+		this(cfg, library, (TransportNetworkSnapshot) null, readers);
+	}
+
+	/**
+	 * Context which reads tiles of snapshot from memory and other tiles from readers.
+	 * Snapshot is not used if it is built for different zoom or its files were changed.
+	 */
+	public TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library, TransportNetworkSnapshot snapshot,
+			BinaryMapIndexReader... readers) {
 		this.cfg = cfg;
 		walkRadiusIn31 = (int) (cfg.walkRadius / MapUtils.getTileDistanceWidth(31));
 		walkChangeRadiusIn31 = (int) (cfg.walkChangeRadius / MapUtils.getTileDistanceWidth(31));
 		quadTree = new TLongObjectHashMap<List<TransportRouteSegment>>();
 		this.library = library;
 		transportStopsReader = new TransportStopsRouteReader(Arrays.asList(readers));
+		if (snapshot != null && snapshot.getZoom() == cfg.ZOOM_TO_LOAD_TILES && snapshot.isUpToDate()) {
+			this.snapshot = snapshot;
+		} else {
+			this.snapshot = null;
+		}
+	}
+
+	public TransportNetworkSnapshot getSnapshot() {
+		return snapshot;
 	}
 
 	public List<TransportRouteSegment> getTransportStops(LatLon loc) throws IOException {
@@ -101,6 +121,11 @@ public class TransportRoutingContext {
 	private List<TransportRouteSegment> loadTile(int x, int y) throws IOException {
 		long nanoTime = System.nanoTime();
 		List<TransportRouteSegment> lst = new ArrayList<TransportRouteSegment>();
+		if (snapshot != null && snapshot.containsTile(x, y)) {
+			loadTransportSegments(snapshot, snapshot.getTile(x, y), lst);
+			readTime += System.nanoTime() - nanoTime;
+			return lst;
+		}
 		int pz = (31 - cfg.ZOOM_TO_LOAD_TILES);
 		BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(x << pz, (x + 1) << pz,
 				y << pz, (y + 1) << pz, -1, null);
@@ -116,27 +141,9 @@ public class TransportRoutingContext {
 				continue;
 			}
 			for (TransportRoute route : s.getRoutes()) {
-				int stopIndex = -1;
-				double dist = TransportRoute.SAME_STOP;
-				for (int k = 0; k < route.getForwardStops().size(); k++) {
-					TransportStop st = route.getForwardStops().get(k);
-					if(st.getId().longValue() == s.getId().longValue() ) {
-						stopIndex = k;
-						break;
-					}
-					double d = MapUtils.getDistance(st.getLocation(), s.getLocation());
-					if (d < dist) {
-						stopIndex = k;
-						dist = d;
-					}
-				}
+				int stopIndex = getStopIndex(route, s);
 				if (stopIndex != -1) {
-					if (cfg != null && cfg.useSchedule) {
-						loadScheduleRouteSegment(lst, route, stopIndex);
-					} else {
-						TransportRouteSegment segment = new TransportRouteSegment(route, stopIndex);
-						lst.add(segment);
-					}
+					loadRouteSegment(lst, route, stopIndex);
 				} else {
 					System.err.println(String.format(Locale.US, "Routing error: missing stop '%s' in route '%s' id: %d",
 							s.toString(), route.getRef(), route.getId() / 2));
@@ -145,6 +152,51 @@ public class TransportRoutingContext {
 		}
 	}
 
+	// segments of tile with routes and stop indexes prepared by snapshot
+	private void loadTransportSegments(TransportNetworkSnapshot snapshot, int tile, List<TransportRouteSegment> lst) {
+		if (tile == -1) {
+			return;
+		}
+		int stopsEnd = snapshot.getTileStopsStart(tile + 1);
+		for (int s = snapshot.getTileStopsStart(tile); s < stopsEnd; s++) {
+			int routesEnd = snapshot.getStopRoutesStart(s + 1);
+			for (int k = snapshot.getStopRoutesStart(s); k < routesEnd; k++) {
+				loadRouteSegment(lst, snapshot.getStopRoute(k), snapshot.getStopRouteIndex(k));
+			}
+		}
+	}
+
+	private void loadRouteSegment(List<TransportRouteSegment> lst, TransportRoute route, int stopIndex) {
+		if (cfg != null && cfg.useSchedule) {
+			loadScheduleRouteSegment(lst, route, stopIndex);
+		} else {
+			TransportRouteSegment segment = new TransportRouteSegment(route, stopIndex);
+			lst.add(segment);
+		}
+	}
+
+	/**
+	 * @return index of stop in forward stops of route (by id or the closest stop within
+	 * {@link TransportRoute#SAME_STOP}) or -1
+	 */
+	static int getStopIndex(TransportRoute route, TransportStop s) {
+		int stopIndex = -1;
+		double dist = TransportRoute.SAME_STOP;
+		for (int k = 0; k < route.getForwardStops().size(); k++) {
+			TransportStop st = route.getForwardStops().get(k);
+			if(st.getId().longValue() == s.getId().longValue() ) {
+				stopIndex = k;
+				break;
+			}
+			double d = MapUtils.getDistance(st.getLocation(), s.getLocation());
+			if (d < dist) {
+				stopIndex = k;
+				dist = d;
+			}
+		}
+		return stopIndex;
+	}
+
 	private void loadScheduleRouteSegment(List<TransportRouteSegment> lst, TransportRoute route, int stopIndex) {
 		if(route.getSchedule() != null) {
 			TIntArrayList ti = route.getSchedule().tripIntervals;
@@ -19,6 +19,7 @@ import net.osmand.search.core.SearchCoreFactory;
 import net.osmand.search.core.SearchCoreFactory.SearchAmenityByNameAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchAmenityByTypeAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchAmenityTypesAPI;
+import net.osmand.search.core.SearchCoreFactory.SearchBaseAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchBuildingAndIntersectionsByStreetAPI;
 import net.osmand.search.core.SearchCoreFactory.SearchStreetByCityAPI;
 import net.osmand.search.core.SearchExportSettings;
@@ -39,10 +40,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -66,6 +69,11 @@ public class SearchUICore {
 	private Runnable onResultsComplete = null;
 	private AtomicInteger requestNumber = new AtomicInteger();
 	private int totalLimit = -1; // -1 unlimited - not used
+	private boolean incrementalSearch;
+	// last complete results of api, see setIncrementalSearch
+	private final Map<SearchCoreAPI, IncrementalSearchResults> incrementalResults = new HashMap<>();
+	private final AtomicInteger incrementalSearchHits = new AtomicInteger();
+	private final AtomicInteger incrementalSearchMisses = new AtomicInteger();
 
 	List<SearchCoreAPI> apis = new ArrayList<>();
 	private SearchSettings searchSettings;
@@ -318,6 +326,36 @@ public class SearchUICore {
 		this.totalLimit = totalLimit;
 	}
 
+	public boolean isIncrementalSearch() {
+		return incrementalSearch;
+	}
+
+	/**
+	 * When search text is extended (search-as-you-type) results of previous search are refined by name
+	 * instead of reading files again. Results are reused only if previous search wasn't stopped by limit
+	 * and api supports it (see {@link SearchBaseAPI#isIncrementalSearchAvailable(SearchPhrase)}).
+	 */
+	public void setIncrementalSearch(boolean incrementalSearch) {
+		this.incrementalSearch = incrementalSearch;
+		synchronized (incrementalResults) {
+			incrementalResults.clear();
+		}
+	}
+
+	public int getIncrementalSearchHits() {
+		return incrementalSearchHits.get();
+	}
+
+	public int getIncrementalSearchMisses() {
+		return incrementalSearchMisses.get();
+	}
+
+	public double getIncrementalSearchHitRate() {
+		int hits = incrementalSearchHits.get();
+		int total = hits + incrementalSearchMisses.get();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
 	@SuppressWarnings("unchecked")
 	public <T> T getApiByClass(Class<T> cl) {
 		for (SearchCoreAPI a : apis) {
@@ -702,7 +740,12 @@ public class SearchUICore {
 				if (debugMode) {
 					LOG.info("Run API search <" + phrase + "> API=<" + api + ">");
 				}
-				api.search(phrase, matcher);
+				if (incrementalSearch && api instanceof SearchBaseAPI
+						&& ((SearchBaseAPI) api).isIncrementalSearchAvailable(phrase)) {
+					incrementalSearch((SearchBaseAPI) api, phrase, matcher);
+				} else {
+					api.search(phrase, matcher);
+				}
 				if (debugMode) {
 					LOG.info("API search finishing <" + phrase + "> API=<" + api + ">");
 				}
@@ -717,6 +760,77 @@ public class SearchUICore {
 		}
 	}
 
+	private void incrementalSearch(SearchBaseAPI api, SearchPhrase phrase, SearchResultMatcher matcher) throws IOException {
+		String key = getIncrementalSearchKey(phrase);
+		List<BinaryMapIndexReader> files = phrase.getSettings().getOfflineIndexes();
+		String word = phrase.getFirstUnknownSearchWord();
+		IncrementalSearchResults cached;
+		synchronized (incrementalResults) {
+			cached = incrementalResults.get(api);
+		}
+		boolean hit = cached != null && cached.key.equals(key) && cached.files.equals(files)
+				&& word.startsWith(cached.word);
+		List<SearchResult> results = new ArrayList<>();
+		List<SearchResult> parentApiResults = matcher.apiResults;
+		boolean parentApiLimitReached = matcher.apiLimitReached;
+		matcher.apiResults = results;
+		matcher.apiLimitReached = false;
+		try {
+			if (hit) {
+				incrementalSearchHits.incrementAndGet();
+				for (SearchResult r : cached.results) {
+					if (matcher.isCancelled()) {
+						break;
+					}
+					api.refineSearchResult(phrase, matcher, r);
+				}
+			} else {
+				incrementalSearchMisses.incrementAndGet();
+				api.search(phrase, matcher);
+			}
+			if (debugMode) {
+				LOG.info("Incremental search " + (hit ? "hit" : "miss") + " <" + phrase + "> API=<" + api
+						+ "> Results=" + results.size() + " Hit rate=" + (int) (getIncrementalSearchHitRate() * 100) + "%");
+			}
+			if (matcher.isCancelled()) {
+				return;
+			}
+			synchronized (incrementalResults) {
+				if (!matcher.apiLimitReached && !matcher.isLimitReached() && !phrase.isLastUnknownSearchWordComplete()) {
+					incrementalResults.put(api, new IncrementalSearchResults(key, files, word, results));
+				} else if (!hit) {
+					// results of shorter word are still complete
+					incrementalResults.remove(api);
+				}
+			}
+		} finally {
+			matcher.apiResults = parentApiResults;
+			matcher.apiLimitReached = parentApiLimitReached;
+		}
+	}
+
+	private static String getIncrementalSearchKey(SearchPhrase phrase) {
+		SearchSettings s = phrase.getSettings();
+		return phrase.getText(false) + "|" + phrase.isAcceptPrivate() + "|" + s.getOriginalLocation()
+				+ "|" + s.getSearchBBox31() + "|" + s.getRadiusLevel() + "|" + s.getLang() + "|" + s.isTransliterate()
+				+ "|" + s.getRegionLang() + "|" + Arrays.toString(s.getSearchTypes()) + "|" + s.isEmptyQueryAllowed()
+				+ "|" + s.isSortByName() + "|" + s.isExportObjects();
+	}
+
+	private static class IncrementalSearchResults {
+		final String key;
+		final List<BinaryMapIndexReader> files;
+		final String word;
+		final List<SearchResult> results;
+
+		IncrementalSearchResults(String key, List<BinaryMapIndexReader> files, String word, List<SearchResult> results) {
+			this.key = key;
+			this.files = files;
+			this.word = word;
+			this.results = results;
+		}
+	}
+
 	private void preparePhrase(final SearchPhrase phrase) {
 		if (debugMode) {
 			LOG.info("Preparing search phrase <" + phrase + ">");
@@ -743,6 +857,11 @@ public class SearchUICore {
 		private SearchPhrase phrase;
 		private List<MapObject> exportedObjects;
 		private List<City> exportedCities;
+		// results published by current api and its limit state, used by incremental search
+		private List<SearchResult> apiResults;
+		private boolean apiLimitReached;
+		// level of sub-searches started by current api, their results are not collected in apiResults
+		private int subSearchLevel;
 
 		public SearchResultMatcher(ResultMatcher<SearchResult> matcher, SearchPhrase phrase, int request,
 								   AtomicInteger requestNumber, int totalLimit) {
@@ -763,6 +882,14 @@ public class SearchUICore {
 			return parentSearchResult;
 		}
 
+		public void startSubSearch() {
+			subSearchLevel++;
+		}
+
+		public void finishSubSearch() {
+			subSearchLevel--;
+		}
+
 		public List<SearchResult> getRequestResults() {
 			return requestResults;
 		}
@@ -842,6 +969,9 @@ public class SearchUICore {
 				object.alternateName = null;
 			}
 			object.parentSearchResult = parentSearchResult;
+			if (apiResults != null && subSearchLevel == 0) {
+				apiResults.add(object);
+			}
 			if (matcher == null || matcher.publish(object)) {
 				count++;
 				if (totalLimit == -1 || count < totalLimit) {
@@ -852,6 +982,19 @@ public class SearchUICore {
 			return false;
 		}
 
+		public boolean isLimitReached() {
+			return totalLimit != -1 && count >= totalLimit;
+		}
+
+		public int getTotalLimit() {
+			return totalLimit;
+		}
+
+		// api stopped reading objects because of its own limit, so found results are not complete
+		public void setApiLimitReached() {
+			apiLimitReached = true;
+		}
+
 		@Override
 		public boolean isCancelled() {
 			boolean cancelled = request != requestNumber.get();
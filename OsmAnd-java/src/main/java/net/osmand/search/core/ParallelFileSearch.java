@@ -0,0 +1,128 @@
+package net.osmand.search.core;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Runs the same search in many obf files with executor (see {@link SearchSettings#getSearchExecutor()}).
+ * Every file is searched by one task, so reader of the file is never used by 2 threads at once.
+ * Results of the file are buffered by the task and merged on the calling thread in the order of files,
+ * so published results don't depend on the speed of tasks. Only a window of files (see
+ * {@link SearchSettings#getSearchParallelFiles()}) is submitted and not merged yet, the next file is submitted
+ * when the first one is merged, so buffered results and queued tasks don't grow with number of files.
+ * When merge returns false or search is cancelled remaining files are not submitted and running tasks are stopped,
+ * method returns only after all tasks are finished.
+ */
+class ParallelFileSearch {
+
+	interface FileSearch<T> {
+		// runs on executor thread, should use only reader of the file and read only search data
+		void search(BinaryMapIndexReader file, FileResults<T> res) throws IOException;
+	}
+
+	interface FileMerge<T> {
+		// runs on calling thread, false to stop search in remaining files
+		boolean merge(BinaryMapIndexReader file, FileResults<T> res) throws IOException;
+	}
+
+	static class FileResults<T> {
+		final List<T> results = new ArrayList<>();
+		// position of result among all objects read from the file
+		final TIntArrayList positions = new TIntArrayList();
+		int readObjects;
+		private final AtomicBoolean stopped;
+		private final ResultMatcher<?> matcher;
+
+		FileResults(AtomicBoolean stopped, ResultMatcher<?> matcher) {
+			this.stopped = stopped;
+			this.matcher = matcher;
+		}
+
+		void add(T result) {
+			results.add(result);
+			positions.add(readObjects - 1);
+		}
+
+		boolean isCancelled() {
+			return stopped.get() || matcher.isCancelled();
+		}
+	}
+
+	static <T> void search(ExecutorService executor, int window, Iterator<BinaryMapIndexReader> files,
+	                       ResultMatcher<?> matcher, final FileSearch<T> search, FileMerge<T> merge) throws IOException {
+		final AtomicBoolean stopped = new AtomicBoolean();
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		List<Future<FileResults<T>>> futures = new ArrayList<>();
+		try {
+			int merged = 0;
+			while (true) {
+				while (futures.size() - merged < window && files.hasNext() && !matcher.isCancelled()) {
+					final BinaryMapIndexReader r = files.next();
+					final FileResults<T> res = new FileResults<>(stopped, matcher);
+					readers.add(r);
+					futures.add(executor.submit(new Callable<FileResults<T>>() {
+						@Override
+						public FileResults<T> call() throws Exception {
+							if (!res.isCancelled()) {
+								search.search(r, res);
+							}
+							return res;
+						}
+					}));
+				}
+				if (merged == futures.size()) {
+					break;
+				}
+				FileResults<T> res = get(futures.get(merged));
+				// results of merged file are not needed anymore
+				futures.set(merged, null);
+				if (matcher.isCancelled() || !merge.merge(readers.get(merged++), res)) {
+					break;
+				}
+			}
+		} finally {
+			stopped.set(true);
+			// Future.cancel doesn't wait for running task which still uses reader,
+			// not started tasks return immediately as search is stopped
+			for (Future<FileResults<T>> f : futures) {
+				if (f == null) {
+					continue;
+				}
+				try {
+					f.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				} catch (ExecutionException e) {
+					// reported by merge
+				}
+			}
+		}
+	}
+
+	private static <T> FileResults<T> get(Future<FileResults<T>> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Search was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Search failed", e.getCause());
+		}
+	}
+}
@@ -33,6 +33,9 @@ import net.osmand.osm.AbstractPoiType;
 import net.osmand.osm.MapPoiTypes;
 import net.osmand.osm.PoiCategory;
 import net.osmand.osm.PoiType;
+import net.osmand.search.core.ParallelFileSearch.FileMerge;
+import net.osmand.search.core.ParallelFileSearch.FileResults;
+import net.osmand.search.core.ParallelFileSearch.FileSearch;
 import net.osmand.search.SearchUICore.SearchResultMatcher;
 import net.osmand.search.core.SearchPhrase.NameStringMatcher;
 import net.osmand.search.core.SearchPhrase.SearchPhraseDataType;
@@ -62,6 +65,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
@@ -172,6 +176,43 @@ public class SearchCoreFactory {
 			return 0;
 		}
 
+		/**
+		 * @param phrase
+		 * @return true if results of the phrase (when search wasn't stopped by limit) contain all results
+		 * of phrases with extended unknown word, so they could be refined with {@link #refineSearchResult}
+		 */
+		public boolean isIncrementalSearchAvailable(SearchPhrase phrase) {
+			return false;
+		}
+
+		/**
+		 * Publishes result found by previous search with shorter unknown word if it matches the phrase
+		 */
+		public void refineSearchResult(SearchPhrase phrase, SearchResultMatcher resultMatcher, SearchResult res)
+				throws IOException {
+			NameStringMatcher nm = phrase.getFirstUnknownNameStringMatcher();
+			if (nm.matches(res.localeName) || nm.matches(res.otherNames)) {
+				subSearchApiOrPublish(phrase, resultMatcher, copySearchResult(phrase, res), null);
+			}
+		}
+
+		protected SearchResult copySearchResult(SearchPhrase phrase, SearchResult res) {
+			SearchResult sr = new SearchResult(phrase);
+			sr.object = res.object;
+			sr.objectType = res.objectType;
+			sr.file = res.file;
+			sr.priority = res.priority;
+			sr.priorityDistance = res.priorityDistance;
+			sr.location = res.location;
+			sr.preferredZoom = res.preferredZoom;
+			sr.localeName = res.localeName;
+			sr.otherNames = res.otherNames;
+			sr.localeRelatedObjectName = res.localeRelatedObjectName;
+			sr.relatedObject = res.relatedObject;
+			sr.distRelatedObjectName = res.distRelatedObjectName;
+			return sr;
+		}
+
 		protected SearchPhrase subSearchApiOrPublish(SearchPhrase phrase, SearchResultMatcher resultMatcher, SearchResult res, SearchBaseAPI api)
 				throws IOException {
 			return subSearchApiOrPublish(phrase, resultMatcher, res, api, true);
@@ -242,8 +283,12 @@ public class SearchCoreFactory {
 								!leftUnknownSearchWords.contains(phrase.getLastUnknownSearchWord()));
 				SearchResult prev = resultMatcher.setParentSearchResult(publish ? res :
 						resultMatcher.getParentSearchResult());
-				api.search(nphrase, resultMatcher);
-				
+				resultMatcher.startSubSearch();
+				try {
+					api.search(nphrase, resultMatcher);
+				} finally {
+					resultMatcher.finishSubSearch();
+				}
 				resultMatcher.setParentSearchResult(prev);
 				return nphrase;
 			}
@@ -338,6 +383,25 @@ public class SearchCoreFactory {
 			return getSearchPriority(phrase) != -1 && super.isSearchMoreAvailable(phrase);
 		}
 
+		@Override
+		public boolean isIncrementalSearchAvailable(SearchPhrase phrase) {
+			// cities and search by name (shorter words are searched only among cities)
+			return phrase.isNoSelectedType() && phrase.isUnknownSearchWordPresent()
+					&& !phrase.hasMoreThanOneUnknownSearchWord()
+					&& (phrase.getRadiusLevel() > 1 || phrase.getUnknownWordToSearch().length() > 3
+					|| phrase.isSearchTypeAllowed(ObjectType.POSTCODE, true));
+		}
+
+		@Override
+		public void refineSearchResult(SearchPhrase phrase, SearchResultMatcher resultMatcher, SearchResult res)
+				throws IOException {
+			NameStringMatcher nm = phrase.getFirstUnknownNameStringMatcher();
+			if (nm.matches(res.localeName) || nm.matches(res.otherNames)) {
+				// streets of cities and buildings of streets are searched again as they depend on unknown word
+				publishAddressResults(phrase, resultMatcher, Collections.singletonList(copySearchResult(phrase, res)));
+			}
+		}
+
 		@Override
 		public int getMinimalSearchRadius(SearchPhrase phrase) {
 			return phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS);
@@ -411,6 +475,7 @@ public class SearchCoreFactory {
 						searchPoiInCity(nphrase, res, resultMatcher);
 					}
 					if (limit++ > LIMIT * phrase.getRadiusLevel()) {
+						resultMatcher.setApiLimitReached();
 						break;
 					}
 				}
@@ -422,7 +487,12 @@ public class SearchCoreFactory {
 				SearchAmenityByNameAPI poiApi = new SearchCoreFactory.SearchAmenityByNameAPI();
 				SearchPhrase newPhrase = nphrase.generateNewPhrase(nphrase, res.file);
 				newPhrase.getSettings().setOriginalLocation(res.location);
-				poiApi.search(newPhrase, resultMatcher);
+				resultMatcher.startSubSearch();
+				try {
+					poiApi.search(newPhrase, resultMatcher);
+				} finally {
+					resultMatcher.finishSubSearch();
+				}
 			}
 		}
 
@@ -430,111 +500,6 @@ public class SearchCoreFactory {
 				throws IOException {
 			if (phrase.getRadiusLevel() > 1 || phrase.getUnknownWordToSearch().length() > 3 ||
 					phrase.hasMoreThanOneUnknownSearchWord()|| phrase.isSearchTypeAllowed(ObjectType.POSTCODE, true)) {
-				final boolean locSpecified = phrase.getLastTokenLocation() != null;
-				LatLon loc = phrase.getLastTokenLocation();
-				final List<SearchResult> immediateResults = new ArrayList<>();
-				final QuadRect streetBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS);
-				final QuadRect postcodeBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5);
-				final QuadRect villagesBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 3);
-				final QuadRect cityBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5); // covered by separate search before
-				final int priority = phrase.isNoSelectedType() ?
-						SEARCH_ADDRESS_BY_NAME_PRIORITY : SEARCH_ADDRESS_BY_NAME_PRIORITY_RADIUS2;
-				final BinaryMapIndexReader[] currentFile = new BinaryMapIndexReader[1];
-
-				ResultMatcher<MapObject> rm = new ResultMatcher<MapObject>() {
-					int limit = 0;
-					@Override
-					public boolean publish(MapObject object) {
-						if (isCancelled()) {
-							return false;
-						}
-						SearchResult sr = new SearchResult(phrase);
-						sr.object = object;
-						sr.file = currentFile[0];
-						sr.localeName = object.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
-						sr.otherNames = object.getOtherNames(true);
-						sr.localeRelatedObjectName = sr.file.getRegionName();
-						sr.relatedObject = sr.file;
-						sr.location = object.getLocation();
-						sr.priorityDistance = 1;
-						sr.priority = priority;
-						int y = MapUtils.get31TileNumberY(object.getLocation().getLatitude());
-						int x = MapUtils.get31TileNumberX(object.getLocation().getLongitude());
-						List<City> closestCities = null;
-						if (object instanceof Street) {
-							// remove limitation by location
-							if (  //(locSpecified && !streetBbox.contains(x, y, x, y)) || 
-								!phrase.isSearchTypeAllowed(ObjectType.STREET)) {
-								return false;
-							}
-							if (object.getName().startsWith("<")) {
-								return false;
-							}
-							sr.objectType = ObjectType.STREET;
-							sr.localeRelatedObjectName = ((Street)object).getCity().getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
-							sr.relatedObject = ((Street)object).getCity();
-						} else if (object instanceof City) {
-							CityType type = ((City)object).getType();
-							if (type == CityType.CITY || type == CityType.TOWN) {
-								if (phrase.isNoSelectedType()) {
-									// ignore city/town
-									return false;
-								}
-								if ((locSpecified && !cityBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.CITY)) {
-									return false;
-								}
-								sr.objectType = ObjectType.CITY;
-								sr.priorityDistance = 0.1;
-							} else if (((City)object).isPostcode()) {
-								if ((locSpecified && !postcodeBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.POSTCODE)) {
-									return false;
-								}
-								sr.objectType = ObjectType.POSTCODE;
-								sr.priorityDistance = 0;
-							} else {
-								if ((locSpecified && !villagesBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.VILLAGE)) {
-									return false;
-								}
-								City c = null;
-								if (closestCities == null) {
-									closestCities = townCitiesQR.queryInBox(villagesBbox, new ArrayList<City>());
-								}
-								double minDist = -1;
-								double pDist = -1;
-								for (City s : closestCities) {
-									double ll = MapUtils.getDistance(s.getLocation(), object.getLocation());
-									double pd = s.getType() == CityType.CITY ? ll : ll * 10;
-									if(minDist == -1 || pd < pDist) {
-										c = s;
-										minDist = ll;
-										pDist = pd ;
-									}
-								}
-								if (c != null) {
-									sr.localeRelatedObjectName = c.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
-									sr.relatedObject = c;
-									sr.distRelatedObjectName = minDist;
-								}
-								sr.objectType = ObjectType.VILLAGE;
-							}
-						} else {
-							return false;
-						}
-						limit ++;
-						immediateResults.add(sr);
-						return false;
-					}
-
-					@Override
-					public boolean isCancelled() {
-						return limit > LIMIT * phrase.getRadiusLevel() ||
-								resultMatcher.isCancelled();
-					}
-				};
-
 				ResultMatcher<MapObject> rawDataCollector = null;
 				if (phrase.getSettings().isExportObjects()) {
 					rawDataCollector = new ResultMatcher<MapObject>() {
@@ -554,28 +519,204 @@ public class SearchCoreFactory {
 				Iterator<BinaryMapIndexReader> offlineIterator = phrase.getRadiusOfflineIndexes(DEFAULT_ADDRESS_BBOX_RADIUS * 5,
 						SearchPhraseDataType.ADDRESS);
 				String wordToSearch = phrase.getUnknownWordToSearch();
-				while (offlineIterator.hasNext() && wordToSearch.length() > 0) {
+				if (wordToSearch.length() == 0) {
+					return;
+				}
+				ExecutorService executor = phrase.getSettings().getSearchExecutor();
+				if (executor != null && rawDataCollector == null) {
+					searchByNameInParallel(phrase, resultMatcher, executor, offlineIterator, wordToSearch);
+					return;
+				}
+				AddressNameMatcher rm = new AddressNameMatcher(phrase, resultMatcher);
+				while (offlineIterator.hasNext()) {
 					BinaryMapIndexReader r = offlineIterator.next();
-					currentFile[0] = r;
-					immediateResults.clear();
-					SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(rm, rawDataCollector, wordToSearch.toLowerCase(),
-							phrase.isMainUnknownSearchWordComplete() ? StringMatcherMode.CHECK_EQUALS_FROM_SPACE
-									: StringMatcherMode.CHECK_STARTS_FROM_SPACE);
-					if (locSpecified) {
-						req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
-								phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
+					rm.file = r;
+					rm.results.clear();
+					r.searchAddressDataByName(buildAddressRequest(phrase, rm, rawDataCollector, wordToSearch));
+					publishAddressResults(phrase, resultMatcher, rm.results);
+					resultMatcher.apiSearchRegionFinished(this, r, phrase);
+				}
+				if (rm.limit > LIMIT * phrase.getRadiusLevel()) {
+					resultMatcher.setApiLimitReached();
+				}
+			}
+		}
+
+		private void searchByNameInParallel(final SearchPhrase phrase, final SearchResultMatcher resultMatcher,
+		                                    ExecutorService executor, Iterator<BinaryMapIndexReader> offlineIterator,
+		                                    final String wordToSearch) throws IOException {
+			final int limit = LIMIT * phrase.getRadiusLevel();
+			final int[] foundBefore = new int[1];
+			ParallelFileSearch.search(executor, phrase.getSettings().getSearchParallelFiles(), offlineIterator,
+					resultMatcher, new FileSearch<SearchResult>() {
+				@Override
+				public void search(BinaryMapIndexReader file, final FileResults<SearchResult> res) throws IOException {
+					AddressNameMatcher rm = new AddressNameMatcher(phrase, resultMatcher) {
+						@Override
+						public boolean isCancelled() {
+							return super.isCancelled() || res.isCancelled();
+						}
+					};
+					rm.file = file;
+					file.searchAddressDataByName(buildAddressRequest(phrase, rm, null, wordToSearch));
+					res.results.addAll(rm.results);
+				}
+			}, new FileMerge<SearchResult>() {
+				@Override
+				public boolean merge(BinaryMapIndexReader file, FileResults<SearchResult> res) throws IOException {
+					// sequential search stops reading after limit + 1 results found in all files
+					List<SearchResult> results = res.results;
+					boolean limitReached = foundBefore[0] + results.size() > limit;
+					if (limitReached) {
+						results = results.subList(0, Math.max(0, limit + 1 - foundBefore[0]));
+						resultMatcher.setApiLimitReached();
 					}
-					r.searchAddressDataByName(req);
-					for (SearchResult res : immediateResults) {
-						if (res.objectType == ObjectType.STREET) {
-							subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
-						} else {
-							SearchPhrase nphrase = subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
-							searchPoiInCity(nphrase, res, resultMatcher);
+					foundBefore[0] += results.size();
+					publishAddressResults(phrase, resultMatcher, results);
+					resultMatcher.apiSearchRegionFinished(SearchAddressByNameAPI.this, file, phrase);
+					return !limitReached && !resultMatcher.isLimitReached();
+				}
+			});
+		}
+
+		private SearchRequest<MapObject> buildAddressRequest(SearchPhrase phrase, AddressNameMatcher rm,
+		                                                     ResultMatcher<MapObject> rawDataCollector, String wordToSearch) {
+			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(rm, rawDataCollector, wordToSearch.toLowerCase(),
+					phrase.isMainUnknownSearchWordComplete() ? StringMatcherMode.CHECK_EQUALS_FROM_SPACE
+							: StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+			LatLon loc = phrase.getLastTokenLocation();
+			if (loc != null) {
+				req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
+						phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
+			}
+			return req;
+		}
+
+		private void publishAddressResults(SearchPhrase phrase, SearchResultMatcher resultMatcher,
+		                                   List<SearchResult> results) throws IOException {
+			for (SearchResult res : results) {
+				if (res.objectType == ObjectType.STREET) {
+					subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
+				} else {
+					SearchPhrase nphrase = subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
+					searchPoiInCity(nphrase, res, resultMatcher);
+				}
+			}
+		}
+
+		// collects results of one file (results.size() is limited for all files by sequential search)
+		private class AddressNameMatcher implements ResultMatcher<MapObject> {
+			final SearchPhrase phrase;
+			final SearchResultMatcher resultMatcher;
+			final List<SearchResult> results = new ArrayList<>();
+			final boolean locSpecified;
+			final QuadRect postcodeBbox;
+			final QuadRect villagesBbox;
+			final QuadRect cityBbox;
+			final int priority;
+			BinaryMapIndexReader file;
+			int limit = 0;
+
+			AddressNameMatcher(SearchPhrase phrase, SearchResultMatcher resultMatcher) {
+				this.phrase = phrase;
+				this.resultMatcher = resultMatcher;
+				locSpecified = phrase.getLastTokenLocation() != null;
+				postcodeBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5);
+				villagesBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 3);
+				cityBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5); // covered by separate search before
+				priority = phrase.isNoSelectedType() ?
+						SEARCH_ADDRESS_BY_NAME_PRIORITY : SEARCH_ADDRESS_BY_NAME_PRIORITY_RADIUS2;
+			}
+
+			@Override
+			public boolean publish(MapObject object) {
+				if (isCancelled()) {
+					return false;
+				}
+				SearchResult sr = new SearchResult(phrase);
+				sr.object = object;
+				sr.file = file;
+				sr.localeName = object.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
+				sr.otherNames = object.getOtherNames(true);
+				sr.localeRelatedObjectName = sr.file.getRegionName();
+				sr.relatedObject = sr.file;
+				sr.location = object.getLocation();
+				sr.priorityDistance = 1;
+				sr.priority = priority;
+				int y = MapUtils.get31TileNumberY(object.getLocation().getLatitude());
+				int x = MapUtils.get31TileNumberX(object.getLocation().getLongitude());
+				List<City> closestCities = null;
+				if (object instanceof Street) {
+					// remove limitation by location
+					if (  //(locSpecified && !streetBbox.contains(x, y, x, y)) || 
+						!phrase.isSearchTypeAllowed(ObjectType.STREET)) {
+						return false;
+					}
+					if (object.getName().startsWith("<")) {
+						return false;
+					}
+					sr.objectType = ObjectType.STREET;
+					sr.localeRelatedObjectName = ((Street)object).getCity().getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
+					sr.relatedObject = ((Street)object).getCity();
+				} else if (object instanceof City) {
+					CityType type = ((City)object).getType();
+					if (type == CityType.CITY || type == CityType.TOWN) {
+						if (phrase.isNoSelectedType()) {
+							// ignore city/town
+							return false;
+						}
+						if ((locSpecified && !cityBbox.contains(x, y, x, y))
+								|| !phrase.isSearchTypeAllowed(ObjectType.CITY)) {
+							return false;
+						}
+						sr.objectType = ObjectType.CITY;
+						sr.priorityDistance = 0.1;
+					} else if (((City)object).isPostcode()) {
+						if ((locSpecified && !postcodeBbox.contains(x, y, x, y))
+								|| !phrase.isSearchTypeAllowed(ObjectType.POSTCODE)) {
+							return false;
+						}
+						sr.objectType = ObjectType.POSTCODE;
+						sr.priorityDistance = 0;
+					} else {
+						if ((locSpecified && !villagesBbox.contains(x, y, x, y))
+								|| !phrase.isSearchTypeAllowed(ObjectType.VILLAGE)) {
+							return false;
 						}
+						City c = null;
+						if (closestCities == null) {
+							closestCities = townCitiesQR.queryInBox(villagesBbox, new ArrayList<City>());
+						}
+						double minDist = -1;
+						double pDist = -1;
+						for (City s : closestCities) {
+							double ll = MapUtils.getDistance(s.getLocation(), object.getLocation());
+							double pd = s.getType() == CityType.CITY ? ll : ll * 10;
+							if(minDist == -1 || pd < pDist) {
+								c = s;
+								minDist = ll;
+								pDist = pd ;
+							}
+						}
+						if (c != null) {
+							sr.localeRelatedObjectName = c.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
+							sr.relatedObject = c;
+							sr.distRelatedObjectName = minDist;
+						}
+						sr.objectType = ObjectType.VILLAGE;
 					}
-					resultMatcher.apiSearchRegionFinished(this, r, phrase);
+				} else {
+					return false;
 				}
+				limit ++;
+				results.add(sr);
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return limit > LIMIT * phrase.getRadiusLevel() ||
+						resultMatcher.isCancelled();
 			}
 		}
 	}
@@ -635,38 +776,18 @@ public class SearchCoreFactory {
 						resultMatcher.exportObject(phrase, object);
 					}
 					if (limit++ > LIMIT) {
+						resultMatcher.setApiLimitReached();
 						return false;
 					}
-					String poiID = object.getType().getKeyName() + "_" + object.getId();
+					String poiID = getPoiId(object);
 					if (ids.contains(poiID)) {
 						return false;
 					}
-					SearchResult sr = new SearchResult(phrase);
-					sr.otherNames = object.getOtherNames(true);
-					sr.localeName = object.getName(phrase.getSettings().getLang());
-					if (!nm.matches(sr.localeName)) {
-						sr.localeName = object.getName(phrase.getSettings().getLang(),
-								phrase.getSettings().isTransliterate());
-					}
-					if (!nm.matches(sr.localeName) && !nm.matches(sr.otherNames)
-							&& !nm.matches(object.getAdditionalInfoValues(false))) {
+					SearchResult sr = createSearchResult(phrase, nm, object, currentFile[0]);
+					if (sr == null) {
 						return false;
 					}
-					sr.object = object;
-					sr.preferredZoom = SearchCoreFactory.PREFERRED_POI_ZOOM;
-					sr.file = currentFile[0];
-					sr.location = object.getLocation();
-					if (object.getSubType().equals("city") || object.getSubType().equals("country")) {
-						sr.priorityDistance = SEARCH_AMENITY_BY_NAME_CITY_PRIORITY_DISTANCE;
-						sr.preferredZoom = object.getSubType().equals("country") ? PREFERRED_COUNTRY_ZOOM : PREFERRED_CITY_ZOOM;
-					} else if (object.getSubType().equals("town")) {
-						sr.priorityDistance = SEARCH_AMENITY_BY_NAME_TOWN_PRIORITY_DISTANCE;
-					} else {
-						sr.priorityDistance = 1;
-					}
-					sr.priority = SEARCH_AMENITY_BY_NAME_PRIORITY;
 					phrase.countUnknownWordsMatchMainResult(sr);
-					sr.objectType = ObjectType.POI;
 					resultMatcher.publish(sr);
 					ids.add(poiID);
 					return false;
@@ -689,9 +810,12 @@ public class SearchCoreFactory {
 					matcher, rawDataCollector);
 
 			BinaryMapIndexReader fileRequest = phrase.getFileRequest();
+			ExecutorService executor = phrase.getSettings().getSearchExecutor();
 			if (fileRequest != null) {
 				fileRequest.searchPoiByName(req);
 				resultMatcher.apiSearchRegionFinished(this, fileRequest, phrase);
+			} else if (executor != null && !phrase.getSettings().isExportObjects()) {
+				searchInParallel(phrase, resultMatcher, executor, offlineIterator, searchWord, nm, bbox, ids);
 			} else {
 				while (offlineIterator.hasNext()) {
 					BinaryMapIndexReader r = offlineIterator.next();
@@ -703,6 +827,101 @@ public class SearchCoreFactory {
 			return true;
 		}
 
+		private void searchInParallel(final SearchPhrase phrase, final SearchResultMatcher resultMatcher,
+		                              ExecutorService executor, Iterator<BinaryMapIndexReader> offlineIterator,
+		                              final String searchWord, final NameStringMatcher nm, final QuadRect bbox,
+		                              final Set<String> ids) throws IOException {
+			final int[] readBefore = new int[1];
+			ParallelFileSearch.search(executor, phrase.getSettings().getSearchParallelFiles(), offlineIterator,
+					resultMatcher, new FileSearch<SearchResult>() {
+				@Override
+				public void search(final BinaryMapIndexReader file, final FileResults<SearchResult> res) throws IOException {
+					ResultMatcher<Amenity> fileMatcher = new ResultMatcher<Amenity>() {
+						@Override
+						public boolean publish(Amenity object) {
+							if (res.readObjects++ > LIMIT) {
+								return false;
+							}
+							SearchResult sr = createSearchResult(phrase, nm, object, file);
+							if (sr != null) {
+								res.add(sr);
+							}
+							return false;
+						}
+
+						@Override
+						public boolean isCancelled() {
+							return res.readObjects > LIMIT || res.isCancelled();
+						}
+					};
+					boolean unlimited = file.isBasemap();
+					file.searchPoiByName(BinaryMapIndexReader.buildSearchPoiRequest(
+							(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
+							unlimited ? 0 : (int) bbox.left, unlimited ? Integer.MAX_VALUE : (int) bbox.right,
+							unlimited ? 0 : (int) bbox.top, unlimited ? Integer.MAX_VALUE : (int) bbox.bottom,
+							fileMatcher, null));
+				}
+			}, new FileMerge<SearchResult>() {
+				@Override
+				public boolean merge(BinaryMapIndexReader file, FileResults<SearchResult> res) {
+					// same order and limit of read objects as in sequential search
+					for (int i = 0; i < res.results.size(); i++) {
+						if (readBefore[0] + res.positions.get(i) > LIMIT) {
+							resultMatcher.setApiLimitReached();
+							return false;
+						}
+						SearchResult sr = res.results.get(i);
+						String poiID = getPoiId((Amenity) sr.object);
+						if (!ids.contains(poiID)) {
+							phrase.countUnknownWordsMatchMainResult(sr);
+							resultMatcher.publish(sr);
+							ids.add(poiID);
+						}
+					}
+					readBefore[0] += res.readObjects;
+					resultMatcher.apiSearchRegionFinished(SearchAmenityByNameAPI.this, file, phrase);
+					if (readBefore[0] > LIMIT) {
+						resultMatcher.setApiLimitReached();
+					}
+					return readBefore[0] <= LIMIT && !resultMatcher.isLimitReached();
+				}
+			});
+		}
+
+		private static String getPoiId(Amenity object) {
+			return object.getType().getKeyName() + "_" + object.getId();
+		}
+
+		private static SearchResult createSearchResult(SearchPhrase phrase, NameStringMatcher nm, Amenity object,
+		                                               BinaryMapIndexReader file) {
+			SearchResult sr = new SearchResult(phrase);
+			sr.otherNames = object.getOtherNames(true);
+			sr.localeName = object.getName(phrase.getSettings().getLang());
+			if (!nm.matches(sr.localeName)) {
+				sr.localeName = object.getName(phrase.getSettings().getLang(),
+						phrase.getSettings().isTransliterate());
+			}
+			if (!nm.matches(sr.localeName) && !nm.matches(sr.otherNames)
+					&& !nm.matches(object.getAdditionalInfoValues(false))) {
+				return null;
+			}
+			sr.object = object;
+			sr.preferredZoom = SearchCoreFactory.PREFERRED_POI_ZOOM;
+			sr.file = file;
+			sr.location = object.getLocation();
+			if (object.getSubType().equals("city") || object.getSubType().equals("country")) {
+				sr.priorityDistance = SEARCH_AMENITY_BY_NAME_CITY_PRIORITY_DISTANCE;
+				sr.preferredZoom = object.getSubType().equals("country") ? PREFERRED_COUNTRY_ZOOM : PREFERRED_CITY_ZOOM;
+			} else if (object.getSubType().equals("town")) {
+				sr.priorityDistance = SEARCH_AMENITY_BY_NAME_TOWN_PRIORITY_DISTANCE;
+			} else {
+				sr.priorityDistance = 1;
+			}
+			sr.priority = SEARCH_AMENITY_BY_NAME_PRIORITY;
+			sr.objectType = ObjectType.POI;
+			return sr;
+		}
+
 		@Override
 		public int getSearchPriority(SearchPhrase p) {
 			if (p.hasObjectType(ObjectType.POI) ||
@@ -723,6 +942,21 @@ public class SearchCoreFactory {
 			return super.isSearchMoreAvailable(phrase) && getSearchPriority(phrase) != -1;
 		}
 
+		@Override
+		public boolean isIncrementalSearchAvailable(SearchPhrase phrase) {
+			return phrase.isNoSelectedType() && !phrase.hasMoreThanOneUnknownSearchWord();
+		}
+
+		@Override
+		public void refineSearchResult(SearchPhrase phrase, SearchResultMatcher resultMatcher, SearchResult res) {
+			SearchResult sr = createSearchResult(phrase, phrase.getMainUnknownNameStringMatcher(), (Amenity) res.object,
+					res.file);
+			if (sr != null) {
+				phrase.countUnknownWordsMatchMainResult(sr);
+				resultMatcher.publish(sr);
+			}
+		}
+
 		@Override
 		public int getMinimalSearchRadius(SearchPhrase phrase) {
 			return phrase.getRadiusSearch(BBOX_RADIUS);
@@ -1224,15 +1458,25 @@ public class SearchCoreFactory {
 				QuadRect bbox = phrase.getRadiusBBoxToSearch(radius);
 				List<BinaryMapIndexReader> offlineIndexes = phrase.getOfflineIndexes();
 				Set<String> searchedPois = new TreeSet<>();
+				// with total limit only nearest poi are needed, boxes further than limit-th poi of file are not read
+				int nearestLimit = resultMatcher.getTotalLimit();
+				LatLon location = phrase.getLastTokenLocation();
+				boolean nearest = nearestLimit > 0 && location != null;
 				for (BinaryMapIndexReader r : offlineIndexes) {
 					ResultMatcher<Amenity> rm = getResultMatcher(phrase, poiTypeFilter, resultMatcher, nameFilter, r,
-							searchedPois, poiAdditionals, countExtraWords);
+							searchedPois, poiAdditionals, countExtraWords, nearest);
 					if (poiTypeFilter instanceof CustomSearchPoiFilter) {
 						rm = ((CustomSearchPoiFilter) poiTypeFilter).wrapResultMatcher(rm);
 					}
 					SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.left,
 							(int) bbox.right, (int) bbox.top, (int) bbox.bottom, -1, poiTypeFilter, poiAdditionalFilter, rm);
-					r.searchPoi(req);
+					if (nearest) {
+						if (r.searchNearestPoi(req, location, nearestLimit).size() >= nearestLimit) {
+							resultMatcher.setApiLimitReached();
+						}
+					} else {
+						r.searchPoi(req);
+					}
 					resultMatcher.apiSearchRegionFinished(this, r, phrase);
 				}
 			}
@@ -1243,7 +1487,8 @@ public class SearchCoreFactory {
 		private ResultMatcher<Amenity> getResultMatcher(final SearchPhrase phrase, final SearchPoiTypeFilter poiTypeFilter,
 		                                                final SearchResultMatcher resultMatcher, final String nameFilter,
 		                                                final BinaryMapIndexReader selected, final Set<String> searchedPois,
-		                                                final Collection<String> poiAdditionals, final int countExtraWords) {
+		                                                final Collection<String> poiAdditionals, final int countExtraWords,
+		                                                final boolean nearest) {
 
 
 			final NameStringMatcher ns = nameFilter == null ? null : new NameStringMatcher(nameFilter, CHECK_STARTS_FROM_SPACE);
@@ -1310,8 +1555,8 @@ public class SearchCoreFactory {
 					res.priority = SEARCH_AMENITY_BY_TYPE_PRIORITY;
 					res.priorityDistance = 1;
 					res.objectType = POI;
-					resultMatcher.publish(res);
-					return false;
+					// nearest search counts published poi to stop at limit
+					return resultMatcher.publish(res) && nearest;
 				}
 
 				@Override
@@ -6,6 +6,7 @@ import java.util.regex.Pattern;
 import net.osmand.Collator;
 import net.osmand.CollatorStringMatcher;
 import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.FoldedCollatorStringMatcher;
 import net.osmand.OsmAndCollator;
 import net.osmand.StringMatcher;
 import net.osmand.binary.Abbreviations;
@@ -785,7 +786,7 @@ public class SearchPhrase {
 		private CollatorStringMatcher sm;
 
 		public NameStringMatcher(String namePart, StringMatcherMode mode) {
-			sm = new CollatorStringMatcher(namePart, mode);
+			sm = new FoldedCollatorStringMatcher(namePart, mode);
 		}
 		
 		public boolean matches(Collection<String> map) {
@@ -19,11 +19,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 // immutable object
 public class SearchSettings {
 
 	public static final Log LOG = PlatformUtil.getLog(SearchSettings.class);
+	public static final int DEFAULT_SEARCH_PARALLEL_FILES = 4;
 	private static final double MIN_DISTANCE_REGION_LANG_RECALC = 10000;
 
 	private LatLon originalLocation;
@@ -40,6 +42,8 @@ public class SearchSettings {
 	private QuadRect searchBBox31;
 	private boolean addressSearch;
 	private SearchExportSettings exportSettings; // = new SearchExportSettings(true, true, -1);
+	private ExecutorService searchExecutor;
+	private int searchParallelFiles = DEFAULT_SEARCH_PARALLEL_FILES;
 
 	public SearchSettings(SearchSettings s) {
 		if(s != null) {
@@ -57,6 +61,8 @@ public class SearchSettings {
 			this.emptyQueryAllowed = s.emptyQueryAllowed;
 			this.sortByName = s.sortByName;
 			this.exportSettings = s.exportSettings;
+			this.searchExecutor = s.searchExecutor;
+			this.searchParallelFiles = s.searchParallelFiles;
 		}
 	}
 	
@@ -72,6 +78,35 @@ public class SearchSettings {
 		this.offlineIndexes = Collections.unmodifiableList(offlineIndexes);
 	}
 
+	public ExecutorService getSearchExecutor() {
+		return searchExecutor;
+	}
+
+	/**
+	 * Executor to search by name in many files in parallel (null - files are searched one by one).
+	 * Should not be the executor running search itself.
+	 */
+	public SearchSettings setSearchExecutor(ExecutorService searchExecutor) {
+		return setSearchExecutor(searchExecutor, DEFAULT_SEARCH_PARALLEL_FILES);
+	}
+
+	/**
+	 * @param parallelFiles max number of files searched by executor (or waiting for merge of results) at once
+	 */
+	public SearchSettings setSearchExecutor(ExecutorService searchExecutor, int parallelFiles) {
+		if (parallelFiles <= 0) {
+			throw new IllegalArgumentException("Parallel files should be positive: " + parallelFiles);
+		}
+		SearchSettings s = new SearchSettings(this);
+		s.searchExecutor = searchExecutor;
+		s.searchParallelFiles = parallelFiles;
+		return s;
+	}
+
+	public int getSearchParallelFiles() {
+		return searchParallelFiles;
+	}
+
 	public int getRadiusLevel() {
 		return radiusLevel;
 	}
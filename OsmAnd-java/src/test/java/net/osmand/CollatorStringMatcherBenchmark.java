@@ -0,0 +1,68 @@
+package net.osmand;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link CollatorStringMatcher} and {@link FoldedCollatorStringMatcher} on distinct POI like names.
+ * Run with gradle jmh task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollatorStringMatcherBenchmark {
+
+	// more distinct names than cache of folded names keeps
+	@Param({"5000", "50000"})
+	public int names;
+
+	@Param({"CHECK_STARTS_FROM_SPACE", "CHECK_EQUALS_FROM_SPACE", "CHECK_CONTAINS"})
+	public StringMatcherMode mode;
+
+	@Param({"ba", "strasse", "кафе"})
+	public String query;
+
+	private String[] nameList;
+	private CollatorStringMatcher collatorMatcher;
+	private CollatorStringMatcher foldedMatcher;
+
+	@Setup
+	public void setup() {
+		Random rnd = new Random(1);
+		nameList = MatcherTestNames.distinctNames(rnd, names);
+		collatorMatcher = new CollatorStringMatcher(query, mode);
+		foldedMatcher = new FoldedCollatorStringMatcher(query, mode);
+	}
+
+	@Benchmark
+	public void collator(Blackhole bh) {
+		for (String name : nameList) {
+			bh.consume(collatorMatcher.matches(name));
+		}
+	}
+
+	@Benchmark
+	public void folded(Blackhole bh) {
+		for (String name : nameList) {
+			bh.consume(foldedMatcher.matches(name));
+		}
+	}
+}
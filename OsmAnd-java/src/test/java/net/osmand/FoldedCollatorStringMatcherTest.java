@@ -0,0 +1,45 @@
+package net.osmand;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+public class FoldedCollatorStringMatcherTest {
+
+	private static final int NAMES = 1000;
+	private static final int QUERIES = 100;
+
+	@Test
+	public void testSameMatchesAsCollator() {
+		Random rnd = new Random(7);
+		String[] names = MatcherTestNames.randomNames(rnd, NAMES);
+		for (int q = 0; q < QUERIES; q++) {
+			assertSameMatches(MatcherTestNames.randomQuery(rnd, names), names);
+		}
+	}
+
+	@Test
+	public void testSameMatchesWhenCacheIsFull() {
+		Random rnd = new Random(11);
+		// names are evicted from cache and folded again
+		String[] names = MatcherTestNames.distinctNames(rnd, FoldedCollatorStringMatcher.NAME_CACHE_SIZE * 2);
+		for (int q = 0; q < 3; q++) {
+			assertSameMatches(MatcherTestNames.randomQuery(rnd, names), names);
+			Assert.assertTrue(FoldedCollatorStringMatcher.getCachedNamesCount() <= FoldedCollatorStringMatcher.NAME_CACHE_SIZE);
+		}
+	}
+
+	private static void assertSameMatches(String query, String[] names) {
+		for (StringMatcherMode mode : StringMatcherMode.values()) {
+			CollatorStringMatcher expected = new CollatorStringMatcher(query, mode);
+			CollatorStringMatcher folded = new FoldedCollatorStringMatcher(query, mode);
+			for (String name : names) {
+				Assert.assertEquals("'" + query + "' " + mode + " '" + name + "'", expected.matches(name),
+						folded.matches(name));
+			}
+		}
+	}
+}
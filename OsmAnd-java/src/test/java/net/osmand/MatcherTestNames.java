@@ -0,0 +1,76 @@
+package net.osmand;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * POI like names and queries for tests and benchmarks of string matchers.
+ */
+public class MatcherTestNames {
+
+	public static final String[] WORDS = {"Berlin", "Hauptstraße", "Café", "Müller", "Bäckerei", "Apotheke",
+			"Restaurant", "Zur", "Alten", "Post", "Saint-Étienne", "Москва", "Кафе", "Ёлка", "Ελλάδα", "Supermarkt",
+			"Bahnhof", "Kirche", "Schule", "Park", "Hotel", "Platz", "Gasthaus", "Bank",
+			"L'Œuvre", "Encyclopædia", "Straße", "St.", "Łódź", "İstanbul", "Ørsted", "ﬁsh", "Dvořák", "Ⅻ",
+			"Nguyễn", "東京", "Škoda", "12", "A-2"};
+	public static final String CHARS = "aAäÄáàâåæbcçCdeéèêëEfghiíïıIİjklłmnñoóöøœpqrsßštuúüvwxyzžАаЁёЕеКкλΛ- '.,0123";
+
+	public static String[] randomNames(Random rnd, int count) {
+		String[] names = new String[count];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = randomName(rnd);
+		}
+		return names;
+	}
+
+	public static String[] distinctNames(Random rnd, int count) {
+		Set<String> names = new LinkedHashSet<String>();
+		while (names.size() < count) {
+			names.add(randomName(rnd));
+		}
+		return names.toArray(new String[0]);
+	}
+
+	public static String randomName(Random rnd) {
+		StringBuilder sb = new StringBuilder();
+		int words = 1 + rnd.nextInt(3);
+		for (int j = 0; j < words; j++) {
+			if (j > 0) {
+				sb.append(rnd.nextInt(5) == 0 ? "-" : " ");
+			}
+			if (rnd.nextInt(4) == 0) {
+				int len = 1 + rnd.nextInt(6);
+				for (int k = 0; k < len; k++) {
+					sb.append(CHARS.charAt(rnd.nextInt(CHARS.length())));
+				}
+			} else {
+				sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+			}
+		}
+		return sb.toString();
+	}
+
+	public static String randomQuery(Random rnd, String[] names) {
+		switch (rnd.nextInt(4)) {
+		case 0:
+			// substring of some name
+			String name = names[rnd.nextInt(names.length)];
+			int start = rnd.nextInt(name.length());
+			int end = start + 1 + rnd.nextInt(name.length() - start);
+			return name.substring(start, end);
+		case 1:
+			String w = WORDS[rnd.nextInt(WORDS.length)];
+			return w.substring(0, 1 + rnd.nextInt(w.length())).toLowerCase();
+		case 2:
+			return WORDS[rnd.nextInt(WORDS.length)].toUpperCase();
+		default:
+			StringBuilder sb = new StringBuilder();
+			int len = 1 + rnd.nextInt(4);
+			for (int k = 0; k < len; k++) {
+				sb.append(CHARS.charAt(rnd.nextInt(CHARS.length())));
+			}
+			return sb.toString();
+		}
+	}
+}
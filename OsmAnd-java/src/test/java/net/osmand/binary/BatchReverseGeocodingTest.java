@@ -0,0 +1,141 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteCalculationProgress;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.router.RoutingContext;
+
+/**
+ * Results of {@link BatchReverseGeocoding} must be equal to results of
+ * {@link GeocodingUtilities#reverseGeocodingSearch} and {@link GeocodingUtilities#sortGeocodingResults} of every
+ * point, for random points of obf files with routing and address data from test resources.
+ */
+public class BatchReverseGeocodingTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int POINTS = 300;
+	private static final int PARTITION_SIZE = 16;
+	private static final String PROFILE = "car";
+
+	@Test
+	public void testBatchEqualsPerPointSearch() throws Exception {
+		List<File> files = new ArrayList<File>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		List<BinaryMapReaderPool> pools = new ArrayList<>();
+		RouteRegion region = null;
+		boolean address = false;
+		for (File f : files) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+			if (region == null && !reader.getRoutingIndexes().isEmpty()) {
+				region = reader.getRoutingIndexes().get(0);
+			}
+			address |= !reader.getAddressIndexes().isEmpty();
+			readers.add(reader);
+			pools.add(new BinaryMapReaderPool(reader, 2));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Assume.assumeTrue("No routing and address data in " + TEST_RESOURCES, region != null && address);
+			RoutingConfiguration.Builder builder = RoutingConfiguration.getDefault();
+			RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT,
+					RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+			List<LatLon> points = randomPoints(new Random(11), region);
+
+			BatchReverseGeocoding batch = new BatchReverseGeocoding(pools, builder, PROFILE, memoryLimits, executor);
+			batch.setPartitionSize(PARTITION_SIZE);
+			List<List<GeocodingResult>> actual = batch.reverseGeocoding(points);
+			Assert.assertEquals(points.size(), actual.size());
+			Assert.assertEquals(batch.getStats().toString(), points.size(), batch.getStats().points.get());
+
+			RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(builder.build(PROFILE, memoryLimits),
+					null, readers.toArray(new BinaryMapIndexReader[0]), RouteCalculationMode.NORMAL);
+			ctx.calculationProgress = new RouteCalculationProgress();
+			int compared = 0;
+			for (int i = 0; i < points.size(); i++) {
+				LatLon p = points.get(i);
+				GeocodingUtilities gu = new GeocodingUtilities();
+				List<GeocodingResult> expected = gu.sortGeocodingResults(readers,
+						gu.reverseGeocodingSearch(ctx, p.getLatitude(), p.getLongitude(), false));
+				assertSameResults(p.toString(), expected, actual.get(i));
+				if (!expected.isEmpty()) {
+					compared++;
+				}
+			}
+			Assume.assumeTrue("No addresses near random points", compared > 0);
+		} finally {
+			executor.shutdownNow();
+			for (int i = 0; i < readers.size(); i++) {
+				pools.get(i).close();
+				readers.get(i).close();
+			}
+		}
+	}
+
+	private static void assertSameResults(String msg, List<GeocodingResult> expected, List<GeocodingResult> actual) {
+		Assert.assertNotNull(msg, actual);
+		Assert.assertEquals(msg + " " + expected + " " + actual, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			GeocodingResult e = expected.get(i);
+			GeocodingResult a = actual.get(i);
+			String m = msg + " result " + i;
+			Assert.assertEquals(m, e.toString(), a.toString());
+			Assert.assertEquals(m, e.street == null ? null : e.street.getId(), a.street == null ? null : a.street.getId());
+			Assert.assertEquals(m, e.building == null ? null : e.building.getId(),
+					a.building == null ? null : a.building.getId());
+			Assert.assertEquals(m, e.connectionPoint, a.connectionPoint);
+			Assert.assertEquals(m, e.getDistance(), a.getDistance(), 1e-6);
+		}
+	}
+
+	private static List<LatLon> randomPoints(Random rnd, RouteRegion region) {
+		List<LatLon> points = new ArrayList<>();
+		double lat = region.getBottomLatitude();
+		double lon = region.getLeftLongitude();
+		double height = region.getTopLatitude() - lat;
+		double width = region.getRightLongitude() - lon;
+		for (int i = 0; i < POINTS; i++) {
+			// central part of region, every 3rd point is next to previous one
+			if (i % 3 == 2) {
+				LatLon prev = points.get(i - 1);
+				points.add(new LatLon(prev.getLatitude() + 0.0005, prev.getLongitude() - 0.0005));
+			} else {
+				points.add(new LatLon(lat + height * (0.25 + rnd.nextDouble() / 2),
+						lon + width * (0.25 + rnd.nextDouble() / 2)));
+			}
+		}
+		return points;
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapReaderPool.ReaderPoolStats;
+
+/**
+ * Readers of {@link BinaryMapReaderPool} used from many threads must read the same objects as the initial reader,
+ * interrupt of a thread reading shared channel must not break other pooled readers and the initial reader.
+ */
+public class BinaryMapReaderPoolTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int MAX_READERS = 3;
+	private static final int THREADS = 8;
+	private static final int ITERATIONS = 20;
+
+	@Test
+	public void testConcurrentAcquireRelease() throws Exception {
+		File file = findObfWithMap();
+		BinaryMapIndexReader initial = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+		final BinaryMapReaderPool pool = new BinaryMapReaderPool(initial, MAX_READERS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			final List<Long> expected = searchIds(initial);
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int i = 0; i < ITERATIONS; i++) {
+							BinaryMapIndexReader r = pool.acquire();
+							try {
+								Assert.assertEquals(expected, searchIds(r));
+							} finally {
+								pool.release(r);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> f : futures) {
+				f.get();
+			}
+			ReaderPoolStats stats = pool.getStats();
+			Assert.assertEquals(THREADS * ITERATIONS, stats.checkouts);
+			Assert.assertEquals(0, stats.inUse);
+			Assert.assertTrue(stats.toString(), stats.maxInUse <= MAX_READERS);
+			Assert.assertTrue(stats.toString(), stats.created <= MAX_READERS);
+			Assert.assertEquals(expected, searchIds(initial));
+		} finally {
+			executor.shutdownNow();
+			pool.close();
+			initial.close();
+		}
+	}
+
+	@Test
+	public void testInterruptDoesntBreakOtherReaders() throws Exception {
+		File file = findObfWithMap();
+		BinaryMapIndexReader initial = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+		BinaryMapReaderPool pool = new BinaryMapReaderPool(initial, 2);
+		try {
+			List<Long> expected = searchIds(initial);
+			BinaryMapIndexReader other = pool.acquire();
+			BinaryMapIndexReader interrupted = pool.acquire();
+			Assert.assertEquals(expected, searchIds(other));
+			// read of interrupted thread closes shared channel
+			Thread.currentThread().interrupt();
+			try {
+				searchIds(interrupted);
+				Assert.fail("Read should be stopped by interrupt");
+			} catch (ClosedByInterruptException e) {
+				// expected
+			} finally {
+				Thread.interrupted();
+			}
+			Assert.assertEquals(expected, searchIds(other));
+			Assert.assertEquals(expected, searchIds(initial));
+			// interrupted reader is reused after release
+			pool.release(interrupted);
+			BinaryMapIndexReader reused = pool.acquire();
+			Assert.assertSame(interrupted, reused);
+			Assert.assertEquals(expected, searchIds(reused));
+			pool.release(reused);
+			pool.release(other);
+			Assert.assertEquals(1, pool.getStats().reopens);
+		} finally {
+			Thread.interrupted();
+			pool.close();
+			initial.close();
+		}
+	}
+
+	private static List<Long> searchIds(BinaryMapIndexReader reader) throws IOException {
+		List<Long> ids = new ArrayList<>();
+		for (MapIndex mapIndex : reader.getMapIndexes()) {
+			for (MapRoot root : mapIndex.getRoots()) {
+				List<BinaryMapDataObject> res = reader.searchMapIndex(BinaryMapIndexReader.buildSearchRequest(
+						root.getLeft(), root.getRight(), root.getTop(), root.getBottom(), root.getMaxZoom(), null));
+				for (BinaryMapDataObject o : res) {
+					ids.add(o.getId());
+				}
+			}
+		}
+		return ids;
+	}
+
+	private static File findObfWithMap() throws IOException {
+		List<File> files = new ArrayList<>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		for (File f : files) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+			try {
+				if (!reader.getMapIndexes().isEmpty()) {
+					return f;
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		Assume.assumeTrue("No map objects in " + TEST_RESOURCES, false);
+		return null;
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.Collator;
+import net.osmand.OsmAndCollator;
+import net.osmand.binary.BinaryMapAddressReaderAdapter.AddressRegion;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.util.Algorithms;
+
+/**
+ * Offsets found by {@link BinaryNameIndexFile#findOffsets} must be equal to offsets of
+ * {@link BinaryMapIndexReader#readIndexedStringTable} for prefixes of real keys of POI and address name tables
+ * of obf files of test resources. Index built in background is attached to reader when it's ready.
+ */
+public class BinaryNameIndexFileTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int QUERIES_PER_TABLE = 300;
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("names", "");
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		Algorithms.removeAllFiles(dir);
+	}
+
+	@Test
+	public void testIndexOffsetsEqualTableOffsets() throws IOException {
+		Collator collator = OsmAndCollator.primaryCollator();
+		int compared = 0;
+		for (File obf : copyObfFiles()) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(obf, "r"), obf);
+			try {
+				BinaryNameIndexFile index = BinaryNameIndexFile.attach(reader, true);
+				Assert.assertNotNull(obf.getName(), index);
+				for (PoiRegion reg : reader.getPoiIndexes()) {
+					List<String> keys = new ArrayList<>();
+					reader.readPoiNameIndexTable(reg, keys, new TIntArrayList());
+					int table = index.getTable(BinaryNameIndexFile.POI_TABLE, reg.filePointer);
+					for (String query : getQueries(keys)) {
+						List<Long> limits = seekPoiTable(reader, reg);
+						compare(reader, index, table, collator, query);
+						popLimits(reader, limits);
+						compared++;
+					}
+				}
+				for (AddressRegion reg : reader.getAddressIndexes()) {
+					List<String> keys = new ArrayList<>();
+					reader.readAddressNameIndexTable(reg, keys, new TIntArrayList());
+					int table = index.getTable(BinaryNameIndexFile.ADDRESS_TABLE, reg.filePointer);
+					for (String query : getQueries(keys)) {
+						List<Long> limits = seekAddressTable(reader, reg);
+						compare(reader, index, table, collator, query);
+						popLimits(reader, limits);
+						compared++;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		Assume.assumeTrue("No name tables in " + TEST_RESOURCES, compared > 0);
+	}
+
+	@Test
+	public void testAttachAsync() throws Exception {
+		List<File> files = copyObfFiles();
+		Assume.assumeFalse("No obf in " + TEST_RESOURCES, files.isEmpty());
+		File obf = files.get(0);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(obf, "r"), obf);
+		try {
+			Future<BinaryNameIndexFile> f = BinaryNameIndexFile.attachAsync(reader, executor);
+			Assert.assertNotNull(f);
+			BinaryNameIndexFile index = f.get();
+			Assert.assertNotNull(index);
+			Assert.assertSame(index, reader.getNameIndexFile());
+			Assert.assertTrue(BinaryNameIndexFile.getIndexFile(obf).exists());
+			// up to date index is attached at once
+			BinaryMapIndexReader other = new BinaryMapIndexReader(new RandomAccessFile(obf, "r"), obf);
+			try {
+				Assert.assertNull(BinaryNameIndexFile.attachAsync(other, executor));
+				Assert.assertNotNull(other.getNameIndexFile());
+			} finally {
+				other.close();
+			}
+		} finally {
+			executor.shutdownNow();
+			reader.close();
+		}
+	}
+
+	private static void compare(BinaryMapIndexReader reader, BinaryNameIndexFile index, int table, Collator collator,
+			String query) throws IOException {
+		TIntArrayList expected = new TIntArrayList();
+		TIntArrayList chars = new TIntArrayList();
+		chars.add(0);
+		reader.readIndexedStringTable(collator, Collections.singletonList(query), "", Collections.singletonList(expected),
+				chars);
+		TIntArrayList actual = new TIntArrayList();
+		index.findOffsets(table, collator, query, actual);
+		expected.sort();
+		actual.sort();
+		Assert.assertEquals("'" + query + "'", expected, actual);
+	}
+
+	private static List<String> getQueries(List<String> keys) {
+		List<String> queries = new ArrayList<>();
+		if (keys.isEmpty()) {
+			return queries;
+		}
+		Random rnd = new Random(keys.size());
+		for (int i = 0; i < QUERIES_PER_TABLE; i++) {
+			String key = keys.get(rnd.nextInt(keys.size()));
+			switch (i % 5) {
+			case 0:
+				queries.add(key);
+				break;
+			case 1:
+				queries.add(key.substring(0, 1 + rnd.nextInt(key.length())));
+				break;
+			case 2:
+				queries.add(key + keys.get(rnd.nextInt(keys.size())));
+				break;
+			case 3:
+				queries.add(key.toUpperCase(Locale.ROOT));
+				break;
+			default:
+				// key of subtable is read with prefix, so query could stop inside of it
+				String other = keys.get(rnd.nextInt(keys.size()));
+				queries.add(key.substring(0, rnd.nextInt(key.length() + 1)) + other.substring(0, 1));
+				break;
+			}
+		}
+		return queries;
+	}
+
+	// positions reader at content of name table of POI region as search by name does, returns old limits
+	private static List<Long> seekPoiTable(BinaryMapIndexReader reader, PoiRegion reg) throws IOException {
+		List<Long> limits = new ArrayList<>();
+		CodedInputStream codedIS = reader.codedIS;
+		codedIS.seek(reg.filePointer);
+		limits.add(codedIS.pushLimitLong((long) reg.length));
+		seekField(reader, OsmandOdb.OsmAndPoiIndex.NAMEINDEX_FIELD_NUMBER);
+		limits.add(codedIS.pushLimitLong(reader.readInt()));
+		seekField(reader, OsmandOdb.OsmAndPoiNameIndex.TABLE_FIELD_NUMBER);
+		limits.add(codedIS.pushLimitLong(reader.readInt()));
+		return limits;
+	}
+
+	private static List<Long> seekAddressTable(BinaryMapIndexReader reader, AddressRegion reg) throws IOException {
+		List<Long> limits = new ArrayList<>();
+		CodedInputStream codedIS = reader.codedIS;
+		codedIS.seek(reg.indexNameOffset);
+		limits.add(codedIS.pushLimitLong(reader.readInt()));
+		seekField(reader, OsmandOdb.OsmAndAddressNameIndexData.TABLE_FIELD_NUMBER);
+		limits.add(codedIS.pushLimitLong(reader.readInt()));
+		return limits;
+	}
+
+	private static void popLimits(BinaryMapIndexReader reader, List<Long> limits) {
+		for (int i = limits.size() - 1; i >= 0; i--) {
+			reader.codedIS.popLimit(limits.get(i));
+		}
+	}
+
+	private static void seekField(BinaryMapIndexReader reader, int field) throws IOException {
+		while (true) {
+			int t = reader.codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == field) {
+				return;
+			}
+			Assert.assertTrue("Field " + field + " is not found", tag != 0);
+			reader.skipUnknownField(t);
+		}
+	}
+
+	private List<File> copyObfFiles() throws IOException {
+		List<File> files = new ArrayList<>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		List<File> copies = new ArrayList<>();
+		for (File f : files) {
+			// index files are written next to obf
+			File copy = new File(dir, copies.size() + "_" + f.getName());
+			Algorithms.fileCopy(f, copy);
+			copies.add(copy);
+		}
+		return copies;
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+/**
+ * Objects of {@link BinaryMapIndexReader#searchMapIndex} must be the same with disabled, warm, cold and small
+ * (evicting) {@link MapDataBlocksCache}, on obf files of test resources.
+ */
+public class MapDataBlocksCacheTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int REQUESTS = 100;
+
+	private MapDataBlocksCache cache;
+	private long maxWeight;
+
+	@Before
+	public void setUp() {
+		cache = MapDataBlocksCache.getInstance();
+		maxWeight = cache.getMaxWeight();
+	}
+
+	@After
+	public void tearDown() {
+		cache.setMaxWeight(maxWeight);
+		cache.clear();
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		Assert.assertEquals(0, new MapDataBlocksCache(0).getMaxWeight());
+		Assert.assertFalse(new MapDataBlocksCache(0).isEnabled());
+	}
+
+	@Test
+	public void testTrimMemory() throws IOException {
+		List<File> files = new ArrayList<File>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		Assume.assumeFalse("No obf in " + TEST_RESOURCES, files.isEmpty());
+		cache.setMaxWeight(MapDataBlocksCache.DEFAULT_MAX_WEIGHT);
+		cache.clear();
+		for (File file : files) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+			try {
+				reader.searchMapIndex(BinaryMapIndexReader.buildSearchRequest(0, Integer.MAX_VALUE, 0,
+						Integer.MAX_VALUE, 15, null));
+			} finally {
+				reader.close();
+			}
+		}
+		long weight = cache.getWeight();
+		Assume.assumeTrue("No map data in " + TEST_RESOURCES, weight > 0);
+		cache.trimMemory(false);
+		Assert.assertTrue(cache.getWeight() <= weight / 2);
+		Assert.assertTrue(cache.isEnabled());
+		cache.trimMemory(true);
+		Assert.assertEquals(0, cache.getWeight());
+		Assert.assertEquals(0, cache.getBlocksCount());
+	}
+
+	@Test
+	public void testCacheOnEqualsCacheOff() throws IOException {
+		List<File> files = new ArrayList<File>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		int compared = 0;
+		for (File file : files) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+			try {
+				for (MapIndex index : reader.getMapIndexes()) {
+					compared += compareIndex(reader, index);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		Assume.assumeTrue("No map data in " + TEST_RESOURCES, compared > 0);
+	}
+
+	private int compareIndex(BinaryMapIndexReader reader, MapIndex index) throws IOException {
+		int left = Integer.MAX_VALUE;
+		int top = Integer.MAX_VALUE;
+		int right = 0;
+		int bottom = 0;
+		for (MapRoot root : index.getRoots()) {
+			left = Math.min(left, root.getLeft());
+			top = Math.min(top, root.getTop());
+			right = Math.max(right, root.getRight());
+			bottom = Math.max(bottom, root.getBottom());
+		}
+		if (left > right) {
+			return 0;
+		}
+		Random rnd = new Random(5);
+		int w = Math.max(1, right - left);
+		int h = Math.max(1, bottom - top);
+		int compared = 0;
+		for (int i = 0; i < REQUESTS; i++) {
+			int bw = Math.max(1, w / (1 + rnd.nextInt(8)));
+			int bh = Math.max(1, h / (1 + rnd.nextInt(8)));
+			int l = left + rnd.nextInt(Math.max(1, w - bw));
+			int t = top + rnd.nextInt(Math.max(1, h - bh));
+			int zoom = 3 + rnd.nextInt(18);
+			int filter = rnd.nextInt(3);
+			cache.setMaxWeight(0);
+			List<BinaryMapDataObject> expected = search(reader, l, t, bw, bh, zoom, filter);
+			// small cache evicts blocks during search
+			cache.setMaxWeight(i % 4 == 0 ? 16 << 10 : MapDataBlocksCache.DEFAULT_MAX_WEIGHT);
+			if (i % 3 == 0) {
+				cache.clear();
+			}
+			List<BinaryMapDataObject> cold = search(reader, l, t, bw, bh, zoom, filter);
+			List<BinaryMapDataObject> warm = search(reader, l, t, bw, bh, zoom, filter);
+			String msg = index.getName() + " request " + i;
+			assertSameObjects(msg, expected, cold);
+			assertSameObjects(msg, expected, warm);
+			compared += expected.size();
+		}
+		return compared;
+	}
+
+	private static List<BinaryMapDataObject> search(BinaryMapIndexReader reader, int left, int top, int width,
+			int height, int zoom, final int filter) throws IOException {
+		// accepts part of types to check that cached objects are filtered as read objects
+		SearchFilter searchFilter = filter == 0 ? null : new SearchFilter() {
+			@Override
+			public boolean accept(TIntArrayList types, MapIndex index) {
+				for (int k = 0; k < types.size(); k++) {
+					if (types.get(k) % 2 == filter - 1) {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+		SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(left, left + width, top,
+				top + height, zoom, searchFilter);
+		return reader.searchMapIndex(req);
+	}
+
+	private static void assertSameObjects(String msg, List<BinaryMapDataObject> expected,
+			List<BinaryMapDataObject> actual) {
+		Assert.assertEquals(msg, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			BinaryMapDataObject e = expected.get(i);
+			BinaryMapDataObject a = actual.get(i);
+			String m = msg + " " + e.getId();
+			Assert.assertEquals(m, e.getId(), a.getId());
+			Assert.assertArrayEquals(m, e.getTypes(), a.getTypes());
+			Assert.assertArrayEquals(m, e.getAdditionalTypes(), a.getAdditionalTypes());
+			Assert.assertArrayEquals(m, e.getCoordinates(), a.getCoordinates());
+			Assert.assertTrue(m, Arrays.deepEquals(e.getPolygonInnerCoordinates(), a.getPolygonInnerCoordinates()));
+			Assert.assertEquals(m, e.isArea(), a.isArea());
+			Assert.assertEquals(m, e.getName(), a.getName());
+			Assert.assertEquals(m, e.getLabelX(), a.getLabelX());
+			Assert.assertEquals(m, e.getLabelY(), a.getLabelY());
+			Assert.assertSame(m, e.getMapIndex(), a.getMapIndex());
+		}
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+
+/**
+ * Objects of {@link BinaryMapIndexReader#searchMapIndexBatch} read by {@link MapDataObjectsBatch.Cursor} and
+ * materialized by {@link MapDataObjectsBatch.Cursor#toMapDataObject()} must be the same as objects of
+ * {@link BinaryMapIndexReader#searchMapIndex} (ids, coordinates, inner rings, types, names, labels) on obf files of
+ * test resources.
+ */
+public class MapDataObjectsBatchTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int REQUESTS = 100;
+
+	@Test
+	public void testSameObjectsAsSearchMapIndex() throws IOException {
+		List<File> files = new ArrayList<File>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		int compared = 0;
+		for (File file : files) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+			try {
+				if (reader.getMapIndexes().isEmpty()) {
+					continue;
+				}
+				compared += compareFile(file.getName(), reader);
+			} finally {
+				reader.close();
+			}
+		}
+		Assume.assumeTrue("No map objects in " + TEST_RESOURCES, compared > 0);
+	}
+
+	private int compareFile(String name, BinaryMapIndexReader reader) throws IOException {
+		int compared = 0;
+		Random rnd = new Random(7);
+		for (MapIndex mapIndex : reader.getMapIndexes()) {
+			for (BinaryMapIndexReader.MapRoot root : mapIndex.getRoots()) {
+				for (int i = 0; i < REQUESTS; i++) {
+					// whole root or its random part
+					int left = root.getLeft();
+					int top = root.getTop();
+					int right = root.getRight();
+					int bottom = root.getBottom();
+					if (i > 0) {
+						int w = Math.max(1, (right - left) / (1 + rnd.nextInt(8)));
+						int h = Math.max(1, (bottom - top) / (1 + rnd.nextInt(8)));
+						left += rnd.nextInt(Math.max(1, right - left - w));
+						top += rnd.nextInt(Math.max(1, bottom - top - h));
+						right = left + w;
+						bottom = top + h;
+					}
+					int zoom = root.getMinZoom() + rnd.nextInt(root.getMaxZoom() - root.getMinZoom() + 1);
+					SearchFilter filter = rnd.nextBoolean() ? null : new OddTypeFilter();
+					List<BinaryMapDataObject> expected = reader.searchMapIndex(
+							BinaryMapIndexReader.buildSearchRequest(left, right, top, bottom, zoom, filter));
+					SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(left, right,
+							top, bottom, zoom, filter);
+					MapDataObjectsBatch batch = reader.searchMapIndexBatch(req);
+					String msg = name + " " + left + " " + top + " " + right + " " + bottom + " z" + zoom;
+					Assert.assertTrue(msg, req.getSearchResults().isEmpty());
+					Assert.assertEquals(msg, expected.size(), batch.size());
+					MapDataObjectsBatch.Cursor c = batch.cursor();
+					for (BinaryMapDataObject o : expected) {
+						Assert.assertTrue(msg, c.next());
+						String m = msg + " " + o.getId();
+						assertSameObject(m, o, c);
+						assertSameObject(m, o, c.toMapDataObject());
+						compared++;
+					}
+					Assert.assertFalse(msg, c.next());
+				}
+			}
+		}
+		return compared;
+	}
+
+	private static void assertSameObject(String msg, BinaryMapDataObject expected, MapDataObjectsBatch.Cursor c) {
+		Assert.assertEquals(msg, expected.getId(), c.getId());
+		Assert.assertSame(msg, expected.getMapIndex(), c.getMapIndex());
+		Assert.assertEquals(msg, expected.isArea(), c.isArea());
+		Assert.assertEquals(msg, expected.isCycle(), c.isCycle());
+		Assert.assertEquals(msg, expected.getObjectType(), c.getObjectType());
+		Assert.assertEquals(msg, expected.getPointsLength(), c.getPointsLength());
+		for (int i = 0; i < expected.getPointsLength(); i++) {
+			Assert.assertEquals(msg, expected.getPoint31XTile(i), c.getPoint31XTile(i));
+			Assert.assertEquals(msg, expected.getPoint31YTile(i), c.getPoint31YTile(i));
+		}
+		int[][] inner = expected.getPolygonInnerCoordinates();
+		Assert.assertEquals(msg, inner == null ? 0 : inner.length, c.getInnerPolygonsCount());
+		for (int p = 0; p < c.getInnerPolygonsCount(); p++) {
+			Assert.assertEquals(msg, inner[p].length / 2, c.getInnerPointsLength(p));
+			for (int i = 0; i < c.getInnerPointsLength(p); i++) {
+				Assert.assertEquals(msg, inner[p][2 * i], c.getInnerPoint31XTile(p, i));
+				Assert.assertEquals(msg, inner[p][2 * i + 1], c.getInnerPoint31YTile(p, i));
+			}
+		}
+		Assert.assertArrayEquals(msg, expected.getTypes(), c.getTypes());
+		Assert.assertArrayEquals(msg, expected.getAdditionalTypes(), c.getAdditionalTypes());
+		Assert.assertEquals(msg, expected.getSimpleLayer(), c.getSimpleLayer());
+		Assert.assertEquals(msg, expected.getName(), c.getName());
+		Map<Integer, String> names = new LinkedHashMap<Integer, String>();
+		for (int i = 0; i < c.getNamesLength(); i++) {
+			names.put(c.getNameType(i), c.getNameValue(i));
+			Assert.assertEquals(msg, expected.getNameByType(c.getNameType(i)), c.getNameByType(c.getNameType(i)));
+		}
+		Map<Integer, String> expectedNames = expected.getOrderedObjectNames();
+		Assert.assertEquals(msg, expectedNames == null ? new LinkedHashMap<Integer, String>() : expectedNames, names);
+		Assert.assertEquals(msg, expected.isLabelSpecified(), c.isLabelSpecified());
+		Assert.assertEquals(msg, expected.getLabelX(), c.getLabelX());
+		Assert.assertEquals(msg, expected.getLabelY(), c.getLabelY());
+	}
+
+	private static void assertSameObject(String msg, BinaryMapDataObject expected, BinaryMapDataObject o) {
+		Assert.assertEquals(msg, expected.getId(), o.getId());
+		Assert.assertSame(msg, expected.getMapIndex(), o.getMapIndex());
+		Assert.assertEquals(msg, expected.isArea(), o.isArea());
+		Assert.assertEquals(msg, expected.getObjectType(), o.getObjectType());
+		Assert.assertArrayEquals(msg, expected.getCoordinates(), o.getCoordinates());
+		int[][] inner = expected.getPolygonInnerCoordinates();
+		int[][] oinner = o.getPolygonInnerCoordinates();
+		Assert.assertEquals(msg, inner == null ? 0 : inner.length, oinner == null ? 0 : oinner.length);
+		for (int p = 0; inner != null && p < inner.length; p++) {
+			Assert.assertArrayEquals(msg, inner[p], oinner[p]);
+		}
+		Assert.assertArrayEquals(msg, expected.getTypes(), o.getTypes());
+		Assert.assertArrayEquals(msg, expected.getAdditionalTypes(), o.getAdditionalTypes());
+		Assert.assertEquals(msg, expected.getName(), o.getName());
+		Assert.assertEquals(msg, expected.getOrderedObjectNames(), o.getOrderedObjectNames());
+		Assert.assertEquals(msg, expected.isLabelSpecified(), o.isLabelSpecified());
+		Assert.assertEquals(msg, expected.getLabelX(), o.getLabelX());
+		Assert.assertEquals(msg, expected.getLabelY(), o.getLabelY());
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+
+	// accepts part of objects to check that filter is applied in the same way
+	private static class OddTypeFilter implements SearchFilter {
+
+		@Override
+		public boolean accept(TIntArrayList types, MapIndex index) {
+			for (int i = 0; i < types.size(); i++) {
+				if (types.get(i) % 2 == 1) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
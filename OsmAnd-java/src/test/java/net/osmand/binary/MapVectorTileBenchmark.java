@@ -0,0 +1,244 @@
+package net.osmand.binary;
+
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.render.RenderingRulesStorage;
+import net.osmand.render.RenderingRulesStorage.RenderingRulesStorageResolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link MapVectorTileService} on synthetic map objects (without obf files): building of single tile,
+ * building of batch of tiles by executor with different number of threads and answering from memory cache.
+ * gradle jmh -Pjmh="MapVectorTileBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapVectorTileBenchmark {
+
+	private static final int ZOOM = 14;
+	private static final int TILE_X = 8800;
+	private static final int TILE_Y = 5373;
+	private static final int TILES = 8;
+	private static final int TILE31 = 1 << (31 - ZOOM);
+
+	private static final String STYLE = "<renderingStyle name=\"benchmark\" depends=\"\" version=\"1\">\n"
+			+ "<polygon>\n"
+			+ "  <case tag=\"building\" value=\"yes\" minzoom=\"13\" color=\"#cccccc\"/>\n"
+			+ "  <case tag=\"landuse\" value=\"forest\" minzoom=\"8\" color=\"#add19e\"/>\n"
+			+ "</polygon>\n"
+			+ "<line>\n"
+			+ "  <case tag=\"highway\" value=\"primary\" minzoom=\"8\" color=\"#fcd6a4\" strokeWidth=\"4\"/>\n"
+			+ "  <case tag=\"highway\" value=\"residential\" minzoom=\"13\" color=\"#ffffff\" strokeWidth=\"2\"/>\n"
+			+ "</line>\n"
+			+ "<point>\n"
+			+ "  <case tag=\"amenity\" value=\"cafe\" minzoom=\"15\" icon=\"cafe\"/>\n"
+			+ "</point>\n"
+			+ "<text>\n"
+			+ "  <case tag=\"amenity\" value=\"cafe\" minzoom=\"14\" textSize=\"12\"/>\n"
+			+ "</text>\n"
+			+ "</renderingStyle>";
+
+	@Param({"1", "4"})
+	public int threads;
+
+	private RenderingRulesStorage storage;
+	private List<List<BinaryMapDataObject>> tileObjects;
+	private MapVectorTileBuilder builder;
+	private ExecutorService executor;
+	private MapVectorTileService service;
+	private MapVectorTileService cachedService;
+	private int tile;
+
+	@Setup
+	public void setup() throws IOException, XmlPullParserException {
+		storage = new RenderingRulesStorage("benchmark", null);
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(STYLE.getBytes("UTF-8")),
+				new RenderingRulesStorageResolver() {
+					@Override
+					public RenderingRulesStorage resolve(String name, RenderingRulesStorageResolver ref) {
+						return null;
+					}
+				}, false);
+		List<BinaryMapDataObject> objects = createObjects();
+		tileObjects = new ArrayList<>();
+		for (int i = 0; i < TILES * TILES; i++) {
+			tileObjects.add(searchObjects(objects, TILE_X + i % TILES, TILE_Y + i / TILES));
+		}
+		builder = new MapVectorTileBuilder(storage);
+		executor = Executors.newFixedThreadPool(threads);
+		service = new BenchmarkTileService(storage, executor, null);
+		cachedService = new BenchmarkTileService(storage, executor,
+				new MapVectorTileCache(null, null, 256 << 20, 0));
+	}
+
+	@TearDown
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public byte[] buildTile() {
+		int i = tile++ % tileObjects.size();
+		return builder.buildTile(tileObjects.get(i), ZOOM, TILE_X + i % TILES, TILE_Y + i / TILES);
+	}
+
+	@Benchmark
+	public int buildTiles() throws Exception {
+		return requestTiles(service);
+	}
+
+	@Benchmark
+	public int cachedTiles() throws Exception {
+		return requestTiles(cachedService);
+	}
+
+	private static int requestTiles(MapVectorTileService service) throws Exception {
+		List<Future<byte[]>> futures = new ArrayList<>();
+		for (int i = 0; i < TILES * TILES; i++) {
+			futures.add(service.getTileAsync(ZOOM, TILE_X + i % TILES, TILE_Y + i / TILES));
+		}
+		int bytes = 0;
+		for (Future<byte[]> f : futures) {
+			bytes += f.get().length;
+		}
+		return bytes;
+	}
+
+	private class BenchmarkTileService extends MapVectorTileService {
+
+		BenchmarkTileService(RenderingRulesStorage storage, ExecutorService executor, MapVectorTileCache cache) {
+			super(Collections.<BinaryMapReaderPool>emptyList(), storage, executor, cache);
+		}
+
+		@Override
+		protected List<BinaryMapDataObject> searchObjects(MapVectorTileBuilder builder, int zoom, int x, int y) {
+			return tileObjects.get((y - TILE_Y) * TILES + x - TILE_X);
+		}
+	}
+
+	private static List<BinaryMapDataObject> createObjects() {
+		MapIndex index = new MapIndex();
+		int id = 1;
+		int name = id++;
+		index.initMapEncodingRule(0, name, "name", "");
+		int building = id++;
+		index.initMapEncodingRule(0, building, "building", "yes");
+		int forest = id++;
+		index.initMapEncodingRule(0, forest, "landuse", "forest");
+		int primary = id++;
+		index.initMapEncodingRule(0, primary, "highway", "primary");
+		int residential = id++;
+		index.initMapEncodingRule(0, residential, "highway", "residential");
+		int cafe = id++;
+		index.initMapEncodingRule(0, cafe, "amenity", "cafe");
+		// not in style
+		int fence = id++;
+		index.initMapEncodingRule(0, fence, "barrier", "fence");
+
+		Random random = new Random(1);
+		List<BinaryMapDataObject> objects = new ArrayList<>();
+		int left = TILE_X * TILE31;
+		int top = TILE_Y * TILE31;
+		int size = TILES * TILE31;
+		long objectId = 1;
+		// roads through whole area
+		for (int i = 0; i < 60; i++) {
+			boolean horizontal = i % 2 == 0;
+			int c = (horizontal ? top : left) + random.nextInt(size);
+			int[] xy = new int[2 * 200];
+			for (int j = 0; j < 200; j++) {
+				int along = (horizontal ? left : top) + (int) ((long) size * j / 199);
+				int across = c + random.nextInt(TILE31 / 64) - TILE31 / 128;
+				xy[2 * j] = horizontal ? along : across;
+				xy[2 * j + 1] = horizontal ? across : along;
+			}
+			objects.add(create(index, objectId++, xy, false, i % 4 == 0 ? primary : residential));
+		}
+		for (int i = 0; i < 40; i++) {
+			int x = left + random.nextInt(size);
+			int y = top + random.nextInt(size);
+			objects.add(create(index, objectId++, polygon(random, x, y, TILE31 / 4, 40), true, forest));
+		}
+		for (int i = 0; i < 20000; i++) {
+			int x = left + random.nextInt(size);
+			int y = top + random.nextInt(size);
+			objects.add(create(index, objectId++, polygon(random, x, y, TILE31 / 200, 6), true, building));
+		}
+		for (int i = 0; i < 2000; i++) {
+			int x = left + random.nextInt(size);
+			int y = top + random.nextInt(size);
+			BinaryMapDataObject o = create(index, objectId++, new int[]{x, y}, false, cafe);
+			o.putObjectName(name, "Cafe " + i);
+			objects.add(o);
+		}
+		for (int i = 0; i < 5000; i++) {
+			int x = left + random.nextInt(size);
+			int y = top + random.nextInt(size);
+			objects.add(create(index, objectId++, new int[]{x, y, x + TILE31 / 100, y}, false, fence));
+		}
+		return objects;
+	}
+
+	private static int[] polygon(Random random, int x, int y, int radius, int points) {
+		int[] xy = new int[2 * (points + 1)];
+		for (int i = 0; i < points; i++) {
+			double a = 2 * Math.PI * i / points;
+			double r = radius * (0.7 + 0.3 * random.nextDouble());
+			xy[2 * i] = x + (int) (r * Math.cos(a));
+			xy[2 * i + 1] = y + (int) (r * Math.sin(a));
+		}
+		xy[2 * points] = xy[0];
+		xy[2 * points + 1] = xy[1];
+		return xy;
+	}
+
+	private static BinaryMapDataObject create(MapIndex index, long id, int[] xy, boolean area, int type) {
+		BinaryMapDataObject o = new BinaryMapDataObject(id, xy, null, 0, area, new int[]{type}, null, 0, 0);
+		o.setMapIndex(index);
+		return o;
+	}
+
+	private static List<BinaryMapDataObject> searchObjects(List<BinaryMapDataObject> objects, int x, int y) {
+		int left = x * TILE31;
+		int top = y * TILE31;
+		List<BinaryMapDataObject> res = new ArrayList<>();
+		for (BinaryMapDataObject o : objects) {
+			for (int i = 0; i < o.getPointsLength(); i++) {
+				int px = o.getPoint31XTile(i);
+				int py = o.getPoint31YTile(i);
+				if (px >= left && px < left + TILE31 && py >= top && py < top + TILE31) {
+					res.add(o);
+					break;
+				}
+			}
+		}
+		return res;
+	}
+}
@@ -0,0 +1,200 @@
+package net.osmand.binary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Clipping of lines and rings by {@link MapVectorTileBuilder} must give the same geometry as JTS intersection with
+ * the tile square (up to rounding of crossing points), simplification must keep removed points within tolerance.
+ */
+public class MapVectorTileBuilderTest {
+
+	private static final double MIN = 0;
+	private static final double MAX = 100;
+	private static final GeometryFactory FACTORY = new GeometryFactory();
+
+	@Test
+	public void testClipLineInside() {
+		List<Coordinate> line = coords(10, 10, 50, 20, 90, 90);
+		List<List<Coordinate>> parts = MapVectorTileBuilder.clipLine(line, MIN, MAX);
+		Assert.assertEquals(1, parts.size());
+		Assert.assertEquals(line, parts.get(0));
+	}
+
+	@Test
+	public void testClipLineEdgeCrossings() {
+		// enters through left side and leaves through right side
+		assertParts(MapVectorTileBuilder.clipLine(coords(-100, 50, 200, 50), MIN, MAX), coords(0, 50, 100, 50));
+		// leaves and enters again through right side
+		assertParts(MapVectorTileBuilder.clipLine(coords(50, 50, 150, 50, 150, 60, 50, 60), MIN, MAX),
+				coords(50, 50, 100, 50), coords(100, 60, 50, 60));
+		// crosses corner
+		assertParts(MapVectorTileBuilder.clipLine(coords(-10, 50, 50, -10), MIN, MAX), coords(0, 40, 40, 0));
+		// goes along side
+		assertParts(MapVectorTileBuilder.clipLine(coords(-10, 0, 110, 0), MIN, MAX), coords(0, 0, 100, 0));
+		// touches corner from outside
+		assertParts(MapVectorTileBuilder.clipLine(coords(-10, 10, 10, -10), MIN, MAX), coords(0, 0, 0, 0));
+	}
+
+	@Test
+	public void testClipLineOutside() {
+		Assert.assertTrue(MapVectorTileBuilder.clipLine(coords(-10, -10, 110, -10, 110, 110), MIN, MAX).isEmpty());
+		Assert.assertTrue(MapVectorTileBuilder.clipLine(coords(-10, -10, -10, -10), MIN, MAX).isEmpty());
+		Assert.assertTrue(MapVectorTileBuilder.clipLine(coords(50, 50), MIN, MAX).isEmpty());
+	}
+
+	@Test
+	public void testClipLineEqualsIntersection() {
+		Random rnd = new Random(1);
+		Geometry square = square();
+		for (int i = 0; i < 500; i++) {
+			List<Coordinate> line = randomCoords(rnd, 2 + rnd.nextInt(8));
+			double expected = FACTORY.createLineString(line.toArray(new Coordinate[0])).intersection(square)
+					.getLength();
+			double length = 0;
+			int points = 0;
+			for (List<Coordinate> part : MapVectorTileBuilder.clipLine(line, MIN, MAX)) {
+				for (int j = 0; j < part.size(); j++) {
+					assertInside(part.get(j));
+					if (j > 0) {
+						length += part.get(j - 1).distance(part.get(j));
+					}
+				}
+				points += part.size();
+			}
+			// every crossing point is rounded
+			Assert.assertEquals(line.toString(), expected, length, points + 1e-9);
+		}
+	}
+
+	@Test
+	public void testClipRingInsideAndAround() {
+		List<Coordinate> ring = coords(10, 10, 90, 10, 50, 90);
+		Assert.assertEquals(ring, MapVectorTileBuilder.clipRing(ring, MIN, MAX));
+		// ring around square is replaced by sides of square
+		List<Coordinate> around = MapVectorTileBuilder.clipRing(coords(-50, -50, 150, -50, 150, 150, -50, 150),
+				MIN, MAX);
+		Assert.assertEquals(4, around.size());
+		Assert.assertEquals(MAX * MAX, area(around), 1e-9);
+	}
+
+	@Test
+	public void testClipRingDegenerate() {
+		// outside of square
+		Assert.assertTrue(MapVectorTileBuilder.clipRing(coords(-50, -50, -10, -50, -30, -10), MIN, MAX).isEmpty());
+		// two points and collinear points have no area after clipping
+		Assert.assertEquals(0, area(MapVectorTileBuilder.clipRing(coords(-50, 50, 150, 50), MIN, MAX)), 1e-9);
+		Assert.assertEquals(0, area(MapVectorTileBuilder.clipRing(coords(-50, 50, 50, 50, 150, 50), MIN, MAX)),
+				1e-9);
+		Assert.assertTrue(MapVectorTileBuilder.clipRing(new ArrayList<Coordinate>(), MIN, MAX).isEmpty());
+	}
+
+	@Test
+	public void testClipConvexRingEqualsIntersection() {
+		Random rnd = new Random(2);
+		Geometry square = square();
+		for (int i = 0; i < 500; i++) {
+			List<Coordinate> points = randomCoords(rnd, 3 + rnd.nextInt(10));
+			Geometry hull = FACTORY.createMultiPoint(points.toArray(new Coordinate[0])).convexHull();
+			if (!(hull instanceof Polygon)) {
+				continue;
+			}
+			List<Coordinate> ring = new ArrayList<>(Arrays.asList(hull.getCoordinates()));
+			ring.remove(ring.size() - 1);
+			List<Coordinate> clipped = MapVectorTileBuilder.clipRing(ring, MIN, MAX);
+			for (Coordinate c : clipped) {
+				assertInside(c);
+			}
+			double expected = hull.intersection(square).getArea();
+			// every crossing point is rounded by 0.5 at most
+			Assert.assertEquals(ring.toString(), expected, area(clipped), hull.getLength() + 1e-9);
+		}
+	}
+
+	@Test
+	public void testSimplifyTolerance() {
+		// straight line
+		Assert.assertEquals(coords(0, 0, 100, 0), MapVectorTileBuilder.simplify(coords(0, 0, 30, 0, 60, 0, 100, 0),
+				1));
+		// deviation bigger than tolerance is kept
+		List<Coordinate> zigzag = coords(0, 0, 10, 5, 20, 0, 30, 5, 40, 0);
+		Assert.assertEquals(zigzag, MapVectorTileBuilder.simplify(zigzag, 1));
+		Assert.assertEquals(coords(0, 0, 40, 0), MapVectorTileBuilder.simplify(zigzag, 5));
+		// no simplification
+		Assert.assertEquals(zigzag, MapVectorTileBuilder.simplify(zigzag, 0));
+		Assert.assertEquals(coords(0, 0, 10, 10), MapVectorTileBuilder.simplify(coords(0, 0, 10, 10), 100));
+	}
+
+	@Test
+	public void testSimplifyKeepsPointsWithinTolerance() {
+		Random rnd = new Random(3);
+		for (int i = 0; i < 500; i++) {
+			List<Coordinate> line = randomCoords(rnd, 2 + rnd.nextInt(30));
+			double tolerance = rnd.nextInt(20);
+			List<Coordinate> res = MapVectorTileBuilder.simplify(line, tolerance);
+			Assert.assertEquals(line.get(0), res.get(0));
+			Assert.assertEquals(line.get(line.size() - 1), res.get(res.size() - 1));
+			// every point of line is close to segment of simplified line between kept points
+			int k = 0;
+			for (int j = 0; j < line.size(); j++) {
+				Coordinate c = line.get(j);
+				if (k < res.size() && c == res.get(k)) {
+					k++;
+					continue;
+				}
+				Geometry segment = FACTORY.createLineString(new Coordinate[] { res.get(k - 1), res.get(k) });
+				Assert.assertTrue(line + " " + j, segment.distance(FACTORY.createPoint(c)) <= tolerance + 1e-9);
+			}
+			Assert.assertEquals(res.size(), k);
+		}
+	}
+
+	private static void assertParts(List<List<Coordinate>> parts, List<?>... expected) {
+		Assert.assertEquals(Arrays.asList(expected), parts);
+	}
+
+	private static void assertInside(Coordinate c) {
+		Assert.assertTrue(c.toString(), c.x >= MIN && c.x <= MAX && c.y >= MIN && c.y <= MAX);
+	}
+
+	private static Geometry square() {
+		return FACTORY.createPolygon(coords(MIN, MIN, MAX, MIN, MAX, MAX, MIN, MAX, MIN, MIN)
+				.toArray(new Coordinate[0]));
+	}
+
+	private static double area(List<Coordinate> ring) {
+		double a = 0;
+		for (int i = 0; i < ring.size(); i++) {
+			Coordinate p = ring.get(i);
+			Coordinate n = ring.get((i + 1) % ring.size());
+			a += p.x * n.y - n.x * p.y;
+		}
+		return Math.abs(a) / 2;
+	}
+
+	private static List<Coordinate> randomCoords(Random rnd, int count) {
+		List<Coordinate> res = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			res.add(new Coordinate(rnd.nextInt(300) - 100, rnd.nextInt(300) - 100));
+		}
+		return res;
+	}
+
+	private static List<Coordinate> coords(double... xy) {
+		List<Coordinate> res = new ArrayList<>();
+		for (int i = 0; i + 1 < xy.length; i += 2) {
+			res.add(new Coordinate(xy[i], xy[i + 1]));
+		}
+		return res;
+	}
+}
@@ -0,0 +1,64 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.util.Algorithms;
+
+/**
+ * Tiles of {@link MapVectorTileCache} are restored from directory only for the same version of obf files and style.
+ */
+public class MapVectorTileCacheTest {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("tiles", "");
+		dir.delete();
+	}
+
+	@After
+	public void tearDown() {
+		Algorithms.removeAllFiles(dir);
+	}
+
+	@Test
+	public void testSameVersionRestoresTiles() {
+		MapVectorTileCache cache = new MapVectorTileCache(dir, "v1", 1 << 20, 1 << 20);
+		cache.put(14, 1, 2, new byte[] { 1, 2, 3 });
+		cache = new MapVectorTileCache(dir, "v1", 1 << 20, 1 << 20);
+		Assert.assertEquals(1, cache.getDiskTilesCount());
+		Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, cache.get(14, 1, 2));
+	}
+
+	@Test
+	public void testOtherVersionDropsTiles() {
+		MapVectorTileCache cache = new MapVectorTileCache(dir, "v1", 1 << 20, 1 << 20);
+		cache.put(14, 1, 2, new byte[] { 1, 2, 3 });
+		cache = new MapVectorTileCache(dir, "v2", 1 << 20, 1 << 20);
+		Assert.assertEquals(0, cache.getDiskTilesCount());
+		Assert.assertNull(cache.get(14, 1, 2));
+		Assert.assertFalse(new File(dir, "14").exists());
+	}
+
+	@Test
+	public void testSetVersionDropsTiles() {
+		MapVectorTileCache cache = new MapVectorTileCache(dir, "v1", 1 << 20, 1 << 20);
+		cache.put(14, 1, 2, new byte[] { 1, 2, 3 });
+		cache.setVersion("v1");
+		Assert.assertNotNull(cache.get(14, 1, 2));
+		cache.setVersion("v2");
+		Assert.assertEquals(0, cache.getMemoryTilesCount());
+		Assert.assertEquals(0, cache.getDiskTilesCount());
+		Assert.assertNull(cache.get(14, 1, 2));
+		cache.put(14, 1, 2, new byte[] { 4 });
+		cache = new MapVectorTileCache(dir, "v2", 1 << 20, 1 << 20);
+		Assert.assertArrayEquals(new byte[] { 4 }, cache.get(14, 1, 2));
+	}
+}
@@ -0,0 +1,135 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.data.Amenity;
+import net.osmand.data.LatLon;
+import net.osmand.osm.PoiCategory;
+import net.osmand.util.MapUtils;
+
+/**
+ * Poi of {@link BinaryMapIndexReader#searchNearestPoi} must be the k nearest poi of all poi found by
+ * {@link BinaryMapIndexReader#searchPoi(SearchRequest)} in the same box (brute force sorted by distance),
+ * on obf files of test resources.
+ */
+public class NearestPoiSearchTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int POINTS = 40;
+	private static final double DIST_PRECISION = 0.5;
+
+	@Test
+	public void testNearestEqualsBruteForce() throws IOException {
+		List<File> files = new ArrayList<File>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		int compared = 0;
+		for (File file : files) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+			try {
+				for (PoiRegion region : reader.getPoiIndexes()) {
+					compared += compareRegion(reader, region);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		Assume.assumeTrue("No poi in " + TEST_RESOURCES, compared > 0);
+	}
+
+	private int compareRegion(BinaryMapIndexReader reader, PoiRegion region) throws IOException {
+		Random rnd = new Random(7);
+		int compared = 0;
+		int w = Math.max(1, region.right31 - region.left31);
+		int h = Math.max(1, region.bottom31 - region.top31);
+		for (int i = 0; i < POINTS; i++) {
+			final int x = region.left31 + rnd.nextInt(w);
+			final int y = region.top31 + rnd.nextInt(h);
+			// box limits radius, sometimes it has less than k poi
+			int bw = Math.max(1, w / (1 + rnd.nextInt(4)));
+			int bh = Math.max(1, h / (1 + rnd.nextInt(4)));
+			int left = x - bw / 2;
+			int top = y - bh / 2;
+			int k = 1 + rnd.nextInt(30);
+			SearchPoiTypeFilter filter = rnd.nextBoolean() ? BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER
+					: new SubtypeFilter(rnd.nextInt(3));
+			List<Amenity> all = reader.searchPoi(BinaryMapIndexReader.buildSearchPoiRequest(left, left + bw, top,
+					top + bh, -1, filter, null, null));
+			Collections.sort(all, new Comparator<Amenity>() {
+				@Override
+				public int compare(Amenity o1, Amenity o2) {
+					return Double.compare(dist(x, y, o1), dist(x, y, o2));
+				}
+			});
+			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(left, left + bw, top, top + bh,
+					-1, filter, null, null);
+			List<Amenity> nearest = reader.searchNearestPoi(req, new LatLon(MapUtils.get31LatitudeY(y),
+					MapUtils.get31LongitudeX(x)), k);
+			String msg = region.getName() + " point " + i + " k " + k;
+			Assert.assertEquals(msg, Math.min(k, all.size()), nearest.size());
+			for (int j = 0; j < nearest.size(); j++) {
+				// poi with equal distance could be in any order
+				Assert.assertEquals(msg + " " + j, dist(x, y, all.get(j)), dist(x, y, nearest.get(j)), DIST_PRECISION);
+				compared++;
+			}
+			if (!nearest.isEmpty() && nearest.size() < all.size()) {
+				// k-th poi is not further than the rest
+				Assert.assertTrue(msg, dist(x, y, nearest.get(nearest.size() - 1)) <= dist(x, y, all.get(k)) + DIST_PRECISION);
+			}
+		}
+		return compared;
+	}
+
+	private static double dist(int x, int y, Amenity a) {
+		LatLon l = a.getLocation();
+		// poi location is rounded, distance differs a bit from 31 coordinates
+		return Math.sqrt(MapUtils.squareDist31TileMetric(x, y, MapUtils.get31TileNumberX(l.getLongitude()),
+				MapUtils.get31TileNumberY(l.getLatitude())));
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+
+	private static class SubtypeFilter implements SearchPoiTypeFilter {
+
+		private final int mod;
+
+		SubtypeFilter(int mod) {
+			this.mod = mod;
+		}
+
+		@Override
+		public boolean accept(PoiCategory type, String subcategory) {
+			return subcategory.length() % 3 == mod;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.Location;
+import net.osmand.binary.BinaryMapIndexReader.SearchPoiAdditionalFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchPoiTypeFilter;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiSubType;
+import net.osmand.data.Amenity;
+import net.osmand.osm.PoiCategory;
+import net.osmand.util.MapUtils;
+
+/**
+ * Poi of {@link BinaryMapIndexReader#searchPoi(List)} (boxes and route corridor parts searched at once) must be the
+ * same as poi of {@link BinaryMapIndexReader#searchPoi(SearchRequest)} for every request, with warm and cold cache
+ * of decoded poi blocks, on obf files of test resources.
+ */
+public class PoiBatchSearchTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int BATCHES = 30;
+
+	@Test
+	public void testBatchEqualsSingleRequests() throws IOException {
+		List<File> files = new ArrayList<File>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		int compared = 0;
+		long maxWeight = BinaryMapPoiReaderAdapter.getPoiBlocksCacheMaxWeight();
+		try {
+			for (File file : files) {
+				BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+				try {
+					for (PoiRegion region : reader.getPoiIndexes()) {
+						compared += compareRegion(reader, region);
+					}
+				} finally {
+					reader.close();
+				}
+			}
+		} finally {
+			BinaryMapPoiReaderAdapter.setPoiBlocksCacheMaxWeight(maxWeight);
+		}
+		Assume.assumeTrue("No poi in " + TEST_RESOURCES, compared > 0);
+	}
+
+	private int compareRegion(BinaryMapIndexReader reader, PoiRegion region) throws IOException {
+		Random rnd = new Random(3);
+		int compared = 0;
+		for (int i = 0; i < BATCHES; i++) {
+			long seed = rnd.nextLong();
+			// small cache evicts blocks during search
+			BinaryMapPoiReaderAdapter.setPoiBlocksCacheMaxWeight(i % 3 == 0 ? 4 << 10 : 8 << 20);
+			if (i % 2 == 0) {
+				BinaryMapPoiReaderAdapter.clearPoiBlocksCache();
+			}
+			List<SearchRequest<Amenity>> batch = createRequests(new Random(seed), region);
+			reader.searchPoi(batch);
+			List<SearchRequest<Amenity>> single = createRequests(new Random(seed), region);
+			for (int k = 0; k < single.size(); k++) {
+				List<Amenity> expected = reader.searchPoi(single.get(k));
+				List<Amenity> actual = batch.get(k).getSearchResults();
+				String msg = region.getName() + " batch " + i + " request " + k;
+				Assert.assertEquals(msg, expected.size(), actual.size());
+				for (int j = 0; j < expected.size(); j++) {
+					assertSamePoi(msg, expected.get(j), actual.get(j));
+					compared++;
+				}
+			}
+		}
+		return compared;
+	}
+
+	private static List<SearchRequest<Amenity>> createRequests(Random rnd, PoiRegion region) {
+		List<SearchRequest<Amenity>> reqs = new ArrayList<>();
+		int count = 1 + rnd.nextInt(6);
+		int w = Math.max(1, region.right31 - region.left31);
+		int h = Math.max(1, region.bottom31 - region.top31);
+		for (int i = 0; i < count; i++) {
+			SearchPoiTypeFilter filter = rnd.nextBoolean() ? BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER
+					: new SubtypeFilter(rnd.nextInt(3));
+			if (rnd.nextInt(4) == 0) {
+				// route corridor
+				List<Location> route = new ArrayList<>();
+				int points = 2 + rnd.nextInt(5);
+				for (int p = 0; p < points; p++) {
+					int x = region.left31 + rnd.nextInt(w);
+					int y = region.top31 + rnd.nextInt(h);
+					route.add(new Location("", MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x)));
+				}
+				reqs.add(BinaryMapIndexReader.buildSearchPoiRequest(route, 300 + rnd.nextInt(3000), filter, null));
+			} else {
+				int bw = Math.max(1, w / (1 + rnd.nextInt(6)));
+				int bh = Math.max(1, h / (1 + rnd.nextInt(6)));
+				int left = region.left31 + rnd.nextInt(Math.max(1, w - bw));
+				int top = region.top31 + rnd.nextInt(Math.max(1, h - bh));
+				int zoom = rnd.nextBoolean() ? -1 : 9 + rnd.nextInt(8);
+				SearchPoiAdditionalFilter additional = rnd.nextInt(4) == 0 ? new AdditionalFilter() : null;
+				reqs.add(BinaryMapIndexReader.buildSearchPoiRequest(left, left + bw, top, top + bh, zoom, filter,
+						additional, null));
+			}
+		}
+		return reqs;
+	}
+
+	private static void assertSamePoi(String msg, Amenity expected, Amenity actual) {
+		msg += " " + expected.getId();
+		Assert.assertEquals(msg, expected.getId(), actual.getId());
+		Assert.assertEquals(msg, expected.getType(), actual.getType());
+		Assert.assertEquals(msg, expected.getSubType(), actual.getSubType());
+		Assert.assertEquals(msg, expected.getName(), actual.getName());
+		Assert.assertEquals(msg, expected.getLocation(), actual.getLocation());
+		Assert.assertEquals(msg, expected.getAdditionalInfoKeys(), actual.getAdditionalInfoKeys());
+		for (String key : expected.getAdditionalInfoKeys()) {
+			Assert.assertEquals(msg, expected.getAdditionalInfo(key), actual.getAdditionalInfo(key));
+		}
+		Assert.assertEquals(msg, expected.getRoutePoint() == null, actual.getRoutePoint() == null);
+		if (expected.getRoutePoint() != null) {
+			Assert.assertEquals(msg, expected.getRoutePoint().deviateDistance,
+					actual.getRoutePoint().deviateDistance, 1e-6);
+		}
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+
+	// accepts part of subtypes to check that categories of boxes and poi are filtered in the same way
+	private static class SubtypeFilter implements SearchPoiTypeFilter {
+
+		private final int mod;
+
+		SubtypeFilter(int mod) {
+			this.mod = mod;
+		}
+
+		@Override
+		public boolean accept(PoiCategory type, String subcategory) {
+			return subcategory.length() % 3 == mod;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return false;
+		}
+	}
+
+	private static class AdditionalFilter implements SearchPoiAdditionalFilter {
+
+		@Override
+		public boolean accept(PoiSubType poiSubType, String value) {
+			return value.length() % 2 == 0;
+		}
+
+		@Override
+		public String getName() {
+			return "even";
+		}
+
+		@Override
+		public String getIconResource() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package net.osmand.gpx;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.gpx.GPXTrackAnalysis.TrackPointsAnalyser;
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+/**
+ * Track read by {@link GPXTrackReader} to {@link GPXTrackColumns} must give the same split segments and analysis
+ * ({@link GPXTrackAnalysis#prepareInformation(long, TrackPointsAnalyser, GPXTrackColumns)}) as
+ * {@link GPXUtilities#loadGPXFile} and {@link GPXFile#getAnalysis(long)} on generated gpx files.
+ */
+public class GPXTrackReaderTest {
+
+	private static final long FILE_TIME = 1600000000000L;
+	private static final int FILES = 60;
+	private static final String HR = PointAttributes.SENSOR_TAG_HEART_RATE;
+
+	@Test
+	public void testColumnsEqualLoadedFile() throws IOException {
+		Random rnd = new Random(5);
+		for (int f = 0; f < FILES; f++) {
+			String gpx = randomGpx(rnd);
+			GPXFile file = GPXUtilities.loadGPXFile(stream(gpx));
+			Assert.assertNull(file.error);
+			GPXTrackColumns columns = GPXTrackReader.readColumns(stream(gpx), HR);
+			List<TrkSegment> segments = new ArrayList<>();
+			for (Track t : file.tracks) {
+				for (TrkSegment s : t.segments) {
+					if (!s.generalSegment) {
+						segments.add(s);
+					}
+				}
+			}
+			String msg = "file " + f;
+			Assert.assertEquals(msg, segments.size(), columns.getSegmentsCount());
+			for (int i = 0; i < segments.size(); i++) {
+				TrkSegment s = segments.get(i);
+				int start = columns.getSegmentStart(i);
+				int end = columns.getSegmentEnd(i);
+				Assert.assertEquals(msg + " segment " + i, s.points.size(), end - start);
+				for (int j = 0; j < s.points.size(); j++) {
+					assertSamePoint(msg + " segment " + i + " point " + j, s.points.get(j), columns, start + j);
+				}
+				if (end - start > 1) {
+					// split segment of columns passes the same points to analysis
+					SplitSegment expected = new SplitSegment(s);
+					SplitSegment actual = new SplitSegment(columns, start, end);
+					Assert.assertEquals(msg, expected.getNumberOfPoints(), actual.getNumberOfPoints());
+					for (int j = 0; j < expected.getNumberOfPoints(); j++) {
+						assertSamePoint(msg + " split " + i + " point " + j, expected.get(j), actual.get(j));
+					}
+					assertSameAnalysis(msg + " segment " + i,
+							GPXTrackAnalysis.prepareInformation(FILE_TIME, null, s),
+							new GPXTrackAnalysis().prepareInformation(FILE_TIME, null, actual));
+				}
+			}
+			RecordingAnalyser expectedPoints = new RecordingAnalyser();
+			RecordingAnalyser actualPoints = new RecordingAnalyser();
+			GPXTrackAnalysis expected = file.getAnalysis(FILE_TIME, null, null, expectedPoints);
+			GPXTrackAnalysis actual = GPXTrackAnalysis.prepareInformation(FILE_TIME, actualPoints, columns);
+			assertSameAnalysis(msg, expected, actual);
+			Assert.assertEquals(msg, expectedPoints.points, actualPoints.points);
+		}
+	}
+
+	private static void assertSamePoint(String msg, WptPt expected, GPXTrackColumns columns, int i) {
+		assertSamePoint(msg, expected, columns.fillPoint(i, new WptPt()));
+		String hr = expected.getExtensionsToRead().get(HR);
+		float value = columns.getExtensionValue(0, i);
+		if (hr == null) {
+			Assert.assertTrue(msg, Float.isNaN(value));
+		} else {
+			Assert.assertEquals(msg, Float.parseFloat(hr), value, 0);
+		}
+	}
+
+	private static void assertSamePoint(String msg, WptPt expected, WptPt actual) {
+		Assert.assertEquals(msg, expected.lat, actual.lat, 0);
+		Assert.assertEquals(msg, expected.lon, actual.lon, 0);
+		Assert.assertEquals(msg, expected.ele, actual.ele, 0);
+		Assert.assertEquals(msg, expected.time, actual.time);
+		Assert.assertEquals(msg, expected.speed, actual.speed, 0);
+		Assert.assertEquals(msg, expected.hdop, actual.hdop, 0);
+		Assert.assertEquals(msg, expected.bearing, actual.bearing, 0);
+	}
+
+	private static void assertSameAnalysis(String msg, GPXTrackAnalysis e, GPXTrackAnalysis a) {
+		Assert.assertEquals(msg, e.getTotalTracks(), a.getTotalTracks());
+		Assert.assertEquals(msg, e.getPoints(), a.getPoints());
+		Assert.assertEquals(msg, e.getTotalDistance(), a.getTotalDistance(), 0);
+		Assert.assertEquals(msg, e.getTotalDistanceMoving(), a.getTotalDistanceMoving(), 0);
+		Assert.assertEquals(msg, e.totalDistanceWithoutGaps, a.totalDistanceWithoutGaps, 0);
+		Assert.assertEquals(msg, e.getStartTime(), a.getStartTime());
+		Assert.assertEquals(msg, e.getEndTime(), a.getEndTime());
+		Assert.assertEquals(msg, e.getTimeSpan(), a.getTimeSpan());
+		Assert.assertEquals(msg, e.getTimeMoving(), a.getTimeMoving());
+		Assert.assertEquals(msg, e.timeSpanWithoutGaps, a.timeSpanWithoutGaps);
+		Assert.assertEquals(msg, e.expectedRouteDuration, a.expectedRouteDuration);
+		Assert.assertEquals(msg, e.getMinElevation(), a.getMinElevation(), 0);
+		Assert.assertEquals(msg, e.getMaxElevation(), a.getMaxElevation(), 0);
+		Assert.assertEquals(msg, e.getAvgElevation(), a.getAvgElevation(), 0);
+		Assert.assertEquals(msg, e.getDiffElevationUp(), a.getDiffElevationUp(), 0);
+		Assert.assertEquals(msg, e.getDiffElevationDown(), a.getDiffElevationDown(), 0);
+		Assert.assertEquals(msg, e.getMinSpeed(), a.getMinSpeed(), 0);
+		Assert.assertEquals(msg, e.getMaxSpeed(), a.getMaxSpeed(), 0);
+		Assert.assertEquals(msg, e.getAvgSpeed(), a.getAvgSpeed(), 0);
+		Assert.assertEquals(msg, e.hasSpeedInTrack(), a.hasSpeedInTrack());
+		Assert.assertEquals(msg, e.minHdop, a.minHdop, 0);
+		Assert.assertEquals(msg, e.maxHdop, a.maxHdop, 0);
+		Assert.assertEquals(msg, e.left, a.left, 0);
+		Assert.assertEquals(msg, e.right, a.right, 0);
+		Assert.assertEquals(msg, e.top, a.top, 0);
+		Assert.assertEquals(msg, e.bottom, a.bottom, 0);
+		Assert.assertEquals(msg, e.getLatLonStart(), a.getLatLonStart());
+		Assert.assertEquals(msg, e.locationStart == null, a.locationStart == null);
+		if (e.locationStart != null) {
+			assertSamePoint(msg + " start", e.locationStart, a.locationStart);
+			assertSamePoint(msg + " end", e.locationEnd, a.locationEnd);
+		}
+		Assert.assertEquals(msg, e.hasSpeedData(), a.hasSpeedData());
+		Assert.assertEquals(msg, e.hasElevationData(), a.hasElevationData());
+		Assert.assertEquals(msg, e.pointAttributes.size(), a.pointAttributes.size());
+		for (int i = 0; i < e.pointAttributes.size(); i++) {
+			PointAttributes pe = e.pointAttributes.get(i);
+			PointAttributes pa = a.pointAttributes.get(i);
+			String m = msg + " attribute " + i;
+			Assert.assertEquals(m, pe.distance, pa.distance, 0);
+			Assert.assertEquals(m, pe.timeDiff, pa.timeDiff, 0);
+			Assert.assertEquals(m, pe.speed, pa.speed, 0);
+			Assert.assertEquals(m, pe.elevation, pa.elevation, 0);
+			Assert.assertEquals(m, pe.firstPoint, pa.firstPoint);
+			Assert.assertEquals(m, pe.lastPoint, pa.lastPoint);
+		}
+	}
+
+	private static String randomGpx(Random rnd) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>\n");
+		sb.append("<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\"");
+		sb.append(" xmlns:gpxtpx=\"http://www.garmin.com/xmlschemas/TrackPointExtension/v1\">\n");
+		if (rnd.nextBoolean()) {
+			sb.append("<wpt lat=\"52.1\" lon=\"13.2\"><name>wpt</name><time>2020-01-01T00:00:00Z</time></wpt>\n");
+		}
+		double lat = -60 + rnd.nextDouble() * 120;
+		double lon = -170 + rnd.nextDouble() * 340;
+		long time = FILE_TIME + rnd.nextInt(1000000) * 1000L;
+		double ele = rnd.nextInt(3000);
+		int tracks = rnd.nextInt(4);
+		for (int t = 0; t < tracks; t++) {
+			sb.append("<trk><name>track ").append(t).append("</name>\n");
+			// points without trkseg are read as one segment
+			boolean noSegment = rnd.nextInt(6) == 0;
+			int segments = noSegment ? 1 : rnd.nextInt(4);
+			for (int s = 0; s < segments; s++) {
+				if (!noSegment) {
+					sb.append("<trkseg>\n");
+				}
+				int points = rnd.nextInt(5) == 0 ? rnd.nextInt(2) : rnd.nextInt(200);
+				for (int p = 0; p < points; p++) {
+					lat += (rnd.nextDouble() - 0.5) * 0.002;
+					lon += (rnd.nextDouble() - 0.5) * 0.002;
+					time += rnd.nextInt(8) == 0 ? -rnd.nextInt(5000) : rnd.nextInt(20000);
+					ele += rnd.nextInt(21) - 10;
+					appendPoint(sb, rnd, lat, lon, ele, time);
+				}
+				if (!noSegment) {
+					sb.append("</trkseg>\n");
+				}
+			}
+			sb.append("</trk>\n");
+		}
+		sb.append("</gpx>\n");
+		return sb.toString();
+	}
+
+	private static void appendPoint(StringBuilder sb, Random rnd, double lat, double lon, double ele, long time) {
+		sb.append("<trkpt lat=\"").append(String.format(Locale.US, "%.7f", lat)).append("\" lon=\"")
+				.append(String.format(Locale.US, "%.7f", lon)).append("\">");
+		if (rnd.nextInt(5) > 0) {
+			sb.append("<ele>").append(String.format(Locale.US, "%.1f", ele)).append("</ele>");
+		}
+		if (rnd.nextInt(6) > 0) {
+			String text = GPXUtilities.formatTime(time);
+			if (rnd.nextInt(3) == 0) {
+				// fraction of second and offset
+				text = text.substring(0, text.length() - 1) + "." + rnd.nextInt(1000) + "+02:00";
+			}
+			sb.append("<time>").append(text).append("</time>");
+		}
+		if (rnd.nextInt(3) == 0) {
+			sb.append("<hdop>").append(rnd.nextInt(200) / 10f).append("</hdop>");
+		}
+		if (rnd.nextInt(4) == 0) {
+			sb.append("<name>p</name><desc>desc</desc>");
+		}
+		if (rnd.nextBoolean()) {
+			sb.append("<extensions>");
+			if (rnd.nextInt(4) > 0) {
+				sb.append("<speed>").append(rnd.nextInt(400) / 10f).append("</speed>");
+			}
+			if (rnd.nextBoolean()) {
+				sb.append("<bearing>").append(rnd.nextInt(360)).append("</bearing>");
+			}
+			if (rnd.nextBoolean()) {
+				sb.append("<gpxtpx:TrackPointExtension><gpxtpx:hr>").append(60 + rnd.nextInt(120))
+						.append("</gpxtpx:hr></gpxtpx:TrackPointExtension>");
+			}
+			if (rnd.nextInt(4) == 0) {
+				sb.append("<color>#ff0000</color>");
+			}
+			sb.append("</extensions>");
+		}
+		sb.append("</trkpt>\n");
+	}
+
+	private static ByteArrayInputStream stream(String gpx) {
+		return new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// points of columns are reused, so values are copied to text
+	private static class RecordingAnalyser implements TrackPointsAnalyser {
+
+		private final List<String> points = new ArrayList<>();
+
+		@Override
+		public void onAnalysePoint(GPXTrackAnalysis analysis, WptPt point, PointAttributes attribute) {
+			points.add(point.lat + " " + point.lon + " " + point.ele + " " + point.time + " " + point.speed + " "
+					+ point.hdop + " " + attribute.distance + " " + attribute.speed);
+		}
+	}
+}
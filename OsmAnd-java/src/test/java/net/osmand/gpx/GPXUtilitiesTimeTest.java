@@ -0,0 +1,101 @@
+package net.osmand.gpx;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GPXUtilitiesTimeTest {
+
+	private static final String[] SAMPLES = {
+			"2023-05-17T10:15:30Z",
+			"2023-05-17T10:15:30.123Z",
+			"2023-05-17T10:15:30.5Z",
+			"2023-05-17T10:15:30.123456Z",
+			"2023-05-17T10:15:30+02:00",
+			"2023-05-17T10:15:30.250+02:00",
+			"2023-05-17T10:15:30-05:30",
+			"2023-05-17T10:15:30.999-05:30",
+			"2023-05-17T10:15:30",
+			"2023-05-17T10:15:30.123",
+			"2000-02-29T23:59:59Z",
+			"1970-01-01T00:00:00Z",
+			"1969-12-31T23:59:59.001Z",
+			"2100-12-31T00:00:00+14:00",
+	};
+
+	@Test
+	public void testSamplesSameAsSimpleDateFormat() {
+		for (String text : SAMPLES) {
+			assertSameTime(text);
+		}
+	}
+
+	@Test
+	public void testRandomSameAsSimpleDateFormat() {
+		Random rnd = new Random(11);
+		for (int i = 0; i < 20000; i++) {
+			assertSameTime(randomTime(rnd));
+		}
+	}
+
+	@Test
+	public void testOtherFormatsFallBack() {
+		String[] texts = {"2023-05-17 10:15:30Z", "2023-05-17T10:15Z", "2023-13-01T10:15:30Z",
+				"2023-02-29T10:15:30Z", "2023-05-17T10:15:30+0200", "1500-05-17T10:15:30Z", ""};
+		for (String text : texts) {
+			Assert.assertEquals(text, GPXUtilities.NO_ISO_TIME, GPXUtilities.parseIsoTime(text, 0, text.length()));
+		}
+	}
+
+	private static void assertSameTime(String text) {
+		long expected = GPXUtilities.parseTime(text, newFormat("yyyy-MM-dd'T'HH:mm:ssXXX"));
+		long fast = GPXUtilities.parseIsoTime(text, 0, text.length());
+		Assert.assertNotEquals(text, GPXUtilities.NO_ISO_TIME, fast);
+		Assert.assertEquals(text, expected, fast);
+		Assert.assertEquals(text, expected, GPXUtilities.parseTime(text));
+		String padded = "<time>" + text + "</time>";
+		Assert.assertEquals(text, expected, GPXUtilities.parseIsoTime(padded, 6, 6 + text.length()));
+		if (text.endsWith("Z")) {
+			Assert.assertEquals(text, GPXUtilities.parseTime(text, newFormat("yyyy-MM-dd'T'HH:mm:ss'Z'")), fast);
+		}
+	}
+
+	private static SimpleDateFormat newFormat(String pattern) {
+		SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format;
+	}
+
+	private static String randomTime(Random rnd) {
+		int year = 1600 + rnd.nextInt(700);
+		int month = 1 + rnd.nextInt(12);
+		int day = 1 + rnd.nextInt(month == 2 ? 28 : 30);
+		if (month == 2 && rnd.nextInt(10) == 0 && (year % 4 == 0 && year % 100 != 0 || year % 400 == 0)) {
+			day = 29;
+		}
+		StringBuilder sb = new StringBuilder(String.format(Locale.US, "%04d-%02d-%02dT%02d:%02d:%02d", year, month,
+				day, rnd.nextInt(24), rnd.nextInt(60), rnd.nextInt(60)));
+		if (rnd.nextBoolean()) {
+			sb.append('.');
+			int digits = 1 + rnd.nextInt(9);
+			for (int k = 0; k < digits; k++) {
+				sb.append((char) ('0' + rnd.nextInt(10)));
+			}
+		}
+		switch (rnd.nextInt(4)) {
+		case 0:
+			break;
+		case 1:
+			sb.append('Z');
+			break;
+		default:
+			sb.append(String.format(Locale.US, "%c%02d:%02d", rnd.nextBoolean() ? '+' : '-', rnd.nextInt(15),
+					rnd.nextInt(4) * 15));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,254 @@
+package net.osmand.render;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+
+/**
+ * Search with compiled rules ({@link RenderingRulesStorage#compileRules()}) and its cache of results must give the same
+ * found flag and output values as search by rules tree. Styles are generated from random nested switch / case /
+ * apply / apply_if rules with zoom, additional, custom and attribute properties.
+ */
+public class CompiledRenderingRulesTest {
+
+	private static final String[] TAGS = {"highway", "building", "landuse", "natural", "amenity", "waterway",
+			"railway", "leisure", "shop", "place", "boundary", "power", "man_made", "tourism", "barrier"};
+	private static final String[] ADDITIONAL = {"surface=paved", "surface=gravel", "tunnel=yes", "bridge=yes",
+			"access=private", "tunnel", "bridge"};
+	private static final String[] OBJECT_ADDITIONAL = {"surface=paved", "surface=gravel", "tunnel=yes", "bridge=yes",
+			"access=private", "oneway=yes"};
+	private static final String[] SECTIONS = {"order", "point", "line", "polygon", "text"};
+	private static final int[] SEEDS = {7, 11, 23};
+	private static final int QUERIES = 50000;
+	// few objects searched many times to use cache of results
+	private static final int REPEATED_OBJECTS = 64;
+
+	@Test
+	public void testSameResultsAsRulesTree() throws IOException, XmlPullParserException {
+		for (int seed : SEEDS) {
+			String style = generateStyle(new Random(seed));
+			compareSearch("style " + seed, parseStyle(style), parseStyle(style), new Random(seed));
+		}
+	}
+
+	@Test
+	public void testSameResultsForStorageCopies() throws IOException, XmlPullParserException {
+		RenderingRulesStorage storage = parseStyle(generateStyle(new Random(SEEDS[0])));
+		compareSearch("copy", storage.copy(), storage.copy(), new Random(1));
+	}
+
+	private void compareSearch(String name, RenderingRulesStorage tree, RenderingRulesStorage compiled, Random rnd) {
+		compiled.compileRules();
+		Assert.assertNull(tree.getCompiledRules());
+		RenderingRuleSearchRequest treeReq = createRequest(tree);
+		RenderingRuleSearchRequest compiledReq = createRequest(compiled);
+		MapIndex index = new MapIndex();
+		for (int i = 0; i < OBJECT_ADDITIONAL.length; i++) {
+			String[] kv = OBJECT_ADDITIONAL[i].split("=");
+			index.initMapEncodingRule(0, i + 1, kv[0], kv[1]);
+		}
+		Query[] repeated = new Query[REPEATED_OBJECTS];
+		for (int i = 0; i < repeated.length; i++) {
+			repeated[i] = new Query(rnd, index, i);
+		}
+		for (int q = 0; q < QUERIES; q++) {
+			// first half are random objects, second half are repeated ones
+			Query query = q < QUERIES / 2 ? new Query(rnd, index, q) : repeated[rnd.nextInt(repeated.length)];
+			boolean keepState = rnd.nextInt(10) == 0;
+			query.set(treeReq, keepState);
+			query.set(compiledReq, keepState);
+			boolean found = treeReq.search(query.state, query.loadOutput);
+			Assert.assertEquals(name + " " + query, found, compiledReq.search(query.state, query.loadOutput));
+			Assert.assertEquals(name + " " + query, found, compiledReq.isFound());
+			assertSameValues(name + " " + query, treeReq, compiledReq);
+		}
+	}
+
+	private static void assertSameValues(String msg, RenderingRuleSearchRequest expected,
+			RenderingRuleSearchRequest actual) {
+		RenderingRuleProperty[] props = expected.getProperties();
+		RenderingRuleProperty[] actualProps = actual.getProperties();
+		Assert.assertEquals(msg, props.length, actualProps.length);
+		for (int i = 0; i < props.length; i++) {
+			String p = msg + " " + props[i].getAttrName();
+			Assert.assertEquals(p, props[i].getAttrName(), actualProps[i].getAttrName());
+			Assert.assertEquals(p, expected.getIntPropertyValue(props[i]), actual.getIntPropertyValue(actualProps[i]));
+			Assert.assertEquals(p, expected.getFloatPropertyValue(props[i]),
+					actual.getFloatPropertyValue(actualProps[i]), 0);
+		}
+	}
+
+	private static RenderingRuleSearchRequest createRequest(RenderingRulesStorage storage) {
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		req.setBooleanFilter(storage.PROPS.R_NIGHT_MODE, true);
+		req.setStringFilter(storage.PROPS.get("appMode"), "car");
+		req.setBooleanFilter(storage.PROPS.get("hideX"), true);
+		req.saveState();
+		return req;
+	}
+
+	private static class Query {
+		final String tag;
+		final String value;
+		final int zoom;
+		final int layer;
+		final int state;
+		final boolean loadOutput;
+		final BinaryMapDataObject object;
+
+		Query(Random rnd, MapIndex index, int id) {
+			tag = rnd.nextInt(16) == 0 ? "unknown" : TAGS[rnd.nextInt(TAGS.length)];
+			value = rnd.nextInt(10) == 0 ? "" : "a" + rnd.nextInt(10);
+			zoom = 1 + rnd.nextInt(21);
+			layer = rnd.nextInt(8) == 0 ? 1 : 0;
+			state = 1 + rnd.nextInt(RenderingRulesStorage.LENGTH_RULES - 1);
+			loadOutput = rnd.nextInt(4) > 0;
+			if (rnd.nextInt(5) > 0) {
+				int[] types = new int[rnd.nextInt(3)];
+				for (int i = 0; i < types.length; i++) {
+					types[i] = 1 + rnd.nextInt(OBJECT_ADDITIONAL.length);
+				}
+				object = new BinaryMapDataObject(id, new int[] {0, 0}, null, 0, false, new int[0], types, 0, 0);
+				object.setMapIndex(index);
+			} else {
+				object = null;
+			}
+		}
+
+		void set(RenderingRuleSearchRequest req, boolean keepState) {
+			if (keepState) {
+				// outputs of previous search are not cleared
+				req.setTagValueZoomLayer(tag, value, zoom, layer, object);
+			} else {
+				req.setInitialTagValueZoom(tag, value, zoom, object);
+				req.setIntFilter(req.ALL.R_LAYER, layer);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return tag + "=" + value + " z" + zoom + " layer " + layer + " state " + state + " output " + loadOutput
+					+ " additional " + (object == null ? null : Arrays.toString(object.getAdditionalTypes()));
+		}
+	}
+
+	private static RenderingRulesStorage parseStyle(String style) throws IOException, XmlPullParserException {
+		Map<String, String> constants = new HashMap<String, String>();
+		constants.put("c1", "#ff0000");
+		RenderingRulesStorage storage = new RenderingRulesStorage("test", constants);
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(style.getBytes(StandardCharsets.UTF_8)),
+				null, false);
+		return storage;
+	}
+
+	private static String generateStyle(Random rnd) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+		sb.append("<renderingStyle name=\"test\" depends=\"\" defaultColor=\"#f1eee8\" version=\"1\">\n");
+		sb.append("<renderingProperty attr=\"appMode\" name=\"m\" description=\"\" type=\"string\" possibleValues=\"car,bicycle,pedestrian\"/>\n");
+		sb.append("<renderingProperty attr=\"noPolygons\" name=\"np\" description=\"\" type=\"boolean\" possibleValues=\"\"/>\n");
+		sb.append("<renderingProperty attr=\"hideX\" name=\"hx\" description=\"\" type=\"boolean\" possibleValues=\"\"/>\n");
+		sb.append("<renderingAttribute name=\"defColor\"><case nightMode=\"true\" attrColorValue=\"#111111\"/><case attrColorValue=\"#eeeeee\"/></renderingAttribute>\n");
+		sb.append("<renderingAttribute name=\"defWidth\"><case maxzoom=\"14\" attrIntValue=\"2\"/><case attrIntValue=\"5\"/></renderingAttribute>\n");
+		sb.append("<renderingAttribute name=\"showIt\"><case appMode=\"car\" attrBoolValue=\"true\"/><case attrBoolValue=\"false\"/></renderingAttribute>\n");
+		for (String section : SECTIONS) {
+			sb.append('<').append(section).append(">\n");
+			for (int i = 0; i < 120; i++) {
+				appendRule(sb, rnd, 0, rnd.nextInt(4) > 0, false);
+				sb.append('\n');
+			}
+			for (int i = 0; i < 3; i++) {
+				sb.append("<case tag=\"\" value=\"\" ").append(inputs(rnd)).append(' ').append(outputs(rnd)).append("/>\n");
+				sb.append("<case tag=\"").append(TAGS[rnd.nextInt(TAGS.length)]).append("\" value=\"\" ")
+						.append(inputs(rnd)).append(' ').append(outputs(rnd)).append("/>\n");
+			}
+			sb.append("</").append(section).append(">\n");
+		}
+		sb.append("</renderingStyle>\n");
+		return sb.toString();
+	}
+
+	private static void appendRule(StringBuilder sb, Random rnd, int depth, boolean withTag, boolean tagged) {
+		if (!tagged && !withTag && depth >= 3) {
+			withTag = true;
+		}
+		String tag = "";
+		if (withTag) {
+			String value = rnd.nextInt(9) == 0 ? "" : "a" + rnd.nextInt(8);
+			tag = "tag=\"" + TAGS[rnd.nextInt(TAGS.length)] + "\" value=\"" + value + "\"";
+		}
+		// top level rules without tag are always switches with tagged children
+		double r = !tagged && !withTag ? 0 : rnd.nextDouble();
+		if (depth < 3 && r < 0.35) {
+			sb.append("<switch ").append(tag).append(' ').append(inputs(rnd)).append('>');
+			int children = rnd.nextInt(5);
+			for (int i = 0; i < children; i++) {
+				appendRule(sb, rnd, depth + 1, (!withTag && !tagged) || rnd.nextDouble() < 0.15, tagged || withTag);
+			}
+			appendApply(sb, rnd, "apply", rnd.nextInt(3));
+			sb.append("</switch>");
+		} else if (depth < 3 && r < 0.55) {
+			sb.append("<case ").append(tag).append(' ').append(inputs(rnd)).append(' ').append(outputs(rnd)).append('>');
+			appendApply(sb, rnd, "apply", rnd.nextInt(4));
+			appendApply(sb, rnd, "apply_if", rnd.nextDouble() < 0.3 ? 1 : 0);
+			sb.append("</case>");
+		} else {
+			sb.append("<case ").append(tag).append(' ').append(inputs(rnd)).append(' ').append(outputs(rnd)).append("/>");
+		}
+	}
+
+	private static void appendApply(StringBuilder sb, Random rnd, String name, int count) {
+		for (int i = 0; i < count; i++) {
+			sb.append('<').append(name).append(' ').append(inputs(rnd)).append(' ').append(outputs(rnd)).append("/>");
+		}
+	}
+
+	private static String inputs(Random rnd) {
+		String[] opts = {"minzoom=\"" + (5 + rnd.nextInt(13)) + "\"", "maxzoom=\"" + (10 + rnd.nextInt(11)) + "\"",
+				"nightMode=\"" + rnd.nextBoolean() + "\"", "additional=\"" + ADDITIONAL[rnd.nextInt(ADDITIONAL.length)] + "\"",
+				"appMode=\"" + (rnd.nextBoolean() ? "car" : "bicycle") + "\"", "noPolygons=\"true\"",
+				"layer=\"" + (rnd.nextInt(3) - 1) + "\"", "disable=\"true\"", "hideX=\"true\""};
+		int r = rnd.nextInt(11);
+		return sample(rnd, opts, r < 3 ? 0 : r < 7 ? 1 : r < 10 ? 2 : 3);
+	}
+
+	private static String outputs(Random rnd) {
+		String[] opts = {"color=\"$c1\"", "color=\"$defColor\"", String.format("color=\"#%06x\"", rnd.nextInt(0x1000000)),
+				"strokeWidth=\"" + (1 + rnd.nextInt(9)) + "\"", "strokeWidth=\"$defWidth\"", "order=\"" + (1 + rnd.nextInt(100)) + "\"",
+				"textSize=\"" + (8 + rnd.nextInt(9)) + "\"", "icon=\"i" + rnd.nextInt(10) + "\"",
+				"shadowLevel=\"" + rnd.nextInt(4) + "\"", "pathEffect=\"" + (1 + rnd.nextInt(5)) + "_" + (1 + rnd.nextInt(5)) + "\"",
+				"textBold=\"$showIt\"", "objectType=\"" + (1 + rnd.nextInt(3)) + "\""};
+		return sample(rnd, opts, rnd.nextInt(4));
+	}
+
+	// attributes without repeated names
+	private static String sample(Random rnd, String[] opts, int count) {
+		List<String> list = new ArrayList<String>(Arrays.asList(opts));
+		Collections.shuffle(list, rnd);
+		Set<String> names = new HashSet<String>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			String attr = list.get(i);
+			if (names.add(attr.substring(0, attr.indexOf('=')))) {
+				sb.append(attr).append(' ');
+			}
+		}
+		return sb.toString().trim();
+	}
+}
@@ -0,0 +1,116 @@
+package net.osmand.render;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Objects evaluated per second by {@link RenderingRuleSearchRequest} with and without compiled rules
+ * ({@link RenderingRulesStorage#compileRules()}). Every object is searched as renderer does it: order, rules of its
+ * type (polygon, line or point) and text at one zoom. Objects have tag/values of style rules (frequent types repeat as
+ * on real map) and random additional types.
+ * gradle jmh -Pjmh="RenderingRulesBenchmark -p style=/path/to/resources/rendering_styles/default.render.xml"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderingRulesBenchmark {
+
+	private static final int OBJECTS = 10000;
+	private static final int ZOOM = 15;
+	private static final int[] STATES = {RenderingRulesStorage.POLYGON_RULES, RenderingRulesStorage.LINE_RULES,
+			RenderingRulesStorage.POINT_RULES};
+	private static final String[][] ADDITIONAL = {{"surface", "asphalt"}, {"surface", "gravel"}, {"tunnel", "yes"},
+			{"bridge", "yes"}, {"access", "private"}, {"oneway", "yes"}, {"lit", "yes"}, {"layer", "1"}};
+
+	@Param({"../../resources/rendering_styles/default.render.xml"})
+	public String style;
+
+	@Param({"false", "true"})
+	public boolean compiled;
+
+	private RenderingRuleSearchRequest request;
+	private String[] tags;
+	private String[] values;
+	private int[] states;
+	private BinaryMapDataObject[] objects;
+
+	@Setup
+	public void setup() throws IOException, XmlPullParserException {
+		RenderingRulesStorage storage = RenderingRulesStorage.getTestStorageForStyle(style);
+		if (compiled) {
+			storage.compileRules();
+		}
+		request = new RenderingRuleSearchRequest(storage);
+		request.setBooleanFilter(storage.PROPS.R_NIGHT_MODE, false);
+		request.saveState();
+
+		MapIndex index = new MapIndex();
+		for (int i = 0; i < ADDITIONAL.length; i++) {
+			index.initMapEncodingRule(0, i + 1, ADDITIONAL[i][0], ADDITIONAL[i][1]);
+		}
+		Random random = new Random(1);
+		tags = new String[OBJECTS];
+		values = new String[OBJECTS];
+		states = new int[OBJECTS];
+		objects = new BinaryMapDataObject[OBJECTS];
+		for (int i = 0; i < OBJECTS; i++) {
+			int state = STATES[random.nextInt(STATES.length)];
+			int[] keys = storage.tagValueGlobalRules[state].keys();
+			// first types are much more frequent
+			int k = random.nextInt(4) > 0 ? random.nextInt(Math.min(keys.length, 30)) : random.nextInt(keys.length);
+			tags[i] = storage.getTagString(keys[k]);
+			values[i] = storage.getValueString(keys[k]);
+			states[i] = state;
+			int[] additional = new int[random.nextInt(3)];
+			for (int j = 0; j < additional.length; j++) {
+				additional[j] = 1 + random.nextInt(ADDITIONAL.length);
+			}
+			objects[i] = new BinaryMapDataObject(i, new int[] {0, 0}, null, 0,
+					state == RenderingRulesStorage.POLYGON_RULES, new int[0], additional, 0, 0);
+			objects[i].setMapIndex(index);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OBJECTS)
+	public int evaluateObjects() {
+		RenderingRuleSearchRequest req = request;
+		int found = 0;
+		for (int i = 0; i < OBJECTS; i++) {
+			req.setInitialTagValueZoom(tags[i], values[i], ZOOM, objects[i]);
+			if (req.search(RenderingRulesStorage.ORDER_RULES)) {
+				found++;
+			}
+			req.setInitialTagValueZoom(tags[i], values[i], ZOOM, objects[i]);
+			if (req.search(states[i])) {
+				found++;
+			}
+			req.setInitialTagValueZoom(tags[i], values[i], ZOOM, objects[i]);
+			if (req.search(RenderingRulesStorage.TEXT_RULES)) {
+				found++;
+			}
+		}
+		return found;
+	}
+}
@@ -0,0 +1,235 @@
+package net.osmand.router;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Values of {@link GeneralRouter} with compiled evaluation (filled by {@link GeneralRouter#compileRoad} on load or
+ * lazily during search) must be equal to values evaluated by rules for every road and point attribute.
+ */
+public class GeneralRouterCompiledTest {
+
+	private static final int ROADS = 3000;
+
+	private static final String ROUTING_XML = "<osmand_routing_config defaultProfile=\"test\">\n"
+			+ "<routingProfile name=\"test\" baseProfile=\"car\" restrictionsAware=\"true\" minDefaultSpeed=\"10\" maxDefaultSpeed=\"130\">\n"
+			+ "	<parameter id=\"short_way\" name=\"Short way\" description=\"\" type=\"boolean\"/>\n"
+			+ "	<parameter id=\"avoid_unpaved\" name=\"Avoid unpaved\" description=\"\" type=\"boolean\"/>\n"
+			+ "	<way attribute=\"access\">\n"
+			+ "		<select value=\"-1\" t=\"access\" v=\"no\"/>\n"
+			+ "		<select value=\"1\" t=\"highway\"/>\n"
+			+ "	</way>\n"
+			+ "	<way attribute=\"oneway\" type=\"int\">\n"
+			+ "		<select value=\"1\" t=\"oneway\" v=\"yes\"/>\n"
+			+ "		<select value=\"-1\" t=\"oneway\" v=\"-1\"/>\n"
+			+ "		<select value=\"1\" t=\"junction\" v=\"roundabout\"/>\n"
+			+ "		<select value=\"0\"/>\n"
+			+ "	</way>\n"
+			+ "	<way attribute=\"speed\" type=\"speed\">\n"
+			+ "		<select value=\"$maxspeed\" t=\"maxspeed\"/>\n"
+			+ "		<select value=\"110\" t=\"highway\" v=\"motorway\"/>\n"
+			+ "		<select value=\"70\" t=\"highway\" v=\"primary\"/>\n"
+			+ "		<select value=\"20\" t=\"highway\" v=\"track\"/>\n"
+			+ "		<select value=\"40\" t=\"highway\"/>\n"
+			+ "	</way>\n"
+			+ "	<way attribute=\"priority\">\n"
+			+ "		<select value=\"0.5\" param=\"avoid_unpaved\" t=\"surface\" v=\"unpaved\"/>\n"
+			+ "		<select value=\"0.7\" param=\"short_way\" t=\"highway\" v=\"motorway\"/>\n"
+			+ "		<select value=\"1.2\" t=\"highway\" v=\"primary\"/>\n"
+			+ "		<select value=\"0.8\" t=\"highway\" v=\"service\"/>\n"
+			+ "	</way>\n"
+			+ "	<way attribute=\"destination_priority\">\n"
+			+ "		<select value=\"0.3\" t=\"access\" v=\"destination\"/>\n"
+			+ "		<select value=\"0.6\" t=\"highway\" v=\"service\"/>\n"
+			+ "	</way>\n"
+			+ "	<way attribute=\"penalty_transition\" type=\"int\">\n"
+			+ "		<select value=\"2\" t=\"highway\" v=\"motorway\"/>\n"
+			+ "		<select value=\"1\" t=\"highway\" v=\"primary\"/>\n"
+			+ "		<select value=\"0\"/>\n"
+			+ "	</way>\n"
+			+ "	<point attribute=\"obstacle_time\" type=\"seconds\">\n"
+			+ "		<select value=\"25\" t=\"highway\" v=\"traffic_signals\"/>\n"
+			+ "		<select value=\"10\" t=\"highway\" v=\"stop\"/>\n"
+			+ "		<select value=\"5\" t=\"highway\" v=\"give_way\"/>\n"
+			+ "	</point>\n"
+			+ "	<point attribute=\"obstacle\">\n"
+			+ "		<select value=\"-1\" t=\"barrier\" v=\"gate\"/>\n"
+			+ "		<select value=\"30\" param=\"short_way\" t=\"barrier\" v=\"lift_gate\"/>\n"
+			+ "		<select value=\"15\" t=\"barrier\" v=\"lift_gate\"/>\n"
+			+ "	</point>\n"
+			+ "</routingProfile>\n"
+			+ "</osmand_routing_config>";
+
+	private static final String[][] WAY_TAGS = {
+			{ "highway", "motorway" }, { "highway", "primary" }, { "highway", "residential" },
+			{ "highway", "service" }, { "highway", "track" }, { "oneway", "yes" }, { "oneway", "-1" },
+			{ "junction", "roundabout" }, { "maxspeed", "50" }, { "maxspeed", "90" }, { "maxspeed", "none" },
+			{ "access", "no" }, { "access", "destination" }, { "surface", "unpaved" } };
+
+	private static final String[][] POINT_TAGS = {
+			{ "highway", "traffic_signals" }, { "highway", "stop" }, { "highway", "give_way" },
+			{ "barrier", "gate" }, { "barrier", "lift_gate" }, { "direction", "forward" },
+			{ "direction", "backward" }, { "traffic_signals:direction", "forward" },
+			{ "traffic_signals:direction", "backward" } };
+
+	@Test
+	public void testCompiledEqualsEvaluated() throws Exception {
+		RouteRegion region = createRegion();
+		List<RouteDataObject> roads = createRoads(new Random(11), region);
+		for (GeneralRouter router : getRouters()) {
+			compareRouter(router, roads);
+		}
+	}
+
+	@Test
+	public void testCompiledEqualsEvaluatedOverCombinationsLimit() throws Exception {
+		RouteRegion region = createRegion();
+		// fill combinations of region, so types of roads are not interned
+		for (int i = 0; i < RouteRegion.MAX_TYPES_COMBINATIONS; i++) {
+			Assert.assertEquals(i, region.internTypesCombination(new int[] { -i - 1 }));
+		}
+		List<RouteDataObject> roads = createRoads(new Random(13), region);
+		Assert.assertEquals(-1, roads.get(0).getTypesCombinationId());
+		for (GeneralRouter router : getRouters()) {
+			compareRouter(router, roads);
+		}
+	}
+
+	private static void compareRouter(GeneralRouter router, List<RouteDataObject> roads) {
+		for (Map<String, String> params : getParams()) {
+			GeneralRouter plain = router.build(params);
+			// compiled on load
+			GeneralRouter loaded = plain.copyWithCompiledEvaluation();
+			// compiled lazily during search
+			GeneralRouter lazy = plain.copyWithCompiledEvaluation();
+			for (RouteDataObject road : roads) {
+				if (plain.acceptLine(road) != loaded.acceptLine(road)) {
+					Assert.fail(router.getProfileName() + " " + params + " access " + road);
+				}
+				loaded.compileRoad(road);
+			}
+			List<RouteDataObject> shuffled = new ArrayList<>(roads);
+			Collections.shuffle(shuffled, new Random(roads.size()));
+			for (int k = 0; k < 2; k++) {
+				for (RouteDataObject road : shuffled) {
+					String msg = router.getProfileName() + " " + params + " " + road;
+					assertSameValues(msg, plain, loaded, road);
+					assertSameValues(msg, plain, lazy, road);
+				}
+			}
+		}
+	}
+
+	private static void assertSameValues(String msg, GeneralRouter plain, GeneralRouter compiled, RouteDataObject road) {
+		Assert.assertEquals(msg + " oneway", plain.isOneWay(road), compiled.isOneWay(road));
+		Assert.assertEquals(msg + " penalty", plain.getPenaltyTransition(road), compiled.getPenaltyTransition(road), 0);
+		Assert.assertEquals(msg + " destination", plain.defineDestinationPriority(road),
+				compiled.defineDestinationPriority(road), 0);
+		for (int d = 0; d < 2; d++) {
+			boolean dir = d == 0;
+			Assert.assertEquals(msg + " speed", plain.defineRoutingSpeed(road, dir),
+					compiled.defineRoutingSpeed(road, dir), 0);
+			Assert.assertEquals(msg + " vehicle speed", plain.defineVehicleSpeed(road, dir),
+					compiled.defineVehicleSpeed(road, dir), 0);
+			Assert.assertEquals(msg + " priority", plain.defineSpeedPriority(road, dir),
+					compiled.defineSpeedPriority(road, dir), 0);
+			for (int i = 0; i < road.getPointsLength(); i++) {
+				Assert.assertEquals(msg + " obstacle time " + i, plain.defineObstacle(road, i, dir),
+						compiled.defineObstacle(road, i, dir), 0);
+				Assert.assertEquals(msg + " obstacle " + i, plain.defineRoutingObstacle(road, i, dir),
+						compiled.defineRoutingObstacle(road, i, dir), 0);
+			}
+		}
+	}
+
+	private static List<GeneralRouter> getRouters() throws Exception {
+		List<GeneralRouter> routers = new ArrayList<>();
+		InputStream is = new ByteArrayInputStream(ROUTING_XML.getBytes("UTF-8"));
+		routers.add(RoutingConfiguration.parseFromInputStream(is).getRouter("test"));
+		// full profiles when routing.xml is copied to resources
+		if (RoutingConfiguration.class.getResourceAsStream("routing.xml") != null) {
+			RoutingConfiguration.Builder builder = RoutingConfiguration.getDefault();
+			for (String profile : new String[] { "car", "bicycle", "pedestrian" }) {
+				GeneralRouter r = builder.getRouter(profile);
+				if (r != null) {
+					routers.add(r);
+				}
+			}
+		}
+		return routers;
+	}
+
+	private static List<Map<String, String>> getParams() {
+		List<Map<String, String>> res = new ArrayList<>();
+		res.add(new LinkedHashMap<String, String>());
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		params.put("short_way", "true");
+		params.put("avoid_unpaved", "true");
+		res.add(params);
+		return res;
+	}
+
+	private static RouteRegion createRegion() {
+		RouteRegion region = new RouteRegion();
+		int id = 0;
+		for (String[] t : WAY_TAGS) {
+			region.initRouteEncodingRule(id++, t[0], t[1]);
+		}
+		for (String[] t : POINT_TAGS) {
+			region.initRouteEncodingRule(id++, t[0], t[1]);
+		}
+		region.completeRouteEncodingRules();
+		return region;
+	}
+
+	private static List<RouteDataObject> createRoads(Random rnd, RouteRegion region) {
+		List<RouteDataObject> roads = new ArrayList<>();
+		for (int k = 0; k < ROADS; k++) {
+			RouteDataObject road = new RouteDataObject(region);
+			road.id = k + 1;
+			road.types = randomTypes(rnd, 0, WAY_TAGS.length, 4);
+			int points = 2 + rnd.nextInt(4);
+			road.pointsX = new int[points];
+			road.pointsY = new int[points];
+			for (int i = 0; i < points; i++) {
+				road.pointsX[i] = (1 << 30) + i * 100;
+				road.pointsY[i] = (1 << 30) + i * 100;
+			}
+			if (rnd.nextBoolean()) {
+				road.pointTypes = new int[points][];
+				for (int i = 0; i < points; i++) {
+					if (rnd.nextInt(3) == 0) {
+						road.pointTypes[i] = randomTypes(rnd, WAY_TAGS.length, POINT_TAGS.length, 3);
+					}
+				}
+			}
+			roads.add(road);
+		}
+		return roads;
+	}
+
+	private static int[] randomTypes(Random rnd, int start, int count, int max) {
+		TIntArrayList types = new TIntArrayList();
+		int size = 1 + rnd.nextInt(max);
+		for (int i = 0; i < size; i++) {
+			int t = start + rnd.nextInt(count);
+			if (!types.contains(t)) {
+				types.add(t);
+			}
+		}
+		return types.toArray();
+	}
+}
@@ -0,0 +1,138 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadRect;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHNetworkSegmentRes;
+import net.osmand.router.HHRouteDataStructure.HHRouteMatrix;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.util.MapUtils;
+
+/**
+ * Every cell of {@link HHRoutePlanner#calculateMatrix} must be equal to time and distance of
+ * {@link HHRoutePlanner#runRouting} between the same points (without detailed recalculation of network segments)
+ * on obf files of test resources with car HH network.
+ */
+public class HHRouteMatrixTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int POINTS = 4;
+
+	@Test
+	public void testMatrixEqualsRoutes() throws Exception {
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		QuadRect bbox = null;
+		for (File f : collectObfFiles(new File(TEST_RESOURCES), new ArrayList<File>())) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+			for (HHRouteRegion r : reader.getHHRoutingIndexes()) {
+				if ("car".equals(r.profile) && bbox == null) {
+					bbox = r.getLatLonBbox();
+				}
+			}
+			readers.add(reader);
+		}
+		try {
+			Assume.assumeTrue("No car HH network in " + TEST_RESOURCES, bbox != null);
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+			RoutingConfiguration config = RoutingConfiguration.getDefault().build("car",
+					new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+							RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT));
+			RoutingContext ctx = fe.buildRoutingContext(config, null,
+					readers.toArray(new BinaryMapIndexReader[readers.size()]), RouteCalculationMode.NORMAL);
+			ctx.calculationProgress = new RouteCalculationProgress();
+			HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.create(ctx);
+			try {
+				Random rnd = new Random(5);
+				List<LatLon> sources = randomPoints(rnd, bbox);
+				List<LatLon> targets = randomPoints(rnd, bbox);
+				HHRoutingConfig matrixConfig = HHRoutingConfig.dijkstra(0);
+				matrixConfig.ROUTE_LAST_MILE = true;
+				HHRouteMatrix matrix = planner.calculateMatrix(sources, targets, matrixConfig, null);
+				Assert.assertNotNull(matrix);
+				int compared = 0;
+				for (int i = 0; i < sources.size(); i++) {
+					for (int j = 0; j < targets.size(); j++) {
+						HHRoutingConfig routeConfig = HHRoutingConfig.astar(0);
+						routeConfig.ROUTE_LAST_MILE = true;
+						HHNetworkRouteRes route = planner.runRouting(sources.get(i), targets.get(j), routeConfig);
+						String msg = sources.get(i) + " -> " + targets.get(j);
+						if (route == null || route.error != null) {
+							Assert.assertEquals(msg, HHRouteMatrix.UNREACHABLE, matrix.cost[i][j], 0);
+							continue;
+						}
+						double time = route.getHHRoutingTime();
+						Assert.assertEquals(msg, time, matrix.cost[i][j], Math.max(1, time * 1e-3));
+						double dist = getDistance(route);
+						Assert.assertEquals(msg, dist, matrix.distance[i][j], Math.max(20, dist * 0.02));
+						compared++;
+					}
+				}
+				Assume.assumeTrue("No routes between random points", compared > 0);
+			} finally {
+				planner.close();
+			}
+		} finally {
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+	}
+
+	private static double getDistance(HHNetworkRouteRes route) {
+		double dist = 0;
+		for (HHNetworkSegmentRes s : route.segments) {
+			if (s.list != null) {
+				for (RouteSegmentResult r : s.list) {
+					dist += r.getDistance();
+				}
+			} else if (s.segment != null) {
+				List<LatLon> geom = s.segment.getGeometry();
+				for (int i = 1; i < geom.size(); i++) {
+					dist += MapUtils.getDistance(geom.get(i - 1), geom.get(i));
+				}
+			}
+		}
+		return dist;
+	}
+
+	private static List<LatLon> randomPoints(Random rnd, QuadRect bbox) {
+		List<LatLon> res = new ArrayList<>();
+		for (int i = 0; i < POINTS; i++) {
+			// central part of network, points of one cluster are close to each other
+			double lat = bbox.centerY() + (rnd.nextDouble() - 0.5) * bbox.height() / 2;
+			double lon = bbox.centerX() + (rnd.nextDouble() - 0.5) * bbox.width() / 2;
+			res.add(new LatLon(lat, lon));
+		}
+		res.add(new LatLon(res.get(0).getLatitude() + 0.002, res.get(0).getLongitude() + 0.002));
+		return res;
+	}
+
+	private static List<File> collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list != null) {
+			for (File f : list) {
+				if (f.isDirectory()) {
+					collectObfFiles(f, files);
+				} else if (f.getName().endsWith(".obf")) {
+					files.add(f);
+				}
+			}
+		}
+		return files;
+	}
+}
@@ -0,0 +1,156 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadRect;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHNetworkSegmentRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * Routes of query planners ({@link HHRoutePlanner#createQueryPlanner}) running concurrently on one shared network
+ * must be equal to routes of planner with own network running one by one, on obf files of test resources with car
+ * HH network.
+ */
+public class HHRoutePlannerConcurrentTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int QUERIES = 40;
+	private static final int THREADS = 4;
+
+	@Test
+	public void testConcurrentQueriesEqualSequential() throws Exception {
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		QuadRect bbox = null;
+		for (File f : collectObfFiles(new File(TEST_RESOURCES), new ArrayList<File>())) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+			for (HHRouteRegion r : reader.getHHRoutingIndexes()) {
+				if ("car".equals(r.profile) && bbox == null) {
+					bbox = r.getLatLonBbox();
+				}
+			}
+			readers.add(reader);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			Assume.assumeTrue("No car HH network in " + TEST_RESOURCES, bbox != null);
+			RoutingConfiguration.Builder builder = RoutingConfiguration.getDefault();
+			Random rnd = new Random(3);
+			final List<LatLon[]> queries = new ArrayList<>();
+			for (int i = 0; i < QUERIES; i++) {
+				queries.add(new LatLon[] { randomPoint(rnd, bbox), randomPoint(rnd, bbox) });
+			}
+
+			List<HHNetworkRouteRes> expected = new ArrayList<>();
+			HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.create(buildContext(builder, readers));
+			try {
+				for (LatLon[] q : queries) {
+					expected.add(planner.runRouting(q[0], q[1], HHRoutingConfig.astar(0)));
+				}
+			} finally {
+				planner.close();
+			}
+
+			final HHRoutePlanner<NetworkDBPoint> networkPlanner = HHRoutePlanner.create(buildContext(builder, readers));
+			try {
+				List<Future<HHNetworkRouteRes>> futures = new ArrayList<>();
+				for (final LatLon[] q : queries) {
+					// query planners are created in test thread as routing contexts share readers
+					final HHRoutePlanner<NetworkDBPoint> queryPlanner = networkPlanner.createQueryPlanner(
+							buildContext(builder, readers));
+					futures.add(executor.submit(new Callable<HHNetworkRouteRes>() {
+						@Override
+						public HHNetworkRouteRes call() throws Exception {
+							try {
+								return queryPlanner.runRouting(q[0], q[1], HHRoutingConfig.astar(0));
+							} finally {
+								queryPlanner.close();
+							}
+						}
+					}));
+				}
+				int compared = 0;
+				for (int i = 0; i < queries.size(); i++) {
+					String msg = queries.get(i)[0] + " -> " + queries.get(i)[1];
+					HHNetworkRouteRes e = expected.get(i);
+					HHNetworkRouteRes a = futures.get(i).get();
+					if (e == null || e.error != null) {
+						Assert.assertTrue(msg, a == null || a.error != null);
+						continue;
+					}
+					Assert.assertNotNull(msg, a);
+					Assert.assertNull(msg, a.error);
+					Assert.assertEquals(msg, e.getHHRoutingTime(), a.getHHRoutingTime(), 1e-6);
+					Assert.assertEquals(msg, e.segments.size(), a.segments.size());
+					for (int j = 0; j < e.segments.size(); j++) {
+						HHNetworkSegmentRes es = e.segments.get(j);
+						HHNetworkSegmentRes as = a.segments.get(j);
+						Assert.assertEquals(msg, es.segment == null, as.segment == null);
+						if (es.segment != null) {
+							Assert.assertEquals(msg, es.segment.start.index, as.segment.start.index);
+							Assert.assertEquals(msg, es.segment.end.index, as.segment.end.index);
+						}
+					}
+					compared++;
+				}
+				Assume.assumeTrue("No routes between random points", compared > 0);
+			} finally {
+				networkPlanner.close();
+			}
+		} finally {
+			executor.shutdownNow();
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+	}
+
+	private static RoutingContext buildContext(RoutingConfiguration.Builder builder,
+			List<BinaryMapIndexReader> readers) {
+		RoutingConfiguration config = builder.build("car", new RoutingMemoryLimits(
+				RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3, RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT));
+		RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null,
+				readers.toArray(new BinaryMapIndexReader[readers.size()]), RouteCalculationMode.NORMAL);
+		ctx.calculationProgress = new RouteCalculationProgress();
+		return ctx;
+	}
+
+	private static LatLon randomPoint(Random rnd, QuadRect bbox) {
+		// central part of network
+		double lat = bbox.centerY() + (rnd.nextDouble() - 0.5) * bbox.height() / 2;
+		double lon = bbox.centerX() + (rnd.nextDouble() - 0.5) * bbox.width() / 2;
+		return new LatLon(lat, lon);
+	}
+
+	private static List<File> collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list != null) {
+			for (File f : list) {
+				if (f.isDirectory()) {
+					collectObfFiles(f, files);
+				} else if (f.getName().endsWith(".obf")) {
+					files.add(f);
+				}
+			}
+		}
+		return files;
+	}
+}
@@ -0,0 +1,146 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Segments (distances, shortcut flags, both directions) and geometry read from {@link HHRoutingNetworkFile} must be
+ * the same as written segments of random network.
+ */
+public class HHRoutingNetworkFileTest {
+
+	private static final int POINTS = 200;
+	private static final int MAX_SEGMENTS_PER_POINT = 6;
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("network", HHRoutingNetworkFile.EXT);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testWriteRead() throws Exception {
+		Random rnd = new Random(9);
+		NetworkDBPoint[] points = new NetworkDBPoint[POINTS];
+		for (int i = 0; i < POINTS; i++) {
+			points[i] = new NetworkDBPoint();
+			// sorted, not dense indexes
+			points[i].index = 3 * i + rnd.nextInt(3);
+		}
+		List<NetworkDBSegment> segments = new ArrayList<>();
+		for (NetworkDBPoint p : points) {
+			int cnt = rnd.nextInt(MAX_SEGMENTS_PER_POINT + 1);
+			Set<NetworkDBPoint> ends = new HashSet<>();
+			for (int k = 0; k < cnt; k++) {
+				NetworkDBPoint end = points[rnd.nextInt(POINTS)];
+				if (!ends.add(end)) {
+					// geometry is found by start, end and shortcut flag
+					continue;
+				}
+				// distances which are not exact as float
+				NetworkDBSegment s = new NetworkDBSegment(p, end, rnd.nextDouble() * 10000, true, rnd.nextBoolean());
+				if (rnd.nextBoolean()) {
+					int x = 1 << 30;
+					int y = 1 << 29;
+					for (int j = rnd.nextInt(10); j >= 0; j--) {
+						x += rnd.nextInt(2001) - 1000;
+						y += rnd.nextInt(2001) - 1000;
+						s.getGeometry().add(new LatLon(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x)));
+					}
+				}
+				segments.add(s);
+			}
+		}
+		List<List<LatLon>> geometries = new ArrayList<>();
+		for (NetworkDBSegment s : segments) {
+			geometries.add(s.geom == null ? null : new ArrayList<LatLon>(s.geom));
+		}
+		HHRoutingNetworkFile.write(file, points, segments, new HHRoutingContext<NetworkDBPoint>(), true);
+
+		HHRoutingNetworkFile networkFile = new HHRoutingNetworkFile(file);
+		Assert.assertEquals(POINTS, networkFile.getPointsCount());
+		Assert.assertEquals(segments.size(), networkFile.getSegmentsCount());
+		HHRoutingContext<NetworkDBPoint> ctx = new HHRoutingContext<NetworkDBPoint>();
+		ctx.pointsById = new TLongObjectHashMap<>();
+		for (NetworkDBPoint p : points) {
+			NetworkDBPoint r = new NetworkDBPoint();
+			r.index = p.index;
+			r.markSegmentsNotLoaded();
+			ctx.pointsById.put(r.index, r);
+		}
+		int out = 0;
+		int in = 0;
+		for (NetworkDBPoint p : points) {
+			NetworkDBPoint r = ctx.pointsById.get(p.index);
+			networkFile.loadNetworkSegmentPoint(ctx, r, false);
+			networkFile.loadNetworkSegmentPoint(ctx, r, true);
+			List<NetworkDBSegment> outSegments = r.connected(false);
+			List<NetworkDBSegment> inSegments = r.connected(true);
+			int outInd = 0;
+			int inInd = 0;
+			for (int e = 0; e < segments.size(); e++) {
+				NetworkDBSegment s = segments.get(e);
+				if (s.start == p) {
+					NetworkDBSegment a = outSegments.get(outInd++);
+					assertSegment(s, a, true);
+					assertGeometry(geometries.get(e), networkFile, a);
+				}
+				if (s.end == p) {
+					assertSegment(s, inSegments.get(inInd++), false);
+				}
+			}
+			Assert.assertEquals(outInd, outSegments.size());
+			Assert.assertEquals(inInd, inSegments.size());
+			out += outInd;
+			in += inInd;
+		}
+		Assert.assertEquals(segments.size(), out);
+		Assert.assertEquals(segments.size(), in);
+	}
+
+	private static void assertSegment(NetworkDBSegment expected, NetworkDBSegment actual, boolean direction) {
+		String msg = expected.toString();
+		Assert.assertEquals(msg, expected.start.index, actual.start.index);
+		Assert.assertEquals(msg, expected.end.index, actual.end.index);
+		Assert.assertEquals(msg, expected.dist, actual.dist, 0);
+		Assert.assertEquals(msg, expected.shortcut, actual.shortcut);
+		Assert.assertEquals(msg, direction, actual.direction);
+	}
+
+	private static void assertGeometry(List<LatLon> expected, HHRoutingNetworkFile networkFile, NetworkDBSegment actual) {
+		boolean loaded = networkFile.loadGeometry(actual, false);
+		Assert.assertEquals(expected != null, loaded);
+		if (expected == null) {
+			return;
+		}
+		List<LatLon> geom = actual.getGeometry();
+		Assert.assertEquals(expected.size(), geom.size());
+		for (int i = 0; i < expected.size(); i++) {
+			// geometry is stored in 31 tiles (~1 cm)
+			Assert.assertEquals(expected.get(i).getLatitude(), geom.get(i).getLatitude(), 1e-6);
+			Assert.assertEquals(expected.get(i).getLongitude(), geom.get(i).getLongitude(), 1e-6);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package net.osmand.router;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentQueue;
+
+/**
+ * {@link RouteSegmentHeap} must poll segments in the same order as PriorityQueue ordered by cost
+ * (previous queue of {@link BinaryRoutePlanner}) including segments with equal costs, when segments are not merged by key.
+ */
+public class RouteSegmentHeapTest {
+
+	private static final int OPERATIONS = 20000;
+
+	@Test
+	public void testPollOrderEqualsPriorityQueue() {
+		Random rnd = new Random(17);
+		RouteSegmentHeap heap = new RouteSegmentHeap(4);
+		PriorityQueue<SegmentCost> queue = new PriorityQueue<>(50, new Comparator<SegmentCost>() {
+			@Override
+			public int compare(SegmentCost o1, SegmentCost o2) {
+				return Double.compare(o1.cost, o2.cost);
+			}
+		});
+		long key = 0;
+		for (int i = 0; i < OPERATIONS; i++) {
+			if (rnd.nextInt(3) > 0 || queue.isEmpty()) {
+				// few distinct costs, so many segments have equal cost
+				float cost = rnd.nextInt(20) / 2f;
+				RouteSegment s = new RouteSegment(null, i, i + 1);
+				heap.add(s, cost, rnd.nextBoolean() ? RouteSegmentQueue.NO_KEY : key++);
+				queue.add(new SegmentCost(s, cost));
+			} else {
+				SegmentCost expected = queue.peek();
+				Assert.assertEquals(expected.cost, heap.peekCost(), 0);
+				Assert.assertSame(expected.segment, heap.peek());
+				Assert.assertSame(queue.poll().segment, heap.poll());
+			}
+			Assert.assertEquals(queue.size(), heap.size());
+		}
+		while (!queue.isEmpty()) {
+			Assert.assertSame(queue.poll().segment, heap.poll());
+		}
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertNull(heap.poll());
+	}
+
+	@Test
+	public void testSegmentsWithSameKeyAreMerged() {
+		RouteSegmentHeap heap = new RouteSegmentHeap(4);
+		RouteSegment a = new RouteSegment(null, 0, 1);
+		RouteSegment cheaper = new RouteSegment(null, 0, 1);
+		RouteSegment expensive = new RouteSegment(null, 0, 1);
+		RouteSegment other = new RouteSegment(null, 1, 2);
+		heap.add(a, 5, 1);
+		heap.add(other, 3, 2);
+		heap.add(cheaper, 2, 1);
+		heap.add(expensive, 4, 1);
+		Assert.assertEquals(2, heap.size());
+		Assert.assertSame(cheaper, heap.poll());
+		Assert.assertSame(other, heap.poll());
+		Assert.assertNull(heap.poll());
+	}
+
+	private static class SegmentCost {
+		final RouteSegment segment;
+		final float cost;
+
+		SegmentCost(RouteSegment segment, float cost) {
+			this.segment = segment;
+			this.cost = cost;
+		}
+	}
+}
@@ -1,9 +1,19 @@
 package net.osmand.router;
 
+import java.io.IOException;
+
+import org.junit.runners.Parameterized;
+
 public class RouteTestingNativeTest extends RouteTestingTest {
     
-    public RouteTestingNativeTest(String name, TestEntry te) {
-        super(name, te);
+    public RouteTestingNativeTest(String name, TestEntry te, boolean parallel) {
+        super(name, te, parallel);
+    }
+
+    @Parameterized.Parameters(name = "{index}: {0}")
+    public static Iterable<Object[]> data() throws IOException {
+        // parallel search is java only
+        return testEntries(false);
     }
     
     @Override
@@ -32,11 +32,13 @@ import net.osmand.util.RouterUtilTest;
 @RunWith(Parameterized.class)
 public class RouteTestingTest {
 	private final TestEntry te;
+	private final boolean parallel;
 
 	private static final int TIMEOUT = 1500;
 
-	public RouteTestingTest(String name, TestEntry te) {
+	public RouteTestingTest(String name, TestEntry te, boolean parallel) {
 		this.te = te;
+		this.parallel = parallel;
 	}
 	
 	boolean isNative() {
@@ -50,6 +52,10 @@ public class RouteTestingTest {
 
 	@Parameterized.Parameters(name = "{index}: {0}")
 	public static Iterable<Object[]> data() throws IOException {
+		return testEntries(true);
+	}
+
+	static List<Object[]> testEntries(boolean withParallel) throws IOException {
 		String fileName = "/test_routing.json";
 		Reader reader = new InputStreamReader(Objects.requireNonNull(RouteTestingTest.class.getResourceAsStream(fileName)));
 		Gson gson = new GsonBuilder().setPrettyPrinting().create();
@@ -59,7 +65,10 @@ public class RouteTestingTest {
 			if (te.isIgnore()) {
 				continue;
 			}
-			arrayList.add(new Object[]{te.getTestName(), te});
+			arrayList.add(new Object[]{te.getTestName(), te, false});
+			if (withParallel) {
+				arrayList.add(new Object[]{te.getTestName() + " (parallel)", te, true});
+			}
 		}
 		reader.close();
 		return arrayList;
@@ -142,6 +151,9 @@ public class RouteTestingTest {
 					te.getTransitPoint()).detailed;
 			Set<Long> reachedSegments = new TreeSet<Long>();
 			Assert.assertNotNull(routeSegments);
+			if (parallel && !useNative && planRoadDirection == 0) {
+				checkParallelSearch(fe, builder, memoryLimits, params, config, binaryMapIndexReaders, ctx.routingTime);
+			}
 			int prevSegment = -1;
 			for (int i = 0; i <= routeSegments.size(); i++) {
 				if (i == routeSegments.size() || routeSegments.get(i).getTurnType() != null) {
@@ -186,6 +198,42 @@ public class RouteTestingTest {
 		}
 	}
 	
+	private void checkParallelSearch(RoutePlannerFrontEnd fe, RoutingConfiguration.Builder builder,
+			RoutingMemoryLimits memoryLimits, Map<String, String> params, RoutingConfiguration config,
+			BinaryMapIndexReader[] binaryMapIndexReaders, float expectedTime) throws Exception {
+		// equal cost routes could differ from sequential search, but parallel search has to find the same one each time
+		List<String> first = null;
+		for (int i = 0; i < 3; i++) {
+			RoutingConfiguration parallelConfig = builder.build(params.containsKey("vehicle") ? params.get("vehicle") : "car",
+					memoryLimits, params);
+			parallelConfig.heuristicCoefficient = config.heuristicCoefficient;
+			parallelConfig.planRoadDirection = config.planRoadDirection;
+			parallelConfig.parallelBidirectionalSearch = true;
+			RoutingContext ctx = fe.buildRoutingContext(parallelConfig, null, binaryMapIndexReaders,
+					RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+			ctx.leftSideNavigation = false;
+			List<RouteSegmentResult> routeSegments = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(),
+					te.getTransitPoint()).detailed;
+			Assert.assertNotNull(routeSegments);
+			Assert.assertEquals("Parallel search found route with different time", expectedTime, ctx.routingTime,
+					Math.max(1, expectedTime * 1e-3));
+			if (first == null) {
+				first = segmentsToString(routeSegments);
+			} else {
+				Assert.assertEquals("Parallel search found different route", first, segmentsToString(routeSegments));
+			}
+		}
+	}
+
+	private static List<String> segmentsToString(List<RouteSegmentResult> routeSegments) {
+		List<String> res = new ArrayList<>();
+		for (RouteSegmentResult r : routeSegments) {
+			res.add((r.getObject().getId() >> RouteResultPreparation.SHIFT_ID) + ":" + r.getStartPointIndex() + "-"
+					+ r.getEndPointIndex());
+		}
+		return res;
+	}
+
 	private void checkRoutingTime(RoutingContext ctx, Map<String, String> params) {
 		if (params.containsKey("maxRoutingTime")) {
 			float maxRoutingTime = Float.parseFloat(params.get("maxRoutingTime"));
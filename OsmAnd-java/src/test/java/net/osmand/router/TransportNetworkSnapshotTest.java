@@ -0,0 +1,139 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapTransportReaderAdapter.TransportIndex;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Routes of {@link TransportRoutePlanner} with context reading tiles from {@link TransportNetworkSnapshot} must be
+ * the same as routes with context reading tiles from files (with and without schedule), on transport data of obf
+ * files from test resources. One snapshot is shared by all contexts.
+ */
+public class TransportNetworkSnapshotTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int PAIRS = 20;
+
+	@Test
+	public void testRoutesWithSnapshotEqualRoutesFromFiles() throws IOException, InterruptedException {
+		List<File> files = new ArrayList<File>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		int compared = 0;
+		for (File file : files) {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file);
+			try {
+				if (reader.hasTransportData()) {
+					compared += compareRoutes(file.getName(), reader);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		Assume.assumeTrue("No transport data in " + TEST_RESOURCES, compared > 0);
+	}
+
+	private int compareRoutes(String name, BinaryMapIndexReader reader) throws IOException, InterruptedException {
+		TransportRoutingConfiguration defaultCfg = new TransportRoutingConfiguration(null, null);
+		int left = Integer.MAX_VALUE;
+		int top = Integer.MAX_VALUE;
+		int right = 0;
+		int bottom = 0;
+		int shift = 31 - BinaryMapIndexReader.TRANSPORT_STOP_ZOOM;
+		for (TransportIndex index : reader.getTransportIndexes()) {
+			left = Math.min(left, index.getLeft() << shift);
+			top = Math.min(top, index.getTop() << shift);
+			right = Math.max(right, index.getRight() << shift);
+			bottom = Math.max(bottom, index.getBottom() << shift);
+		}
+		// snapshot covers only part of region, other tiles are read from files
+		TransportNetworkSnapshot snapshot = TransportNetworkSnapshot.build(left, top, left + (right - left) * 3 / 4,
+				bottom, defaultCfg.ZOOM_TO_LOAD_TILES, reader);
+		Assert.assertTrue(snapshot.isUpToDate());
+		List<TransportStop> stops = reader.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(
+				left, right, top, bottom, -1, null));
+		int compared = 0;
+		if (stops.size() < 2) {
+			return compared;
+		}
+		Random rnd = new Random(7);
+		for (int i = 0; i < PAIRS * 10 && compared < PAIRS; i++) {
+			LatLon start = stops.get(rnd.nextInt(stops.size())).getLocation();
+			LatLon end = stops.get(rnd.nextInt(stops.size())).getLocation();
+			double dist = MapUtils.getDistance(start, end);
+			if (dist < 1000 || dist > 15000) {
+				continue;
+			}
+			for (int schedule = 0; schedule < 2; schedule++) {
+				TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(null, null);
+				if (schedule == 1) {
+					cfg.useSchedule = true;
+					cfg.scheduleTimeOfDay = (7 + rnd.nextInt(12)) * 60 * 6;
+				}
+				TransportRoutingContext ctx = new TransportRoutingContext(cfg, null, snapshot, reader);
+				Assert.assertSame(snapshot, ctx.getSnapshot());
+				List<TransportRouteResult> expected = new TransportRoutePlanner().buildRoute(
+						new TransportRoutingContext(cfg, null, reader), start, end);
+				List<TransportRouteResult> actual = new TransportRoutePlanner().buildRoute(ctx, start, end);
+				assertSameRoutes(name + " " + start + " -> " + end + " schedule " + schedule, expected, actual);
+			}
+			compared++;
+		}
+		return compared;
+	}
+
+	private static void assertSameRoutes(String msg, List<TransportRouteResult> expected,
+			List<TransportRouteResult> actual) {
+		Assert.assertEquals(msg, expected == null, actual == null);
+		if (expected == null) {
+			return;
+		}
+		Assert.assertEquals(msg, expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			TransportRouteResult e = expected.get(i);
+			TransportRouteResult a = actual.get(i);
+			String m = msg + " route " + i;
+			Assert.assertEquals(m, e.getRouteTime(), a.getRouteTime(), 1e-6);
+			Assert.assertEquals(m, e.getWalkDist(), a.getWalkDist(), 1e-6);
+			Assert.assertEquals(m, e.getChanges(), a.getChanges());
+			Assert.assertEquals(m, e.getSegments().size(), a.getSegments().size());
+			for (int j = 0; j < e.getSegments().size(); j++) {
+				TransportRouteResultSegment es = e.getSegments().get(j);
+				TransportRouteResultSegment as = a.getSegments().get(j);
+				Assert.assertEquals(m, es.route.getId(), as.route.getId());
+				Assert.assertEquals(m, es.start, as.start);
+				Assert.assertEquals(m, es.end, as.end);
+				Assert.assertEquals(m, es.depTime, as.depTime);
+				Assert.assertEquals(m, es.travelTime, as.travelTime, 1e-6);
+				Assert.assertEquals(m, es.walkDist, as.walkDist, 1e-6);
+			}
+		}
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+}
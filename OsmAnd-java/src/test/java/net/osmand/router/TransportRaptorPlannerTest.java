@@ -0,0 +1,330 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+import net.osmand.router.TransportRoutePlanner.TransportRouteSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Compares {@link TransportRaptorPlanner} with {@link TransportRoutePlanner} on synthetic grid of bus lines and
+ * on transport data of obf files from test resources: rounds find journey not slower than the queue of segments
+ * and time of every journey matches its walks, rides and changes. With schedule every ride departs by timetable
+ * of its route after arrival to the stop.
+ */
+public class TransportRaptorPlannerTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final double LAT = 52.0;
+	private static final double LON = 13.0;
+	// ~400 m between stops
+	private static final double STEP = 0.004;
+	private static final int LINES = 10;
+	// arrival of rounds is ceiled to seconds on every boarding
+	private static final double TIME_DELTA = 5;
+	private static final int OBF_PAIRS = 20;
+	// 06:00 in 10 seconds
+	private static final int FIRST_TRIP = 6 * 60 * 6;
+	private static final int TRIPS = 150;
+
+	@Test
+	public void testSyntheticGrid() throws IOException, InterruptedException {
+		final List<TransportRoute> routes = new ArrayList<TransportRoute>();
+		TransportStop[][] grid = createGrid(routes);
+		Random rnd = new Random(3);
+		for (int i = 0; i < 50; i++) {
+			LatLon start = grid[rnd.nextInt(LINES)][rnd.nextInt(LINES)].getLocation();
+			LatLon end = grid[rnd.nextInt(LINES)][rnd.nextInt(LINES)].getLocation();
+			TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(null, null);
+			cfg.maxNumberOfChanges = 3;
+			List<TransportRouteResult> expected = new TransportRoutePlanner().buildRoute(
+					createGridContext(cfg, routes), start, end);
+			List<TransportRouteResult> rounds = new TransportRaptorPlanner().buildRoute(
+					createGridContext(cfg, routes), start, end);
+			compare(start + " -> " + end, cfg, expected, rounds);
+		}
+	}
+
+	@Test
+	public void testScheduleGrid() throws IOException, InterruptedException {
+		final List<TransportRoute> routes = new ArrayList<TransportRoute>();
+		TransportStop[][] grid = createGrid(routes);
+		for (int i = 0; i < routes.size(); i++) {
+			TransportRoute r = routes.get(i);
+			// ids don't fit into long shifted by stop index or start time
+			r.setId(((long) (i + 1) << 52) + 1);
+			r.setSchedule(createSchedule(i, r.getForwardStops().size(), "tram".equals(r.getType())));
+		}
+		Random rnd = new Random(9);
+		int found = 0;
+		for (int i = 0; i < 50; i++) {
+			LatLon start = grid[rnd.nextInt(LINES)][rnd.nextInt(LINES)].getLocation();
+			LatLon end = grid[rnd.nextInt(LINES)][rnd.nextInt(LINES)].getLocation();
+			TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(null, null);
+			cfg.maxNumberOfChanges = 3;
+			cfg.useRaptor = true;
+			cfg.useSchedule = true;
+			cfg.scheduleTimeOfDay = (7 + rnd.nextInt(12)) * 60 * 6 + rnd.nextInt(60);
+			String msg = start + " -> " + end + " at " + TransportRoutePlanner.formatTransportTime(cfg.scheduleTimeOfDay);
+			List<TransportRouteResult> rounds = new TransportRoutePlanner().buildRoute(
+					createGridContext(cfg, routes), start, end);
+			for (TransportRouteResult r : rounds) {
+				Assert.assertEquals(msg, scheduleJourneyTime(msg, cfg, start, end, r), r.getRouteTime(), TIME_DELTA);
+			}
+			for (int j = 1; j < rounds.size(); j++) {
+				Assert.assertTrue(msg, rounds.get(j).getRouteTime() > rounds.get(j - 1).getRouteTime());
+				Assert.assertTrue(msg, rounds.get(j).getChanges() < rounds.get(j - 1).getChanges());
+			}
+			if (!rounds.isEmpty()) {
+				found++;
+			}
+		}
+		Assert.assertTrue(found > 0);
+	}
+
+	@Test
+	public void testTestResourcesObf() throws IOException, InterruptedException {
+		List<File> files = new ArrayList<File>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		int compared = 0;
+		for (File file : files) {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, file);
+			try {
+				if (!reader.hasTransportData()) {
+					continue;
+				}
+				List<TransportStop> stops = reader.searchTransportIndex(BinaryMapIndexReader.buildSearchTransportRequest(
+						0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, -1, null));
+				compared += compareObfRoutes(file.getName(), reader, stops);
+			} finally {
+				reader.close();
+			}
+		}
+		Assume.assumeTrue("No transport data in " + TEST_RESOURCES, compared > 0);
+	}
+
+	private int compareObfRoutes(String name, BinaryMapIndexReader reader, List<TransportStop> stops)
+			throws IOException, InterruptedException {
+		int compared = 0;
+		if (stops.size() < 2) {
+			return compared;
+		}
+		GeneralRouter router = RoutingConfiguration.getDefault().getRouter("public_transport");
+		Random rnd = new Random(5);
+		for (int i = 0; i < OBF_PAIRS * 10 && compared < OBF_PAIRS; i++) {
+			LatLon start = stops.get(rnd.nextInt(stops.size())).getLocation();
+			LatLon end = stops.get(rnd.nextInt(stops.size())).getLocation();
+			double dist = MapUtils.getDistance(start, end);
+			if (dist < 1000 || dist > 15000) {
+				continue;
+			}
+			TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(router,
+					Collections.<String, String>emptyMap());
+			List<TransportRouteResult> expected = new TransportRoutePlanner().buildRoute(
+					new TransportRoutingContext(cfg, null, reader), start, end);
+			List<TransportRouteResult> rounds = new TransportRaptorPlanner().buildRoute(
+					new TransportRoutingContext(cfg, null, reader), start, end);
+			compare(name + " " + start + " -> " + end, cfg, expected, rounds);
+			compared++;
+		}
+		return compared;
+	}
+
+	private static void compare(String msg, TransportRoutingConfiguration cfg, List<TransportRouteResult> expected, List<TransportRouteResult> rounds) {
+		for (TransportRouteResult r : rounds) {
+			Assert.assertEquals(msg, journeyTime(cfg, r), r.getRouteTime(), TIME_DELTA);
+		}
+		if (expected == null || expected.isEmpty()) {
+			return;
+		}
+		Assert.assertFalse(msg, rounds.isEmpty());
+		// queue of segments is pruned by visited segments, rounds find the earliest arrival
+		Assert.assertTrue(msg + " " + bestTime(expected) + " < " + bestTime(rounds),
+				bestTime(rounds) <= bestTime(expected) + TIME_DELTA);
+		// rounds are pareto optimal and sorted by time: every next journey arrives later with less changes
+		for (int i = 1; i < rounds.size(); i++) {
+			Assert.assertTrue(msg, rounds.get(i).getRouteTime() > rounds.get(i - 1).getRouteTime());
+			Assert.assertTrue(msg, rounds.get(i).getChanges() < rounds.get(i - 1).getChanges());
+		}
+	}
+
+	private static double journeyTime(TransportRoutingConfiguration cfg, TransportRouteResult r) {
+		double time = r.getWalkTime();
+		for (TransportRouteResultSegment s : r.getSegments()) {
+			time += s.travelTime;
+		}
+		return time + r.getChanges() * (cfg.getChangeTime() + cfg.getBoardingTime());
+	}
+
+	// arrival (seconds after schedule time) by departures of rides from timetable and walks between their stops
+	private static double scheduleJourneyTime(String msg, TransportRoutingConfiguration cfg, LatLon start, LatLon end,
+			TransportRouteResult r) {
+		double time = 0;
+		LatLon walkFrom = start;
+		for (int i = 0; i < r.getSegments().size(); i++) {
+			TransportRouteResultSegment s = r.getSegments().get(i);
+			List<TransportStop> routeStops = s.route.getForwardStops();
+			Assert.assertEquals(msg, MapUtils.getDistance(walkFrom, routeStops.get(s.start).getLocation()), s.walkDist, 1);
+			walkFrom = routeStops.get(s.end).getLocation();
+			time += s.walkTime;
+			if (i > 0) {
+				time += cfg.getChangeTime() + cfg.getBoardingTime();
+			}
+			TransportSchedule schedule = s.route.getSchedule();
+			Assert.assertTrue(msg + " " + s.route.getId() + " " + s.depTime, departs(schedule, s.start, s.depTime));
+			int board = (s.depTime - cfg.scheduleTimeOfDay) * 10;
+			Assert.assertTrue(msg + " " + board + " < " + time, board + TIME_DELTA >= time);
+			double travelTime = 0;
+			for (int ind = s.start; ind < s.end; ind++) {
+				travelTime += schedule.avgStopIntervals.getQuick(ind) * 10;
+			}
+			Assert.assertEquals(msg, travelTime, s.travelTime, 0);
+			time = board + travelTime;
+		}
+		Assert.assertEquals(msg, MapUtils.getDistance(walkFrom, end), r.getFinishWalkDist(), 1);
+		return time + r.getFinishWalkDist() / cfg.walkSpeed;
+	}
+
+	private static boolean departs(TransportSchedule schedule, int stopIndex, int depTime) {
+		int stopTravelTime = 0;
+		for (int i = 0; i < stopIndex; i++) {
+			stopTravelTime += schedule.avgStopIntervals.getQuick(i);
+		}
+		int t = 0;
+		for (int i = 0; i < schedule.tripIntervals.size(); i++) {
+			t += schedule.tripIntervals.getQuick(i);
+			if (t + stopTravelTime == depTime) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static double bestTime(List<TransportRouteResult> results) {
+		double best = Double.MAX_VALUE;
+		for (TransportRouteResult r : results) {
+			best = Math.min(best, r.getRouteTime());
+		}
+		return best;
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+
+	private static TransportStop[][] createGrid(List<TransportRoute> routes) {
+		TransportStop[][] grid = new TransportStop[LINES][LINES];
+		for (int i = 0; i < LINES; i++) {
+			for (int j = 0; j < LINES; j++) {
+				TransportStop s = new TransportStop();
+				s.setId((long) (i * LINES + j + 1));
+				s.setLocation(LAT + i * STEP, LON + j * STEP * 1.6);
+				s.x31 = MapUtils.get31TileNumberX(s.getLocation().getLongitude());
+				s.y31 = MapUtils.get31TileNumberY(s.getLocation().getLatitude());
+				grid[i][j] = s;
+			}
+		}
+		long id = 1;
+		for (int i = 0; i < LINES; i++) {
+			List<TransportStop> row = new ArrayList<TransportStop>();
+			List<TransportStop> column = new ArrayList<TransportStop>();
+			for (int j = 0; j < LINES; j++) {
+				row.add(grid[i][j]);
+				column.add(grid[j][i]);
+			}
+			routes.add(route(id++, row, "bus"));
+			// faster line in one direction only
+			routes.add(route(id++, column, i % 3 == 0 ? "tram" : "bus"));
+			List<TransportStop> back = new ArrayList<TransportStop>(row);
+			Collections.reverse(back);
+			routes.add(route(id++, back, "bus"));
+		}
+		return grid;
+	}
+
+	private static TransportRoute route(long id, List<TransportStop> stops, String type) {
+		TransportRoute r = new TransportRoute();
+		r.setId(id);
+		r.setType(type);
+		r.setForwardStops(stops);
+		return r;
+	}
+
+	private static TransportSchedule createSchedule(int route, int stops, boolean tram) {
+		TransportSchedule schedule = new TransportSchedule();
+		// every 6-9 minutes with own offset of route
+		schedule.tripIntervals.add(FIRST_TRIP + route * 7 % 60);
+		for (int i = 1; i < TRIPS; i++) {
+			schedule.tripIntervals.add((6 + route % 4) * 6);
+		}
+		for (int i = 0; i < stops - 1; i++) {
+			schedule.avgStopIntervals.add((tram ? 4 : 6) + (i + route) % 3);
+		}
+		return schedule;
+	}
+
+	private static TransportRoutingContext createGridContext(final TransportRoutingConfiguration cfg,
+			final List<TransportRoute> routes) {
+		return new TransportRoutingContext(cfg, null) {
+			@Override
+			public List<TransportRouteSegment> getTransportStops(int x, int y, boolean change,
+					List<TransportRouteSegment> res) {
+				int radius = change ? cfg.walkChangeRadius : cfg.walkRadius;
+				for (TransportRoute r : routes) {
+					List<TransportStop> stops = r.getForwardStops();
+					for (int i = 0; i < stops.size(); i++) {
+						TransportStop s = stops.get(i);
+						if (MapUtils.measuredDist31(x, y, s.x31, s.y31) > radius) {
+							continue;
+						}
+						if (!cfg.useSchedule) {
+							res.add(new TransportRouteSegment(r, i));
+							continue;
+						}
+						// departures from stop within schedule time as context loads them from obf
+						TransportSchedule schedule = r.getSchedule();
+						int stopTravelTime = 0;
+						for (int k = 0; k < i; k++) {
+							stopTravelTime += schedule.avgStopIntervals.getQuick(k);
+						}
+						int t = 0;
+						for (int k = 0; k < schedule.tripIntervals.size(); k++) {
+							t += schedule.tripIntervals.getQuick(k);
+							int depTime = t + stopTravelTime;
+							if (depTime >= cfg.scheduleTimeOfDay && depTime <= cfg.scheduleTimeOfDay + cfg.scheduleMaxTime) {
+								res.add(new TransportRouteSegment(r, i, depTime));
+							}
+						}
+					}
+				}
+				return res;
+			}
+		};
+	}
+}
@@ -0,0 +1,127 @@
+package net.osmand.router;
+
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportRoutePlanner.TransportRouteSegment;
+import net.osmand.util.MapUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TransportRoutePlanner} and {@link TransportRaptorPlanner} on synthetic grid of bus lines
+ * (without obf files). Allocations are measured with gc profiler: gradle jmh -Pjmh="TransportRoutePlannerBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportRoutePlannerBenchmark {
+
+	private static final double LAT = 52.0;
+	private static final double LON = 13.0;
+	// ~400 m between stops
+	private static final double STEP = 0.004;
+
+	@Param({"10", "20"})
+	public int lines;
+
+	private List<TransportRoute> routes;
+	private LatLon start;
+	private LatLon end;
+
+	@Setup
+	public void setup() {
+		routes = new ArrayList<>();
+		TransportStop[][] grid = new TransportStop[lines][lines];
+		for (int i = 0; i < lines; i++) {
+			for (int j = 0; j < lines; j++) {
+				TransportStop s = new TransportStop();
+				s.setId((long) (i * lines + j + 1));
+				s.setLocation(LAT + i * STEP, LON + j * STEP * 1.6);
+				s.x31 = MapUtils.get31TileNumberX(s.getLocation().getLongitude());
+				s.y31 = MapUtils.get31TileNumberY(s.getLocation().getLatitude());
+				grid[i][j] = s;
+			}
+		}
+		long id = 1;
+		for (int i = 0; i < lines; i++) {
+			List<TransportStop> row = new ArrayList<>();
+			List<TransportStop> column = new ArrayList<>();
+			for (int j = 0; j < lines; j++) {
+				row.add(grid[i][j]);
+				column.add(grid[j][i]);
+			}
+			routes.add(route(id++, row));
+			routes.add(route(id++, column));
+			List<TransportStop> back = new ArrayList<>(row);
+			Collections.reverse(back);
+			routes.add(route(id++, back));
+			back = new ArrayList<>(column);
+			Collections.reverse(back);
+			routes.add(route(id++, back));
+		}
+		start = grid[1][2].getLocation();
+		end = grid[lines - 2][lines - 3].getLocation();
+	}
+
+	private static TransportRoute route(long id, List<TransportStop> stops) {
+		TransportRoute r = new TransportRoute();
+		r.setId(id);
+		r.setType("bus");
+		r.setForwardStops(stops);
+		return r;
+	}
+
+	private TransportRoutingContext createContext() {
+		TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(null, null);
+		cfg.maxNumberOfChanges = 3;
+		return new TransportRoutingContext(cfg, null) {
+			@Override
+			public List<TransportRouteSegment> getTransportStops(int x, int y, boolean change,
+					List<TransportRouteSegment> res) {
+				int radius = change ? cfg.walkChangeRadius : cfg.walkRadius;
+				for (TransportRoute r : routes) {
+					List<TransportStop> stops = r.getForwardStops();
+					for (int i = 0; i < stops.size(); i++) {
+						TransportStop s = stops.get(i);
+						if (MapUtils.measuredDist31(x, y, s.x31, s.y31) <= radius) {
+							res.add(new TransportRouteSegment(r, i));
+						}
+					}
+				}
+				return res;
+			}
+		};
+	}
+
+	@Benchmark
+	public Object segmentsQueue() throws IOException, InterruptedException {
+		return new TransportRoutePlanner().buildRoute(createContext(), start, end);
+	}
+
+	@Benchmark
+	public Object rounds() throws IOException, InterruptedException {
+		TransportRoutingContext ctx = createContext();
+		ctx.cfg.useRaptor = true;
+		return new TransportRoutePlanner().buildRoute(ctx, start, end);
+	}
+}
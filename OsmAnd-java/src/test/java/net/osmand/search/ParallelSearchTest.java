@@ -0,0 +1,146 @@
+package net.osmand.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapPoiReaderAdapter.PoiRegion;
+import net.osmand.data.Amenity;
+import net.osmand.data.LatLon;
+import net.osmand.data.MapObject;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.Algorithms;
+import net.osmand.util.MapUtils;
+
+/**
+ * Search by name with {@link SearchSettings#setSearchExecutor} must publish the same results in the same order
+ * as search of files one by one, for names of POI of obf files from test resources.
+ */
+public class ParallelSearchTest {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+	private static final int QUERIES = 40;
+	private static final int[] PARALLEL_FILES = { 1, 2, SearchSettings.DEFAULT_SEARCH_PARALLEL_FILES };
+
+	@Test
+	public void testParallelEqualsSequential() throws IOException {
+		List<File> files = new ArrayList<File>();
+		collectObfFiles(new File(TEST_RESOURCES), files);
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<String> names = new ArrayList<>();
+			LatLon location = null;
+			for (File f : files) {
+				BinaryMapIndexReader reader = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+				readers.add(reader);
+				for (PoiRegion reg : reader.getPoiIndexes()) {
+					if (location == null) {
+						location = new LatLon(MapUtils.get31LatitudeY((reg.getTop31() + reg.getBottom31()) / 2),
+								MapUtils.get31LongitudeX((reg.getLeft31() + reg.getRight31()) / 2));
+					}
+					for (Amenity a : reader.searchPoi(BinaryMapIndexReader.buildSearchPoiRequest(reg.getLeft31(),
+							reg.getRight31(), reg.getTop31(), reg.getBottom31(), 15,
+							BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null))) {
+						if (!Algorithms.isEmpty(a.getName())) {
+							names.add(a.getName());
+						}
+					}
+				}
+			}
+			Assume.assumeTrue("No POI names in " + TEST_RESOURCES, readers.size() > 1 && !names.isEmpty());
+			SearchUICore core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+			core.init();
+			SearchSettings settings = new SearchSettings(readers).setOriginalLocation(location);
+			Random rnd = new Random(13);
+			int compared = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				String query = getQuery(rnd, names.get(rnd.nextInt(names.size())));
+				List<String> expected = search(core, settings, query);
+				for (int parallelFiles : PARALLEL_FILES) {
+					List<String> actual = search(core, settings.setSearchExecutor(executor, parallelFiles), query);
+					Assert.assertEquals("'" + query + "' parallel files " + parallelFiles, expected, actual);
+				}
+				if (!expected.isEmpty()) {
+					compared++;
+				}
+			}
+			Assume.assumeTrue("Nothing found by POI names", compared > 0);
+		} finally {
+			executor.shutdownNow();
+			for (BinaryMapIndexReader r : readers) {
+				r.close();
+			}
+		}
+	}
+
+	// published results and finished files in order of publish
+	private static List<String> search(SearchUICore core, SearchSettings settings, String query) {
+		final List<String> published = new ArrayList<>();
+		ResultMatcher<SearchResult> rm = new ResultMatcher<SearchResult>() {
+			@Override
+			public boolean publish(SearchResult r) {
+				StringBuilder s = new StringBuilder(r.objectType.name());
+				if (r.file != null) {
+					s.append(" ").append(r.file.getFile().getName());
+				}
+				if (r.object instanceof MapObject) {
+					s.append(" ").append(((MapObject) r.object).getId()).append(" ").append(r.localeName);
+				}
+				published.add(s.toString());
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(settings).generateNewPhrase(query, settings);
+		core.searchInternal(phrase, new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), -1));
+		return published;
+	}
+
+	private static String getQuery(Random rnd, String name) {
+		String[] words = name.split(" ");
+		String first = words[0];
+		switch (rnd.nextInt(3)) {
+		case 0:
+			return first.substring(0, 1 + rnd.nextInt(first.length()));
+		case 1:
+			return name;
+		default:
+			return words.length > 1 ? first + " " + words[1].substring(0, 1) : first;
+		}
+	}
+
+	private static void collectObfFiles(File dir, List<File> files) {
+		File[] list = dir.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (File f : list) {
+			if (f.isDirectory()) {
+				collectObfFiles(f, files);
+			} else if (f.getName().endsWith(".obf")) {
+				files.add(f);
+			}
+		}
+	}
+}
@@ -92,20 +92,7 @@ public class SearchUICoreTest {
 		Assert.assertTrue(sourceJsonText.length() > 0);
 
 		JSONObject sourceJson = new JSONObject(sourceJsonText);
-		JSONArray phrasesJson = sourceJson.optJSONArray("phrases");
-		String singlePhrase = sourceJson.optString("phrase", null);
-		List<String> phrases = new ArrayList<>();
-		if (singlePhrase != null) {
-			phrases.add(singlePhrase);
-		}
-		if (phrasesJson != null) {
-			for (int i = 0; i < phrasesJson.length(); i++) {
-				String phrase = phrasesJson.optString(i);
-				if (phrase != null) {
-					phrases.add(phrase);
-				}
-			}
-		}
+		List<String> phrases = parsePhrases(sourceJson);
 		JSONObject settingsJson = sourceJson.getJSONObject("settings");
 		BinaryMapIndexReader reader = null;
 		boolean useData = settingsJson.optBoolean("useData", true);
@@ -116,14 +103,7 @@ public class SearchUICoreTest {
 				return;
 			}
 			//Assert.assertTrue(obfZipFileExists);
-
-			GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(obfZipFile));
-			FileOutputStream fous = new FileOutputStream(obfFile);
-			Algorithms.streamCopy(gzin, fous);
-			fous.close();
-			gzin.close();
-
-			reader = new BinaryMapIndexReader(new RandomAccessFile(obfFile.getPath(), "r"), obfFile);
+			reader = unzipObf(obfZipFile, obfFile);
 		}
 		 boolean disabled = settingsJson.optBoolean("disabled", false);
 		 if (disabled) {
@@ -222,6 +202,89 @@ public class SearchUICoreTest {
 		obfFile.delete();
 	}
 
+	@Test
+	public void testIncrementalSearch() throws IOException, JSONException {
+		File obfFile = new File(testFile.getParentFile(), testFile.getName().replace(".json", ".obf"));
+		File obfZipFile = new File(testFile.getParentFile(), testFile.getName().replace(".json", ".obf.gz"));
+		JSONObject sourceJson = new JSONObject(Algorithms.getFileAsString(testFile));
+		JSONObject settingsJson = sourceJson.getJSONObject("settings");
+		if (settingsJson.optBoolean("disabled", false) || !settingsJson.optBoolean("useData", true)
+				|| !obfZipFile.exists()) {
+			return;
+		}
+		BinaryMapIndexReader reader = unzipObf(obfZipFile, obfFile);
+		SearchSettings s = SearchSettings.parseJSON(settingsJson);
+		s.setOfflineIndexes(Collections.singletonList(reader));
+		SearchUICore core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		core.init();
+		SearchUICore incrementalCore = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		incrementalCore.init();
+		incrementalCore.setIncrementalSearch(true);
+		ResultMatcher<SearchResult> rm = new ResultMatcher<SearchResult>() {
+			@Override
+			public boolean publish(SearchResult object) {
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+		SearchPhrase emptyPhrase = SearchPhrase.emptyPhrase(s);
+		for (String text : parsePhrases(sourceJson)) {
+			if (text.startsWith("POI_TYPE:")) {
+				continue;
+			}
+			// every typed prefix is refined from results of previous shorter prefix
+			for (int l = 1; l <= text.length(); l++) {
+				String prefix = text.substring(0, l);
+				SearchPhrase phrase = emptyPhrase.generateNewPhrase(prefix, s);
+				List<SearchResult> expected = getSearchResult(phrase, rm, core);
+				List<SearchResult> actual = getSearchResult(emptyPhrase.generateNewPhrase(prefix, s), rm,
+						incrementalCore);
+				Assert.assertEquals(prefix, formatResults(expected, phrase), formatResults(actual, phrase));
+			}
+		}
+		reader.close();
+		obfFile.delete();
+	}
+
+	private List<String> formatResults(List<SearchResult> searchResults, SearchPhrase phrase) {
+		List<String> res = new ArrayList<>();
+		for (SearchResult r : searchResults) {
+			res.add(formatResult(false, r, phrase));
+		}
+		return res;
+	}
+
+	private static List<String> parsePhrases(JSONObject sourceJson) {
+		JSONArray phrasesJson = sourceJson.optJSONArray("phrases");
+		String singlePhrase = sourceJson.optString("phrase", null);
+		List<String> phrases = new ArrayList<>();
+		if (singlePhrase != null) {
+			phrases.add(singlePhrase);
+		}
+		if (phrasesJson != null) {
+			for (int i = 0; i < phrasesJson.length(); i++) {
+				String phrase = phrasesJson.optString(i);
+				if (phrase != null) {
+					phrases.add(phrase);
+				}
+			}
+		}
+		return phrases;
+	}
+
+	private static BinaryMapIndexReader unzipObf(File obfZipFile, File obfFile) throws IOException {
+		GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(obfZipFile));
+		FileOutputStream fous = new FileOutputStream(obfFile);
+		Algorithms.streamCopy(gzin, fous);
+		fous.close();
+		gzin.close();
+		return new BinaryMapIndexReader(new RandomAccessFile(obfFile.getPath(), "r"), obfFile);
+	}
+
 	private List<SearchResult> getSearchResult(SearchPhrase phrase, ResultMatcher<SearchResult> rm, SearchUICore core){
 		SearchResultMatcher matcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), -1);
 		core.searchInternal(phrase, matcher);
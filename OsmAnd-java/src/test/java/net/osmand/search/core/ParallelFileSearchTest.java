@@ -0,0 +1,124 @@
+package net.osmand.search.core;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.search.core.ParallelFileSearch.FileMerge;
+import net.osmand.search.core.ParallelFileSearch.FileResults;
+import net.osmand.search.core.ParallelFileSearch.FileSearch;
+
+/**
+ * {@link ParallelFileSearch} submits only a window of files which are not merged yet and doesn't take next files
+ * after merge stops search.
+ */
+public class ParallelFileSearchTest {
+
+	private static final int FILES = 40;
+	private static final int WINDOW = 3;
+
+	private ExecutorService executor;
+	private final AtomicInteger taken = new AtomicInteger();
+	private final AtomicInteger running = new AtomicInteger();
+	private int merged;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(8);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testWindowOfSubmittedFiles() throws IOException {
+		ParallelFileSearch.search(executor, WINDOW, files(), matcher(), search(), merge(-1));
+		Assert.assertEquals(FILES, merged);
+		Assert.assertEquals(FILES, taken.get());
+	}
+
+	@Test
+	public void testStopAfterMerge() throws IOException {
+		int stopAt = 5;
+		ParallelFileSearch.search(executor, WINDOW, files(), matcher(), search(), merge(stopAt));
+		Assert.assertEquals(stopAt, merged);
+		Assert.assertTrue(taken.toString(), taken.get() <= stopAt - 1 + WINDOW);
+		// method returns after all tasks are finished
+		Assert.assertEquals(0, running.get());
+	}
+
+	private Iterator<BinaryMapIndexReader> files() {
+		return new Iterator<BinaryMapIndexReader>() {
+			@Override
+			public boolean hasNext() {
+				return taken.get() < FILES;
+			}
+
+			@Override
+			public BinaryMapIndexReader next() {
+				taken.incrementAndGet();
+				// reader is not used by search
+				return null;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private FileSearch<Integer> search() {
+		return new FileSearch<Integer>() {
+			@Override
+			public void search(BinaryMapIndexReader file, FileResults<Integer> res) throws IOException {
+				running.incrementAndGet();
+				try {
+					Thread.sleep(1);
+					res.results.add(1);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				} finally {
+					running.decrementAndGet();
+				}
+			}
+		};
+	}
+
+	private FileMerge<Integer> merge(final int stopAt) {
+		return new FileMerge<Integer>() {
+			@Override
+			public boolean merge(BinaryMapIndexReader file, FileResults<Integer> res) {
+				Assert.assertTrue(taken + " files for " + merged + " merged", taken.get() - merged <= WINDOW);
+				Assert.assertEquals(1, res.results.size());
+				merged++;
+				return merged != stopAt;
+			}
+		};
+	}
+
+	private static ResultMatcher<Object> matcher() {
+		return new ResultMatcher<Object>() {
+			@Override
+			public boolean publish(Object object) {
+				return true;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+	}
+}